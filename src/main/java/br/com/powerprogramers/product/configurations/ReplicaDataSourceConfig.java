@@ -0,0 +1,103 @@
+package br.com.powerprogramers.product.configurations;
+
+import br.com.powerprogramers.product.domain.service.replica.ReplicaRouting;
+import br.com.powerprogramers.product.domain.service.replica.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Configuration of the read replicas. When enabled, the data source of the application routes the
+ * read-only requests to the replicas and everything else to the primary, which keeps the {@code
+ * spring.datasource} settings.
+ */
+@Configuration
+@ConditionalOnProperty(name = "product.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+  /**
+   * Provides the pool of the primary database.
+   *
+   * @param properties the spring.datasource properties
+   * @return the primary pool
+   */
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  /**
+   * Provides the routing between the primary and the replica pools.
+   *
+   * @param primaryDataSource the primary pool
+   * @param urls JDBC URLs of the replicas
+   * @param username user of the replicas
+   * @param password password of the replicas
+   * @param poolSize most connections of each replica pool
+   * @param maxLag most delay of a replica for it to be read
+   * @param meterRegistry registry of the routing and pool metrics
+   * @return the routing data source
+   */
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(
+      HikariDataSource primaryDataSource,
+      @Value("${product.replica.urls}") List<String> urls,
+      @Value("${product.replica.username:${spring.datasource.username:}}") String username,
+      @Value("${product.replica.password:${spring.datasource.password:}}") String password,
+      @Value("${product.replica.pool-size:5}") int poolSize,
+      @Value("${product.replica.max-lag:2s}") Duration maxLag,
+      MeterRegistry meterRegistry) {
+    String pool =
+        primaryDataSource.getPoolName() == null ? "product" : primaryDataSource.getPoolName();
+    List<DataSource> replicas = new ArrayList<>();
+    for (String url : urls) {
+      HikariDataSource replica = new HikariDataSource();
+      replica.setPoolName(pool + "-replica-" + replicas.size());
+      replica.setJdbcUrl(url);
+      replica.setUsername(username);
+      replica.setPassword(password);
+      replica.setMaximumPoolSize(poolSize);
+      replica.setReadOnly(true);
+      replica.setMetricRegistry(meterRegistry);
+      replicas.add(replica);
+    }
+    return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLag, meterRegistry);
+  }
+
+  /**
+   * Provides the data source of the application. The connection is taken at the first statement,
+   * once the transaction tells whether it is read-only.
+   *
+   * @param replicaRoutingDataSource the routing data source
+   * @return the data source of the application
+   */
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+
+  /**
+   * Provides the decorator of the application tasks, which keeps the replica reads of a request in
+   * the tasks it starts, such as the body of the export.
+   *
+   * @return the task decorator
+   */
+  @Bean
+  public TaskDecorator replicaRoutingTaskDecorator() {
+    return ReplicaRouting::propagate;
+  }
+}
@@ -2,6 +2,8 @@ package br.com.powerprogramers.product.domain.batch.job;
 
 import br.com.powerprogramers.product.domain.exceptions.ProductLoadMoveFileException;
 import br.com.powerprogramers.product.domain.model.ProductLoad;
+import br.com.powerprogramers.product.domain.service.search.ProductTextIndex;
+import br.com.powerprogramers.product.domain.service.snapshot.ProductSnapshot;
 import java.io.File;
 import java.nio.file.Files;
 import java.time.LocalDateTime;
@@ -10,6 +12,8 @@ import java.time.format.DateTimeFormatter;
 import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
@@ -47,14 +51,28 @@ public class LoadConfiguration {
    *
    * @param initialStep the initial step of the job
    * @param moveStepFiles the step to move processed files
+   * @param productTextIndex the text index that reads the loaded products
+   * @param productSnapshot the catalog snapshot that reads the loaded products
    * @return the configured job
    */
   @Bean
   public Job jobLoadProduct(
-      @Qualifier("initialStep") Step initialStep, @Qualifier("moveStepFiles") Step moveStepFiles) {
+      @Qualifier("initialStep") Step initialStep,
+      @Qualifier("moveStepFiles") Step moveStepFiles,
+      ProductTextIndex productTextIndex,
+      ProductSnapshot productSnapshot) {
     return new JobBuilder("importFile", jobRepository)
         .start(initialStep)
         .next(moveStepFiles)
+        .listener(
+            new JobExecutionListener() {
+              @Override
+              public void afterJob(JobExecution jobExecution) {
+                // the chunks committed even when a later step failed
+                productTextIndex.catchUp();
+                productSnapshot.catchUp();
+              }
+            })
         .incrementer(new RunIdIncrementer())
         .build();
   }
@@ -1,11 +1,25 @@
 package br.com.powerprogramers.product.domain.consumer;
 
+import br.com.powerprogramers.product.domain.dto.ProductLookupDto;
 import br.com.powerprogramers.product.domain.model.ProductRequested;
+import br.com.powerprogramers.product.domain.model.ProductReserved;
+import br.com.powerprogramers.product.domain.model.StockRemoval;
+import br.com.powerprogramers.product.domain.model.StockReservation;
+import br.com.powerprogramers.product.domain.service.ProductService;
+import br.com.powerprogramers.product.domain.service.StockReservationService;
 import br.com.powerprogramers.product.domain.service.StockService;
+import br.com.powerprogramers.product.domain.service.idempotency.IdempotencyStore;
+import java.time.Duration;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /** Class that represents a product consumer. */
 @Component
@@ -13,14 +27,86 @@ import org.springframework.stereotype.Component;
 public class ProductConsumer {
 
   private final StockService stockService;
+  private final StockReservationService stockReservationService;
+  private final IdempotencyStore idempotencyStore;
+  private final ProductService productService;
 
-  @Bean(name = "removeStock")
+  @Value("${product.stock.batch.size:100}")
+  private int batchSize;
+
+  @Value("${product.stock.batch.window:50ms}")
+  private Duration batchWindow;
+
+  @Value("${product.stock.batch.max-pending:1000}")
+  private int maxPending;
+
+  // the alias keeps the path used by the order service reachable now that there are other functions
+  @Bean(name = {"removeStock", "consumer-remove-stock"})
   Consumer<ProductRequested> consumer() {
     return productRequested -> {
       if (productRequested.getAmount() < 1) {
         throw new IllegalArgumentException("The amount cannot be negative or zero.");
       }
-      this.stockService.updateStock(productRequested.getId(), productRequested.getAmount() * -1);
+      Long id = productRequested.getId();
+      int amount = productRequested.getAmount() * -1;
+      this.idempotencyStore.execute(
+          productRequested.getIdempotencyKey(),
+          id,
+          amount,
+          () -> this.stockService.updateStock(id, amount));
     };
   }
+
+  @Bean(name = "lookupProducts")
+  Function<List<Long>, ProductLookupDto> lookupProducts() {
+    return this.productService::findAllById;
+  }
+
+  @Bean(name = "reserveOrder")
+  Function<List<ProductRequested>, List<ProductReserved>> reserveOrder() {
+    return this.stockService::reserveOrder;
+  }
+
+  @Bean(name = "reserveStock")
+  Function<ProductRequested, StockReservation> reserveStock() {
+    return this.stockReservationService::reserve;
+  }
+
+  @Bean(name = "confirmReservation")
+  Function<String, StockReservation> confirmReservation() {
+    return this.stockReservationService::confirm;
+  }
+
+  @Bean(name = "releaseReservation")
+  Function<String, StockReservation> releaseReservation() {
+    return this.stockReservationService::release;
+  }
+
+  /**
+   * Batching variant of removeStock. Requests are grouped by size or time window and each group is
+   * applied with a single update per product. At most max-pending requests are requested from the
+   * source at a time, so a burst is held back by backpressure instead of growing a queue.
+   *
+   * @return the function answering the outcome of each request
+   */
+  @Bean(name = "removeStockBatch")
+  Function<Flux<ProductRequested>, Flux<StockRemoval>> batchConsumer() {
+    return productsRequested ->
+        productsRequested
+            .limitRate(this.maxPending)
+            .bufferTimeout(this.batchSize, this.batchWindow, true)
+            .concatMap(this::removeStock, 1)
+            .flatMapIterable(Function.identity());
+  }
+
+  private Mono<List<StockRemoval>> removeStock(List<ProductRequested> productsRequested) {
+    return Mono.fromCallable(() -> this.stockService.removeStock(productsRequested))
+        .subscribeOn(Schedulers.boundedElastic())
+        .onErrorResume(
+            e ->
+                Mono.just(
+                    productsRequested.stream()
+                        .map(p -> StockRemoval.rejected(p, e.getMessage()))
+                        .toList()));
+  }
 }
@@ -0,0 +1,102 @@
+package br.com.powerprogramers.product.domain.controller;
+
+import br.com.powerprogramers.product.domain.service.outbox.ProductChangeFeed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Class that controls the product changes feed endpoint. It is not generated from the API
+ * definition, as the generated interfaces can neither wait for changes without holding a request
+ * thread nor stream the answer.
+ */
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Product")
+public class ProductChangeController {
+
+  private static final long TIMEOUT_MARGIN_MILLIS = 5000;
+
+  private final ProductChangeFeed productChangeFeed;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Streams the product changes after a cursor, one JSON object per line. The position of each
+   * change is the cursor to resume after it. When there are no changes, waits up to the given time
+   * for one and answers with no content if none arrives.
+   *
+   * @param since position of the last change already read
+   * @param limit most changes to answer
+   * @param wait seconds to wait for a change when there is none
+   * @return the changes
+   */
+  @Operation(
+      summary = "Find product changes",
+      description = "Streams the product and stock changes after a cursor as NDJSON")
+  @GetMapping("/products/changes")
+  public DeferredResult<ResponseEntity<StreamingResponseBody>> findChanges(
+      @Parameter(description = "Position of the last change already read")
+          @RequestParam(defaultValue = "0")
+          long since,
+      @Parameter(description = "Maximum number of changes") @RequestParam(defaultValue = "1000")
+          int limit,
+      @Parameter(description = "Seconds to wait for a change") @RequestParam(defaultValue = "0")
+          int wait) {
+    if (since < 0 || limit < 1 || wait < 0) {
+      throw new IllegalArgumentException(
+          "The cursor and the wait cannot be negative and the limit must be positive.");
+    }
+
+    DeferredResult<ResponseEntity<StreamingResponseBody>> result =
+        new DeferredResult<>(
+            Duration.ofSeconds(wait).toMillis() + TIMEOUT_MARGIN_MILLIS,
+            ResponseEntity.noContent().build());
+    this.productChangeFeed
+        .await(since, Duration.ofSeconds(wait))
+        .thenAccept(
+            found ->
+                result.setResult(
+                    found
+                        ? ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .body(out -> this.write(out, since, limit))
+                        : ResponseEntity.noContent().build()))
+        .exceptionally(
+            e -> {
+              result.setErrorResult(e.getCause() == null ? e : e.getCause());
+              return null;
+            });
+    return result;
+  }
+
+  private void write(OutputStream out, long since, int limit) throws IOException {
+    try {
+      this.productChangeFeed.read(
+          since,
+          limit,
+          change -> {
+            try {
+              out.write(this.objectMapper.writeValueAsBytes(change));
+              out.write('\n');
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
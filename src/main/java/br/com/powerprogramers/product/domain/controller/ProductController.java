@@ -4,8 +4,20 @@ import br.com.powerprogramers.product.api.ProductsApi;
 import br.com.powerprogramers.product.domain.dto.CreateProductDto;
 import br.com.powerprogramers.product.domain.dto.PagedProductDto;
 import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.dto.ProductLookupDto;
+import br.com.powerprogramers.product.domain.dto.ProductValidatorDto;
 import br.com.powerprogramers.product.domain.dto.UpdateProductDto;
+import br.com.powerprogramers.product.domain.model.ProductCount;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductQuery;
+import br.com.powerprogramers.product.domain.model.ProductSort;
 import br.com.powerprogramers.product.domain.service.ProductService;
+import br.com.powerprogramers.product.domain.service.etag.ProductETag;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +31,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class ProductController implements ProductsApi {
 
   private final ProductService productService;
+  private final ProductETag productETag;
 
   /**
    * Activates a product by its ID.
@@ -50,23 +63,84 @@ public class ProductController implements ProductsApi {
    * @param name the name filter
    * @param description the description filter
    * @param active the active status filter
+   * @param after the cursor of the previous page, replacing the page number
+   * @param count how the total is counted
+   * @param minPrice the lowest price
+   * @param maxPrice the highest price
+   * @param inStock the stock filter
+   * @param sort the order of the products
+   * @param ifNoneMatch the ETags of the page already held
    * @return a paged list of products
    */
   @Override
   public ResponseEntity<PagedProductDto> findAllProducts(
-      Integer page, Integer perPage, String name, String description, Boolean active) {
-    return ResponseEntity.ok(this.productService.findAll(page, perPage, name, description, active));
+      Integer page,
+      Integer perPage,
+      String name,
+      String description,
+      Boolean active,
+      String after,
+      String count,
+      BigDecimal minPrice,
+      BigDecimal maxPrice,
+      Boolean inStock,
+      String sort,
+      String ifNoneMatch) {
+    ProductQuery query =
+        ProductQuery.builder()
+            .name(name)
+            .description(description)
+            .active(active)
+            .facets(new ProductFacets(minPrice, maxPrice, inStock, ProductSort.of(sort)))
+            .page(page)
+            .perPage(perPage)
+            .after(after)
+            .count(ProductCount.of(count))
+            .build();
+    PagedProductDto paged = this.productService.findAll(query);
+    return conditional(paged, this.productETag.of(paged), ifNoneMatch);
   }
 
   /**
    * Finds a product by its ID.
    *
    * @param id the ID of the product to find
+   * @param ifNoneMatch the ETags of the product already held
    * @return the found product
    */
   @Override
-  public ResponseEntity<ProductDto> findProductById(Long id) {
-    return ResponseEntity.ok(this.productService.findById(id));
+  public ResponseEntity<ProductDto> findProductById(Long id, String ifNoneMatch) {
+    ProductDto product = this.productService.findById(id);
+    return conditional(product, this.productETag.of(product), ifNoneMatch);
+  }
+
+  /**
+   * Finds the products of a list of IDs.
+   *
+   * @param ids the IDs of the products to find
+   * @return the products found, in the order of their IDs, and the IDs not found
+   */
+  @Override
+  public ResponseEntity<ProductLookupDto> lookupProducts(List<Long> ids) {
+    return ResponseEntity.ok(this.productService.findAllById(ids));
+  }
+
+  /**
+   * Finds the products that changed since the ETags a client holds.
+   *
+   * @param validators the IDs and ETags of the products held
+   * @return the changed products and the IDs no longer found
+   */
+  @Override
+  public ResponseEntity<ProductLookupDto> revalidateProducts(List<ProductValidatorDto> validators) {
+    Map<Long, String> held = new LinkedHashMap<>();
+    validators.forEach(v -> held.put(v.getId(), v.getEtag()));
+    ProductLookupDto lookup = this.productService.findAllById(new ArrayList<>(held.keySet()));
+    return ResponseEntity.ok(
+        lookup.items(
+            lookup.getItems().stream()
+                .filter(p -> !ProductETag.matches(held.get(p.getId()), this.productETag.of(p)))
+                .toList()));
   }
 
   /**
@@ -86,10 +160,41 @@ public class ProductController implements ProductsApi {
    *
    * @param id the ID of the product to update
    * @param body the updated product data
+   * @param ifMatch the ETag of the version the change was based on
    * @return the updated product
    */
   @Override
-  public ResponseEntity<ProductDto> updateProduct(Long id, UpdateProductDto body) {
-    return ResponseEntity.ok(this.productService.update(id, body));
+  public ResponseEntity<ProductDto> updateProduct(Long id, UpdateProductDto body, String ifMatch) {
+    return this.withETag(this.productService.update(id, body, ProductETag.version(ifMatch)));
+  }
+
+  /**
+   * Builds an OK response with the product ETag.
+   *
+   * @param product the product to answer
+   * @return the response entity
+   */
+  private ResponseEntity<ProductDto> withETag(ProductDto product) {
+    return conditional(product, this.productETag.of(product), null);
+  }
+
+  /**
+   * Builds an OK response with the ETag of the body, or a 304 without it when the client already
+   * holds the current ETag.
+   *
+   * @param body the body to answer
+   * @param etag the current ETag of the body
+   * @param ifNoneMatch the ETags already held
+   * @return the response entity
+   */
+  private static <T> ResponseEntity<T> conditional(T body, String etag, String ifNoneMatch) {
+    if (ProductETag.matches(ifNoneMatch, etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (etag != null) {
+      response.eTag(etag);
+    }
+    return response.body(body);
   }
 }
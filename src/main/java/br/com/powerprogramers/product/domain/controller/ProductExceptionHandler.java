@@ -6,10 +6,13 @@ import br.com.powerprogramers.product.domain.exceptions.ProductException;
 import br.com.powerprogramers.product.domain.exceptions.ProductLoadJobException;
 import br.com.powerprogramers.product.domain.exceptions.ProductLoadMoveFileException;
 import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
+import br.com.powerprogramers.product.domain.exceptions.ProductPreconditionFailedException;
+import br.com.powerprogramers.product.domain.exceptions.ReservationNotFoundException;
 import jakarta.annotation.Nullable;
 import jakarta.validation.ConstraintViolationException;
 import java.util.HashMap;
 import java.util.Map;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -42,6 +45,8 @@ public class ProductExceptionHandler extends ResponseEntityExceptionHandler {
         ProductException.class,
         CreateProductUseCaseException.class,
         ProductNotFoundException.class,
+        ProductPreconditionFailedException.class,
+        ReservationNotFoundException.class,
         ProductLoadMoveFileException.class,
         ProductLoadJobException.class
       })
@@ -50,6 +55,23 @@ public class ProductExceptionHandler extends ResponseEntityExceptionHandler {
     return ResponseEntity.status(ex.getStatus()).body(DomainException.from(ex, request));
   }
 
+  /**
+   * Handles OptimisticLockingFailureException, raised when a product kept changing concurrently
+   * after all retries, and constructs a ResponseEntity with the appropriate error details.
+   *
+   * @param ex the exception that occurred due to the concurrent modification
+   * @param request the web request during which the exception occurred
+   * @return a ResponseEntity containing the error details and the HTTP status code 409 (Conflict)
+   */
+  @ExceptionHandler(value = OptimisticLockingFailureException.class)
+  public ResponseEntity<DomainException> optimisticLockingFailureException(
+      OptimisticLockingFailureException ex, WebRequest request) {
+    return ResponseEntity.status(HttpStatus.CONFLICT)
+        .body(
+            DomainException.from(
+                HttpStatus.CONFLICT, "product was modified concurrently, try again", request));
+  }
+
   /**
    * Handles MethodArgumentTypeMismatchException and constructs a ResponseEntity with the
    * appropriate error details.
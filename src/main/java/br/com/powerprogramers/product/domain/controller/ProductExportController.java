@@ -0,0 +1,82 @@
+package br.com.powerprogramers.product.domain.controller;
+
+import br.com.powerprogramers.product.domain.model.ProductExportFormat;
+import br.com.powerprogramers.product.domain.service.export.ProductExporter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Class that controls the catalog export endpoint. It is not generated from the API definition, as
+ * the generated interfaces cannot stream the answer.
+ */
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Product")
+public class ProductExportController {
+
+  private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+  private final ProductExporter productExporter;
+
+  /**
+   * Streams the catalog in id order. The CSV is the layout of the load files, with a comment
+   * holding the id to resume after every fetch of rows; the NDJSON has the id in each line.
+   *
+   * @param format ndjson or csv
+   * @param after id of the last product already exported
+   * @param acceptEncoding encodings the client accepts, the export is compressed when it has gzip
+   * @return the catalog
+   */
+  @Operation(
+      summary = "Export products",
+      description = "Streams the whole catalog as NDJSON or as the CSV read by the product loads")
+  @GetMapping("/products/export")
+  public ResponseEntity<StreamingResponseBody> exportProducts(
+      @Parameter(description = "ndjson or csv") @RequestParam(required = false) String format,
+      @Parameter(description = "Id of the last product already exported")
+          @RequestParam(defaultValue = "0")
+          long after,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    ProductExportFormat exportFormat = ProductExportFormat.of(format);
+    if (after < 0) {
+      throw new IllegalArgumentException("The last exported id cannot be negative.");
+    }
+    boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+    ResponseEntity.BodyBuilder response =
+        ResponseEntity.ok()
+            .contentType(
+                exportFormat == ProductExportFormat.CSV ? TEXT_CSV : MediaType.APPLICATION_NDJSON)
+            .header(
+                HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment()
+                    .filename("products." + exportFormat.name().toLowerCase(Locale.ROOT))
+                    .build()
+                    .toString());
+    if (!gzip) {
+      return response.body(out -> this.productExporter.export(exportFormat, after, out));
+    }
+    return response
+        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+        .body(
+            out -> {
+              try (GZIPOutputStream zip = new GZIPOutputStream(out, 8192)) {
+                this.productExporter.export(exportFormat, after, zip);
+              }
+            });
+  }
+}
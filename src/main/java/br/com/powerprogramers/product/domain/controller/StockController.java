@@ -3,6 +3,7 @@ package br.com.powerprogramers.product.domain.controller;
 import br.com.powerprogramers.product.api.StockApi;
 import br.com.powerprogramers.product.domain.dto.ProductDto;
 import br.com.powerprogramers.product.domain.service.StockService;
+import br.com.powerprogramers.product.domain.service.idempotency.IdempotencyStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -15,16 +16,20 @@ import org.springframework.web.bind.annotation.RestController;
 public class StockController implements StockApi {
 
   private final StockService stockService;
+  private final IdempotencyStore idempotencyStore;
 
   /**
    * Updates the stock of a product.
    *
    * @param id the ID of the product to update
    * @param amount the new stock amount
+   * @param idempotencyKey key of the request, retries with the same key answer the first result
    * @return the updated product
    */
   @Override
-  public ResponseEntity<ProductDto> updateStock(Long id, Integer amount) {
-    return ResponseEntity.ok(this.stockService.updateStock(id, amount));
+  public ResponseEntity<ProductDto> updateStock(Long id, Integer amount, String idempotencyKey) {
+    return ResponseEntity.ok(
+        this.idempotencyStore.execute(
+            idempotencyKey, id, amount, () -> this.stockService.updateStock(id, amount)));
   }
 }
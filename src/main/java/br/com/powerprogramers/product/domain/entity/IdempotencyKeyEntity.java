@@ -0,0 +1,49 @@
+package br.com.powerprogramers.product.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Class that represents, in the database, a stock update already applied for a key. A new key is
+ * always inserted, never merged into an existing row, so a repeated key fails on the primary key.
+ */
+@Entity(name = "idempotency_key")
+@Table
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyKeyEntity implements Persistable<String> {
+  @Id private String id;
+  private Long productId;
+  private Integer amount;
+
+  @Column(length = 4000)
+  private String result;
+
+  private Instant createdAt;
+
+  @Transient @Builder.Default private boolean persisted = false;
+
+  @Override
+  public boolean isNew() {
+    return !this.persisted;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markPersisted() {
+    this.persisted = true;
+  }
+}
@@ -0,0 +1,43 @@
+package br.com.powerprogramers.product.domain.entity;
+
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Class that represents a product change in the outbox table. The position is given when the change
+ * is published and orders the changes feed.
+ */
+@Entity(name = "product_change")
+@Table(indexes = {@Index(columnList = "position, id"), @Index(columnList = "productId, position")})
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductChangeEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  private Long productId;
+
+  @Enumerated(EnumType.STRING)
+  private ProductChange.Type type;
+
+  private Instant occurredAt;
+
+  @Column(unique = true)
+  private Long position;
+}
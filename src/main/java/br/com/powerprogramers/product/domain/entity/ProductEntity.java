@@ -5,11 +5,13 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.math.BigDecimal;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 /** Class that represents the product entity in the database. */
 @Entity(name = "product")
@@ -28,4 +30,8 @@ public class ProductEntity {
   private Integer amount;
   private BigDecimal price;
   private boolean active;
+
+  @Version
+  @ColumnDefault("0")
+  private Long version;
 }
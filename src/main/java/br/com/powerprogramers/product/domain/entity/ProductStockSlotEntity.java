@@ -0,0 +1,36 @@
+package br.com.powerprogramers.product.domain.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/** Class that represents, in the database, one slot of the stock of a split product. */
+@Entity(name = "product_stock_slot")
+@Table
+@IdClass(ProductStockSlotEntity.Key.class)
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductStockSlotEntity {
+  @Id private Long productId;
+  @Id private Integer slot;
+  private Integer amount;
+
+  /** Primary key of a stock slot. */
+  @Getter
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  public static class Key implements Serializable {
+    private Long productId;
+    private Integer slot;
+  }
+}
@@ -0,0 +1,26 @@
+package br.com.powerprogramers.product.domain.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Class that represents, in the database, the last stock ledger sequence already applied to the
+ * product amounts.
+ */
+@Entity(name = "stock_ledger_checkpoint")
+@Table
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLedgerCheckpointEntity {
+
+  /** The checkpoint is a single row. */
+  public static final Long ID = 1L;
+
+  @Id private Long id;
+  private long sequence;
+}
@@ -0,0 +1,24 @@
+package br.com.powerprogramers.product.domain.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/** Class that represents a pending stock reservation in the database. */
+@Entity(name = "stock_reservation")
+@Table
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReservationEntity {
+  @Id private String id;
+  private Long productId;
+  private Integer amount;
+  private Instant expiresAt;
+}
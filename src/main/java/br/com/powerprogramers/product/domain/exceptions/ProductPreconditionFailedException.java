@@ -0,0 +1,23 @@
+package br.com.powerprogramers.product.domain.exceptions;
+
+import java.time.Instant;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/** Exception for a product that changed after the version informed by the client. */
+@Getter
+public class ProductPreconditionFailedException extends ProductException {
+
+  /**
+   * Builder for exception to product precondition failed.
+   *
+   * @param path path of exception
+   */
+  public ProductPreconditionFailedException(String path) {
+    super(
+        Instant.now(),
+        HttpStatus.PRECONDITION_FAILED,
+        "product was modified by another request",
+        path);
+  }
+}
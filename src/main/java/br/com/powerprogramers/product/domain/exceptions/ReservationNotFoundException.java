@@ -0,0 +1,19 @@
+package br.com.powerprogramers.product.domain.exceptions;
+
+import java.time.Instant;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/** Stock reservation not found exception class. */
+@Getter
+public class ReservationNotFoundException extends ProductException {
+
+  /**
+   * Builder for exception to stock reservation not found.
+   *
+   * @param path path of exception
+   */
+  public ReservationNotFoundException(String path) {
+    super(Instant.now(), HttpStatus.NOT_FOUND, "reservation not found or expired", path);
+  }
+}
@@ -4,6 +4,7 @@ import br.com.powerprogramers.product.domain.dto.CreateProductDto;
 import br.com.powerprogramers.product.domain.dto.ProductDto;
 import br.com.powerprogramers.product.domain.entity.ProductEntity;
 import br.com.powerprogramers.product.domain.model.Product;
+import br.com.powerprogramers.product.domain.model.ProductView;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
@@ -22,6 +23,14 @@ public interface ProductMapper {
    */
   ProductDto toDto(ProductEntity product);
 
+  /**
+   * Converts a product read model to a product DTO.
+   *
+   * @param product product to be converted
+   * @return DTO product
+   */
+  ProductDto toDto(ProductView product);
+
   /**
    * Converts a product DTO to a product.
    *
@@ -38,6 +47,7 @@ public interface ProductMapper {
    */
   @Mapping(target = "id", ignore = true)
   @Mapping(target = "active", ignore = true)
+  @Mapping(target = "version", ignore = true)
   Product toModel(CreateProductDto product);
 
   /**
@@ -14,12 +14,18 @@ import org.springframework.util.ObjectUtils;
 @AllArgsConstructor
 @NoArgsConstructor
 public class Product {
+
+  /** Message used when a stock update would leave the product with a negative amount. */
+  public static final String INSUFFICIENT_STOCK_MESSAGE =
+      "The total purchase cannot be more than the stock total.";
+
   private Long id;
   private String name;
   private String description;
   private Integer amount;
   private BigDecimal price;
   private boolean active;
+  private Long version;
 
   /** Updates the product's active status to true. */
   public void activate() {
@@ -57,7 +63,7 @@ public class Product {
    */
   public void updateAmount(Integer amount) {
     if (this.amount + amount < 0) {
-      throw new IllegalArgumentException("The total purchase cannot be more than the stock total.");
+      throw new IllegalArgumentException(INSUFFICIENT_STOCK_MESSAGE);
     }
     this.amount += amount;
   }
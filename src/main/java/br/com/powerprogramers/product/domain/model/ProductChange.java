@@ -0,0 +1,25 @@
+package br.com.powerprogramers.product.domain.model;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Class that represents a change of a product, published to the services that follow them. */
+@Getter
+@AllArgsConstructor
+public class ProductChange {
+  private Long id;
+  private Long position;
+  private Long productId;
+  private Type type;
+  private Instant occurredAt;
+
+  /** Type of a product change. */
+  public enum Type {
+    CREATED,
+    UPDATED,
+    ACTIVATED,
+    DEACTIVATED,
+    STOCK_CHANGED
+  }
+}
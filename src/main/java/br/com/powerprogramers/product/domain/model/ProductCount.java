@@ -0,0 +1,30 @@
+package br.com.powerprogramers.product.domain.model;
+
+import java.util.Locale;
+
+/** Enum of the ways the total of a product page is counted. */
+public enum ProductCount {
+  /** Counts every product of the filter. */
+  EXACT,
+  /** Takes a recent count of the filter, or the database statistics. */
+  ESTIMATE,
+  /** Leaves the total out. */
+  NONE;
+
+  /**
+   * Finds the count by its name in the request.
+   *
+   * @param value name in the request, exact when absent
+   * @return the count
+   */
+  public static ProductCount of(String value) {
+    if (value == null) {
+      return EXACT;
+    }
+    try {
+      return valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("The count must be exact, estimate or none.");
+    }
+  }
+}
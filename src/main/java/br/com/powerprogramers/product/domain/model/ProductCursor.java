@@ -0,0 +1,106 @@
+package br.com.powerprogramers.product.domain.model;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor of the product pages. It holds the id of the last product of a page, and the value
+ * it was ordered by when the order is not the id, so the next page starts right after it instead of
+ * skipping all the rows before it. A product without that value leaves it out of the cursor, as the
+ * products without it come last.
+ */
+public final class ProductCursor {
+
+  private static final String PREFIX = "id:";
+
+  private ProductCursor() {}
+
+  /**
+   * Encodes the cursor of the page that ends at a product.
+   *
+   * @param id id of the last product of the page
+   * @return the cursor
+   */
+  public static String encode(Long id) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Encodes the cursor of the page that ends at a product, in the given order.
+   *
+   * @param sort order of the page
+   * @param last last product of the page
+   * @return the cursor
+   */
+  public static String encode(ProductSort sort, ProductView last) {
+    if (sort == ProductSort.ID) {
+      return encode(last.id());
+    }
+    Object value = sort.value(last);
+    String position = sort.key() + ":" + last.id();
+    if (value != null) {
+      position +=
+          ":" + (value instanceof BigDecimal price ? price.toPlainString() : String.valueOf(value));
+    }
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a cursor of the given order.
+   *
+   * @param cursor cursor returned by a previous page of the same order
+   * @param sort order of the page
+   * @return the last product already read
+   */
+  public static Position decode(String cursor, ProductSort sort) {
+    if (sort == ProductSort.ID) {
+      return new Position(decode(cursor), null);
+    }
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String prefix = sort.key() + ":";
+      if (value.startsWith(prefix)) {
+        int end = value.indexOf(':', prefix.length());
+        return end < 0
+            ? new Position(Long.valueOf(value.substring(prefix.length())), null)
+            : new Position(
+                Long.valueOf(value.substring(prefix.length(), end)),
+                sort.parse(value.substring(end + 1)));
+      }
+    } catch (IllegalArgumentException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("The cursor is invalid.");
+  }
+
+  /**
+   * Decodes a cursor.
+   *
+   * @param cursor cursor returned by a previous page
+   * @return id of the last product already read
+   */
+  public static Long decode(String cursor) {
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      if (value.startsWith(PREFIX)) {
+        return Long.valueOf(value.substring(PREFIX.length()));
+      }
+    } catch (IllegalArgumentException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("The cursor is invalid.");
+  }
+
+  /**
+   * Last product read by a page.
+   *
+   * @param id product id
+   * @param value value the page is ordered by, null in id order or when the product has none
+   */
+  public record Position(Long id, Object value) {}
+}
@@ -0,0 +1,28 @@
+package br.com.powerprogramers.product.domain.model;
+
+import java.util.Locale;
+
+/** Enum of the formats the catalog is exported in. */
+public enum ProductExportFormat {
+  /** One JSON object per line, with the id and version of each product. */
+  NDJSON,
+  /** The {@code ;}-delimited layout of the load files. */
+  CSV;
+
+  /**
+   * Finds the format by its name in the request.
+   *
+   * @param value name in the request, NDJSON when absent
+   * @return the format
+   */
+  public static ProductExportFormat of(String value) {
+    if (value == null) {
+      return NDJSON;
+    }
+    try {
+      return valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("The format must be ndjson or csv.");
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package br.com.powerprogramers.product.domain.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Filters of the product listing besides the texts and the status, and its order.
+ *
+ * @param minPrice lowest price, or null for any
+ * @param maxPrice highest price, or null for any
+ * @param inStock whether the products have stock, or null for any
+ * @param sort order of the products
+ */
+public record ProductFacets(
+    BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock, ProductSort sort) {
+
+  /** The listing of every product in id order. */
+  public static final ProductFacets NONE = new ProductFacets(null, null, null, ProductSort.ID);
+
+  /**
+   * Builder that checks the price range.
+   *
+   * @param minPrice lowest price, or null for any
+   * @param maxPrice highest price, or null for any
+   * @param inStock whether the products have stock, or null for any
+   * @param sort order of the products, the id when null
+   */
+  public ProductFacets {
+    if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+      throw new IllegalArgumentException(
+          "The minimum price cannot be more than the maximum price.");
+    }
+    if (sort == null) {
+      sort = ProductSort.ID;
+    }
+  }
+
+  /**
+   * Tells whether the listing is the plain one, with no facet filter and in id order.
+   *
+   * @return whether there is nothing to filter or order
+   */
+  public boolean isDefault() {
+    return this.equals(NONE);
+  }
+
+  /**
+   * Returns the filters without the order, which does not change the count.
+   *
+   * @return the facets in id order
+   */
+  public ProductFacets filters() {
+    return new ProductFacets(this.minPrice, this.maxPrice, this.inStock, ProductSort.ID);
+  }
+}
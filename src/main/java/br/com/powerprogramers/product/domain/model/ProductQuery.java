@@ -0,0 +1,53 @@
+package br.com.powerprogramers.product.domain.model;
+
+import lombok.Builder;
+
+/**
+ * Query of the product listing: its filters and facets, and either the page to be read, with how
+ * its total is counted, or the cursor of the previous page.
+ *
+ * @param name product name, or null for any
+ * @param description product description, or null for any
+ * @param active product status, or null for any
+ * @param facets price range, stock and order
+ * @param page page to be read, null when there is a cursor
+ * @param perPage number of items per page
+ * @param after cursor returned by the previous page of the same order, or null to read a page
+ * @param count how the total is counted, none when there is a cursor
+ */
+@Builder
+public record ProductQuery(
+    String name,
+    String description,
+    Boolean active,
+    ProductFacets facets,
+    Integer page,
+    Integer perPage,
+    String after,
+    ProductCount count) {
+
+  /**
+   * Builder that fills the plain listing and the exact count when they are not given. The page
+   * number and the count are left out of a cursor query, as its page has no number nor total.
+   *
+   * @param name product name, or null for any
+   * @param description product description, or null for any
+   * @param active product status, or null for any
+   * @param facets price range, stock and order, none when null
+   * @param page page to be read, ignored when there is a cursor
+   * @param perPage number of items per page
+   * @param after cursor returned by the previous page of the same order, or null to read a page
+   * @param count how the total is counted, exact when null
+   */
+  public ProductQuery {
+    if (facets == null) {
+      facets = ProductFacets.NONE;
+    }
+    if (after != null) {
+      page = null;
+      count = ProductCount.NONE;
+    } else if (count == null) {
+      count = ProductCount.EXACT;
+    }
+  }
+}
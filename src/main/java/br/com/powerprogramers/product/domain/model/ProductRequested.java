@@ -1,12 +1,36 @@
 package br.com.powerprogramers.product.domain.model;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonCreator;
 import lombok.Getter;
 
 /** Class that represents a product requested. */
 @Getter
-@AllArgsConstructor
 public class ProductRequested {
-  private Long id;
-  private Integer amount;
+  private final Long id;
+  private final Integer amount;
+  private final String idempotencyKey;
+
+  /**
+   * Builder for a product requested.
+   *
+   * @param id product id
+   * @param amount amount requested
+   * @param idempotencyKey key that identifies the request among its retries, may be null
+   */
+  @JsonCreator
+  public ProductRequested(Long id, Integer amount, String idempotencyKey) {
+    this.id = id;
+    this.amount = amount;
+    this.idempotencyKey = idempotencyKey;
+  }
+
+  /**
+   * Builder for a product requested without idempotency key.
+   *
+   * @param id product id
+   * @param amount amount requested
+   */
+  public ProductRequested(Long id, Integer amount) {
+    this(id, amount, null);
+  }
 }
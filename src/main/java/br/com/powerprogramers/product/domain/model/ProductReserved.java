@@ -0,0 +1,13 @@
+package br.com.powerprogramers.product.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Class that represents the result of reserving one line of an order. */
+@Getter
+@AllArgsConstructor
+public class ProductReserved {
+  private Long id;
+  private Integer amount;
+  private Integer remaining;
+}
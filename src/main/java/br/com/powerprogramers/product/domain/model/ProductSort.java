@@ -0,0 +1,104 @@
+package br.com.powerprogramers.product.domain.model;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Enum of the orders of the product listing. Every order ends with the id, so products with the
+ * same value keep a stable order and the next page can start right after the last product read.
+ */
+public enum ProductSort {
+  ID("id", "id", false),
+  PRICE("price", "price", false),
+  PRICE_DESC("-price", "price", true),
+  NAME("name", "name", false),
+  NAME_DESC("-name", "name", true),
+  AMOUNT("amount", "amount", false),
+  AMOUNT_DESC("-amount", "amount", true);
+
+  private final String key;
+  private final String column;
+  private final boolean descending;
+
+  ProductSort(String key, String column, boolean descending) {
+    this.key = key;
+    this.column = column;
+    this.descending = descending;
+  }
+
+  /**
+   * Finds the order by its name in the request.
+   *
+   * @param value name in the request, the id when absent
+   * @return the order
+   */
+  public static ProductSort of(String value) {
+    if (value == null) {
+      return ID;
+    }
+    return Arrays.stream(values())
+        .filter(sort -> sort.key.equals(value))
+        .findFirst()
+        .orElseThrow(
+            () ->
+                new IllegalArgumentException(
+                    "The sort must be id, price, -price, name, -name, amount or -amount."));
+  }
+
+  /**
+   * Returns the name of the order in the request and in its cursors.
+   *
+   * @return the name
+   */
+  public String key() {
+    return this.key;
+  }
+
+  /**
+   * Returns the column the products are ordered by before the id.
+   *
+   * @return the column
+   */
+  public String column() {
+    return this.column;
+  }
+
+  /**
+   * Tells whether the products are ordered from the highest value.
+   *
+   * @return whether the order is descending
+   */
+  public boolean descending() {
+    return this.descending;
+  }
+
+  /**
+   * Returns the value of a product the order compares.
+   *
+   * @param product product read
+   * @return the value of the column
+   */
+  public Object value(ProductView product) {
+    return switch (this.column) {
+      case "price" -> product.price();
+      case "name" -> product.name();
+      case "amount" -> product.amount();
+      default -> product.id();
+    };
+  }
+
+  /**
+   * Reads a value of the column written in a cursor.
+   *
+   * @param value written value
+   * @return the value of the column
+   */
+  public Object parse(String value) {
+    return switch (this.column) {
+      case "price" -> new BigDecimal(value);
+      case "amount" -> Integer.valueOf(value);
+      case "name" -> value;
+      default -> Long.valueOf(value);
+    };
+  }
+}
@@ -0,0 +1,25 @@
+package br.com.powerprogramers.product.domain.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Read model of a product, built by the queries straight from the selected columns. Unlike the
+ * entity it is not kept in the persistence context, so the listings do not pay for its snapshot nor
+ * for the dirty checking of the rows they read.
+ *
+ * @param id product id
+ * @param name product name
+ * @param description product description
+ * @param price product price
+ * @param amount product stock
+ * @param active product status
+ * @param version product version
+ */
+public record ProductView(
+    Long id,
+    String name,
+    String description,
+    BigDecimal price,
+    Integer amount,
+    boolean active,
+    Long version) {}
@@ -0,0 +1,35 @@
+package br.com.powerprogramers.product.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Class that represents the outcome of one stock removal request of a batch. */
+@Getter
+@AllArgsConstructor
+public class StockRemoval {
+  private Long id;
+  private Integer amount;
+  private boolean removed;
+  private String message;
+
+  /**
+   * Creates the outcome of a request whose amount was removed from stock.
+   *
+   * @param productRequested the request
+   * @return the successful outcome
+   */
+  public static StockRemoval removed(ProductRequested productRequested) {
+    return new StockRemoval(productRequested.getId(), productRequested.getAmount(), true, null);
+  }
+
+  /**
+   * Creates the outcome of a request that could not be removed from stock.
+   *
+   * @param productRequested the request
+   * @param message reason for the rejection
+   * @return the rejected outcome
+   */
+  public static StockRemoval rejected(ProductRequested productRequested, String message) {
+    return new StockRemoval(productRequested.getId(), productRequested.getAmount(), false, message);
+  }
+}
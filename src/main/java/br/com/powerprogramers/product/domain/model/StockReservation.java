@@ -0,0 +1,33 @@
+package br.com.powerprogramers.product.domain.model;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Class that represents stock held for a checkout until it is confirmed or released. */
+@Getter
+@AllArgsConstructor
+public class StockReservation {
+  private String id;
+  private Long productId;
+  private Integer amount;
+  private Instant expiresAt;
+  private Status status;
+
+  /** Status of a stock reservation. */
+  public enum Status {
+    RESERVED,
+    CONFIRMED,
+    RELEASED
+  }
+
+  /**
+   * Creates a copy of the reservation with another status.
+   *
+   * @param status new status
+   * @return the reservation with the new status
+   */
+  public StockReservation withStatus(Status status) {
+    return new StockReservation(this.id, this.productId, this.amount, this.expiresAt, status);
+  }
+}
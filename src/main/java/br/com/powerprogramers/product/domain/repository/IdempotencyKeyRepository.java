@@ -0,0 +1,49 @@
+package br.com.powerprogramers.product.domain.repository;
+
+import br.com.powerprogramers.product.domain.entity.IdempotencyKeyEntity;
+import java.time.Instant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Repository class for the idempotency keys of the stock updates. */
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, String> {
+
+  /**
+   * Sets the result of the update applied for a key.
+   *
+   * @param id idempotency key
+   * @param result serialized result
+   * @return the number of updated rows
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE idempotency_key k SET k.result = :result WHERE k.id = :id")
+  int updateResult(String id, String result);
+
+  /**
+   * Deletes a key when it was created before the given instant.
+   *
+   * @param id idempotency key
+   * @param createdAt oldest creation instant to be kept
+   * @return the number of deleted rows
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM idempotency_key k WHERE k.id = :id AND k.createdAt < :createdAt")
+  int deleteCreatedBefore(String id, Instant createdAt);
+
+  /**
+   * Deletes the keys created before the given instant.
+   *
+   * @param createdAt oldest creation instant to be kept
+   * @return the number of deleted rows
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM idempotency_key k WHERE k.createdAt < :createdAt")
+  int deleteCreatedBefore(Instant createdAt);
+}
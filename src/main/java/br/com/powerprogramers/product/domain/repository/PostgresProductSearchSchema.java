@@ -0,0 +1,139 @@
+package br.com.powerprogramers.product.domain.repository;
+
+import jakarta.annotation.PostConstruct;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Class that keeps the search indexes of the products on Postgres. The search folds the name and
+ * the description with a function of the database, so the rows written by the batch loads are
+ * folded as well, and each folded text is served by a trigram index on the function. Every
+ * statement is idempotent and runs on startup, after Hibernate has updated the table.
+ *
+ * <p>It also keeps the indexes of the listing orders. Each composite index starts with the status
+ * and ends with the id, so a page of one status in any order, and its price range, is a single
+ * range of the index. The partial indexes hold only the active products, which the storefront
+ * reads.
+ *
+ * <p>The indexes are built concurrently, outside a transaction, so the table keeps taking writes
+ * while they are built, and an index left invalid by a failed build is dropped and built again.
+ * When the extensions or the function cannot be created the search does not fold the texts and
+ * reads the plain columns instead of failing the startup.
+ */
+@Slf4j
+@Component
+public class PostgresProductSearchSchema {
+
+  // unaccent is only stable, the wrapper with a fixed dictionary can be used by the indexes
+  private static final List<String> STATEMENTS =
+      List.of(
+          "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+          "CREATE EXTENSION IF NOT EXISTS unaccent",
+          """
+          CREATE OR REPLACE FUNCTION product_fold(text) RETURNS text
+            LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+            AS $$ SELECT lower(public.unaccent('public.unaccent'::regdictionary, $1)) $$
+          """);
+
+  private static final List<Index> SEARCH_INDEXES =
+      List.of(
+          new Index("product_fold_name_trgm", "USING gin (product_fold(name) gin_trgm_ops)"),
+          new Index(
+              "product_fold_description_trgm",
+              "USING gin (product_fold(description) gin_trgm_ops)"));
+
+  private static final List<Index> LISTING_INDEXES =
+      List.of(
+          new Index("product_active_price_id", "(active, price, id)"),
+          new Index("product_active_name_id", "(active, name, id)"),
+          new Index("product_active_amount_id", "(active, amount, id)"),
+          new Index("product_active_id", "(id) WHERE active"),
+          new Index("product_in_stock_price_id", "(price, id) WHERE active AND amount > 0"));
+
+  private static final String INVALID =
+      """
+      SELECT count(*) FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+        WHERE c.relname = ? AND NOT i.indisvalid
+      """;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final boolean folded;
+
+  // whether the fold function is in place, so the search can fold the texts
+  private volatile boolean folds;
+
+  /**
+   * Builder for the search schema.
+   *
+   * @param jdbcTemplate template of the statements, which run each in its own transaction
+   * @param folded whether Postgres searches the accent-folded texts
+   */
+  public PostgresProductSearchSchema(
+      JdbcTemplate jdbcTemplate, @Value("${product.search.folded:true}") boolean folded) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.folded = folded;
+  }
+
+  /**
+   * Creates the listing indexes on Postgres, and the fold function and the search indexes when the
+   * search folds the texts.
+   */
+  @PostConstruct
+  public void update() {
+    if (!this.runsOnPostgres()) {
+      return;
+    }
+    LISTING_INDEXES.forEach(this::create);
+    log.info("product listing indexes are up to date");
+    if (!this.folded) {
+      return;
+    }
+    try {
+      STATEMENTS.forEach(this.jdbcTemplate::execute);
+    } catch (DataAccessException e) {
+      log.warn("product search cannot fold the texts and reads the plain columns", e);
+      return;
+    }
+    this.folds = true;
+    SEARCH_INDEXES.forEach(this::create);
+    log.info("product search function and trigram indexes are up to date");
+  }
+
+  /**
+   * Tells whether the fold function of the search is in place.
+   *
+   * @return true when the search can fold the texts
+   */
+  public boolean folds() {
+    return this.folds;
+  }
+
+  private void create(Index index) {
+    try {
+      Integer invalid = this.jdbcTemplate.queryForObject(INVALID, Integer.class, index.name());
+      if (invalid != null && invalid > 0) {
+        this.jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index.name());
+      }
+      this.jdbcTemplate.execute(
+          "CREATE INDEX CONCURRENTLY IF NOT EXISTS %s ON product %s"
+              .formatted(index.name(), index.definition()));
+    } catch (DataAccessException e) {
+      log.warn("product index {} could not be built", index.name(), e);
+    }
+  }
+
+  private boolean runsOnPostgres() {
+    return "PostgreSQL"
+        .equals(
+            this.jdbcTemplate.execute(
+                (ConnectionCallback<String>)
+                    connection -> connection.getMetaData().getDatabaseProductName()));
+  }
+
+  private record Index(String name, String definition) {}
+}
@@ -0,0 +1,76 @@
+package br.com.powerprogramers.product.domain.repository;
+
+import br.com.powerprogramers.product.domain.entity.ProductChangeEntity;
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Repository class for the outbox of product changes. */
+@Repository
+public interface ProductChangeRepository extends JpaRepository<ProductChangeEntity, Long> {
+
+  /**
+   * Finds the oldest changes not yet published and locks them, so that a single relay publishes
+   * them at a time.
+   *
+   * @param pageable size of the batch
+   * @return the changes, in the order they were appended
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT c FROM product_change c WHERE c.position IS NULL ORDER BY c.id")
+  List<ProductChangeEntity> findUnpublishedForUpdate(Pageable pageable);
+
+  /**
+   * Finds the published changes after a position.
+   *
+   * @param position position of the last change already read
+   * @param pageable size of the page
+   * @return the changes, in the order they were published
+   */
+  @Query("SELECT c FROM product_change c WHERE c.position > :position ORDER BY c.position")
+  List<ProductChangeEntity> findPublishedAfter(Long position, Pageable pageable);
+
+  /**
+   * Finds the position of the last published change.
+   *
+   * @return the last position, or empty when nothing was published
+   */
+  @Query("SELECT MAX(c.position) FROM product_change c")
+  Optional<Long> findLastPosition();
+
+  /**
+   * Publishes the changes, giving each one its id plus the offset as position.
+   *
+   * @param ids change ids
+   * @param offset offset added to the ids
+   * @return the number of updated rows
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE product_change c SET c.position = c.id + :offset WHERE c.id IN :ids")
+  int assignPositions(Collection<Long> ids, long offset);
+
+  /**
+   * Deletes the published changes of a product that have a change published after them, keeping
+   * only the latest change of each product. The last position is never deleted.
+   *
+   * @return the number of deleted rows
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      """
+            DELETE FROM product_change c WHERE c.position IS NOT NULL
+              AND EXISTS (SELECT n.id FROM product_change n
+                WHERE n.productId = c.productId AND n.position > c.position)
+          """)
+  int deleteSuperseded();
+}
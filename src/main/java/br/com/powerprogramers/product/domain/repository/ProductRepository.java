@@ -1,33 +1,97 @@
 package br.com.powerprogramers.product.domain.repository;
 
 import br.com.powerprogramers.product.domain.entity.ProductEntity;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** Repository class for JPA connection. */
 @Repository
-public interface ProductRepository extends JpaRepository<ProductEntity, Long> {
+public interface ProductRepository
+    extends JpaRepository<ProductEntity, Long>, ProductSearchRepository {
 
   /**
-   * Finds all registered products according to the past filter.
+   * Finds the read model of a product.
    *
-   * @param pageable Page for the answer
-   * @param name product name
-   * @param description product description
-   * @param active product status
-   * @return product page
+   * @param id product id
+   * @return the product, if it exists
    */
   @Query(
       """
-            SELECT p FROM product p
-              WHERE p.active = :active
-              AND (:name IS NULL OR p.name like %:name%)
-              AND (:description IS NULL OR p.description like %:description%)
-              ORDER BY p.id ASC
+            SELECT new br.com.powerprogramers.product.domain.model.ProductView(
+                p.id, p.name, p.description, p.price, p.amount, p.active, p.version)
+              FROM product p
+              WHERE p.id = :id
           """)
-  Page<ProductEntity> findAllProducts(
-      Pageable pageable, String name, String description, Boolean active);
+  Optional<ProductView> findViewById(Long id);
+
+  /**
+   * Finds the read models of the given products, in no particular order.
+   *
+   * @param ids product ids
+   * @return the products that exist
+   */
+  @Query(
+      """
+            SELECT new br.com.powerprogramers.product.domain.model.ProductView(
+                p.id, p.name, p.description, p.price, p.amount, p.active, p.version)
+              FROM product p
+              WHERE p.id IN :ids
+          """)
+  List<ProductView> findViewsById(Collection<Long> ids);
+
+  /**
+   * Adds the given amount to the product stock in a single guarded statement. The row is only
+   * changed when the resulting stock is not negative, so concurrent decrements cannot oversell. The
+   * version is incremented so that pending read-modify-write updates of the product notice it.
+   *
+   * @param id product id
+   * @param amount amount to be added (negative to remove)
+   * @return the number of updated rows, zero when the product does not exist or has not enough
+   *     stock
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+            UPDATE product p SET p.amount = p.amount + :amount, p.version = p.version + 1
+              WHERE p.id = :id
+              AND p.amount + :amount >= 0
+          """)
+  int updateAmount(Long id, Integer amount);
+
+  /**
+   * Adds the given amount to the product stock without checking the result. Used to persist deltas
+   * that were already validated elsewhere.
+   *
+   * @param id product id
+   * @param amount amount to be added (negative to remove)
+   * @return the number of updated rows
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+            UPDATE product p SET p.amount = p.amount + :amount, p.version = p.version + 1
+              WHERE p.id = :id
+          """)
+  int addAmount(Long id, Integer amount);
+
+  /**
+   * Finds a product by its id, locking its row until the end of the current transaction.
+   *
+   * @param id product id
+   * @return the locked product, if it exists
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT p FROM product p WHERE p.id = :id")
+  Optional<ProductEntity> findByIdForUpdate(Long id);
 }
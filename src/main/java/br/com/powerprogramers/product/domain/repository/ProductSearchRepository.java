@@ -0,0 +1,67 @@
+package br.com.powerprogramers.product.domain.repository;
+
+import br.com.powerprogramers.product.domain.model.ProductCursor;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Repository fragment that searches the products by a part of their name or description, with the
+ * strategy of the database in use. On Postgres it matches the accent-folded, lower-case name and
+ * description served by trigram indexes, so "tenis" finds "Tênis". Any other database keeps the
+ * {@code like} of the name and description as they are.
+ *
+ * <p>It also filters the listing by the price range and the stock, and orders it by the price, name
+ * or amount, continuing after the value and id of the last product read. On Postgres each order of
+ * the status is served by a composite index, so a page reads only its rows.
+ */
+public interface ProductSearchRepository {
+
+  /**
+   * Finds the products according to the past filter and facets, in the order of the facets, only
+   * adding the conditions that are given. The products without a value of the ordered column are
+   * left out.
+   *
+   * @param name product name
+   * @param description product description
+   * @param active product status
+   * @param facets price range, stock and order
+   * @param after last product already read, or null to start at the page offset
+   * @param pageable page for the answer
+   * @return product slice, in the order of the facets
+   */
+  Slice<ProductView> searchProducts(
+      String name,
+      String description,
+      Boolean active,
+      ProductFacets facets,
+      ProductCursor.Position after,
+      Pageable pageable);
+
+  /**
+   * Counts the products according to the past filter and facets.
+   *
+   * @param name product name
+   * @param description product description
+   * @param active product status
+   * @param facets price range and stock, the order is ignored
+   * @return the number of products
+   */
+  long countSearchProducts(String name, String description, Boolean active, ProductFacets facets);
+
+  /**
+   * Tells whether the database is Postgres.
+   *
+   * @return whether the database is Postgres
+   */
+  boolean runsOnPostgres();
+
+  /**
+   * Tells whether the search ignores accents and case, as it does on Postgres once its fold
+   * function is in place.
+   *
+   * @return whether the texts are folded
+   */
+  boolean foldsText();
+}
@@ -0,0 +1,417 @@
+package br.com.powerprogramers.product.domain.repository;
+
+import br.com.powerprogramers.product.domain.model.ProductCursor;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductSort;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+/**
+ * Implementation of the product search. The conditions are only written for the given filters, so
+ * that the planner sees the text conditions the trigram indexes serve and the ranges the listing
+ * indexes serve, instead of a single query whose absent filters are switched off by their
+ * parameters.
+ *
+ * <p>An order other than the id reads first the products that have its value, which the listing
+ * indexes serve, and then the ones without it, in id order, so an order never leaves products out.
+ *
+ * <p>The stock of the products split across slots is their row amount plus the amount of their
+ * slots, so when some products are split the stock filter and the stock order read the slots too,
+ * and the listing answers that stock. The stock kept by the ledger reaches the row at each of its
+ * flushes, and the listing sees it then.
+ */
+public class ProductSearchRepositoryImpl implements ProductSearchRepository {
+
+  private static final String COLUMNS =
+      "p.id, p.name, p.description, p.price, p.amount, p.active, p.version";
+
+  private final EntityManager entityManager;
+  private final PostgresProductSearchSchema searchSchema;
+  private final boolean split;
+
+  // one query per filter shape: the same shape always sends the same text, so the plans cached by
+  // Hibernate and the prepared statements of the driver are reused
+  private final Map<Shape, String> statements = new ConcurrentHashMap<>();
+
+  // whether the database is Postgres, found on the first search
+  private volatile Boolean postgres;
+
+  /**
+   * Builder for the product search.
+   *
+   * @param entityManager entity manager of the queries
+   * @param searchSchema search schema of Postgres, which tells whether the texts can be folded
+   * @param splitProductIds ids of the products whose stock is split across slots
+   */
+  public ProductSearchRepositoryImpl(
+      EntityManager entityManager,
+      PostgresProductSearchSchema searchSchema,
+      @Value("${product.stock.split.product-ids:}") Set<Long> splitProductIds) {
+    this.entityManager = entityManager;
+    this.searchSchema = searchSchema;
+    this.split = !splitProductIds.isEmpty();
+  }
+
+  @Override
+  public Slice<ProductView> searchProducts(
+      String name,
+      String description,
+      Boolean active,
+      ProductFacets facets,
+      ProductCursor.Position after,
+      Pageable pageable) {
+    boolean nulls = nulls(facets, after);
+    int offset = after == null ? (int) pageable.getOffset() : 0;
+    // one more row tells whether there is a next page without counting them
+    int limit = pageable.getPageSize() + 1;
+    List<ProductView> products =
+        new ArrayList<>(this.read(name, description, active, facets, after, nulls, offset, limit));
+    if (facets.sort() != ProductSort.ID && !nulls && products.size() < limit) {
+      // the page reached the end of the products with a value, the ones without it follow
+      long skipped =
+          products.isEmpty() && offset > 0
+              ? Math.max(0, offset - this.countValues(name, description, active, facets))
+              : 0;
+      products.addAll(
+          this.read(
+              name,
+              description,
+              active,
+              facets,
+              null,
+              true,
+              (int) skipped,
+              limit - products.size()));
+    }
+    boolean hasNext = products.size() > pageable.getPageSize();
+    return new SliceImpl<>(
+        hasNext ? products.subList(0, pageable.getPageSize()) : products, pageable, hasNext);
+  }
+
+  @Override
+  public long countSearchProducts(
+      String name, String description, Boolean active, ProductFacets facets) {
+    ProductFacets filters = facets.filters();
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    this.bind(name, description, active, filters, null, false, parameters);
+    String count =
+        this.statements.computeIfAbsent(
+            Shape.of(name, description, active, filters, null, false, true), this::write);
+    return this.count(count, parameters);
+  }
+
+  @Override
+  public boolean foldsText() {
+    return this.runsOnPostgres() && this.searchSchema.folds();
+  }
+
+  @Override
+  public boolean runsOnPostgres() {
+    if (this.postgres == null) {
+      this.postgres =
+          this.entityManager
+                  .getEntityManagerFactory()
+                  .unwrap(SessionFactoryImplementor.class)
+                  .getJdbcServices()
+                  .getDialect()
+              instanceof PostgreSQLDialect;
+    }
+    return this.postgres;
+  }
+
+  /**
+   * Writes the query of the products, native SQL on Postgres and JPQL on any other database. The
+   * query of a filter shape is written once and then reused.
+   *
+   * @return the query, whose parameters are added to the given map
+   */
+  String select(
+      String name,
+      String description,
+      Boolean active,
+      ProductFacets facets,
+      ProductCursor.Position after,
+      Map<String, Object> parameters) {
+    return this.select(name, description, active, facets, after, nulls(facets, after), parameters);
+  }
+
+  private String select(
+      String name,
+      String description,
+      Boolean active,
+      ProductFacets facets,
+      ProductCursor.Position after,
+      boolean nulls,
+      Map<String, Object> parameters) {
+    this.bind(name, description, active, facets, after, nulls, parameters);
+    return this.statements.computeIfAbsent(
+        Shape.of(name, description, active, facets, after, nulls, false), this::write);
+  }
+
+  // a cursor without a value ended among the products without one
+  private static boolean nulls(ProductFacets facets, ProductCursor.Position after) {
+    return facets.sort() != ProductSort.ID && after != null && after.value() == null;
+  }
+
+  /** Returns the number of filter shapes whose query is already written. */
+  int shapes() {
+    return this.statements.size();
+  }
+
+  private List<ProductView> read(
+      String name,
+      String description,
+      Boolean active,
+      ProductFacets facets,
+      ProductCursor.Position after,
+      boolean nulls,
+      int offset,
+      int limit) {
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    String select = this.select(name, description, active, facets, after, nulls, parameters);
+    Query query =
+        this.runsOnPostgres()
+            ? this.entityManager.createNativeQuery(select)
+            : this.entityManager.createQuery(select, ProductView.class);
+    parameters.forEach(query::setParameter);
+    query.setFirstResult(offset);
+    query.setMaxResults(limit);
+    return ((List<?>) query.getResultList())
+        .stream()
+            .map(row -> row instanceof Object[] columns ? view(columns) : (ProductView) row)
+            .toList();
+  }
+
+  private long countValues(String name, String description, Boolean active, ProductFacets facets) {
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    this.bind(name, description, active, facets, null, false, parameters);
+    String count =
+        this.statements.computeIfAbsent(
+            Shape.of(name, description, active, facets, null, false, true), this::write);
+    return this.count(count, parameters);
+  }
+
+  private long count(String count, Map<String, Object> parameters) {
+    Query query =
+        this.runsOnPostgres()
+            ? this.entityManager.createNativeQuery(count)
+            : this.entityManager.createQuery(count);
+    parameters.forEach(query::setParameter);
+    return ((Number) query.getSingleResult()).longValue();
+  }
+
+  private String write(Shape shape) {
+    String where = this.where(shape);
+    if (shape.count()) {
+      return this.runsOnPostgres()
+          ? "SELECT COUNT(*) FROM product p" + where
+          : "SELECT COUNT(p) FROM product p" + where;
+    }
+    String direction = shape.sort().descending() ? " DESC" : " ASC";
+    String order;
+    if (shape.sort() == ProductSort.ID) {
+      order = " ORDER BY p.id";
+    } else if (shape.nulls()) {
+      order = " ORDER BY p.id" + direction;
+    } else {
+      order = " ORDER BY %s%s, p.id%s".formatted(this.value(shape.sort()), direction, direction);
+    }
+    return this.runsOnPostgres()
+        ? "SELECT " + this.columns() + " FROM product p" + where + order
+        : "SELECT new %s(%s) FROM product p%s%s"
+            .formatted(ProductView.class.getName(), this.columns(), where, order);
+  }
+
+  private String columns() {
+    if (!this.split) {
+      return COLUMNS;
+    }
+    // the sum of the slots is a long in JPQL, the read model takes an integer
+    String amount =
+        this.runsOnPostgres() ? this.stock() : "CAST(%s AS Integer)".formatted(this.stock());
+    return COLUMNS.replace("p.amount", amount);
+  }
+
+  private String value(ProductSort sort) {
+    return "amount".equals(sort.column()) ? this.stock() : "p." + sort.column();
+  }
+
+  private String stock() {
+    return this.split
+        ? "(p.amount + COALESCE((SELECT SUM(s.amount) FROM product_stock_slot s WHERE %s = p.id), 0))"
+            .formatted(this.slotProduct())
+        : "p.amount";
+  }
+
+  private String slotProduct() {
+    return this.runsOnPostgres() ? "s.product_id" : "s.productId";
+  }
+
+  private String where(Shape shape) {
+    StringBuilder where = new StringBuilder(" WHERE p.active = ");
+    // a literal status lets the planner use the partial indexes of the active products
+    where.append(shape.active() == null ? ":active" : shape.active() ? "TRUE" : "FALSE");
+    if (shape.name()) {
+      where.append(this.contains("name"));
+    }
+    if (shape.description()) {
+      where.append(this.contains("description"));
+    }
+    if (shape.minPrice()) {
+      where.append(" AND p.price >= :minPrice");
+    }
+    if (shape.maxPrice()) {
+      where.append(" AND p.price <= :maxPrice");
+    }
+    if (shape.inStock() != null) {
+      where.append(this.inStock(shape.inStock()));
+    }
+    if (shape.nulls() != null) {
+      where.append(
+          " AND %s IS %sNULL".formatted(this.value(shape.sort()), shape.nulls() ? "" : "NOT "));
+    }
+    if (shape.after()) {
+      where.append(this.after(shape.sort(), shape.nulls()));
+    }
+    return where.toString();
+  }
+
+  private void bind(
+      String name,
+      String description,
+      Boolean active,
+      ProductFacets facets,
+      ProductCursor.Position after,
+      boolean nulls,
+      Map<String, Object> parameters) {
+    if (active == null) {
+      parameters.put("active", null);
+    }
+    if (name != null) {
+      parameters.put("name", this.pattern(name));
+    }
+    if (description != null) {
+      parameters.put("description", this.pattern(description));
+    }
+    if (facets.minPrice() != null) {
+      parameters.put("minPrice", facets.minPrice());
+    }
+    if (facets.maxPrice() != null) {
+      parameters.put("maxPrice", facets.maxPrice());
+    }
+    if (after != null) {
+      parameters.put("after", after.id());
+      if (facets.sort() != ProductSort.ID && !nulls) {
+        parameters.put("afterValue", after.value());
+      }
+    }
+  }
+
+  private String inStock(boolean inStock) {
+    if (!this.split) {
+      return inStock ? " AND p.amount > 0" : " AND p.amount <= 0";
+    }
+    // neither the row nor the slots go below zero, so a product has stock when any of them has
+    String slots =
+        "SELECT %s FROM product_stock_slot s WHERE s.amount > 0".formatted(this.slotProduct());
+    return inStock
+        ? " AND (p.amount > 0 OR p.id IN (%s))".formatted(slots)
+        : " AND p.amount <= 0 AND p.id NOT IN (%s)".formatted(slots);
+  }
+
+  private String after(ProductSort sort, Boolean nulls) {
+    String comparison = sort.descending() ? "<" : ">";
+    if (sort == ProductSort.ID || nulls) {
+      return " AND p.id %s :after".formatted(comparison);
+    }
+    // the row comparison is a single range of the composite index on Postgres
+    return this.runsOnPostgres()
+        ? " AND (%s, p.id) %s (:afterValue, :after)".formatted(this.value(sort), comparison)
+        : " AND (%1$s %2$s :afterValue OR (%1$s = :afterValue AND p.id %2$s :after))"
+            .formatted(this.value(sort), comparison);
+  }
+
+  private String contains(String column) {
+    return this.foldsText()
+        ? " AND product_fold(p.%s) LIKE '%%' || product_fold(:%s) || '%%'".formatted(column, column)
+        : " AND p.%s LIKE :%s".formatted(column, column);
+  }
+
+  private static ProductView view(Object[] columns) {
+    return new ProductView(
+        ((Number) columns[0]).longValue(),
+        (String) columns[1],
+        (String) columns[2],
+        (BigDecimal) columns[3],
+        columns[4] == null ? null : ((Number) columns[4]).intValue(),
+        (Boolean) columns[5],
+        columns[6] == null ? null : ((Number) columns[6]).longValue());
+  }
+
+  private Object pattern(String text) {
+    return this.foldsText() ? text : "%" + text + "%";
+  }
+
+  /**
+   * Filters given to a query, without their values.
+   *
+   * @param name whether the name is filtered
+   * @param description whether the description is filtered
+   * @param active product status, written in the query
+   * @param minPrice whether the lowest price is filtered
+   * @param maxPrice whether the highest price is filtered
+   * @param inStock stock of the products, written in the query
+   * @param sort order of the products
+   * @param nulls whether the query reads the products without a value of the order, or the ones
+   *     with it, null in id order
+   * @param after whether the query continues after a product
+   * @param count whether the products are counted instead of read
+   */
+  record Shape(
+      boolean name,
+      boolean description,
+      Boolean active,
+      boolean minPrice,
+      boolean maxPrice,
+      Boolean inStock,
+      ProductSort sort,
+      Boolean nulls,
+      boolean after,
+      boolean count) {
+
+    static Shape of(
+        String name,
+        String description,
+        Boolean active,
+        ProductFacets facets,
+        ProductCursor.Position after,
+        boolean nulls,
+        boolean count) {
+      return new Shape(
+          name != null,
+          description != null,
+          active,
+          facets.minPrice() != null,
+          facets.maxPrice() != null,
+          facets.inStock(),
+          facets.sort(),
+          facets.sort() == ProductSort.ID ? null : nulls,
+          after != null,
+          count);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package br.com.powerprogramers.product.domain.repository;
+
+import br.com.powerprogramers.product.domain.entity.ProductStockSlotEntity;
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Repository class for the stock slots of the split products. */
+@Repository
+public interface ProductStockSlotRepository
+    extends JpaRepository<ProductStockSlotEntity, ProductStockSlotEntity.Key> {
+
+  /**
+   * Adds the given amount to one slot, unless it would leave the slot negative.
+   *
+   * @param productId product id
+   * @param slot slot number
+   * @param amount amount to be added (negative to remove)
+   * @return the number of updated rows, 0 when the slot does not have enough stock
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+            UPDATE product_stock_slot s SET s.amount = s.amount + :amount
+              WHERE s.productId = :productId AND s.slot = :slot AND s.amount + :amount >= 0
+          """)
+  int updateAmount(Long productId, Integer slot, Integer amount);
+
+  /**
+   * Sets the amount of one slot.
+   *
+   * @param productId product id
+   * @param slot slot number
+   * @param amount new amount
+   * @return the number of updated rows
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+            UPDATE product_stock_slot s SET s.amount = :amount
+              WHERE s.productId = :productId AND s.slot = :slot
+          """)
+  int setAmount(Long productId, Integer slot, Integer amount);
+
+  /**
+   * Finds the slots of a product, locking their rows until the end of the current transaction.
+   *
+   * @param productId product id
+   * @return the slots, in slot order
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT s FROM product_stock_slot s WHERE s.productId = :productId ORDER BY s.slot")
+  List<ProductStockSlotEntity> findAllByProductIdForUpdate(Long productId);
+
+  /**
+   * Finds the amount of each slot of a product, without locking them.
+   *
+   * @param productId product id
+   * @return the amounts, in slot order
+   */
+  @Query("SELECT s.amount FROM product_stock_slot s WHERE s.productId = :productId ORDER BY s.slot")
+  List<Integer> findAmounts(Long productId);
+
+  /**
+   * Sums the stock of every slot of a product.
+   *
+   * @param productId product id
+   * @return the stock in the slots
+   */
+  @Query(
+      "SELECT COALESCE(SUM(s.amount), 0) FROM product_stock_slot s WHERE s.productId = :productId")
+  long sumAmount(Long productId);
+
+  /**
+   * Finds the ids of the products whose stock is split in slots.
+   *
+   * @return product ids
+   */
+  @Query("SELECT DISTINCT s.productId FROM product_stock_slot s")
+  List<Long> findProductIds();
+
+  /**
+   * Deletes the slots of a product.
+   *
+   * @param productId product id
+   * @return the number of deleted rows
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM product_stock_slot s WHERE s.productId = :productId")
+  int deleteAllByProductId(Long productId);
+}
@@ -0,0 +1,10 @@
+package br.com.powerprogramers.product.domain.repository;
+
+import br.com.powerprogramers.product.domain.entity.StockLedgerCheckpointEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/** Repository class for the stock ledger checkpoint. */
+@Repository
+public interface StockLedgerCheckpointRepository
+    extends JpaRepository<StockLedgerCheckpointEntity, Long> {}
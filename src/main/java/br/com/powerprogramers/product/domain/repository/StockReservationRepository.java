@@ -0,0 +1,69 @@
+package br.com.powerprogramers.product.domain.repository;
+
+import br.com.powerprogramers.product.domain.entity.StockReservationEntity;
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Repository class for the pending stock reservations. */
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservationEntity, String> {
+
+  /**
+   * Deletes a pending reservation. Only the caller that deletes the row may confirm or release it.
+   *
+   * @param id reservation id
+   * @return the number of deleted rows
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM stock_reservation r WHERE r.id = :id")
+  int deleteReservation(String id);
+
+  /**
+   * Finds the pending reservations after an id, built from their columns instead of loaded as
+   * managed entities, so the persistence context does not keep them.
+   *
+   * @param id id of the last reservation already read
+   * @param pageable size of the page
+   * @return the reservations, in id order
+   */
+  @Query(
+      """
+            SELECT new br.com.powerprogramers.product.domain.entity.StockReservationEntity(
+                r.id, r.productId, r.amount, r.expiresAt)
+              FROM stock_reservation r
+              WHERE r.id > :id
+              ORDER BY r.id
+            """)
+  List<StockReservationEntity> findPendingAfter(String id, Pageable pageable);
+
+  /**
+   * Finds the reservations still pending among the given ones, locking their rows until the end of
+   * the current transaction. A reservation deleted meanwhile by another transaction is left out.
+   *
+   * @param ids reservation ids
+   * @return the pending reservations
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT r FROM stock_reservation r WHERE r.id IN :ids")
+  List<StockReservationEntity> findAllByIdForUpdate(Collection<String> ids);
+
+  /**
+   * Deletes pending reservations with a single statement.
+   *
+   * @param ids reservation ids
+   * @return the number of deleted rows
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM stock_reservation r WHERE r.id IN :ids")
+  int deleteReservations(Collection<String> ids);
+}
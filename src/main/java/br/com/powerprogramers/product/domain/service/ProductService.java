@@ -3,7 +3,10 @@ package br.com.powerprogramers.product.domain.service;
 import br.com.powerprogramers.product.domain.dto.CreateProductDto;
 import br.com.powerprogramers.product.domain.dto.PagedProductDto;
 import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.dto.ProductLookupDto;
 import br.com.powerprogramers.product.domain.dto.UpdateProductDto;
+import br.com.powerprogramers.product.domain.model.ProductQuery;
+import java.util.List;
 
 /** Interface containing the contract for the product's service methods. */
 public interface ProductService {
@@ -17,17 +20,21 @@ public interface ProductService {
   ProductDto findById(Long id);
 
   /**
-   * Find all products by some filters.
+   * Find the products of a list of ids.
    *
-   * @param page page to be displayed
-   * @param perPage number of items per page
-   * @param name product name
-   * @param description product description
-   * @param active Product status
-   * @return paginated product object
+   * @param ids product ids, in the order the products are answered
+   * @return the products found and the ids without a product
    */
-  PagedProductDto findAll(
-      Integer page, Integer perPage, String name, String description, Boolean active);
+  ProductLookupDto findAllById(List<Long> ids);
+
+  /**
+   * Find the products of a listing: a page, counted as asked, or the products after the cursor of
+   * the previous page, by some filters and in the order of the facets.
+   *
+   * @param query filters, facets and page or cursor of the listing
+   * @return the page of products, with the cursor of the next one when there are more
+   */
+  PagedProductDto findAll(ProductQuery query);
 
   /**
    * Saves the product to the database.
@@ -46,6 +53,16 @@ public interface ProductService {
    */
   ProductDto update(Long id, UpdateProductDto updateProductDto);
 
+  /**
+   * Updates the existing product in the database if it is still at the expected version.
+   *
+   * @param id product id
+   * @param updateProductDto product data to be updated
+   * @param expectedVersion version the change was based on, or null to skip the check
+   * @return the product that was updated
+   */
+  ProductDto update(Long id, UpdateProductDto updateProductDto, Long expectedVersion);
+
   /**
    * Activates an existing product at the base that is deactivated.
    *
@@ -0,0 +1,32 @@
+package br.com.powerprogramers.product.domain.service;
+
+import br.com.powerprogramers.product.domain.model.ProductRequested;
+import br.com.powerprogramers.product.domain.model.StockReservation;
+
+/** Interface that represents the stock reservation service. */
+public interface StockReservationService {
+  /**
+   * Removes the amount from stock and holds it until the reservation is confirmed, released or
+   * expires.
+   *
+   * @param product product and amount to be reserved
+   * @return the pending reservation
+   */
+  StockReservation reserve(ProductRequested product);
+
+  /**
+   * Confirms a pending reservation, keeping its amount out of stock.
+   *
+   * @param id reservation id
+   * @return the confirmed reservation
+   */
+  StockReservation confirm(String id);
+
+  /**
+   * Releases a pending reservation, giving its amount back to stock.
+   *
+   * @param id reservation id
+   * @return the released reservation
+   */
+  StockReservation release(String id);
+}
@@ -1,6 +1,10 @@
 package br.com.powerprogramers.product.domain.service;
 
 import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.model.ProductRequested;
+import br.com.powerprogramers.product.domain.model.ProductReserved;
+import br.com.powerprogramers.product.domain.model.StockRemoval;
+import java.util.List;
 
 /** Interface that represents the stock service. */
 public interface StockService {
@@ -12,4 +16,23 @@ public interface StockService {
    * @return the product that was updated
    */
   ProductDto updateStock(Long id, Integer amount);
+
+  /**
+   * Removes from stock every line of an order in a single transaction. Either all lines are
+   * reserved or none is.
+   *
+   * @param products products and amounts of the order
+   * @return the reservation of each line, in the order they were requested
+   */
+  List<ProductReserved> reserveOrder(List<ProductRequested> products);
+
+  /**
+   * Removes from stock a batch of requests, coalescing the requests of the same product into a
+   * single update. Each request is answered on its own, so a request without stock does not fail
+   * the others.
+   *
+   * @param products products and amounts to be removed
+   * @return the outcome of each request, in the order they were received
+   */
+  List<StockRemoval> removeStock(List<ProductRequested> products);
 }
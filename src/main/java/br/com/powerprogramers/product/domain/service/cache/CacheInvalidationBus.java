@@ -0,0 +1,38 @@
+package br.com.powerprogramers.product.domain.service.cache;
+
+import java.util.Collection;
+
+/**
+ * Interface that carries the products evicted on one instance to the caches of the other instances
+ * of the catalog.
+ */
+public interface CacheInvalidationBus {
+
+  /**
+   * Publishes the products changed by a committed write. The bus may batch them and drop repeats.
+   *
+   * @param productIds changed product ids
+   */
+  void publish(Collection<Long> productIds);
+
+  /**
+   * Subscribes a cache to the products changed on the other instances.
+   *
+   * @param listener listener called with the changed products
+   */
+  void subscribe(Listener listener);
+
+  /** Interface of the caches that follow the bus. */
+  interface Listener {
+
+    /**
+     * Evicts products changed on another instance.
+     *
+     * @param productIds changed product ids
+     */
+    void invalidate(Collection<Long> productIds);
+
+    /** Evicts every product, when the bus may have missed some changes. */
+    void invalidateAll();
+  }
+}
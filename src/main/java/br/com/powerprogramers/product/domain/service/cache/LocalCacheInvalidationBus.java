@@ -0,0 +1,21 @@
+package br.com.powerprogramers.product.domain.service.cache;
+
+import java.util.Collection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/** Bus of a single instance, whose writes already evict its own cache. */
+@Component
+@ConditionalOnProperty(name = "product.cache.invalidation.bus", havingValue = "local")
+public class LocalCacheInvalidationBus implements CacheInvalidationBus {
+
+  @Override
+  public void publish(Collection<Long> productIds) {
+    // nothing else to evict
+  }
+
+  @Override
+  public void subscribe(Listener listener) {
+    // nothing is ever received
+  }
+}
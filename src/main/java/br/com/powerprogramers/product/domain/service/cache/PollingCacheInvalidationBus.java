@@ -0,0 +1,83 @@
+package br.com.powerprogramers.product.domain.service.cache;
+
+import br.com.powerprogramers.product.domain.entity.ProductChangeEntity;
+import br.com.powerprogramers.product.domain.repository.ProductChangeRepository;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bus that polls the published changes of the outbox, which works on any database. The writes
+ * already append their changes to the outbox in their own transaction, so publishing has nothing
+ * left to do, and a product is evicted once the outbox relay of any instance has published its
+ * change.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "product.cache.invalidation.bus",
+    havingValue = "polling",
+    matchIfMissing = true)
+public class PollingCacheInvalidationBus implements CacheInvalidationBus {
+
+  private final ProductChangeRepository productChangeRepository;
+  private final int batchSize;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  // position of the last change read, starting at the last one published before the first poll
+  private Long position;
+
+  /**
+   * Builder for the polling bus.
+   *
+   * @param productChangeRepository repository of the outbox of product changes
+   * @param batchSize changes read at a time
+   */
+  public PollingCacheInvalidationBus(
+      ProductChangeRepository productChangeRepository,
+      @Value("${product.cache.invalidation.batch-size:500}") int batchSize) {
+    this.productChangeRepository = productChangeRepository;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  @Override
+  public void publish(Collection<Long> productIds) {
+    // the outbox already holds the changes
+  }
+
+  @Override
+  public void subscribe(Listener listener) {
+    this.listeners.add(listener);
+  }
+
+  /** Evicts the products of the changes published since the last poll, once per batch. */
+  @Scheduled(fixedDelayString = "${product.cache.invalidation.poll-interval-ms:200}")
+  public synchronized void poll() {
+    if (this.listeners.isEmpty()) {
+      return;
+    }
+    if (this.position == null) {
+      this.position = this.productChangeRepository.findLastPosition().orElse(0L);
+      return;
+    }
+    List<ProductChangeEntity> changes;
+    do {
+      changes =
+          this.productChangeRepository.findPublishedAfter(
+              this.position, PageRequest.of(0, this.batchSize));
+      if (changes.isEmpty()) {
+        return;
+      }
+      Set<Long> productIds = new LinkedHashSet<>();
+      changes.forEach(change -> productIds.add(change.getProductId()));
+      this.listeners.forEach(listener -> listener.invalidate(productIds));
+      this.position = changes.get(changes.size() - 1).getPosition();
+    } while (changes.size() == this.batchSize);
+  }
+}
@@ -0,0 +1,197 @@
+package br.com.powerprogramers.product.domain.service.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bus over the Postgres LISTEN/NOTIFY, which evicts the other instances within milliseconds of the
+ * commit. The changed products are collected and sent together on a schedule, each notification
+ * tagged with the instance that sent it so that an instance skips its own.
+ *
+ * <p>A notification sent while the listening connection is down is lost, so the listener evicts
+ * every product each time it connects.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "product.cache.invalidation.bus", havingValue = "notify")
+public class PostgresCacheInvalidationBus implements CacheInvalidationBus {
+
+  // Postgres refuses payloads of 8000 bytes or more
+  static final int MAX_PAYLOAD = 7900;
+
+  private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+  private static final int WAIT_MILLIS = 500;
+  private static final int RECONNECT_MILLIS = 1000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String url;
+  private final String username;
+  private final String password;
+  private final String channel;
+  private final String node = UUID.randomUUID().toString();
+  private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  private volatile boolean running;
+  private Thread listener;
+
+  /**
+   * Builder for the Postgres bus.
+   *
+   * @param jdbcTemplate template that sends the notifications
+   * @param url database url of the listening connection
+   * @param username database user
+   * @param password database password
+   * @param channel notification channel
+   */
+  public PostgresCacheInvalidationBus(
+      JdbcTemplate jdbcTemplate,
+      @Value("${spring.datasource.url}") String url,
+      @Value("${spring.datasource.username:}") String username,
+      @Value("${spring.datasource.password:}") String password,
+      @Value("${product.cache.invalidation.channel:product_cache}") String channel) {
+    if (!CHANNEL.matcher(channel).matches()) {
+      throw new IllegalArgumentException("The invalidation channel must be a plain identifier.");
+    }
+    this.jdbcTemplate = jdbcTemplate;
+    this.url = url;
+    this.username = username;
+    this.password = password;
+    this.channel = channel;
+  }
+
+  @Override
+  public void publish(Collection<Long> productIds) {
+    this.pending.addAll(productIds);
+  }
+
+  @Override
+  public void subscribe(Listener listener) {
+    this.listeners.add(listener);
+  }
+
+  /** Starts listening on its own connection, outside of the pool. */
+  @PostConstruct
+  public void start() {
+    this.running = true;
+    this.listener = new Thread(this::listen, "product-cache-invalidation");
+    this.listener.setDaemon(true);
+    this.listener.start();
+  }
+
+  /** Stops listening. */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    this.running = false;
+    this.listener.join(WAIT_MILLIS + RECONNECT_MILLIS);
+  }
+
+  /** Sends the products published since the last flush, in as few notifications as fit. */
+  @Scheduled(fixedDelayString = "${product.cache.invalidation.flush-interval-ms:50}")
+  public void flush() {
+    List<Long> productIds = new ArrayList<>();
+    for (Iterator<Long> iterator = this.pending.iterator(); iterator.hasNext(); ) {
+      productIds.add(iterator.next());
+      iterator.remove();
+    }
+    if (productIds.isEmpty()) {
+      return;
+    }
+    try {
+      for (String payload : payloads(this.node, productIds)) {
+        this.jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", this.channel, payload);
+      }
+    } catch (DataAccessException e) {
+      // the next flush sends them again
+      this.pending.addAll(productIds);
+      log.warn("product cache invalidations could not be sent", e);
+    }
+  }
+
+  void receive(String payload) {
+    int separator = payload.indexOf(':');
+    if (separator < 0 || payload.substring(0, separator).equals(this.node)) {
+      return;
+    }
+    List<Long> productIds = new ArrayList<>();
+    for (String id : payload.substring(separator + 1).split(",")) {
+      productIds.add(Long.valueOf(id));
+    }
+    this.listeners.forEach(listener -> listener.invalidate(productIds));
+  }
+
+  static List<String> payloads(String node, Collection<Long> productIds) {
+    List<String> payloads = new ArrayList<>();
+    StringBuilder payload = new StringBuilder(node).append(':');
+    int empty = payload.length();
+    for (Long id : productIds) {
+      String value = id.toString();
+      if (payload.length() > empty && payload.length() + 1 + value.length() > MAX_PAYLOAD) {
+        payloads.add(payload.toString());
+        payload.setLength(empty);
+      }
+      if (payload.length() > empty) {
+        payload.append(',');
+      }
+      payload.append(value);
+    }
+    if (payload.length() > empty) {
+      payloads.add(payload.toString());
+    }
+    return payloads;
+  }
+
+  private void listen() {
+    while (this.running) {
+      try (Connection connection =
+              DriverManager.getConnection(this.url, this.username, this.password);
+          Statement statement = connection.createStatement()) {
+        statement.execute("LISTEN " + this.channel);
+        this.listeners.forEach(Listener::invalidateAll);
+        PGConnection notifications = connection.unwrap(PGConnection.class);
+        while (this.running) {
+          PGNotification[] received = notifications.getNotifications(WAIT_MILLIS);
+          if (received != null) {
+            for (PGNotification notification : received) {
+              this.receive(notification.getParameter());
+            }
+          }
+        }
+      } catch (SQLException | RuntimeException e) {
+        log.warn("product cache invalidation listener disconnected", e);
+        this.pause();
+      }
+    }
+  }
+
+  private void pause() {
+    try {
+      Thread.sleep(RECONNECT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      this.running = false;
+    }
+  }
+}
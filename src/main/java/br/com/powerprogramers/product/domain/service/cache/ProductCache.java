@@ -0,0 +1,157 @@
+package br.com.powerprogramers.product.domain.service.cache;
+
+import br.com.powerprogramers.product.domain.model.ProductView;
+import br.com.powerprogramers.product.domain.service.read.ProductReads;
+import br.com.powerprogramers.product.domain.service.replica.ReplicaRouting;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded read-through cache of the product read models. Entries expire after the configured time
+ * and, when the cache is full, the admission keeps the most frequently read products. Concurrent
+ * misses of one product share a single load.
+ *
+ * <p>Lookups inside a read-write transaction bypass the cache, as they may see its uncommitted
+ * writes, and the writes evict their products again when the transaction ends, so a load that ran
+ * concurrently with the write cannot keep the old row. Once committed, the evicted products are
+ * published on the invalidation bus, which evicts them on the other instances, and passed to the
+ * read models that follow the writes of this instance. The products kept are loaded from the
+ * primary, as a replica behind it could hand out a row older than a write already evicted.
+ */
+@Component
+public class ProductCache implements CacheInvalidationBus.Listener {
+
+  public static final String NAME = "product";
+
+  private final boolean enabled;
+  private final Cache<Long, ProductView> cache;
+  private final CacheInvalidationBus cacheInvalidationBus;
+  private final List<CacheInvalidationBus.Listener> followers = new CopyOnWriteArrayList<>();
+
+  /**
+   * Builder for the product cache.
+   *
+   * @param enabled whether the products are cached
+   * @param maxSize most products kept
+   * @param ttl time a product is kept after it was loaded
+   * @param meterRegistry registry of the hit, miss and eviction metrics
+   * @param cacheInvalidationBus bus of the products changed on any instance
+   */
+  public ProductCache(
+      @Value("${product.cache.enabled:true}") boolean enabled,
+      @Value("${product.cache.max-size:10000}") long maxSize,
+      @Value("${product.cache.ttl:30s}") Duration ttl,
+      MeterRegistry meterRegistry,
+      CacheInvalidationBus cacheInvalidationBus) {
+    this.enabled = enabled;
+    this.cache =
+        Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, this.cache, NAME);
+    this.cacheInvalidationBus = cacheInvalidationBus;
+    cacheInvalidationBus.subscribe(this);
+  }
+
+  /**
+   * Returns the cached product, loading it on a miss.
+   *
+   * @param id product id
+   * @param loader loads the product, may throw when it does not exist
+   * @return the product
+   */
+  public ProductView get(Long id, Function<Long, ProductView> loader) {
+    if (!this.enabled || ProductReads.isReadWriteTransaction()) {
+      return loader.apply(id);
+    }
+    return ReplicaRouting.onPrimary(() -> this.cache.get(id, loader));
+  }
+
+  /**
+   * Returns the cached products, loading the missing ones together. A product the loader does not
+   * return is left out of the answer and is not cached.
+   *
+   * @param ids product ids
+   * @param loader loads the products of the ids not cached
+   * @return the products found, by id
+   */
+  public Map<Long, ProductView> getAll(
+      Set<Long> ids, Function<Set<? extends Long>, Map<Long, ProductView>> loader) {
+    if (!this.enabled || ProductReads.isReadWriteTransaction()) {
+      return loader.apply(ids);
+    }
+    return ReplicaRouting.onPrimary(() -> this.cache.getAll(ids, loader));
+  }
+
+  /**
+   * Evicts a changed product, now and again when the current transaction ends.
+   *
+   * @param id product id
+   */
+  public void evict(Long id) {
+    this.evictAll(List.of(id));
+  }
+
+  /**
+   * Evicts changed products, now and again when the current transaction ends, and publishes them
+   * once it commits.
+   *
+   * @param ids product ids
+   */
+  public void evictAll(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    List<Long> evicted = List.copyOf(ids);
+    this.cache.invalidateAll(evicted);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      this.committed(evicted);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            ProductCache.this.cache.invalidateAll(evicted);
+            if (status == STATUS_COMMITTED) {
+              ProductCache.this.committed(evicted);
+            }
+          }
+        });
+  }
+
+  /**
+   * Passes the products written on this instance to a listener once their writes commit.
+   *
+   * @param listener listener called with the changed products
+   */
+  public void follow(CacheInvalidationBus.Listener listener) {
+    this.followers.add(listener);
+  }
+
+  @Override
+  public void invalidate(Collection<Long> ids) {
+    this.cache.invalidateAll(ids);
+  }
+
+  @Override
+  public void invalidateAll() {
+    this.cache.invalidateAll();
+  }
+
+  private void committed(List<Long> ids) {
+    this.cacheInvalidationBus.publish(ids);
+    this.followers.forEach(follower -> follower.invalidate(ids));
+  }
+}
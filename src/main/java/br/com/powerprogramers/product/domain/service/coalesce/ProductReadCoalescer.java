@@ -0,0 +1,144 @@
+package br.com.powerprogramers.product.domain.service.coalesce;
+
+import br.com.powerprogramers.product.domain.service.cache.CacheInvalidationBus;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import br.com.powerprogramers.product.domain.service.read.ProductReads;
+import br.com.powerprogramers.product.domain.service.replica.ReplicaRouting;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shares one execution among identical reads that overlap. The first caller runs the read on its
+ * own thread and the callers that arrive while it runs wait for its result, or for its exception,
+ * instead of running the same query again. A read is only shared while it runs: a caller that
+ * arrives once it ended runs the read again. Every write committed on this instance starts a new
+ * epoch and a read is only shared within the epoch it started in, so a caller never joins a read
+ * that started before its own write committed.
+ *
+ * <p>A caller that is interrupted while waiting stops waiting and leaves the read running for the
+ * others. When the read itself is interrupted, the waiting callers run it again rather than fail
+ * with the interruption of another request. Reads inside a read-write transaction are not shared,
+ * as they may see its uncommitted writes, and reads that may go to a replica are only shared with
+ * each other. The callers share the same result, which must not be changed.
+ */
+@Component
+public class ProductReadCoalescer implements CacheInvalidationBus.Listener {
+
+  public static final String CALLS = "product.coalescing.calls";
+  public static final String IN_FLIGHT = "product.coalescing.in-flight";
+
+  private final boolean enabled;
+  private final MeterRegistry meterRegistry;
+  private final Map<Key, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+  private final AtomicLong epoch = new AtomicLong();
+
+  /**
+   * Builder for the read coalescer.
+   *
+   * @param productCache cache whose evictions tell the writes committed on this instance
+   * @param meterRegistry registry of the shared and run calls
+   * @param enabled whether identical reads are shared
+   */
+  public ProductReadCoalescer(
+      ProductCache productCache,
+      MeterRegistry meterRegistry,
+      @Value("${product.coalescing.enabled:true}") boolean enabled) {
+    this.enabled = enabled;
+    this.meterRegistry = meterRegistry;
+    Gauge.builder(IN_FLIGHT, this.flights, Map::size).register(meterRegistry);
+    if (enabled) {
+      productCache.follow(this);
+    }
+  }
+
+  /**
+   * Runs a read, or waits for the identical read already running.
+   *
+   * @param operation name of the read
+   * @param arguments arguments of the read, which tell identical reads apart
+   * @param read the read
+   * @return the result of the read
+   * @param <T> type of the result
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T read(String operation, List<?> arguments, Supplier<T> read) {
+    if (!this.enabled || ProductReads.isReadWriteTransaction()) {
+      return read.get();
+    }
+    Key key = new Key(operation, ReplicaRouting.allowed(), arguments, this.epoch.get());
+    while (true) {
+      CompletableFuture<Object> flight = new CompletableFuture<>();
+      CompletableFuture<Object> running = this.flights.putIfAbsent(key, flight);
+      if (running == null) {
+        this.count(operation, false);
+        return this.lead(key, flight, read);
+      }
+      this.count(operation, true);
+      try {
+        return (T) running.get();
+      } catch (CancellationException e) {
+        // the read was interrupted on the thread that ran it, another caller runs it again
+      } catch (ExecutionException e) {
+        throw rethrow(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CancellationException("The read was interrupted while waiting for its result.");
+      }
+    }
+  }
+
+  private <T> T lead(Key key, CompletableFuture<Object> flight, Supplier<T> read) {
+    try {
+      T result = read.get();
+      this.flights.remove(key, flight);
+      flight.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      this.flights.remove(key, flight);
+      if (e instanceof CancellationException || Thread.currentThread().isInterrupted()) {
+        flight.cancel(false);
+      } else {
+        flight.completeExceptionally(e);
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void invalidate(Collection<Long> ids) {
+    this.epoch.incrementAndGet();
+  }
+
+  @Override
+  public void invalidateAll() {
+    this.epoch.incrementAndGet();
+  }
+
+  private void count(String operation, boolean shared) {
+    this.meterRegistry
+        .counter(CALLS, "operation", operation, "shared", String.valueOf(shared))
+        .increment();
+  }
+
+  private static RuntimeException rethrow(Throwable cause) {
+    if (cause instanceof Error error) {
+      throw error;
+    }
+    return cause instanceof RuntimeException runtime
+        ? runtime
+        : new IllegalStateException("The shared read failed.", cause);
+  }
+
+  private record Key(String operation, boolean replica, List<?> arguments, long epoch) {}
+}
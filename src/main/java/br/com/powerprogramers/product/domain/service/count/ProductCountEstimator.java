@@ -0,0 +1,120 @@
+package br.com.powerprogramers.product.domain.service.count;
+
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import java.sql.DatabaseMetaData;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Class that estimates the number of products of a filter without counting them on each request.
+ *
+ * <p>On Postgres, a listing filtered only by status takes the row estimate of the planner, which
+ * comes from the table statistics. Any other filter takes its last exact count, which is kept per
+ * filter and counted again in the background once it is older than the refresh time, while the
+ * requests keep the previous value.
+ */
+@Slf4j
+@Component
+public class ProductCountEstimator {
+
+  private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
+  private final JdbcTemplate jdbcTemplate;
+  private final LoadingCache<Filter, Long> counts;
+
+  // whether the database is Postgres, found on the first estimate
+  private volatile Boolean postgres;
+
+  /**
+   * Builder for the count estimator.
+   *
+   * @param productRepository repository that counts the products
+   * @param jdbcTemplate template that reads the planner estimate
+   * @param maxFilters most filters whose count is kept
+   * @param refresh age after which a count is counted again
+   * @param expiry time a count of a filter no longer requested is kept
+   */
+  public ProductCountEstimator(
+      ProductRepository productRepository,
+      JdbcTemplate jdbcTemplate,
+      @Value("${product.count.estimate.max-filters:1000}") long maxFilters,
+      @Value("${product.count.estimate.refresh:30s}") Duration refresh,
+      @Value("${product.count.estimate.expiry:10m}") Duration expiry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.counts =
+        Caffeine.newBuilder()
+            .maximumSize(maxFilters)
+            .refreshAfterWrite(refresh)
+            .expireAfterAccess(expiry)
+            .build(
+                f ->
+                    productRepository.countSearchProducts(
+                        f.name(), f.description(), f.active(), f.facets()));
+  }
+
+  /**
+   * Estimates the number of products of a filter with facets. The order of the facets does not
+   * change the count, so every order shares it.
+   *
+   * @param name product name
+   * @param description product description
+   * @param active product status
+   * @param facets price range, stock and order
+   * @return the estimated number of products
+   */
+  public long estimate(String name, String description, Boolean active, ProductFacets facets) {
+    ProductFacets filters = facets.filters();
+    if (name == null
+        && description == null
+        && active != null
+        && filters.isDefault()
+        && this.isPostgres()) {
+      Long planned = this.planned(active);
+      if (planned != null) {
+        return planned;
+      }
+    }
+    return this.counts.get(new Filter(name, description, active, filters));
+  }
+
+  private Long planned(boolean active) {
+    try {
+      String plan =
+          this.jdbcTemplate.queryForObject(
+              "EXPLAIN (FORMAT JSON) SELECT 1 FROM product WHERE active = " + active, String.class);
+      Matcher rows = PLAN_ROWS.matcher(plan == null ? "" : plan);
+      return rows.find() ? Long.valueOf(rows.group(1)) : null;
+    } catch (DataAccessException e) {
+      log.warn("product count could not be estimated by the planner", e);
+      return null;
+    }
+  }
+
+  private boolean isPostgres() {
+    if (this.postgres == null) {
+      try {
+        String database =
+            JdbcUtils.extractDatabaseMetaData(
+                this.jdbcTemplate.getDataSource(), DatabaseMetaData::getDatabaseProductName);
+        this.postgres = "PostgreSQL".equals(database);
+      } catch (MetaDataAccessException e) {
+        log.warn("database of the product count could not be found", e);
+        this.postgres = false;
+      }
+    }
+    return this.postgres;
+  }
+
+  private record Filter(String name, String description, Boolean active, ProductFacets facets) {}
+}
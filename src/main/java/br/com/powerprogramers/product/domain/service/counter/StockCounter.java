@@ -0,0 +1,32 @@
+package br.com.powerprogramers.product.domain.service.counter;
+
+/**
+ * Interface of a stock kept outside the product row, for the products it manages. Implementations
+ * refuse a change that would leave the stock negative.
+ */
+public interface StockCounter {
+  /**
+   * Checks whether the stock of the product is kept by this counter.
+   *
+   * @param id product id
+   * @return true when the counter manages the product
+   */
+  boolean manages(Long id);
+
+  /**
+   * Finds the whole stock of a product.
+   *
+   * @param id product id
+   * @return available stock
+   */
+  long available(Long id);
+
+  /**
+   * Adds the amount to the product stock.
+   *
+   * @param id product id
+   * @param amount amount to be added (negative to remove)
+   * @throws IllegalArgumentException when the stock is not enough
+   */
+  void add(Long id, long amount);
+}
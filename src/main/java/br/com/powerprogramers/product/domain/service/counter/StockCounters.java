@@ -0,0 +1,28 @@
+package br.com.powerprogramers.product.domain.service.counter;
+
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Class that finds which stock counter, if any, keeps the stock of a product. The counters are
+ * asked in their order, the split slots before the ledger, and must not both manage a product.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockCounters {
+
+  private final List<StockCounter> stockCounters;
+
+  /**
+   * Finds the counter that keeps the stock of a product.
+   *
+   * @param id product id
+   * @return the first counter in order that manages it, or empty when the stock is kept in the
+   *     product row
+   */
+  public Optional<StockCounter> find(Long id) {
+    return this.stockCounters.stream().filter(c -> c.manages(id)).findFirst();
+  }
+}
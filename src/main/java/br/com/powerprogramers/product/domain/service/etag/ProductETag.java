@@ -0,0 +1,129 @@
+package br.com.powerprogramers.product.domain.service.etag;
+
+import br.com.powerprogramers.product.domain.dto.PagedProductDto;
+import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Class that builds the strong ETags of the products and of their pages.
+ *
+ * <p>The ETag of a product is its row version, which every write increments. When its stock is kept
+ * by a stock counter the stock is added to it, as the counter changes the stock without touching
+ * the row. The ETag of a page is a hash of the page and of the ETags of its products.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductETag {
+
+  private static final int HASH_BYTES = 16;
+
+  private final StockCounters stockCounters;
+
+  /**
+   * Builds the ETag of a product.
+   *
+   * @param product product as it is answered
+   * @return the quoted ETag, or null when the product has no version
+   */
+  public String of(ProductDto product) {
+    if (product.getVersion() == null) {
+      return null;
+    }
+    String tag = product.getVersion().toString();
+    if (this.stockCounters.find(product.getId()).isPresent()) {
+      tag += "-" + product.getAmount();
+    }
+    return quote(tag);
+  }
+
+  /**
+   * Builds the ETag of a page of products.
+   *
+   * @param page page as it is answered
+   * @return the quoted ETag
+   */
+  public String of(PagedProductDto page) {
+    StringBuilder content =
+        new StringBuilder()
+            .append(page.getPage())
+            .append('/')
+            .append(page.getPerPage())
+            .append('/')
+            .append(page.getTotal())
+            .append('/')
+            .append(page.isEstimated())
+            .append('/')
+            .append(page.getNext());
+    if (page.getItems() != null) {
+      page.getItems().forEach(p -> content.append('/').append(p.getId()).append(this.of(p)));
+    }
+    byte[] hash = sha256().digest(content.toString().getBytes(StandardCharsets.UTF_8));
+    return quote(HexFormat.of().formatHex(Arrays.copyOf(hash, HASH_BYTES)));
+  }
+
+  /**
+   * Tells whether an If-None-Match header holds the current ETag. The tags are compared weakly, as
+   * the header asks.
+   *
+   * @param ifNoneMatch the header value
+   * @param etag the current ETag
+   * @return whether the resource did not change
+   */
+  public static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || etag == null) {
+      return false;
+    }
+    if ("*".equals(ifNoneMatch.trim())) {
+      return true;
+    }
+    String current = opaque(etag);
+    return Arrays.stream(ifNoneMatch.split(",")).map(ProductETag::opaque).anyMatch(current::equals);
+  }
+
+  /**
+   * Extracts the product version from an If-Match header.
+   *
+   * @param ifMatch the header value
+   * @return the expected version, or null when any version is accepted
+   */
+  public static Long version(String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+      return null;
+    }
+    String tag = opaque(ifMatch);
+    int stock = tag.indexOf('-');
+    try {
+      return Long.valueOf(stock > 0 ? tag.substring(0, stock) : tag);
+    } catch (NumberFormatException e) {
+      // an unknown tag can never match the current version
+      return -1L;
+    }
+  }
+
+  private static String opaque(String tag) {
+    String opaque = tag.trim();
+    if (opaque.startsWith("W/")) {
+      opaque = opaque.substring(2);
+    }
+    return opaque.replace("\"", "");
+  }
+
+  private static String quote(String tag) {
+    return "\"" + tag + "\"";
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
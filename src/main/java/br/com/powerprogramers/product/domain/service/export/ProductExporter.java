@@ -0,0 +1,199 @@
+package br.com.powerprogramers.product.domain.service.export;
+
+import br.com.powerprogramers.product.domain.model.ProductExportFormat;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.read.ProductTableReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Class that exports the whole catalog, in id order, straight from a forward-only cursor to an
+ * output stream. Only one row is held at a time, so the memory does not grow with the catalog.
+ *
+ * <p>The CSV has the layout read by the product loads, so an export can be loaded again. As that
+ * layout has no id, a comment with the id of the last product written is added every fetch of rows
+ * and at the end; a client resumes after the last one it received, leaving out the rows that follow
+ * it. The line breaks of the texts are written as spaces, as the load reads one product per line,
+ * and a missing price or amount is written as an empty field.
+ *
+ * <p>The stock of the products kept by a stock counter is read from the counter, as their row only
+ * holds part of it.
+ */
+@Component
+public class ProductExporter {
+
+  static final String CSV_HEADER = "-- name;description;amount;price;active\n";
+  static final String CSV_CHECKPOINT = "-- after ";
+
+  private static final String SELECT_AFTER =
+      """
+      SELECT id, name, description, price, amount, active, version FROM product
+        WHERE id > ? ORDER BY id
+      """;
+
+  private final ProductTableReader tableReader;
+  private final ObjectMapper objectMapper;
+  private final StockCounters stockCounters;
+  private final int fetchSize;
+
+  /**
+   * Builder for the catalog export.
+   *
+   * @param jdbcTemplate template that reads the table
+   * @param transactionManager manager of the read-only transaction the table is read in
+   * @param objectMapper mapper of the NDJSON lines
+   * @param stockCounters counters of the stock kept outside the product rows
+   * @param fetchSize rows fetched at a time
+   */
+  public ProductExporter(
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      ObjectMapper objectMapper,
+      StockCounters stockCounters,
+      @Value("${product.export.fetch-size:1000}") int fetchSize) {
+    this.tableReader = new ProductTableReader(jdbcTemplate, transactionManager, fetchSize);
+    this.objectMapper = objectMapper;
+    this.stockCounters = stockCounters;
+    this.fetchSize = Math.max(1, fetchSize);
+  }
+
+  /**
+   * Writes the products after an id.
+   *
+   * @param format format of the export
+   * @param after id of the last product already exported, zero for the whole catalog
+   * @param out stream the products are written to
+   * @throws IOException when the stream cannot be written
+   */
+  public void export(ProductExportFormat format, long after, OutputStream out) throws IOException {
+    if (after < 0) {
+      throw new IllegalArgumentException("The last exported id cannot be negative.");
+    }
+    if (format == ProductExportFormat.CSV) {
+      out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+    }
+    RowWriter writer = new RowWriter(format, after, out);
+    try {
+      this.tableReader.readAfter(SELECT_AFTER, after, writer);
+      writer.finish();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Writes a product in the layout of the load files.
+   *
+   * @param product product to write
+   * @return the line, with its line break
+   */
+  static String csv(ProductView product) {
+    return String.join(
+            ";",
+            text(product.name()),
+            text(product.description()),
+            product.amount() == null ? "" : String.valueOf(product.amount()),
+            product.price() == null ? "" : product.price().toPlainString(),
+            String.valueOf(product.active()))
+        + "\n";
+  }
+
+  /**
+   * Replaces the stock of a product kept by a stock counter with the stock of the counter.
+   *
+   * @param product product as read from its row
+   * @return the product with its whole stock
+   */
+  ProductView withStock(ProductView product) {
+    return this.stockCounters
+        .find(product.id())
+        .map(
+            counter ->
+                new ProductView(
+                    product.id(),
+                    product.name(),
+                    product.description(),
+                    product.price(),
+                    Math.toIntExact(counter.available(product.id())),
+                    product.active(),
+                    product.version()))
+        .orElse(product);
+  }
+
+  private static String text(String value) {
+    String line =
+        value == null ? "" : value.replace("\r\n", " ").replace('\n', ' ').replace('\r', ' ');
+    // quoted, so a delimiter or a leading comment mark are read as part of the text
+    return "\"" + line.replace("\"", "\"\"") + "\"";
+  }
+
+  private static ProductView view(ResultSet row) throws SQLException {
+    return new ProductView(
+        row.getLong("id"),
+        row.getString("name"),
+        row.getString("description"),
+        row.getBigDecimal("price"),
+        row.getObject("amount", Integer.class),
+        row.getBoolean("active"),
+        row.getObject("version", Long.class));
+  }
+
+  /** Writes each row as it is read, with the checkpoints of the CSV. */
+  private final class RowWriter implements RowCallbackHandler {
+
+    private final ProductExportFormat format;
+    private final OutputStream out;
+    private long lastId;
+    private int sinceCheckpoint;
+
+    private RowWriter(ProductExportFormat format, long after, OutputStream out) {
+      this.format = format;
+      this.lastId = after;
+      this.out = out;
+    }
+
+    @Override
+    public void processRow(ResultSet row) throws SQLException {
+      ProductView product = ProductExporter.this.withStock(view(row));
+      try {
+        if (this.format == ProductExportFormat.CSV) {
+          this.out.write(csv(product).getBytes(StandardCharsets.UTF_8));
+        } else {
+          this.out.write(ProductExporter.this.objectMapper.writeValueAsBytes(product));
+          this.out.write('\n');
+        }
+        this.lastId = product.id();
+        if (++this.sinceCheckpoint == ProductExporter.this.fetchSize) {
+          this.checkpoint();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void finish() throws IOException {
+      if (this.sinceCheckpoint > 0) {
+        this.checkpoint();
+      }
+      this.out.flush();
+    }
+
+    private void checkpoint() throws IOException {
+      this.sinceCheckpoint = 0;
+      if (this.format == ProductExportFormat.CSV) {
+        this.out.write((CSV_CHECKPOINT + this.lastId + "\n").getBytes(StandardCharsets.UTF_8));
+      }
+    }
+  }
+}
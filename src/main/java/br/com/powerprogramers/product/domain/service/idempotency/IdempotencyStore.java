@@ -0,0 +1,147 @@
+package br.com.powerprogramers.product.domain.service.idempotency;
+
+import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.entity.IdempotencyKeyEntity;
+import br.com.powerprogramers.product.domain.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dedupe store of the stock updates sent with an idempotency key. The recent keys are kept in
+ * memory, bounded by a ring that evicts the oldest key when full, and every key is also recorded in
+ * the database with the update, so retries are recognized after an eviction, a restart or on
+ * another instance. Keys expire after the configured time to live, and an expired key still in the
+ * database is deleted and applied again.
+ */
+@Component
+public class IdempotencyStore {
+
+  static final String KEY_REUSED_MESSAGE =
+      "The idempotency key was already used for another request.";
+
+  private final IdempotencyKeyRepository idempotencyKeyRepository;
+  private final IdempotencyWriter idempotencyWriter;
+  private final ObjectMapper objectMapper;
+  private final long ttlMillis;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Entry[] ring;
+  private int next;
+
+  /**
+   * Builder for the idempotency store.
+   *
+   * @param idempotencyKeyRepository idempotency key repository
+   * @param idempotencyWriter writer of the updates with their keys
+   * @param objectMapper mapper of the stored results
+   * @param ttl time a key is remembered
+   * @param maxEntries keys kept in memory
+   */
+  public IdempotencyStore(
+      IdempotencyKeyRepository idempotencyKeyRepository,
+      IdempotencyWriter idempotencyWriter,
+      ObjectMapper objectMapper,
+      @Value("${product.idempotency.ttl:24h}") Duration ttl,
+      @Value("${product.idempotency.max-entries:100000}") int maxEntries) {
+    this.idempotencyKeyRepository = idempotencyKeyRepository;
+    this.idempotencyWriter = idempotencyWriter;
+    this.objectMapper = objectMapper;
+    this.ttlMillis = ttl.toMillis();
+    this.ring = new Entry[Math.max(1, maxEntries)];
+  }
+
+  /**
+   * Applies a stock update once per key. A retry answers the result of the first update without
+   * applying it again.
+   *
+   * @param key idempotency key, when null the update is always applied
+   * @param productId product id
+   * @param amount amount of the update
+   * @param update the stock update
+   * @return the result of the update
+   */
+  public ProductDto execute(
+      String key, Long productId, Integer amount, Supplier<ProductDto> update) {
+    if (key == null) {
+      return update.get();
+    }
+    Entry entry = this.entries.get(key);
+    if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+      return entry.result(productId, amount);
+    }
+
+    ProductDto result;
+    try {
+      result = this.idempotencyWriter.write(key, productId, amount, update);
+    } catch (DataIntegrityViolationException e) {
+      // the key is already in the database, applied by an earlier or a concurrent request
+      IdempotencyKeyEntity stored =
+          this.idempotencyKeyRepository.findById(key).orElseThrow(() -> e);
+      if (this.expiresAt(stored) > System.currentTimeMillis()) {
+        return this.remember(stored).result(productId, amount);
+      }
+      // expired but not purged yet, so the key is free for this update
+      this.idempotencyKeyRepository.deleteCreatedBefore(
+          key, Instant.now().minusMillis(this.ttlMillis));
+      return this.execute(key, productId, amount, update);
+    }
+    return this.remember(
+            new Entry(key, productId, amount, result, System.currentTimeMillis() + this.ttlMillis))
+        .result;
+  }
+
+  /** Deletes the expired keys from the database. */
+  @Scheduled(fixedDelayString = "${product.idempotency.purge-interval-ms:60000}")
+  public void purge() {
+    this.idempotencyKeyRepository.deleteCreatedBefore(Instant.now().minusMillis(this.ttlMillis));
+  }
+
+  private Entry remember(IdempotencyKeyEntity entity) {
+    try {
+      return this.remember(
+          new Entry(
+              entity.getId(),
+              entity.getProductId(),
+              entity.getAmount(),
+              this.objectMapper.readValue(entity.getResult(), ProductDto.class),
+              this.expiresAt(entity)));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private long expiresAt(IdempotencyKeyEntity entity) {
+    return entity.getCreatedAt().toEpochMilli() + this.ttlMillis;
+  }
+
+  private synchronized Entry remember(Entry entry) {
+    Entry evicted = this.ring[this.next];
+    if (evicted != null) {
+      this.entries.remove(evicted.key, evicted);
+    }
+    this.ring[this.next] = entry;
+    this.next = (this.next + 1) % this.ring.length;
+    this.entries.put(entry.key, entry);
+    return entry;
+  }
+
+  private record Entry(
+      String key, Long productId, Integer amount, ProductDto result, long expiresAt) {
+
+    private ProductDto result(Long productId, Integer amount) {
+      if (!this.productId.equals(productId) || !this.amount.equals(amount)) {
+        throw new IllegalArgumentException(KEY_REUSED_MESSAGE);
+      }
+      return this.result;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package br.com.powerprogramers.product.domain.service.idempotency;
+
+import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.entity.IdempotencyKeyEntity;
+import br.com.powerprogramers.product.domain.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Class that applies a stock update and records its idempotency key in the same transaction. */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyWriter {
+
+  private final IdempotencyKeyRepository idempotencyKeyRepository;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Records the key and applies the update. The key is inserted first, so a concurrent request with
+   * the same key waits for this transaction and then fails on the primary key instead of applying
+   * the update again.
+   *
+   * @param key idempotency key
+   * @param productId product id
+   * @param amount amount of the update
+   * @param update the stock update
+   * @return the result of the update
+   */
+  @Transactional
+  public ProductDto write(String key, Long productId, Integer amount, Supplier<ProductDto> update) {
+    this.idempotencyKeyRepository.saveAndFlush(
+        IdempotencyKeyEntity.builder()
+            .id(key)
+            .productId(productId)
+            .amount(amount)
+            .createdAt(Instant.now())
+            .build());
+    ProductDto result = update.get();
+    try {
+      this.idempotencyKeyRepository.updateResult(key, this.objectMapper.writeValueAsString(result));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+    return result;
+  }
+}
@@ -3,19 +3,48 @@ package br.com.powerprogramers.product.domain.service.impl;
 import br.com.powerprogramers.product.domain.dto.CreateProductDto;
 import br.com.powerprogramers.product.domain.dto.PagedProductDto;
 import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.dto.ProductLookupDto;
 import br.com.powerprogramers.product.domain.dto.UpdateProductDto;
 import br.com.powerprogramers.product.domain.entity.ProductEntity;
 import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
+import br.com.powerprogramers.product.domain.exceptions.ProductPreconditionFailedException;
 import br.com.powerprogramers.product.domain.mappers.ProductMapper;
 import br.com.powerprogramers.product.domain.model.Product;
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import br.com.powerprogramers.product.domain.model.ProductCount;
+import br.com.powerprogramers.product.domain.model.ProductCursor;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductQuery;
+import br.com.powerprogramers.product.domain.model.ProductSort;
+import br.com.powerprogramers.product.domain.model.ProductView;
 import br.com.powerprogramers.product.domain.repository.ProductRepository;
 import br.com.powerprogramers.product.domain.service.ProductService;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import br.com.powerprogramers.product.domain.service.coalesce.ProductReadCoalescer;
+import br.com.powerprogramers.product.domain.service.count.ProductCountEstimator;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.outbox.ProductOutbox;
+import br.com.powerprogramers.product.domain.service.retry.OptimisticRetry;
+import br.com.powerprogramers.product.domain.service.search.ProductTextIndex;
+import br.com.powerprogramers.product.domain.service.snapshot.ProductSnapshot;
 import br.com.powerprogramers.product.domain.service.usecase.create.CreateProductUseCase;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /** Service class for product operations. */
 @Service
@@ -25,61 +54,277 @@ public class ProductServiceImpl implements ProductService {
   private static final ProductMapper productMapper = ProductMapper.INSTANCE;
   private final ProductRepository productRepository;
   private final CreateProductUseCase createProductUseCase;
+  private final StockCounters stockCounters;
+  private final ProductOutbox productOutbox;
+  private final ProductCache productCache;
+  private final ProductCountEstimator productCountEstimator;
+  private final ProductTextIndex productTextIndex;
+  private final ProductSnapshot productSnapshot;
+  private final ProductReadCoalescer productReadCoalescer;
+
+  @Value("${product.lookup.max-ids:100}")
+  private int maxLookupIds;
 
   @Override
   public ProductDto findById(Long id) {
-    ProductEntity productEntity =
-        this.productRepository
-            .findById(id)
-            .orElseThrow(() -> new ProductNotFoundException("/products"));
-    return productMapper.toDto(productEntity);
+    return this.productReadCoalescer.read(
+        "findById",
+        List.of(id),
+        () -> {
+          ProductView view =
+              this.productSnapshot
+                  .find(id)
+                  .orElseGet(() -> this.productCache.get(id, this::findView));
+          return this.withStock(productMapper.toDto(view));
+        });
   }
 
   @Override
-  public PagedProductDto findAll(
-      Integer page, Integer perPage, String name, String description, Boolean active) {
-    Pageable pageable = PageRequest.of(page, perPage);
-    Page<ProductEntity> pageOfEntity =
-        this.productRepository.findAllProducts(pageable, name, description, active);
-    return new PagedProductDto()
-        .page(pageOfEntity.getPageable().getPageNumber())
-        .perPage(pageOfEntity.getPageable().getPageSize())
-        .total(pageOfEntity.getTotalElements())
-        .items(pageOfEntity.get().map(productMapper::toDto).toList());
+  public ProductLookupDto findAllById(List<Long> ids) {
+    if (ids == null || ids.isEmpty() || ids.stream().anyMatch(Objects::isNull)) {
+      throw new IllegalArgumentException("The lookup must have at least one id and no null ids.");
+    }
+    Set<Long> distinct = new LinkedHashSet<>(ids);
+    if (distinct.size() > this.maxLookupIds) {
+      throw new IllegalArgumentException(
+          "The lookup cannot have more than %d ids.".formatted(this.maxLookupIds));
+    }
+    Map<Long, ProductView> views = new HashMap<>(this.productSnapshot.findAll(distinct));
+    if (views.size() < distinct.size()) {
+      Set<Long> rest = new LinkedHashSet<>(distinct);
+      rest.removeAll(views.keySet());
+      views.putAll(this.productCache.getAll(rest, this::findViews));
+    }
+    ProductLookupDto lookup =
+        new ProductLookupDto().items(new ArrayList<>()).missing(new ArrayList<>());
+    for (Long id : distinct) {
+      ProductView view = views.get(id);
+      if (view == null) {
+        lookup.addMissingItem(id);
+      } else {
+        lookup.addItemsItem(this.withStock(productMapper.toDto(view)));
+      }
+    }
+    return lookup;
   }
 
   @Override
+  public PagedProductDto findAll(ProductQuery query) {
+    return this.productReadCoalescer.read(
+        "findAll",
+        List.of(query),
+        () -> query.after() == null ? this.page(query) : this.pageAfter(query));
+  }
+
+  @Override
+  @Transactional
   public ProductDto save(CreateProductDto createProductDto) {
     Product product = this.createProductUseCase.execute(productMapper.toModel(createProductDto));
     product.activate();
-    return this.persist(product);
+    return this.persist(product, ProductChange.Type.CREATED);
   }
 
   @Override
+  @OptimisticRetry("product.update")
+  @Transactional
   public ProductDto update(Long id, UpdateProductDto updateProductDto) {
-    ProductDto productDto = this.findById(id);
+    return this.update(id, updateProductDto, null);
+  }
+
+  @Override
+  @OptimisticRetry("product.update")
+  @Transactional
+  public ProductDto update(Long id, UpdateProductDto updateProductDto, Long expectedVersion) {
+    ProductDto productDto = productMapper.toDto(this.findEntity(id));
+    if (expectedVersion != null && !expectedVersion.equals(productDto.getVersion())) {
+      throw new ProductPreconditionFailedException("/products");
+    }
     Product product = productMapper.toModel(productDto);
     product.update(updateProductDto);
-    return this.persist(product);
+    return this.persist(product, ProductChange.Type.UPDATED);
   }
 
   @Override
+  @OptimisticRetry("product.activate")
+  @Transactional
   public ProductDto activate(Long id) {
-    ProductDto productDto = this.findById(id);
+    ProductDto productDto = productMapper.toDto(this.findEntity(id));
     Product product = productMapper.toModel(productDto);
     product.activate();
-    return this.persist(product);
+    return this.persist(product, ProductChange.Type.ACTIVATED);
   }
 
   @Override
+  @OptimisticRetry("product.deactivate")
+  @Transactional
   public ProductDto deactivate(Long id) {
-    ProductDto productDto = this.findById(id);
+    ProductDto productDto = productMapper.toDto(this.findEntity(id));
     Product product = productMapper.toModel(productDto);
     product.deactivate();
-    return this.persist(product);
+    return this.persist(product, ProductChange.Type.DEACTIVATED);
+  }
+
+  private PagedProductDto page(ProductQuery query) {
+    Integer page = query.page();
+    Integer perPage = query.perPage();
+    String name = query.name();
+    String description = query.description();
+    Boolean active = query.active();
+    ProductCount count = query.count();
+    ProductFacets facets = query.facets();
+    Pageable pageable = PageRequest.of(page, perPage);
+    if (facets.isDefault() && this.productSnapshot.covers(name, description, active)) {
+      Page<ProductView> pageOfView = this.productSnapshot.findPage(name, description, 0, pageable);
+      PagedProductDto paged = this.toPaged(pageOfView, ProductSort.ID).page(page);
+      // the snapshot counts exactly at no cost
+      return count == ProductCount.NONE ? paged : paged.total(pageOfView.getTotalElements());
+    }
+    if (facets.isDefault() && this.productTextIndex.covers(name, description)) {
+      long[] ids = this.productTextIndex.search(name, description, active);
+      int from = (int) Math.min(ids.length, pageable.getOffset());
+      PagedProductDto paged = this.indexedPage(ids, from, perPage).page(page);
+      // the index counts exactly at no cost
+      return count == ProductCount.NONE ? paged : paged.total((long) ids.length);
+    }
+    Slice<ProductView> sliceOfView =
+        this.findSlice(pageable, name, description, active, count, facets);
+    PagedProductDto paged =
+        this.toPaged(sliceOfView, facets.sort()).page(sliceOfView.getPageable().getPageNumber());
+    if (sliceOfView instanceof Page<ProductView> pageOfView) {
+      return paged.total(pageOfView.getTotalElements());
+    }
+    if (count == ProductCount.NONE) {
+      return paged;
+    }
+    long known = pageable.getOffset() + sliceOfView.getNumberOfElements();
+    if (!sliceOfView.hasNext() && (sliceOfView.hasContent() || page == 0)) {
+      // the last page already tells the exact total
+      return paged.total(known).estimated(false);
+    }
+    long estimate = this.productCountEstimator.estimate(name, description, active, facets);
+    return paged.total(Math.max(estimate, known + 1)).estimated(true);
+  }
+
+  private PagedProductDto pageAfter(ProductQuery query) {
+    Integer perPage = query.perPage();
+    String name = query.name();
+    String description = query.description();
+    Boolean active = query.active();
+    ProductFacets facets = query.facets();
+    if (perPage < 1) {
+      throw new IllegalArgumentException("Page size must not be less than one");
+    }
+    ProductCursor.Position position = ProductCursor.decode(query.after(), facets.sort());
+    Long afterId = position.id();
+    if (facets.isDefault() && this.productSnapshot.covers(name, description, active)) {
+      return this.toPaged(
+          this.productSnapshot.findPage(name, description, afterId, PageRequest.of(0, perPage)),
+          ProductSort.ID);
+    }
+    if (facets.isDefault() && this.productTextIndex.covers(name, description)) {
+      long[] ids = this.productTextIndex.search(name, description, active);
+      int from = Arrays.binarySearch(ids, afterId + 1);
+      return this.indexedPage(ids, from < 0 ? -from - 1 : from, perPage);
+    }
+    return this.toPaged(
+        this.productRepository.searchProducts(
+            name, description, active, facets, position, PageRequest.of(0, perPage)),
+        facets.sort());
+  }
+
+  private ProductView findView(Long id) {
+    return this.productRepository
+        .findViewById(id)
+        .orElseThrow(() -> new ProductNotFoundException("/products"));
   }
 
-  private ProductDto persist(Product product) {
-    return productMapper.toDto(this.productRepository.save(productMapper.toEntity(product)));
+  private Map<Long, ProductView> findViews(Set<? extends Long> ids) {
+    Map<Long, ProductView> views = new HashMap<>();
+    this.productRepository.findViewsById(List.copyOf(ids)).forEach(v -> views.put(v.id(), v));
+    return views;
+  }
+
+  private ProductEntity findEntity(Long id) {
+    return this.productRepository
+        .findById(id)
+        .orElseThrow(() -> new ProductNotFoundException("/products"));
+  }
+
+  /**
+   * Replaces the amount of the product row by the whole stock when it is kept by a stock counter.
+   * The writes must not read it back, they only change the product row.
+   */
+  private ProductDto withStock(ProductDto productDto) {
+    this.stockCounters
+        .find(productDto.getId())
+        .ifPresent(c -> productDto.amount(Math.toIntExact(c.available(productDto.getId()))));
+    return productDto;
+  }
+
+  /**
+   * Finds a slice of the products. The search writes only the given filters, and ignores accents
+   * and case of the texts on Postgres; the count is only run when the page does not tell the total.
+   */
+  private Slice<ProductView> findSlice(
+      Pageable pageable,
+      String name,
+      String description,
+      Boolean active,
+      ProductCount count,
+      ProductFacets facets) {
+    Slice<ProductView> sliceOfView =
+        this.productRepository.searchProducts(name, description, active, facets, null, pageable);
+    if (count != ProductCount.EXACT) {
+      return sliceOfView;
+    }
+    return PageableExecutionUtils.getPage(
+        sliceOfView.getContent(),
+        pageable,
+        () -> this.productRepository.countSearchProducts(name, description, active, facets));
+  }
+
+  /** Maps a slice of the products, with the cursor of its last product when there are more. */
+  private PagedProductDto toPaged(Slice<ProductView> sliceOfView, ProductSort sort) {
+    return new PagedProductDto()
+        .perPage(sliceOfView.getPageable().getPageSize())
+        .items(sliceOfView.get().map(productMapper::toDto).map(this::withStock).toList())
+        .next(
+            sliceOfView.hasNext()
+                ? ProductCursor.encode(sort, last(sliceOfView.getContent()))
+                : null);
+  }
+
+  /**
+   * Loads a page of the ids found in the text index, in their order. A product removed from the
+   * table since it was indexed is left out.
+   */
+  private PagedProductDto indexedPage(long[] ids, int from, int perPage) {
+    int to = Math.min(ids.length, from + perPage);
+    List<Long> pageIds = Arrays.stream(ids, from, to).boxed().toList();
+    Map<Long, ProductView> views = new HashMap<>();
+    this.productRepository.findViewsById(pageIds).forEach(v -> views.put(v.id(), v));
+    return new PagedProductDto()
+        .perPage(perPage)
+        .items(
+            pageIds.stream()
+                .map(views::get)
+                .filter(Objects::nonNull)
+                .map(productMapper::toDto)
+                .map(this::withStock)
+                .toList())
+        .next(to < ids.length ? ProductCursor.encode(ids[to - 1]) : null);
+  }
+
+  private static ProductView last(List<ProductView> views) {
+    return views.get(views.size() - 1);
+  }
+
+  private ProductDto persist(Product product, ProductChange.Type type) {
+    ProductEntity productEntity =
+        this.productRepository.saveAndFlush(productMapper.toEntity(product));
+    this.productOutbox.append(productEntity.getId(), type);
+    this.productCache.evict(productEntity.getId());
+    this.productTextIndex.put(productEntity);
+    return this.withStock(productMapper.toDto(productEntity));
   }
 }
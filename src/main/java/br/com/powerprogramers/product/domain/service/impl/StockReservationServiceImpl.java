@@ -0,0 +1,202 @@
+package br.com.powerprogramers.product.domain.service.impl;
+
+import br.com.powerprogramers.product.domain.entity.StockReservationEntity;
+import br.com.powerprogramers.product.domain.exceptions.ReservationNotFoundException;
+import br.com.powerprogramers.product.domain.model.ProductRequested;
+import br.com.powerprogramers.product.domain.model.StockReservation;
+import br.com.powerprogramers.product.domain.repository.StockReservationRepository;
+import br.com.powerprogramers.product.domain.service.StockReservationService;
+import br.com.powerprogramers.product.domain.service.StockService;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.reservation.StockReservationWriter;
+import br.com.powerprogramers.product.domain.service.reservation.TimingWheel;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Class that represents the stock reservation service implementation. The pending reservations are
+ * kept in the database, which decides who confirms or releases each one, and their expiry is driven
+ * by a timing wheel. Reservations confirmed or released before the deadline are not removed from
+ * the wheel, they are skipped when it expires them.
+ */
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+
+  private static final String PATH = "/reservations";
+  private static final int LOAD_CHUNK = 1000;
+
+  private final StockService stockService;
+  private final StockCounters stockCounters;
+  private final StockReservationRepository stockReservationRepository;
+  private final StockReservationWriter stockReservationWriter;
+  private final Duration ttl;
+  private final TimingWheel<StockReservation> timingWheel;
+
+  /**
+   * Builder for the stock reservation service.
+   *
+   * @param stockService stock service
+   * @param stockCounters counters of the stock kept outside the product row
+   * @param stockReservationRepository stock reservation repository
+   * @param stockReservationWriter writer of the released reservations
+   * @param ttl time a reservation is held before it expires
+   * @param tickMillis precision of the expiry
+   * @param wheelSize slots of each level of the timing wheel
+   * @param levels levels of the timing wheel
+   */
+  public StockReservationServiceImpl(
+      StockService stockService,
+      StockCounters stockCounters,
+      StockReservationRepository stockReservationRepository,
+      StockReservationWriter stockReservationWriter,
+      @Value("${product.stock.reservation.ttl:5m}") Duration ttl,
+      @Value("${product.stock.reservation.tick-ms:100}") long tickMillis,
+      @Value("${product.stock.reservation.wheel-size:512}") int wheelSize,
+      @Value("${product.stock.reservation.levels:4}") int levels) {
+    this.stockService = stockService;
+    this.stockCounters = stockCounters;
+    this.stockReservationRepository = stockReservationRepository;
+    this.stockReservationWriter = stockReservationWriter;
+    this.ttl = ttl;
+    this.timingWheel =
+        new TimingWheel<>(tickMillis, wheelSize, levels, Instant.now().toEpochMilli());
+  }
+
+  /**
+   * Schedules the expiry of the reservations left pending by a previous run. They are read a page
+   * at a time after the last id read, so the whole table is never held at once.
+   */
+  @PostConstruct
+  public void load() {
+    String after = "";
+    List<StockReservationEntity> page;
+    do {
+      page = this.stockReservationRepository.findPendingAfter(after, PageRequest.of(0, LOAD_CHUNK));
+      page.forEach(entity -> this.schedule(toModel(entity)));
+      after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+    } while (page.size() == LOAD_CHUNK);
+  }
+
+  @Override
+  @Transactional
+  public StockReservation reserve(ProductRequested product) {
+    if (product.getId() == null || product.getAmount() == null || product.getAmount() < 1) {
+      throw new IllegalArgumentException("The amount cannot be negative or zero.");
+    }
+
+    this.stockService.updateStock(product.getId(), -product.getAmount());
+    StockReservationEntity entity =
+        StockReservationEntity.builder()
+            .id(UUID.randomUUID().toString())
+            .productId(product.getId())
+            .amount(product.getAmount())
+            .expiresAt(Instant.now().plus(this.ttl))
+            .build();
+    try {
+      this.stockReservationRepository.saveAndFlush(entity);
+    } catch (RuntimeException e) {
+      // the database stock rolls back with the transaction, the ledger one is given back by hand
+      this.stockCounters
+          .find(product.getId())
+          .ifPresent(c -> c.add(product.getId(), product.getAmount()));
+      throw e;
+    }
+
+    StockReservation reservation = toModel(entity);
+    this.schedule(reservation);
+    return reservation;
+  }
+
+  @Override
+  @Transactional
+  public StockReservation confirm(String id) {
+    StockReservation reservation = this.findPending(id);
+    if (this.stockReservationRepository.deleteReservation(id) == 0) {
+      throw new ReservationNotFoundException(PATH);
+    }
+    return reservation.withStatus(StockReservation.Status.CONFIRMED);
+  }
+
+  @Override
+  public StockReservation release(String id) {
+    List<StockReservation> released = this.release(List.of(this.findPending(id)));
+    if (released.isEmpty()) {
+      throw new ReservationNotFoundException(PATH);
+    }
+    return released.get(0);
+  }
+
+  /** Releases the reservations whose deadline passed. */
+  @Scheduled(fixedDelayString = "${product.stock.reservation.tick-ms:100}")
+  public void expire() {
+    this.expire(Instant.now());
+  }
+
+  /**
+   * Releases the reservations whose deadline passed until the given time, in a single transaction.
+   *
+   * @param now current time
+   * @return the released reservations
+   */
+  public List<StockReservation> expire(Instant now) {
+    List<StockReservation> expired;
+    synchronized (this.timingWheel) {
+      expired = this.timingWheel.advance(now.toEpochMilli());
+    }
+    if (expired.isEmpty()) {
+      return expired;
+    }
+    try {
+      return this.release(expired);
+    } catch (RuntimeException e) {
+      // tried again on the next tick
+      expired.forEach(r -> this.schedule(r, now));
+      throw e;
+    }
+  }
+
+  private List<StockReservation> release(List<StockReservation> reservations) {
+    List<StockReservation> released = this.stockReservationWriter.release(reservations);
+    released.forEach(
+        r ->
+            this.stockCounters
+                .find(r.getProductId())
+                .ifPresent(c -> c.add(r.getProductId(), r.getAmount())));
+    return released.stream().map(r -> r.withStatus(StockReservation.Status.RELEASED)).toList();
+  }
+
+  private StockReservation findPending(String id) {
+    return this.stockReservationRepository
+        .findById(id)
+        .map(StockReservationServiceImpl::toModel)
+        .filter(r -> r.getExpiresAt().isAfter(Instant.now()))
+        .orElseThrow(() -> new ReservationNotFoundException(PATH));
+  }
+
+  private void schedule(StockReservation reservation) {
+    this.schedule(reservation, reservation.getExpiresAt());
+  }
+
+  private void schedule(StockReservation reservation, Instant deadline) {
+    synchronized (this.timingWheel) {
+      this.timingWheel.add(reservation, deadline.toEpochMilli());
+    }
+  }
+
+  private static StockReservation toModel(StockReservationEntity entity) {
+    return new StockReservation(
+        entity.getId(),
+        entity.getProductId(),
+        entity.getAmount(),
+        entity.getExpiresAt(),
+        StockReservation.Status.RESERVED);
+  }
+}
@@ -1,28 +1,197 @@
 package br.com.powerprogramers.product.domain.service.impl;
 
 import br.com.powerprogramers.product.domain.dto.ProductDto;
-import br.com.powerprogramers.product.domain.mappers.ProductMapper;
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.exceptions.ProductException;
 import br.com.powerprogramers.product.domain.model.Product;
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import br.com.powerprogramers.product.domain.model.ProductRequested;
+import br.com.powerprogramers.product.domain.model.ProductReserved;
+import br.com.powerprogramers.product.domain.model.StockRemoval;
 import br.com.powerprogramers.product.domain.repository.ProductRepository;
 import br.com.powerprogramers.product.domain.service.StockService;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import br.com.powerprogramers.product.domain.service.counter.StockCounter;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.outbox.ProductOutbox;
 import br.com.powerprogramers.product.domain.service.usecase.update.UpdateStockUseCase;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /** Class that represents the stock service implementation. */
 @Service
 @RequiredArgsConstructor
 public class StockServiceImpl implements StockService {
 
-  private static final ProductMapper productMapper = ProductMapper.INSTANCE;
   private final ProductRepository productRepository;
   private final UpdateStockUseCase updateStockUseCase;
+  private final StockCounters stockCounters;
+  private final ProductOutbox productOutbox;
+  private final ProductCache productCache;
 
   @Override
+  @Transactional
   public ProductDto updateStock(Long id, Integer amount) {
-    ProductDto productDto = this.updateStockUseCase.execute(id);
-    Product product = productMapper.toModel(productDto);
-    product.updateAmount(amount);
-    return productMapper.toDto(this.productRepository.save(productMapper.toEntity(product)));
+    Optional<StockCounter> stockCounter = this.stockCounters.find(id);
+    if (stockCounter.isPresent()) {
+      stockCounter.get().add(id, amount);
+    } else if (this.productRepository.updateAmount(id, amount) == 0) {
+      // resolves the product first so that an unknown id keeps answering with not found
+      this.updateStockUseCase.execute(id);
+      throw new IllegalArgumentException(Product.INSUFFICIENT_STOCK_MESSAGE);
+    }
+    this.productOutbox.append(id, ProductChange.Type.STOCK_CHANGED);
+    this.productCache.evict(id);
+    return this.updateStockUseCase.execute(id);
+  }
+
+  @Override
+  @Transactional
+  public List<ProductReserved> reserveOrder(List<ProductRequested> products) {
+    if (products == null || products.isEmpty()) {
+      throw new IllegalArgumentException("The order must have at least one product.");
+    }
+
+    // sorted by id so that every order locks the rows in the same sequence and cannot deadlock
+    Map<Long, Integer> totals = new TreeMap<>();
+    for (ProductRequested product : products) {
+      if (product.getId() == null || product.getAmount() == null || product.getAmount() < 1) {
+        throw new IllegalArgumentException("The amount cannot be negative or zero.");
+      }
+      totals.merge(product.getId(), product.getAmount(), Integer::sum);
+    }
+
+    // the database changes roll back with the transaction, the counter ones are undone by hand
+    Map<Long, Integer> counterRemoved = new TreeMap<>();
+    try {
+      totals.forEach(
+          (id, amount) -> {
+            Optional<StockCounter> stockCounter = this.stockCounters.find(id);
+            if (stockCounter.isPresent()) {
+              this.removeFromCounter(stockCounter.get(), id, amount);
+              counterRemoved.put(id, amount);
+            } else if (this.productRepository.updateAmount(id, -amount) == 0) {
+              this.updateStockUseCase.execute(id);
+              throw new IllegalArgumentException(
+                  "%s Product: %d".formatted(Product.INSUFFICIENT_STOCK_MESSAGE, id));
+            }
+          });
+    } catch (RuntimeException e) {
+      counterRemoved.forEach(
+          (id, amount) -> this.stockCounters.find(id).orElseThrow().add(id, amount));
+      throw e;
+    }
+    this.productOutbox.appendAll(totals.keySet(), ProductChange.Type.STOCK_CHANGED);
+    this.productCache.evictAll(totals.keySet());
+
+    Map<Long, Integer> remaining =
+        this.productRepository.findAllById(totals.keySet()).stream()
+            .collect(Collectors.toMap(ProductEntity::getId, ProductEntity::getAmount));
+    counterRemoved
+        .keySet()
+        .forEach(
+            id ->
+                remaining.put(
+                    id, Math.toIntExact(this.stockCounters.find(id).orElseThrow().available(id))));
+    return products.stream()
+        .map(p -> new ProductReserved(p.getId(), p.getAmount(), remaining.get(p.getId())))
+        .toList();
+  }
+
+  @Override
+  @Transactional
+  public List<StockRemoval> removeStock(List<ProductRequested> products) {
+    StockRemoval[] removals = new StockRemoval[products.size()];
+
+    // sorted by id so that concurrent batches lock the rows in the same sequence
+    Map<Long, List<Integer>> requestsByProduct = new TreeMap<>();
+    for (int i = 0; i < products.size(); i++) {
+      ProductRequested product = products.get(i);
+      if (product.getId() == null || product.getAmount() == null || product.getAmount() < 1) {
+        removals[i] = StockRemoval.rejected(product, "The amount cannot be negative or zero.");
+      } else {
+        requestsByProduct.computeIfAbsent(product.getId(), id -> new ArrayList<>()).add(i);
+      }
+    }
+
+    requestsByProduct.forEach((id, requests) -> this.removeStock(id, requests, products, removals));
+    Set<Long> changed =
+        Arrays.stream(removals)
+            .filter(StockRemoval::isRemoved)
+            .map(StockRemoval::getId)
+            .collect(Collectors.toCollection(TreeSet::new));
+    this.productOutbox.appendAll(changed, ProductChange.Type.STOCK_CHANGED);
+    this.productCache.evictAll(changed);
+    return Arrays.asList(removals);
+  }
+
+  /**
+   * Removes the requests of one product with a single update. When the stock cannot serve all of
+   * them, the row is locked and the requests are served in arrival order while there is stock.
+   */
+  private void removeStock(
+      Long id, List<Integer> requests, List<ProductRequested> products, StockRemoval[] removals) {
+    Optional<StockCounter> stockCounter = this.stockCounters.find(id);
+    if (stockCounter.isPresent()) {
+      // the counter does not queue on the product row, so there is nothing to coalesce
+      requests.forEach(
+          i -> removals[i] = this.removeFromCounter(stockCounter.get(), products.get(i)));
+      return;
+    }
+    int total = requests.stream().mapToInt(i -> products.get(i).getAmount()).sum();
+    if (this.productRepository.updateAmount(id, -total) == 1) {
+      requests.forEach(i -> removals[i] = StockRemoval.removed(products.get(i)));
+      return;
+    }
+
+    Optional<ProductEntity> productEntity = this.productRepository.findByIdForUpdate(id);
+    if (productEntity.isEmpty()) {
+      requests.forEach(
+          i -> removals[i] = StockRemoval.rejected(products.get(i), "product not found"));
+      return;
+    }
+
+    int available = productEntity.get().getAmount();
+    int accepted = 0;
+    for (int i : requests) {
+      ProductRequested product = products.get(i);
+      if (accepted + product.getAmount() <= available) {
+        accepted += product.getAmount();
+        removals[i] = StockRemoval.removed(product);
+      } else {
+        removals[i] = StockRemoval.rejected(product, Product.INSUFFICIENT_STOCK_MESSAGE);
+      }
+    }
+    if (accepted > 0) {
+      this.productRepository.updateAmount(id, -accepted);
+    }
+  }
+
+  private StockRemoval removeFromCounter(StockCounter stockCounter, ProductRequested product) {
+    try {
+      stockCounter.add(product.getId(), -product.getAmount());
+      return StockRemoval.removed(product);
+    } catch (ProductException | IllegalArgumentException e) {
+      return StockRemoval.rejected(product, e.getMessage());
+    }
+  }
+
+  private void removeFromCounter(StockCounter stockCounter, Long id, Integer amount) {
+    try {
+      stockCounter.add(id, -amount);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "%s Product: %d".formatted(Product.INSUFFICIENT_STOCK_MESSAGE, id));
+    }
   }
 }
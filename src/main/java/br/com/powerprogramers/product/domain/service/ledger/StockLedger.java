@@ -0,0 +1,331 @@
+package br.com.powerprogramers.product.domain.service.ledger;
+
+import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
+import br.com.powerprogramers.product.domain.model.Product;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.counter.StockCounter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory stock ledger for the hottest products. The counters live in primitive longs updated by
+ * compare-and-set and sharded by product id, so stock changes never wait for a row lock. Every
+ * accepted change is appended to a local log before it is acknowledged: the callers queue their
+ * changes and a single writer appends the queued changes together and forces them to disk once,
+ * completing every change of the group. A background flusher writes the net delta of each product
+ * to the database. On startup the counters are rebuilt from the database plus the log records after
+ * the last flushed checkpoint.
+ *
+ * <p>The ledger is disabled by default. When enabled it must be the only writer of the stock of the
+ * products it manages, and its log directory must be set to a durable location. It must not manage
+ * a product whose stock is split in slots, as it would not see the stock of the slots.
+ */
+@Slf4j
+@Component
+@Order(2)
+public class StockLedger implements StockCounter {
+
+  private static final String PATH = "/stock";
+  private static final int GROUP_SIZE = 1024;
+  private static final long WAIT_MILLIS = 100;
+
+  private final ProductRepository productRepository;
+  private final StockLedgerWriter stockLedgerWriter;
+  private final boolean enabled;
+  private final Set<Long> productIds;
+  private final StockLedgerLog ledgerLog;
+  private final Map<Long, Counter>[] stripes;
+  private final BlockingQueue<Change> changes = new LinkedBlockingQueue<>();
+
+  private volatile boolean running;
+  private Thread writer;
+
+  /**
+   * Builder for the stock ledger.
+   *
+   * @param productRepository product repository
+   * @param stockLedgerWriter writer of the flushed deltas
+   * @param enabled whether the ledger manages any stock
+   * @param productIds ids of the managed products, empty to manage every product
+   * @param splitProductIds ids of the products whose stock is split in slots
+   * @param directory directory of the log segments, required when enabled
+   * @param stripes number of counter shards, rounded up to a power of two
+   */
+  @SuppressWarnings("unchecked")
+  public StockLedger(
+      ProductRepository productRepository,
+      StockLedgerWriter stockLedgerWriter,
+      @Value("${product.stock.ledger.enabled:false}") boolean enabled,
+      @Value("${product.stock.ledger.product-ids:}") Set<Long> productIds,
+      @Value("${product.stock.split.product-ids:}") Set<Long> splitProductIds,
+      @Value("${product.stock.ledger.directory:}") String directory,
+      @Value("${product.stock.ledger.stripes:16}") int stripes) {
+    if (enabled && directory.isBlank()) {
+      throw new IllegalStateException(
+          "The stock ledger directory must be set when the ledger is enabled.");
+    }
+    if (enabled
+        && !splitProductIds.isEmpty()
+        && (productIds.isEmpty() || splitProductIds.stream().anyMatch(productIds::contains))) {
+      throw new IllegalStateException(
+          "The stock ledger cannot manage the products whose stock is split.");
+    }
+    this.productRepository = productRepository;
+    this.stockLedgerWriter = stockLedgerWriter;
+    this.enabled = enabled;
+    this.productIds = Set.copyOf(productIds);
+    this.ledgerLog = new StockLedgerLog(Path.of(directory));
+    this.stripes = new Map[Integer.highestOneBit(Math.max(1, stripes - 1)) << 1];
+    for (int i = 0; i < this.stripes.length; i++) {
+      this.stripes[i] = new ConcurrentHashMap<>();
+    }
+  }
+
+  /**
+   * Rebuilds the counters from the database and the log records not flushed yet, then starts the
+   * log writer.
+   *
+   * @throws IOException when the log cannot be read
+   */
+  @PostConstruct
+  public void replay() throws IOException {
+    if (!this.enabled) {
+      return;
+    }
+    Map<Long, Long> pending = new HashMap<>();
+    this.ledgerLog.open(
+        this.stockLedgerWriter.findCheckpoint(),
+        (sequence, productId, delta) -> pending.merge(productId, delta, Long::sum));
+    pending.forEach(
+        (id, delta) ->
+            this.productRepository
+                .findById(id)
+                .ifPresent(
+                    product ->
+                        this.stripe(id).put(id, new Counter(product.getAmount() + delta, delta))));
+    this.running = true;
+    this.writer = new Thread(this::write, "product-stock-ledger");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  @Override
+  public boolean manages(Long id) {
+    return this.enabled && (this.productIds.isEmpty() || this.productIds.contains(id));
+  }
+
+  @Override
+  public long available(Long id) {
+    return this.counter(id).available;
+  }
+
+  /**
+   * Adds the amount to the product stock and waits until the change is forced to the log together
+   * with the changes queued alongside it.
+   */
+  @Override
+  public void add(Long id, long amount) {
+    Counter counter = this.counter(id);
+    long available = counter.add(amount);
+    if (available < 0) {
+      throw new IllegalArgumentException(Product.INSUFFICIENT_STOCK_MESSAGE);
+    }
+    Change change = new Change(id, amount, counter, new CompletableFuture<>());
+    this.changes.add(change);
+    // the writer drains the queue before it stops, so only a change it cannot see anymore is
+    // dropped
+    if (!this.running && this.changes.remove(change)) {
+      Counter.AVAILABLE.addAndGet(counter, -amount);
+      throw new IllegalStateException("The stock ledger is not running.");
+    }
+    try {
+      change.logged().join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+  }
+
+  /**
+   * Writes the net delta of every product to the database, then discards the flushed log segments.
+   * When the write fails the deltas are kept for the next flush.
+   */
+  @Scheduled(fixedDelayString = "${product.stock.ledger.flush-interval-ms:200}")
+  public void flush() {
+    if (!this.enabled) {
+      return;
+    }
+    Map<Long, Long> deltas = new HashMap<>();
+    long sequence;
+    synchronized (this.ledgerLog) {
+      for (Map<Long, Counter> stripe : this.stripes) {
+        stripe.forEach(
+            (id, counter) -> {
+              long delta = Counter.UNFLUSHED.getAndSet(counter, 0);
+              if (delta != 0) {
+                deltas.put(id, delta);
+              }
+            });
+      }
+      if (deltas.isEmpty()) {
+        return;
+      }
+      sequence = this.ledgerLog.lastSequence();
+      try {
+        this.ledgerLog.rotate();
+      } catch (IOException e) {
+        this.restore(deltas);
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    try {
+      this.stockLedgerWriter.write(deltas, sequence);
+    } catch (RuntimeException e) {
+      log.warn("stock ledger flush failed, keeping {} deltas for the next flush", deltas.size(), e);
+      this.restore(deltas);
+      return;
+    }
+    synchronized (this.ledgerLog) {
+      try {
+        this.ledgerLog.deleteClosedSegments();
+      } catch (IOException e) {
+        // the checkpoint already covers them, a later flush retries the delete
+        log.warn("stock ledger segments could not be deleted", e);
+      }
+    }
+  }
+
+  /** Logs the queued changes, flushes the pending deltas and closes the log. */
+  @PreDestroy
+  public void shutdown() throws IOException, InterruptedException {
+    this.running = false;
+    if (this.writer != null) {
+      this.writer.join();
+    }
+    this.flush();
+    this.ledgerLog.close();
+  }
+
+  private void write() {
+    List<Change> group = new ArrayList<>(GROUP_SIZE);
+    while (this.running || !this.changes.isEmpty()) {
+      try {
+        Change first = this.changes.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          group.add(first);
+          this.changes.drainTo(group, GROUP_SIZE - 1);
+          this.log(group);
+          group.clear();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        this.running = false;
+        // the callers would otherwise wait forever for changes no one logs
+        for (Change change = this.changes.poll(); change != null; change = this.changes.poll()) {
+          this.reject(change, new IllegalStateException("The stock ledger is not running."));
+        }
+        return;
+      }
+    }
+  }
+
+  private void log(List<Change> group) {
+    synchronized (this.ledgerLog) {
+      try {
+        this.ledgerLog.append(
+            group.stream()
+                .map(change -> new StockLedgerLog.Entry(change.id(), change.amount()))
+                .toList());
+      } catch (IOException e) {
+        log.warn("stock ledger could not log {} changes", group.size(), e);
+        group.forEach(change -> this.reject(change, new UncheckedIOException(e)));
+        return;
+      }
+      // inside the log lock so that a flush never sees a logged change without its delta
+      group.forEach(change -> Counter.UNFLUSHED.addAndGet(change.counter(), change.amount()));
+    }
+    group.forEach(change -> change.logged().complete(null));
+  }
+
+  private void reject(Change change, RuntimeException cause) {
+    Counter.AVAILABLE.addAndGet(change.counter(), -change.amount());
+    change.logged().completeExceptionally(cause);
+  }
+
+  private void restore(Map<Long, Long> deltas) {
+    deltas.forEach((id, delta) -> Counter.UNFLUSHED.addAndGet(this.stripe(id).get(id), delta));
+  }
+
+  private Counter counter(Long id) {
+    Map<Long, Counter> stripe = this.stripe(id);
+    Counter counter = stripe.get(id);
+    if (counter == null) {
+      counter =
+          stripe.computeIfAbsent(
+              id,
+              key ->
+                  this.productRepository
+                      .findById(key)
+                      .map(product -> new Counter(product.getAmount(), 0))
+                      .orElseThrow(() -> new ProductNotFoundException(PATH)));
+    }
+    return counter;
+  }
+
+  private Map<Long, Counter> stripe(Long id) {
+    long hash = id * 0x9E3779B97F4A7C15L;
+    return this.stripes[(int) (hash ^ (hash >>> 32)) & (this.stripes.length - 1)];
+  }
+
+  /** Change waiting for the log writer. */
+  private record Change(Long id, long amount, Counter counter, CompletableFuture<Void> logged) {}
+
+  /** Stock of one product, kept in primitive longs. */
+  private static final class Counter {
+
+    private static final AtomicLongFieldUpdater<Counter> AVAILABLE =
+        AtomicLongFieldUpdater.newUpdater(Counter.class, "available");
+    private static final AtomicLongFieldUpdater<Counter> UNFLUSHED =
+        AtomicLongFieldUpdater.newUpdater(Counter.class, "unflushed");
+
+    private volatile long available;
+    private volatile long unflushed;
+
+    private Counter(long available, long unflushed) {
+      this.available = available;
+      this.unflushed = unflushed;
+    }
+
+    /** Adds the amount unless the stock would become negative, returning the resulting stock. */
+    private long add(long amount) {
+      long current;
+      do {
+        current = this.available;
+        if (current + amount < 0) {
+          return current + amount;
+        }
+      } while (!AVAILABLE.compareAndSet(this, current, current + amount));
+      return current + amount;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package br.com.powerprogramers.product.domain.service.ledger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the stock ledger changes, split in segment files. Every record holds its
+ * sequence, the product id, the delta and a checksum. The records are appended in groups and each
+ * group is forced to disk once, before its changes are acknowledged. A group that cannot be written
+ * whole is cut off the segment again, so that its rejected changes are never replayed; when even
+ * that fails the log refuses every later group. This class is not thread-safe, the ledger
+ * serializes its calls.
+ */
+class StockLedgerLog implements Closeable {
+
+  static final int RECORD_SIZE = 3 * Long.BYTES + Integer.BYTES;
+  private static final String PREFIX = "ledger-";
+  private static final String SUFFIX = ".log";
+
+  private final Path directory;
+  private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+  private FileChannel channel;
+  private Path segment;
+  private long lastSequence;
+  private boolean failed;
+
+  StockLedgerLog(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Change to be appended.
+   *
+   * @param productId product id
+   * @param delta stock delta
+   */
+  record Entry(long productId, long delta) {}
+
+  /** Receives the replayed records. */
+  @FunctionalInterface
+  interface RecordConsumer {
+    void accept(long sequence, long productId, long delta);
+  }
+
+  /**
+   * Reads every segment, handing the records after the given sequence to the consumer, and opens a
+   * new segment for the next appends. A torn record at the end of a segment is discarded.
+   *
+   * @param afterSequence last sequence already applied to the database
+   * @param consumer consumer of the records to be applied again
+   * @throws IOException when the segments cannot be read
+   */
+  void open(long afterSequence, RecordConsumer consumer) throws IOException {
+    Files.createDirectories(this.directory);
+    this.lastSequence = afterSequence;
+    for (Path file : this.segments()) {
+      try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        long valid = 0;
+        while (reader.read(record.clear()) == RECORD_SIZE) {
+          record.flip();
+          long sequence = record.getLong();
+          long productId = record.getLong();
+          long delta = record.getLong();
+          if (record.getInt() != checksum(record)) {
+            break;
+          }
+          valid += RECORD_SIZE;
+          if (sequence > afterSequence) {
+            consumer.accept(sequence, productId, delta);
+          }
+          this.lastSequence = Math.max(this.lastSequence, sequence);
+        }
+        if (valid < reader.size()) {
+          try (FileChannel writer = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            writer.truncate(valid);
+          }
+        }
+      }
+    }
+    this.rotate();
+  }
+
+  /**
+   * Appends a group of records and forces them to disk once. When the group cannot be written or
+   * forced, the segment is truncated back to where the group started and the sequence is kept.
+   *
+   * @param entries changes of the group
+   * @throws IOException when the group cannot be written, none of its records is then kept
+   */
+  void append(List<Entry> entries) throws IOException {
+    if (this.failed) {
+      throw new IOException("The stock ledger log failed and no longer accepts records.");
+    }
+    long start = this.channel.size();
+    long sequence = this.lastSequence;
+    try {
+      for (Entry entry : entries) {
+        this.buffer.clear().putLong(++sequence).putLong(entry.productId()).putLong(entry.delta());
+        this.buffer.putInt(checksum(this.buffer)).flip();
+        while (this.buffer.hasRemaining()) {
+          this.channel.write(this.buffer);
+        }
+      }
+      this.channel.force(false);
+    } catch (IOException e) {
+      try {
+        this.channel.truncate(start);
+        this.channel.force(false);
+      } catch (IOException truncate) {
+        this.failed = true;
+        e.addSuppressed(truncate);
+      }
+      throw e;
+    }
+    this.lastSequence = sequence;
+  }
+
+  /**
+   * Returns the sequence of the last appended record.
+   *
+   * @return last sequence
+   */
+  long lastSequence() {
+    return this.lastSequence;
+  }
+
+  /**
+   * Closes the current segment and starts a new one, so that the closed segments only hold records
+   * up to the current sequence.
+   *
+   * @throws IOException when the segment cannot be created
+   */
+  void rotate() throws IOException {
+    if (this.channel != null) {
+      this.channel.close();
+    }
+    this.segment =
+        this.directory.resolve("%s%020d%s".formatted(PREFIX, this.lastSequence + 1, SUFFIX));
+    this.channel =
+        FileChannel.open(
+            this.segment,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Deletes every closed segment. Must only be called once their records are in the database.
+   *
+   * @throws IOException when a segment cannot be deleted
+   */
+  void deleteClosedSegments() throws IOException {
+    for (Path file : this.segments()) {
+      if (!file.equals(this.segment)) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (this.channel != null) {
+      this.channel.close();
+    }
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(this.directory)) {
+      return files
+          .filter(f -> f.getFileName().toString().startsWith(PREFIX))
+          .filter(f -> f.getFileName().toString().endsWith(SUFFIX))
+          .sorted()
+          .toList();
+    }
+  }
+
+  private static int checksum(ByteBuffer record) {
+    CRC32 crc = new CRC32();
+    crc.update(record.array(), 0, 3 * Long.BYTES);
+    return (int) crc.getValue();
+  }
+}
@@ -0,0 +1,47 @@
+package br.com.powerprogramers.product.domain.service.ledger;
+
+import br.com.powerprogramers.product.domain.entity.StockLedgerCheckpointEntity;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.repository.StockLedgerCheckpointRepository;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Class that persists the stock ledger deltas in the database. */
+@Component
+@RequiredArgsConstructor
+public class StockLedgerWriter {
+
+  private final ProductRepository productRepository;
+  private final StockLedgerCheckpointRepository checkpointRepository;
+
+  /**
+   * Finds the last ledger sequence already applied to the database.
+   *
+   * @return last applied sequence, zero when nothing was applied yet
+   */
+  public long findCheckpoint() {
+    return this.checkpointRepository
+        .findById(StockLedgerCheckpointEntity.ID)
+        .map(StockLedgerCheckpointEntity::getSequence)
+        .orElse(0L);
+  }
+
+  /**
+   * Applies the net deltas of each product and moves the checkpoint in the same transaction, so the
+   * database never holds a delta without its checkpoint or the opposite.
+   *
+   * @param deltas net delta of each product
+   * @param sequence last ledger sequence covered by the deltas
+   */
+  @Transactional
+  public void write(Map<Long, Long> deltas, long sequence) {
+    // sorted by id so that the flush locks the rows in the same sequence as the other stock updates
+    new TreeMap<>(deltas)
+        .forEach((id, delta) -> this.productRepository.addAmount(id, Math.toIntExact(delta)));
+    this.checkpointRepository.save(
+        new StockLedgerCheckpointEntity(StockLedgerCheckpointEntity.ID, sequence));
+  }
+}
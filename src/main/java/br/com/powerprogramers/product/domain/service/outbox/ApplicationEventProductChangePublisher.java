@@ -0,0 +1,25 @@
+package br.com.powerprogramers.product.domain.service.outbox;
+
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/** Publisher that hands the product changes to the listeners of this application. */
+@Component
+@ConditionalOnProperty(
+    name = "product.outbox.publisher",
+    havingValue = "event",
+    matchIfMissing = true)
+@RequiredArgsConstructor
+public class ApplicationEventProductChangePublisher implements ProductChangePublisher {
+
+  private final ApplicationEventPublisher applicationEventPublisher;
+
+  @Override
+  public void publish(List<ProductChange> changes) {
+    changes.forEach(this.applicationEventPublisher::publishEvent);
+  }
+}
@@ -0,0 +1,38 @@
+package br.com.powerprogramers.product.domain.service.outbox;
+
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+/** Publisher that posts each batch of product changes, as a JSON array, to an HTTP endpoint. */
+@Component
+@ConditionalOnProperty(name = "product.outbox.publisher", havingValue = "http")
+public class HttpProductChangePublisher implements ProductChangePublisher {
+
+  private final RestClient restClient;
+
+  /**
+   * Builder for the HTTP publisher.
+   *
+   * @param restClientBuilder builder of the HTTP client
+   * @param url endpoint that receives the changes
+   */
+  public HttpProductChangePublisher(
+      RestClient.Builder restClientBuilder, @Value("${product.outbox.http.url}") String url) {
+    this.restClient = restClientBuilder.baseUrl(url).build();
+  }
+
+  @Override
+  public void publish(List<ProductChange> changes) {
+    this.restClient
+        .post()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(changes)
+        .retrieve()
+        .toBodilessEntity();
+  }
+}
@@ -0,0 +1,125 @@
+package br.com.powerprogramers.product.domain.service.outbox;
+
+import br.com.powerprogramers.product.domain.entity.ProductChangeEntity;
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import br.com.powerprogramers.product.domain.repository.ProductChangeRepository;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feed of the published product changes, read after a cursor that is the position of the last
+ * change already seen. Readers waiting for new changes are woken by a poll of the last position,
+ * which also catches the changes published by other instances.
+ */
+@Component
+public class ProductChangeFeed {
+
+  private final ProductChangeRepository productChangeRepository;
+  private final int pageSize;
+  private final int maxLimit;
+  private final Duration maxWait;
+  private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Builder for the changes feed.
+   *
+   * @param productChangeRepository product change repository
+   * @param pageSize changes read from the database at a time
+   * @param maxLimit most changes answered at once
+   * @param maxWait longest time a reader waits for new changes
+   */
+  public ProductChangeFeed(
+      ProductChangeRepository productChangeRepository,
+      @Value("${product.changes.page-size:500}") int pageSize,
+      @Value("${product.changes.max-limit:10000}") int maxLimit,
+      @Value("${product.changes.max-wait:30s}") Duration maxWait) {
+    this.productChangeRepository = productChangeRepository;
+    this.pageSize = Math.max(1, pageSize);
+    this.maxLimit = Math.max(1, maxLimit);
+    this.maxWait = maxWait;
+  }
+
+  /**
+   * Waits until there are changes after the cursor.
+   *
+   * @param since cursor
+   * @param wait longest time to wait, bounded by the configured maximum
+   * @return a future completed with true when there are changes, or with false when the time is up
+   */
+  public CompletableFuture<Boolean> await(long since, Duration wait) {
+    if (this.lastPosition() > since) {
+      return CompletableFuture.completedFuture(true);
+    }
+    long waitMillis = Math.min(wait.toMillis(), this.maxWait.toMillis());
+    if (waitMillis <= 0) {
+      return CompletableFuture.completedFuture(false);
+    }
+    CompletableFuture<Boolean> future =
+        new CompletableFuture<Boolean>()
+            .completeOnTimeout(false, waitMillis, TimeUnit.MILLISECONDS);
+    // a change published since the check above is caught by the next poll
+    this.waiters.add(new Waiter(since, future));
+    return future;
+  }
+
+  /**
+   * Reads the changes after the cursor, a page at a time.
+   *
+   * @param since cursor
+   * @param limit most changes to read, bounded by the configured maximum
+   * @param consumer receives each change, in the order they were published
+   */
+  public void read(long since, int limit, Consumer<ProductChange> consumer) {
+    long position = since;
+    int remaining = Math.min(limit, this.maxLimit);
+    while (remaining > 0) {
+      int size = Math.min(this.pageSize, remaining);
+      List<ProductChangeEntity> page =
+          this.productChangeRepository.findPublishedAfter(position, PageRequest.of(0, size));
+      page.forEach(c -> consumer.accept(ProductOutbox.toModel(c, c.getPosition())));
+      if (page.size() < size) {
+        return;
+      }
+      position = page.get(page.size() - 1).getPosition();
+      remaining -= size;
+    }
+  }
+
+  /**
+   * Returns the position of the last published change.
+   *
+   * @return the last position, zero when nothing was published
+   */
+  public long lastPosition() {
+    return this.productChangeRepository.findLastPosition().orElse(0L);
+  }
+
+  /** Wakes the readers whose cursor is behind the last published change. */
+  @Scheduled(fixedDelayString = "${product.changes.poll-interval-ms:100}")
+  public void poll() {
+    this.waiters.removeIf(w -> w.future.isDone());
+    if (this.waiters.isEmpty()) {
+      return;
+    }
+    long last = this.lastPosition();
+    for (Iterator<Waiter> it = this.waiters.iterator(); it.hasNext(); ) {
+      Waiter waiter = it.next();
+      if (waiter.since < last) {
+        waiter.future.complete(true);
+        it.remove();
+      }
+    }
+  }
+
+  private record Waiter(long since, CompletableFuture<Boolean> future) {}
+}
@@ -0,0 +1,16 @@
+package br.com.powerprogramers.product.domain.service.outbox;
+
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import java.util.List;
+
+/** Interface that sends the product changes of the outbox to the services that follow them. */
+public interface ProductChangePublisher {
+
+  /**
+   * Publishes a batch of changes. An exception leaves the whole batch to be published again, so the
+   * followers must expect a change more than once and can drop repeats by its id.
+   *
+   * @param changes changes in the order they were appended
+   */
+  void publish(List<ProductChange> changes);
+}
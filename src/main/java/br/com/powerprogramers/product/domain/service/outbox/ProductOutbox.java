@@ -0,0 +1,101 @@
+package br.com.powerprogramers.product.domain.service.outbox;
+
+import br.com.powerprogramers.product.domain.entity.ProductChangeEntity;
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import br.com.powerprogramers.product.domain.repository.ProductChangeRepository;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Transactional outbox of the product changes. The changes are appended in the transaction of the
+ * operation that made them, so they are only seen when it commits, and a relay publishes them
+ * afterwards in the order they were appended. Publishing gives each change a position after the
+ * ones already published, so the position only grows even when the transactions commit out of id
+ * order.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductOutbox {
+
+  private final ProductChangeRepository productChangeRepository;
+  private final ProductChangePublisher productChangePublisher;
+
+  /**
+   * Appends a change of a product to the current transaction.
+   *
+   * @param productId product id
+   * @param type type of the change
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void append(Long productId, ProductChange.Type type) {
+    this.appendAll(List.of(productId), type);
+  }
+
+  /**
+   * Appends the same change of several products to the current transaction.
+   *
+   * @param productIds product ids
+   * @param type type of the change
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void appendAll(Collection<Long> productIds, ProductChange.Type type) {
+    Instant now = Instant.now();
+    this.productChangeRepository.saveAll(
+        productIds.stream()
+            .map(
+                id ->
+                    ProductChangeEntity.builder().productId(id).type(type).occurredAt(now).build())
+            .toList());
+  }
+
+  /**
+   * Publishes the oldest changes not yet published and gives them their positions. When publishing
+   * fails nothing is kept and the batch is tried again on the next call.
+   *
+   * @param batchSize maximum number of changes to publish
+   * @return the number of published changes
+   */
+  @Transactional
+  public int publishNext(int batchSize) {
+    List<ProductChangeEntity> batch =
+        this.productChangeRepository.findUnpublishedForUpdate(PageRequest.of(0, batchSize));
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    long offset =
+        this.productChangeRepository.findLastPosition().orElse(0L) + 1 - batch.get(0).getId();
+    this.productChangeRepository.assignPositions(
+        batch.stream().map(ProductChangeEntity::getId).toList(), offset);
+    this.productChangePublisher.publish(
+        batch.stream().map(c -> toModel(c, c.getId() + offset)).toList());
+    return batch.size();
+  }
+
+  /**
+   * Deletes the published changes superseded by a newer change of the same product.
+   *
+   * @return the number of deleted changes
+   */
+  @Transactional
+  public int compact() {
+    return this.productChangeRepository.deleteSuperseded();
+  }
+
+  /**
+   * Maps a change of the outbox to the published model.
+   *
+   * @param entity outbox row
+   * @param position position of the change
+   * @return the change
+   */
+  static ProductChange toModel(ProductChangeEntity entity, Long position) {
+    return new ProductChange(
+        entity.getId(), position, entity.getProductId(), entity.getType(), entity.getOccurredAt());
+  }
+}
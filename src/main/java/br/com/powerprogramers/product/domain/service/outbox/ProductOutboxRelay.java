@@ -0,0 +1,50 @@
+package br.com.powerprogramers.product.domain.service.outbox;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/** Class that drains and compacts the outbox of product changes on a schedule. */
+@Component
+public class ProductOutboxRelay {
+
+  private final ProductOutbox productOutbox;
+  private final boolean enabled;
+  private final int batchSize;
+
+  /**
+   * Builder for the outbox relay.
+   *
+   * @param productOutbox outbox of product changes
+   * @param enabled whether the relay runs
+   * @param batchSize changes published at a time
+   */
+  public ProductOutboxRelay(
+      ProductOutbox productOutbox,
+      @Value("${product.outbox.relay.enabled:true}") boolean enabled,
+      @Value("${product.outbox.relay.batch-size:100}") int batchSize) {
+    this.productOutbox = productOutbox;
+    this.enabled = enabled;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  /** Publishes batches while the outbox has a full batch waiting. */
+  @Scheduled(fixedDelayString = "${product.outbox.relay.interval-ms:500}")
+  public void relay() {
+    if (!this.enabled) {
+      return;
+    }
+    int published;
+    do {
+      published = this.productOutbox.publishNext(this.batchSize);
+    } while (published == this.batchSize);
+  }
+
+  /** Keeps only the latest published change of each product. */
+  @Scheduled(fixedDelayString = "${product.outbox.relay.compact-interval-ms:60000}")
+  public void compact() {
+    if (this.enabled) {
+      this.productOutbox.compact();
+    }
+  }
+}
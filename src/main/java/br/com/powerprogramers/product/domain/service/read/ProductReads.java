@@ -0,0 +1,35 @@
+package br.com.powerprogramers.product.domain.service.read;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Checks shared by the reads answered outside the database, which tell when a read must still go to
+ * it.
+ */
+public final class ProductReads {
+
+  private ProductReads() {}
+
+  /**
+   * Tells whether a text filter has none of the {@code like} wildcards, so matching it as a plain
+   * part of the text answers the same products as the database.
+   *
+   * @param text text of the filter, may be null
+   * @return whether the text is absent or has no wildcard
+   */
+  public static boolean isPlain(String text) {
+    return text == null
+        || (text.indexOf('%') < 0 && text.indexOf('_') < 0 && text.indexOf('\\') < 0);
+  }
+
+  /**
+   * Tells whether the current thread is inside a read-write transaction, which may see its
+   * uncommitted writes and must read the primary database.
+   *
+   * @return whether a read-write transaction is active
+   */
+  public static boolean isReadWriteTransaction() {
+    return TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+}
@@ -0,0 +1,57 @@
+package br.com.powerprogramers.product.domain.service.read;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reader of the product table in id order, after a given id. The rows come from a forward-only
+ * cursor, a fetch at a time, inside a read-only transaction, which lets the driver stream them
+ * instead of reading them all at once, so the memory does not grow with the catalog.
+ */
+public final class ProductTableReader {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final int fetchSize;
+
+  /**
+   * Builder for the table reader.
+   *
+   * @param jdbcTemplate template that reads the table
+   * @param transactionManager manager of the read-only transaction the table is read in
+   * @param fetchSize rows fetched at a time
+   */
+  public ProductTableReader(
+      JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, int fetchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+    this.fetchSize = Math.max(1, fetchSize);
+  }
+
+  /**
+   * Reads the rows of a query whose only parameter is the id the rows follow.
+   *
+   * @param select query of the rows, ordered by id
+   * @param after id the rows follow
+   * @param handler handler of each row
+   */
+  public void readAfter(String select, long after, RowCallbackHandler handler) {
+    this.transactionTemplate.executeWithoutResult(
+        status ->
+            this.jdbcTemplate.query(
+                connection -> {
+                  PreparedStatement statement =
+                      connection.prepareStatement(
+                          select, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                  statement.setFetchSize(this.fetchSize);
+                  statement.setLong(1, after);
+                  return statement;
+                },
+                handler));
+  }
+}
@@ -0,0 +1,86 @@
+package br.com.powerprogramers.product.domain.service.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Opens the {@link ReplicaRouting} scope for the requests that only read: the GET and HEAD requests
+ * and the POST requests of the product lookup, the revalidation and the lookup function. A client
+ * that has just written reads the primary for a while, so that it sees its own writes however far
+ * behind the replicas are. The client is told by a header, or by its address when it does not send
+ * it; the window is kept by each instance, so it needs the requests of a client to reach the same
+ * instance.
+ */
+@Component
+@ConditionalOnProperty(name = "product.replica.enabled", havingValue = "true")
+public class ReplicaReadFilter extends OncePerRequestFilter {
+
+  private static final List<String> READ_POSTS =
+      List.of("/products/lookup", "/products/revalidate", "/api/lookupProducts");
+
+  private final String clientHeader;
+  private final Cache<String, Boolean> writers;
+
+  /**
+   * Builder for the replica read filter.
+   *
+   * @param clientHeader header that tells the client
+   * @param pinWindow time a client reads the primary after its last write
+   */
+  public ReplicaReadFilter(
+      @Value("${product.replica.client-header:X-Client-Id}") String clientHeader,
+      @Value("${product.replica.pin-window:5s}") Duration pinWindow) {
+    this.clientHeader = clientHeader;
+    this.writers = Caffeine.newBuilder().expireAfterWrite(pinWindow).build();
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    String client = this.client(request);
+    if (!reads(request)) {
+      try {
+        filterChain.doFilter(request, response);
+      } finally {
+        // pinned once the write ended, the window starts when it is committed
+        this.writers.put(client, Boolean.TRUE);
+      }
+      return;
+    }
+    if (this.writers.getIfPresent(client) != null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    ReplicaRouting.open();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      ReplicaRouting.close();
+    }
+  }
+
+  private String client(HttpServletRequest request) {
+    String client = request.getHeader(this.clientHeader);
+    return client == null || client.isBlank() ? request.getRemoteAddr() : client;
+  }
+
+  private static boolean reads(HttpServletRequest request) {
+    String method = request.getMethod();
+    return "GET".equals(method)
+        || "HEAD".equals(method)
+        || ("POST".equals(method)
+            && READ_POSTS.stream().anyMatch(request.getRequestURI()::endsWith));
+  }
+}
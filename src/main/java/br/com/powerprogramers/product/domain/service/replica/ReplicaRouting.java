@@ -0,0 +1,77 @@
+package br.com.powerprogramers.product.domain.service.replica;
+
+import br.com.powerprogramers.product.domain.service.read.ProductReads;
+import java.util.function.Supplier;
+
+/**
+ * Scope of the reads that may be answered by a replica. The requests that only read open it on
+ * their thread, and the routing data source looks at it when a connection is taken. A read-write
+ * transaction always reads the primary, inside the scope or not.
+ */
+public final class ReplicaRouting {
+
+  private static final ThreadLocal<Boolean> REPLICA = new ThreadLocal<>();
+
+  private ReplicaRouting() {}
+
+  /** Lets the reads of the current thread go to a replica, until {@link #close()}. */
+  public static void open() {
+    REPLICA.set(Boolean.TRUE);
+  }
+
+  /** Sends the reads of the current thread back to the primary. */
+  public static void close() {
+    REPLICA.remove();
+  }
+
+  /**
+   * Runs a read on the primary, inside the scope or not. Used for the rows kept after the read,
+   * which must not be older than the writes already committed. It only applies to the connections
+   * taken by the read, so it must run before the current transaction reads anything.
+   *
+   * @param read the read
+   * @return the result of the read
+   * @param <T> type of the result
+   */
+  public static <T> T onPrimary(Supplier<T> read) {
+    Boolean previous = REPLICA.get();
+    REPLICA.remove();
+    try {
+      return read.get();
+    } finally {
+      if (previous != null) {
+        REPLICA.set(previous);
+      }
+    }
+  }
+
+  /**
+   * Carries the scope of the current thread to a task run on another thread, such as the body of a
+   * streamed answer.
+   *
+   * @param task the task
+   * @return the task, run in the scope when it was given in the scope
+   */
+  public static Runnable propagate(Runnable task) {
+    if (!Boolean.TRUE.equals(REPLICA.get())) {
+      return task;
+    }
+    return () -> {
+      open();
+      try {
+        task.run();
+      } finally {
+        close();
+      }
+    };
+  }
+
+  /**
+   * Tells whether a connection taken now may read a replica.
+   *
+   * @return whether the current thread only reads, outside a read-write transaction
+   */
+  public static boolean allowed() {
+    return Boolean.TRUE.equals(REPLICA.get()) && !ProductReads.isReadWriteTransaction();
+  }
+}
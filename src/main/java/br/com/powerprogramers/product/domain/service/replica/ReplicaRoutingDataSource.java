@@ -0,0 +1,178 @@
+package br.com.powerprogramers.product.domain.service.replica;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Data source that sends the reads of the {@link ReplicaRouting} scope to the replicas, in turns,
+ * and every other connection to the primary. A heartbeat written on the primary and read back on
+ * every replica tells how far behind each one is: a replica further behind than the allowed lag, or
+ * that cannot be reached, is left out until it catches up, and its reads go to the primary.
+ *
+ * <p>The connection must only be taken at the first statement, when the transaction already tells
+ * whether it is read-only, so this data source is used behind a lazy connection proxy.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+  public static final String READS = "product.replica.reads";
+  public static final String LAG = "product.replica.lag";
+
+  private static final int HEARTBEAT = 1;
+
+  private final DataSource primary;
+  private final JdbcTemplate primaryTemplate;
+  private final List<Replica> replicas;
+  private final long maxLag;
+  private final AtomicInteger turn = new AtomicInteger();
+  private final Counter replicaReads;
+  private final Counter primaryReads;
+
+  /**
+   * Builder for the replica routing.
+   *
+   * @param primary data source of the writes and of the reads outside the scope
+   * @param replicas data sources of the replicas, closed with this data source
+   * @param maxLag most delay of the heartbeat seen on a replica, which includes up to one check
+   *     interval, for it to be read
+   * @param meterRegistry registry of the read and lag metrics
+   */
+  public ReplicaRoutingDataSource(
+      DataSource primary, List<DataSource> replicas, Duration maxLag, MeterRegistry meterRegistry) {
+    this.primary = primary;
+    this.primaryTemplate = new JdbcTemplate(primary);
+    this.replicas =
+        IntStream.range(0, replicas.size())
+            .mapToObj(i -> new Replica("replica-" + i, replicas.get(i)))
+            .toList();
+    this.maxLag = maxLag.toMillis();
+    this.replicaReads = meterRegistry.counter(READS, "target", "replica");
+    this.primaryReads = meterRegistry.counter(READS, "target", "primary");
+    this.replicas.forEach(
+        replica ->
+            Gauge.builder(LAG, replica, r -> r.lag)
+                .tag("replica", replica.name)
+                .baseUnit("seconds")
+                .register(meterRegistry));
+    this.primaryTemplate.execute(
+        "CREATE TABLE IF NOT EXISTS product_replica_heartbeat"
+            + " (id INT PRIMARY KEY, beat BIGINT NOT NULL)");
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (!ReplicaRouting.allowed()) {
+      return this.primary.getConnection();
+    }
+    Replica replica = this.next();
+    if (replica != null) {
+      try {
+        Connection connection = replica.dataSource.getConnection();
+        this.replicaReads.increment();
+        return connection;
+      } catch (SQLException e) {
+        replica.healthy(false, Double.NaN);
+        log.warn("Replica {} could not be reached, reading the primary", replica.name, e);
+      }
+    }
+    this.primaryReads.increment();
+    return this.primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return this.primary.getConnection(username, password);
+  }
+
+  /**
+   * Writes the heartbeat on the primary and measures how far behind it every replica is. A replica
+   * that does not have the heartbeat yet is left out.
+   */
+  @Scheduled(fixedDelayString = "${product.replica.lag-check-interval-ms:500}")
+  public void checkLag() {
+    long beat = System.currentTimeMillis();
+    try {
+      if (this.primaryTemplate.update(
+              "UPDATE product_replica_heartbeat SET beat = ? WHERE id = ?", beat, HEARTBEAT)
+          == 0) {
+        this.primaryTemplate.update(
+            "INSERT INTO product_replica_heartbeat (id, beat) VALUES (?, ?)", HEARTBEAT, beat);
+      }
+    } catch (DataAccessException e) {
+      // without a new heartbeat the lags cannot be told, the replicas keep their state
+      log.warn("Heartbeat of the replicas could not be written", e);
+      return;
+    }
+    for (Replica replica : this.replicas) {
+      try {
+        Long seen =
+            replica.jdbcTemplate.queryForObject(
+                "SELECT beat FROM product_replica_heartbeat WHERE id = ?", Long.class, HEARTBEAT);
+        long lag = Math.max(0, beat - (seen == null ? 0 : seen));
+        replica.healthy(lag <= this.maxLag, lag / 1000.0);
+      } catch (DataAccessException e) {
+        replica.healthy(false, Double.NaN);
+      }
+    }
+  }
+
+  /** Closes the pools of the replicas. */
+  @Override
+  public void close() throws Exception {
+    for (Replica replica : this.replicas) {
+      if (replica.dataSource instanceof AutoCloseable closeable) {
+        closeable.close();
+      }
+    }
+  }
+
+  private Replica next() {
+    int size = this.replicas.size();
+    int start = Math.floorMod(this.turn.getAndIncrement(), Math.max(size, 1));
+    for (int i = 0; i < size; i++) {
+      Replica replica = this.replicas.get((start + i) % size);
+      if (replica.healthy) {
+        return replica;
+      }
+    }
+    return null;
+  }
+
+  private static final class Replica {
+
+    private final String name;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    // seconds behind the primary at the last check, NaN when it could not be reached
+    private volatile double lag = Double.NaN;
+    // replicas are only read once a check found them caught up
+    private volatile boolean healthy;
+
+    private Replica(String name, DataSource dataSource) {
+      this.name = name;
+      this.dataSource = dataSource;
+      this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    private void healthy(boolean healthy, double lag) {
+      this.lag = lag;
+      if (this.healthy != healthy) {
+        log.info("Replica {} is {}, {}s behind", this.name, healthy ? "read" : "left out", lag);
+      }
+      this.healthy = healthy;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package br.com.powerprogramers.product.domain.service.reservation;
+
+import br.com.powerprogramers.product.domain.entity.StockReservationEntity;
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import br.com.powerprogramers.product.domain.model.StockReservation;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.repository.StockReservationRepository;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.outbox.ProductOutbox;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Class that gives the stock of released reservations back in the database. */
+@Component
+@RequiredArgsConstructor
+public class StockReservationWriter {
+
+  private static final int CHUNK = 1000;
+
+  private final ProductRepository productRepository;
+  private final StockReservationRepository stockReservationRepository;
+  private final StockCounters stockCounters;
+  private final ProductOutbox productOutbox;
+  private final ProductCache productCache;
+
+  /**
+   * Deletes the reservations still pending and gives their stock back with a single update per
+   * product. The pending rows are locked and then deleted together, a chunk at a time, so that
+   * reservations already confirmed or released, here or by another instance, are skipped. The stock
+   * of the products kept by a stock counter is left to the caller, after the commit.
+   *
+   * @param reservations reservations to be released
+   * @return the reservations that were released
+   */
+  @Transactional
+  public List<StockReservation> release(List<StockReservation> reservations) {
+    Set<String> pending = new HashSet<>();
+    for (int from = 0; from < reservations.size(); from += CHUNK) {
+      List<String> ids =
+          reservations.subList(from, Math.min(from + CHUNK, reservations.size())).stream()
+              .map(StockReservation::getId)
+              .toList();
+      List<String> locked =
+          this.stockReservationRepository.findAllByIdForUpdate(ids).stream()
+              .map(StockReservationEntity::getId)
+              .toList();
+      if (!locked.isEmpty()) {
+        this.stockReservationRepository.deleteReservations(locked);
+        pending.addAll(locked);
+      }
+    }
+    List<StockReservation> released =
+        reservations.stream().filter(r -> pending.contains(r.getId())).toList();
+
+    // sorted by id so that the release locks the rows in the same sequence as the other updates
+    Map<Long, Integer> totals = new TreeMap<>();
+    released.stream()
+        .filter(r -> this.stockCounters.find(r.getProductId()).isEmpty())
+        .forEach(r -> totals.merge(r.getProductId(), r.getAmount(), Integer::sum));
+    totals.forEach(this.productRepository::addAmount);
+    List<Long> changed =
+        released.stream().map(StockReservation::getProductId).distinct().sorted().toList();
+    this.productOutbox.appendAll(changed, ProductChange.Type.STOCK_CHANGED);
+    this.productCache.evictAll(changed);
+    return released;
+  }
+}
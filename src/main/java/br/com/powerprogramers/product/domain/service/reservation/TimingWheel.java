@@ -0,0 +1,118 @@
+package br.com.powerprogramers.product.domain.service.reservation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Each level has the same number of slots and every slot of a level
+ * spans a whole turn of the level below it, so adding an item is O(1) whatever its deadline is.
+ * When a level turns, the items of its current slot are cascaded down to finer levels until they
+ * expire. This class is not thread-safe.
+ *
+ * @param <T> type of the scheduled items
+ */
+public class TimingWheel<T> {
+
+  private final long tickMillis;
+  private final int bits;
+  private final int mask;
+  private final ArrayDeque<Entry<T>>[][] slots;
+  private long currentTick;
+  private int size;
+
+  /**
+   * Builder for the timing wheel.
+   *
+   * @param tickMillis duration of one tick of the finest level
+   * @param wheelSize slots per level, rounded up to a power of two
+   * @param levels number of levels
+   * @param startMillis time of the first tick
+   */
+  @SuppressWarnings("unchecked")
+  public TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+    this.tickMillis = tickMillis;
+    this.bits = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(2, wheelSize) - 1);
+    this.mask = (1 << this.bits) - 1;
+    this.slots = new ArrayDeque[levels][1 << this.bits];
+    this.currentTick = startMillis / tickMillis;
+  }
+
+  /**
+   * Schedules an item.
+   *
+   * @param item item to be scheduled
+   * @param deadlineMillis time at which the item expires
+   */
+  public void add(T item, long deadlineMillis) {
+    this.size++;
+    // the slot of the current tick was already read, so the earliest deadline is the next tick
+    long deadlineTick =
+        Math.max(-Math.floorDiv(-deadlineMillis, this.tickMillis), this.currentTick + 1);
+    this.place(new Entry<>(item, deadlineTick));
+  }
+
+  /**
+   * Moves the wheel up to the given time.
+   *
+   * @param nowMillis current time
+   * @return the items whose deadline passed
+   */
+  public List<T> advance(long nowMillis) {
+    List<T> expired = new ArrayList<>();
+    long targetTick = nowMillis / this.tickMillis;
+    while (this.currentTick < targetTick) {
+      this.currentTick++;
+      // coarse levels first, so that their items reach the finest level before it is read
+      for (int level = this.slots.length - 1; level > 0; level--) {
+        if ((this.currentTick & ((1L << (this.bits * level)) - 1)) == 0) {
+          this.drain(level, this::place);
+        }
+      }
+      this.drain(0, entry -> expired.add(entry.item));
+      if (this.size == expired.size()) {
+        // nothing else is scheduled, skip the empty ticks
+        this.currentTick = targetTick;
+      }
+    }
+    this.size -= expired.size();
+    return expired;
+  }
+
+  /**
+   * Returns the number of scheduled items.
+   *
+   * @return scheduled items
+   */
+  public int size() {
+    return this.size;
+  }
+
+  private void place(Entry<T> entry) {
+    long delta = Math.max(entry.deadlineTick - this.currentTick, 0);
+    int level = 0;
+    while (level < this.slots.length - 1 && delta >= 1L << (this.bits * (level + 1))) {
+      level++;
+    }
+    int slot = (int) (entry.deadlineTick >>> (this.bits * level)) & this.mask;
+    ArrayDeque<Entry<T>> bucket = this.slots[level][slot];
+    if (bucket == null) {
+      bucket = new ArrayDeque<>();
+      this.slots[level][slot] = bucket;
+    }
+    bucket.add(entry);
+  }
+
+  private void drain(int level, Consumer<Entry<T>> action) {
+    int slot = (int) (this.currentTick >>> (this.bits * level)) & this.mask;
+    ArrayDeque<Entry<T>> bucket = this.slots[level][slot];
+    if (bucket == null || bucket.isEmpty()) {
+      return;
+    }
+    this.slots[level][slot] = null;
+    bucket.forEach(action);
+  }
+
+  private record Entry<T>(T item, long deadlineTick) {}
+}
@@ -0,0 +1,39 @@
+package br.com.powerprogramers.product.domain.service.retry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.core.annotation.AliasFor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+/**
+ * Retries a read-modify-write operation when its optimistic version check fails. The wait between
+ * attempts grows exponentially with random jitter, bounded by the {@code product.retry.*}
+ * properties.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Retryable(
+    retryFor = OptimisticLockingFailureException.class,
+    maxAttemptsExpression = "${product.retry.max-attempts:5}",
+    backoff =
+        @Backoff(
+            delayExpression = "${product.retry.delay:20}",
+            maxDelayExpression = "${product.retry.max-delay:500}",
+            multiplierExpression = "${product.retry.multiplier:2}",
+            random = true))
+public @interface OptimisticRetry {
+
+  /**
+   * Name of the operation, used to tag the retry metrics.
+   *
+   * @return operation name
+   */
+  @AliasFor(annotation = Retryable.class, attribute = "label")
+  String value();
+}
@@ -0,0 +1,49 @@
+package br.com.powerprogramers.product.domain.service.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.stereotype.Component;
+
+/** Listener that counts optimistic lock conflicts and retries per operation. */
+@Component
+@RequiredArgsConstructor
+public class OptimisticRetryListener implements RetryListener {
+
+  public static final String CONFLICTS = "product.optimistic.conflicts";
+  public static final String RETRIES = "product.optimistic.retries";
+  public static final String EXHAUSTED = "product.optimistic.exhausted";
+
+  private final MeterRegistry meterRegistry;
+
+  @Override
+  public <T, E extends Throwable> void onError(
+      RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+    if (throwable instanceof OptimisticLockingFailureException) {
+      this.count(CONFLICTS, context, 1);
+    }
+  }
+
+  @Override
+  public <T, E extends Throwable> void close(
+      RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+    int attempts = context.getRetryCount();
+    int retries = throwable == null ? attempts : attempts - 1;
+    if (retries > 0) {
+      this.count(RETRIES, context, retries);
+    }
+    if (throwable instanceof OptimisticLockingFailureException) {
+      this.count(EXHAUSTED, context, 1);
+    }
+  }
+
+  private void count(String name, RetryContext context, int value) {
+    Object operation = context.getAttribute(RetryContext.NAME);
+    this.meterRegistry
+        .counter(name, "operation", operation == null ? "unknown" : operation.toString())
+        .increment(value);
+  }
+}
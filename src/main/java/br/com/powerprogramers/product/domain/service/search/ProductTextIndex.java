@@ -0,0 +1,501 @@
+package br.com.powerprogramers.product.domain.service.search;
+
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.cache.CacheInvalidationBus;
+import br.com.powerprogramers.product.domain.service.read.ProductReads;
+import br.com.powerprogramers.product.domain.service.read.ProductTableReader;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory trigram index of the product names and descriptions, which answers the {@code like
+ * %text%} filters of the listing without scanning the table. Each trigram keeps the sorted ids of
+ * the products that contain it. A search takes the products holding every trigram of its longest
+ * text, then checks each candidate against the filter itself, so the results are the same as the
+ * query.
+ *
+ * <p>The index reads the whole table once the application is ready, and after that it takes the
+ * committed product writes, reads the products added by the batch loads and reads again the
+ * products the invalidation bus tells were changed on the other instances. While some of those are
+ * not read yet, or when the bus may have missed changes and the whole table is read again, the
+ * filters are left to the database. Texts with the {@code like} wildcards are left to the database
+ * too, and so are the lookups inside a read-write transaction, which may see their uncommitted
+ * writes.
+ *
+ * <p>When the database search ignores accents and case, as it does on Postgres, the index keeps the
+ * texts folded the same way, so both answer the same products.
+ */
+@Slf4j
+@Component
+public class ProductTextIndex implements CacheInvalidationBus.Listener {
+
+  static final int GRAM = 3;
+
+  private static final int READ_BATCH_SIZE = 500;
+
+  private static final long[] NONE = new long[0];
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+  private static final String SELECT_AFTER =
+      "SELECT id, name, description, active, version FROM product WHERE id > ? ORDER BY id";
+
+  private final ProductRepository productRepository;
+  private final ProductTableReader tableReader;
+  private final boolean enabled;
+  private final boolean folded;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, Document> documents = new HashMap<>();
+  private final Field names = new Field();
+  private final Field descriptions = new Field();
+  private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+  private volatile boolean ready;
+  private volatile boolean rebuild;
+  private volatile boolean refreshing;
+  // highest id read from the table
+  private long lastId;
+
+  /**
+   * Builder for the text index.
+   *
+   * @param productRepository repository that tells whether the database search folds the texts and
+   *     reads the changed products
+   * @param jdbcTemplate template that reads the table
+   * @param transactionManager manager of the read-only transaction the table is read in
+   * @param cacheInvalidationBus bus of the products written on the other instances
+   * @param enabled whether the index answers the text filters
+   * @param fetchSize rows fetched at a time while reading the table
+   */
+  public ProductTextIndex(
+      ProductRepository productRepository,
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      CacheInvalidationBus cacheInvalidationBus,
+      @Value("${product.search.index.enabled:true}") boolean enabled,
+      @Value("${product.search.index.fetch-size:1000}") int fetchSize) {
+    this.productRepository = productRepository;
+    this.tableReader = new ProductTableReader(jdbcTemplate, transactionManager, fetchSize);
+    this.enabled = enabled;
+    this.folded = enabled && productRepository.foldsText();
+    if (enabled) {
+      cacheInvalidationBus.subscribe(this);
+    }
+  }
+
+  /** Reads the whole table, then starts answering the text filters. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void build() {
+    if (!this.enabled) {
+      return;
+    }
+    long start = System.nanoTime();
+    this.catchUp();
+    this.ready = true;
+    log.info(
+        "product text index built with {} products in {} ms",
+        this.size(),
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /** Reads the products added to the table since the last read, as the batch loads do. */
+  public synchronized void catchUp() {
+    if (!this.enabled) {
+      return;
+    }
+    this.readAfter(this.lastId, id -> {});
+  }
+
+  /**
+   * Reads again the products changed since the last refresh, or the whole table when the bus may
+   * have missed changes. When the reads fail, the changes are kept for the next refresh and the
+   * filters go to the database meanwhile.
+   */
+  @Scheduled(fixedDelayString = "${product.search.index.refresh-interval-ms:1000}")
+  public synchronized void refresh() {
+    if (!this.ready || (!this.rebuild && this.pending.isEmpty())) {
+      return;
+    }
+    this.refreshing = true;
+    boolean rebuilding = this.rebuild;
+    this.rebuild = false;
+    List<Long> changed = new ArrayList<>(this.pending);
+    this.pending.removeAll(changed);
+    try {
+      if (rebuilding) {
+        this.reindex();
+      }
+      for (int from = 0; from < changed.size(); from += READ_BATCH_SIZE) {
+        this.reread(changed.subList(from, Math.min(changed.size(), from + READ_BATCH_SIZE)));
+      }
+    } catch (RuntimeException e) {
+      this.rebuild |= rebuilding;
+      this.pending.addAll(changed);
+      log.warn("product text index refresh failed, the text filters go to the database", e);
+    } finally {
+      this.refreshing = false;
+    }
+  }
+
+  @Override
+  public void invalidate(Collection<Long> productIds) {
+    if (!this.enabled) {
+      return;
+    }
+    this.pending.addAll(productIds);
+    this.refresh();
+  }
+
+  @Override
+  public void invalidateAll() {
+    if (!this.enabled) {
+      return;
+    }
+    this.rebuild = true;
+    this.refresh();
+  }
+
+  /**
+   * Indexes a written product once the current transaction commits.
+   *
+   * @param product written product
+   */
+  public void put(ProductEntity product) {
+    if (!this.enabled) {
+      return;
+    }
+    Document document =
+        new Document(
+            this.indexed(product.getName()),
+            this.indexed(product.getDescription()),
+            product.isActive(),
+            product.getVersion() == null ? 0 : product.getVersion());
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      this.apply(product.getId(), document);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            ProductTextIndex.this.apply(product.getId(), document);
+          }
+        });
+  }
+
+  /**
+   * Tells whether the index answers a filter exactly as the database would.
+   *
+   * @param name product name
+   * @param description product description
+   * @return whether the filter has a text and can be searched in the index
+   */
+  public boolean covers(String name, String description) {
+    return this.ready
+        && !this.rebuild
+        && !this.refreshing
+        && this.pending.isEmpty()
+        && (name != null || description != null)
+        && ProductReads.isPlain(name)
+        && ProductReads.isPlain(description)
+        && !ProductReads.isReadWriteTransaction();
+  }
+
+  /**
+   * Finds the products whose name and description contain the given texts.
+   *
+   * @param name text of the name, or null for any name
+   * @param description text of the description, or null for any description
+   * @param active product status
+   * @return the product ids in ascending order
+   */
+  public long[] search(String name, String description, Boolean active) {
+    if (active == null) {
+      return NONE;
+    }
+    name = this.indexed(name);
+    description = this.indexed(description);
+    this.lock.readLock().lock();
+    try {
+      long[] candidates = null;
+      if (name != null && name.length() >= GRAM && name.length() >= length(description)) {
+        candidates = this.names.candidates(name);
+      } else if (description != null && description.length() >= GRAM) {
+        candidates = this.descriptions.candidates(description);
+      }
+      if (candidates == null) {
+        candidates = this.documents.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+      }
+      long[] ids = new long[candidates.length];
+      int size = 0;
+      for (long id : candidates) {
+        if (this.documents.get(id).matches(name, description, active)) {
+          ids[size++] = id;
+        }
+      }
+      return Arrays.copyOf(ids, size);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  void remove(long id) {
+    this.lock.writeLock().lock();
+    try {
+      Document old = this.documents.remove(id);
+      if (old != null) {
+        this.names.remove(old.name(), id);
+        this.descriptions.remove(old.description(), id);
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  int size() {
+    this.lock.readLock().lock();
+    try {
+      return this.documents.size();
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  private void readAfter(long after, LongConsumer read) {
+    this.tableReader.readAfter(
+        SELECT_AFTER,
+        after,
+        row -> {
+          long id = row.getLong("id");
+          this.apply(
+              id,
+              new Document(
+                  this.indexed(row.getString("name")),
+                  this.indexed(row.getString("description")),
+                  row.getBoolean("active"),
+                  row.getLong("version")));
+          this.lastId = Math.max(this.lastId, id);
+          read.accept(id);
+        });
+  }
+
+  private void reindex() {
+    Set<Long> read = new HashSet<>();
+    this.readAfter(0, read::add);
+    Set<Long> left = this.ids();
+    left.removeAll(read);
+    // deleted since they were indexed, or written after the table read passed them
+    List<Long> ids = new ArrayList<>(left);
+    for (int from = 0; from < ids.size(); from += READ_BATCH_SIZE) {
+      this.reread(ids.subList(from, Math.min(ids.size(), from + READ_BATCH_SIZE)));
+    }
+  }
+
+  private void reread(List<Long> ids) {
+    Set<Long> missing = new HashSet<>(ids);
+    for (ProductView view : this.productRepository.findViewsById(ids)) {
+      missing.remove(view.id());
+      this.apply(
+          view.id(),
+          new Document(
+              this.indexed(view.name()),
+              this.indexed(view.description()),
+              view.active(),
+              view.version() == null ? 0 : view.version()));
+    }
+    missing.forEach(this::remove);
+  }
+
+  private Set<Long> ids() {
+    this.lock.readLock().lock();
+    try {
+      return new HashSet<>(this.documents.keySet());
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  private void apply(long id, Document document) {
+    this.lock.writeLock().lock();
+    try {
+      Document old = this.documents.get(id);
+      // a row read by the table scan may be older than a write already indexed
+      if (old != null && old.version() > document.version()) {
+        return;
+      }
+      if (old != null) {
+        this.names.remove(old.name(), id);
+        this.descriptions.remove(old.description(), id);
+      }
+      this.documents.put(id, document);
+      this.names.add(document.name(), id);
+      this.descriptions.add(document.description(), id);
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  private String indexed(String text) {
+    return this.folded ? fold(text) : text;
+  }
+
+  /**
+   * Removes the accents of a text and lower-cases it, as the {@code product_fold} of Postgres does.
+   *
+   * @param text text to fold
+   * @return the folded text
+   */
+  public static String fold(String text) {
+    if (text == null) {
+      return text;
+    }
+    return MARKS
+        .matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+        .replaceAll("")
+        .toLowerCase(Locale.ROOT);
+  }
+
+  private static int length(String text) {
+    return text == null ? 0 : text.length();
+  }
+
+  /**
+   * Returns the distinct trigrams of a text, each packed in a long.
+   *
+   * @param text indexed text
+   * @return the sorted trigrams
+   */
+  static long[] grams(String text) {
+    if (text == null || text.length() < GRAM) {
+      return NONE;
+    }
+    long[] grams = new long[text.length() - GRAM + 1];
+    for (int i = 0; i < grams.length; i++) {
+      grams[i] =
+          ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+    Arrays.sort(grams);
+    int size = 0;
+    for (int i = 0; i < grams.length; i++) {
+      if (i == 0 || grams[i] != grams[i - 1]) {
+        grams[size++] = grams[i];
+      }
+    }
+    return Arrays.copyOf(grams, size);
+  }
+
+  private record Document(String name, String description, boolean active, long version) {
+
+    boolean matches(String name, String description, boolean active) {
+      return this.active == active
+          && (name == null || (this.name != null && this.name.contains(name)))
+          && (description == null
+              || (this.description != null && this.description.contains(description)));
+    }
+  }
+
+  /** Postings of the trigrams of one column. */
+  private static final class Field {
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    void add(String text, long id) {
+      for (long gram : grams(text)) {
+        this.postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+      }
+    }
+
+    void remove(String text, long id) {
+      for (long gram : grams(text)) {
+        Postings ids = this.postings.get(gram);
+        if (ids != null && ids.remove(id) && ids.size == 0) {
+          this.postings.remove(gram);
+        }
+      }
+    }
+
+    long[] candidates(String text) {
+      long[] grams = grams(text);
+      Postings[] lists = new Postings[grams.length];
+      for (int i = 0; i < grams.length; i++) {
+        lists[i] = this.postings.get(grams[i]);
+        if (lists[i] == null) {
+          return NONE;
+        }
+      }
+      // the shortest list bounds the candidates, the others only need lookups
+      Arrays.sort(lists, Comparator.comparingInt(ids -> ids.size));
+      long[] candidates = Arrays.copyOf(lists[0].ids, lists[0].size);
+      int size = candidates.length;
+      for (int i = 1; i < lists.length && size > 0; i++) {
+        int kept = 0;
+        for (int j = 0; j < size; j++) {
+          if (lists[i].contains(candidates[j])) {
+            candidates[kept++] = candidates[j];
+          }
+        }
+        size = kept;
+      }
+      return Arrays.copyOf(candidates, size);
+    }
+  }
+
+  /** Sorted product ids of one trigram. */
+  private static final class Postings {
+
+    private long[] ids = new long[4];
+    private int size;
+
+    boolean contains(long id) {
+      return Arrays.binarySearch(this.ids, 0, this.size, id) >= 0;
+    }
+
+    void add(long id) {
+      int index = Arrays.binarySearch(this.ids, 0, this.size, id);
+      if (index >= 0) {
+        return;
+      }
+      index = -index - 1;
+      if (this.size == this.ids.length) {
+        this.ids = Arrays.copyOf(this.ids, this.size * 2);
+      }
+      System.arraycopy(this.ids, index, this.ids, index + 1, this.size - index);
+      this.ids[index] = id;
+      this.size++;
+    }
+
+    boolean remove(long id) {
+      int index = Arrays.binarySearch(this.ids, 0, this.size, id);
+      if (index < 0) {
+        return false;
+      }
+      System.arraycopy(this.ids, index + 1, this.ids, index, this.size - index - 1);
+      this.size--;
+      return true;
+    }
+  }
+}
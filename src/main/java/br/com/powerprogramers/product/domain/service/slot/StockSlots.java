@@ -0,0 +1,193 @@
+package br.com.powerprogramers.product.domain.service.slot;
+
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.entity.ProductStockSlotEntity;
+import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
+import br.com.powerprogramers.product.domain.model.Product;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.repository.ProductStockSlotRepository;
+import br.com.powerprogramers.product.domain.service.counter.StockCounter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Split stock counter for flash-sale products. The stock of each configured product is spread
+ * across slot rows, so concurrent changes lock different rows instead of queueing on the product
+ * one. The stock of a product is its own amount plus the amount of its slots, which lets stock
+ * changed in the product row, before the split or by other operations, still be sold. A rebalancer
+ * moves that stock into the slots and evens them out, locking the slots only when it finds
+ * something to move.
+ */
+@Component
+@Order(1)
+public class StockSlots implements StockCounter {
+
+  private static final String PATH = "/stock";
+
+  private final ProductRepository productRepository;
+  private final ProductStockSlotRepository productStockSlotRepository;
+  private final Set<Long> productIds;
+  private final int slots;
+
+  /**
+   * Builder for the split stock counter.
+   *
+   * @param productRepository product repository
+   * @param productStockSlotRepository stock slot repository
+   * @param productIds ids of the products whose stock is split
+   * @param slots slots of each split product
+   */
+  public StockSlots(
+      ProductRepository productRepository,
+      ProductStockSlotRepository productStockSlotRepository,
+      @Value("${product.stock.split.product-ids:}") Set<Long> productIds,
+      @Value("${product.stock.split.slots:8}") int slots) {
+    this.productRepository = productRepository;
+    this.productStockSlotRepository = productStockSlotRepository;
+    this.productIds = Set.copyOf(productIds);
+    this.slots = Math.max(1, slots);
+  }
+
+  /** Splits the configured products and merges back the ones no longer configured. */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional
+  public void init() {
+    this.productStockSlotRepository.findProductIds().stream()
+        .filter(id -> !this.manages(id))
+        .forEach(this::merge);
+    this.productIds.forEach(this::rebalance);
+  }
+
+  @Override
+  public boolean manages(Long id) {
+    return this.productIds.contains(id);
+  }
+
+  @Override
+  public long available(Long id) {
+    ProductEntity productEntity =
+        this.productRepository.findById(id).orElseThrow(() -> new ProductNotFoundException(PATH));
+    return productEntity.getAmount() + this.productStockSlotRepository.sumAmount(id);
+  }
+
+  /**
+   * Adds the amount to a random slot. A removal tries the slots one by one from a random start and,
+   * when no slot has enough on its own, takes the amount from all of them. The checks happen before
+   * any write, so a refused change leaves nothing to roll back.
+   */
+  @Override
+  @Transactional(noRollbackFor = {IllegalArgumentException.class, ProductNotFoundException.class})
+  public void add(Long id, long amount) {
+    int delta = Math.toIntExact(amount);
+    int start = ThreadLocalRandom.current().nextInt(this.slots);
+    if (delta >= 0) {
+      if (this.productStockSlotRepository.updateAmount(id, start, delta) == 0
+          && this.productRepository.updateAmount(id, delta) == 0) {
+        throw new ProductNotFoundException(PATH);
+      }
+      return;
+    }
+    for (int i = 0; i < this.slots; i++) {
+      if (this.productStockSlotRepository.updateAmount(id, (start + i) % this.slots, delta) == 1) {
+        return;
+      }
+    }
+    this.take(id, -delta);
+  }
+
+  /** Moves the stock left in the product rows into the slots and evens the slots out. */
+  @Scheduled(fixedDelayString = "${product.stock.split.rebalance-interval-ms:1000}")
+  @Transactional
+  public void rebalance() {
+    this.productIds.forEach(this::rebalance);
+  }
+
+  private void take(Long id, int amount) {
+    List<ProductStockSlotEntity> locked =
+        this.productStockSlotRepository.findAllByProductIdForUpdate(id);
+    int fromSlots =
+        Math.min(amount, locked.stream().mapToInt(ProductStockSlotEntity::getAmount).sum());
+    int fromProduct = amount - fromSlots;
+    if (fromProduct > 0 && this.productRepository.updateAmount(id, -fromProduct) == 0) {
+      if (!this.productRepository.existsById(id)) {
+        throw new ProductNotFoundException(PATH);
+      }
+      throw new IllegalArgumentException(Product.INSUFFICIENT_STOCK_MESSAGE);
+    }
+
+    int remaining = fromSlots;
+    for (ProductStockSlotEntity slot : locked) {
+      int taken = Math.min(slot.getAmount(), remaining);
+      if (taken > 0) {
+        this.productStockSlotRepository.setAmount(id, slot.getSlot(), slot.getAmount() - taken);
+        remaining -= taken;
+      }
+    }
+  }
+
+  private void rebalance(Long id) {
+    ProductEntity productEntity = this.productRepository.findById(id).orElse(null);
+    if (productEntity == null
+        || !unbalanced(
+            productEntity.getAmount(), this.productStockSlotRepository.findAmounts(id))) {
+      return;
+    }
+    List<ProductStockSlotEntity> locked =
+        this.productStockSlotRepository.findAllByProductIdForUpdate(id);
+    int moved = productEntity.getAmount();
+    if (moved > 0 && this.productRepository.updateAmount(id, -moved) == 0) {
+      moved = 0;
+    }
+
+    if (locked.isEmpty()) {
+      List<ProductStockSlotEntity> created = new ArrayList<>();
+      for (int slot = 0; slot < this.slots; slot++) {
+        created.add(new ProductStockSlotEntity(id, slot, share(moved, slot, this.slots)));
+      }
+      this.productStockSlotRepository.saveAll(created);
+      return;
+    }
+
+    List<Integer> amounts = locked.stream().map(ProductStockSlotEntity::getAmount).toList();
+    // the slots may have changed since they were read without the lock
+    if (!unbalanced(moved, amounts)) {
+      return;
+    }
+    int total = moved + amounts.stream().mapToInt(Integer::intValue).sum();
+    for (int i = 0; i < locked.size(); i++) {
+      this.productStockSlotRepository.setAmount(
+          id, locked.get(i).getSlot(), share(total, i, locked.size()));
+    }
+  }
+
+  private void merge(Long id) {
+    long amount = this.productStockSlotRepository.sumAmount(id);
+    this.productStockSlotRepository.deleteAllByProductId(id);
+    this.productRepository.addAmount(id, Math.toIntExact(amount));
+  }
+
+  // only rewrites the slots to move the row stock, or when some of them would soon refuse removals
+  // the others could serve
+  private static boolean unbalanced(int moved, List<Integer> amounts) {
+    if (moved != 0 || amounts.isEmpty()) {
+      return true;
+    }
+    int total = amounts.stream().mapToInt(Integer::intValue).sum();
+    int min = amounts.stream().mapToInt(Integer::intValue).min().orElse(0);
+    int max = amounts.stream().mapToInt(Integer::intValue).max().orElse(0);
+    return max - min > Math.max(1, total / amounts.size() / 2);
+  }
+
+  private static int share(int total, int index, int count) {
+    return total / count + (index < total % count ? 1 : 0);
+  }
+}
@@ -0,0 +1,579 @@
+package br.com.powerprogramers.product.domain.service.snapshot;
+
+import br.com.powerprogramers.product.domain.model.ProductView;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.cache.CacheInvalidationBus;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import br.com.powerprogramers.product.domain.service.read.ProductReads;
+import br.com.powerprogramers.product.domain.service.read.ProductTableReader;
+import br.com.powerprogramers.product.domain.service.search.ProductTextIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Immutable in-memory snapshot of the active catalog, which answers the product reads without going
+ * to the database. The products are kept in columns of primitive arrays sorted by id, the prices in
+ * cents, and the names and descriptions as codes of a dictionary of their distinct texts.
+ *
+ * <p>The snapshot reads the active products once the application is ready. After that it collects
+ * the products written on this instance, once committed, and the ones the invalidation bus tells
+ * were written on the others, and a scheduled refresh reads them again and swaps in a new copy of
+ * the columns, so the reads never lock. The reads fall back to the database while the last refresh
+ * is older than the configured staleness, as when the database is unreachable, and inside a
+ * read-write transaction, which may see its uncommitted writes.
+ *
+ * <p>The texts are matched the way the database search does, folded when it ignores accents and
+ * case, and the filters with the {@code like} wildcards or on inactive products are left to it.
+ */
+@Slf4j
+@Component
+public class ProductSnapshot implements CacheInvalidationBus.Listener {
+
+  static final int PRICE_SCALE = 2;
+
+  private static final long NULL = Long.MIN_VALUE;
+  private static final int NULL_AMOUNT = Integer.MIN_VALUE;
+  private static final int NO_TEXT = -1;
+  private static final int READ_BATCH_SIZE = 500;
+  private static final String SELECT_ACTIVE_AFTER =
+      """
+      SELECT id, name, description, price, amount, version FROM product
+        WHERE id > ? AND active = TRUE ORDER BY id
+      """;
+
+  private final ProductRepository productRepository;
+  private final ProductTableReader tableReader;
+  private final boolean enabled;
+  private final boolean folded;
+  private final long maxStalenessNanos;
+  private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+  private volatile Columns columns = Columns.EMPTY;
+  private volatile boolean started;
+  private volatile boolean ready;
+  private volatile boolean rebuild = true;
+  private volatile boolean catchUp;
+  // start of the last refresh that read every change received before it
+  private volatile long refreshedAt;
+  // highest id read from the table
+  private long lastId;
+
+  /**
+   * Builder for the catalog snapshot.
+   *
+   * @param productRepository repository that reads the changed products
+   * @param jdbcTemplate template that reads the table
+   * @param transactionManager manager of the read-only transaction the table is read in
+   * @param productCache cache whose evictions tell the products written on this instance
+   * @param cacheInvalidationBus bus of the products written on the other instances
+   * @param meterRegistry registry of the size, memory and age metrics
+   * @param enabled whether the snapshot answers the reads
+   * @param maxStaleness age of the last refresh after which the reads go to the database
+   * @param fetchSize rows fetched at a time while reading the table
+   */
+  public ProductSnapshot(
+      ProductRepository productRepository,
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      ProductCache productCache,
+      CacheInvalidationBus cacheInvalidationBus,
+      MeterRegistry meterRegistry,
+      @Value("${product.snapshot.enabled:false}") boolean enabled,
+      @Value("${product.snapshot.max-staleness:5s}") Duration maxStaleness,
+      @Value("${product.snapshot.fetch-size:1000}") int fetchSize) {
+    this.productRepository = productRepository;
+    this.tableReader = new ProductTableReader(jdbcTemplate, transactionManager, fetchSize);
+    this.enabled = enabled;
+    this.folded = enabled && productRepository.foldsText();
+    this.maxStalenessNanos = maxStaleness.toNanos();
+    if (!enabled) {
+      return;
+    }
+    productCache.follow(this);
+    cacheInvalidationBus.subscribe(this);
+    Gauge.builder("product.snapshot.size", this, s -> s.columns.ids.length)
+        .description("Products held by the catalog snapshot")
+        .register(meterRegistry);
+    Gauge.builder("product.snapshot.memory", this, s -> s.columns.bytes)
+        .description("Estimated heap taken by the catalog snapshot")
+        .baseUnit(BaseUnits.BYTES)
+        .register(meterRegistry);
+    Gauge.builder("product.snapshot.age", this, s -> s.age() / 1e9)
+        .description("Time since the last refresh of the catalog snapshot")
+        .baseUnit("seconds")
+        .register(meterRegistry);
+  }
+
+  /** Reads the active products, then starts answering the reads. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void build() {
+    if (!this.enabled) {
+      return;
+    }
+    long start = System.nanoTime();
+    this.started = true;
+    this.refresh();
+    log.info(
+        "product snapshot built with {} products, about {} bytes, in {} ms",
+        this.columns.ids.length,
+        this.columns.bytes,
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /**
+   * Reads the changed products again and swaps in the new columns. When the reads fail, the changes
+   * are kept for the next refresh and the snapshot grows stale.
+   */
+  @Scheduled(fixedDelayString = "${product.snapshot.refresh-interval-ms:100}")
+  public synchronized void refresh() {
+    if (!this.started) {
+      return;
+    }
+    long start = System.nanoTime();
+    boolean rebuilding = this.rebuild;
+    boolean catchingUp = this.catchUp;
+    this.rebuild = false;
+    this.catchUp = false;
+    List<Long> changed = new ArrayList<>(this.pending);
+    this.pending.removeAll(changed);
+    try {
+      if (rebuilding) {
+        this.columns = this.readAll();
+        this.ready = true;
+      } else {
+        Map<Long, ProductView> fresh = new HashMap<>();
+        if (catchingUp) {
+          this.readActiveAfter(this.lastId, view -> fresh.put(view.id(), view));
+        }
+        for (int from = 0; from < changed.size(); from += READ_BATCH_SIZE) {
+          this.productRepository
+              .findViewsById(
+                  changed.subList(from, Math.min(changed.size(), from + READ_BATCH_SIZE)))
+              .forEach(view -> fresh.put(view.id(), view));
+        }
+        if (!fresh.isEmpty() || !changed.isEmpty()) {
+          this.columns = this.merge(this.columns, changed, fresh);
+        }
+      }
+      this.refreshedAt = start;
+    } catch (RuntimeException e) {
+      this.rebuild |= rebuilding;
+      this.catchUp |= catchingUp;
+      this.pending.addAll(changed);
+      log.warn("product snapshot refresh failed, the reads go to the database when it is stale", e);
+    }
+  }
+
+  /** Reads the products added to the table since the last read, as the batch loads do. */
+  public void catchUp() {
+    this.catchUp = true;
+  }
+
+  @Override
+  public void invalidate(Collection<Long> productIds) {
+    if (this.enabled) {
+      this.pending.addAll(productIds);
+    }
+  }
+
+  @Override
+  public void invalidateAll() {
+    this.rebuild = true;
+  }
+
+  /**
+   * Tells whether the snapshot answers a filter of the listing exactly as the database would.
+   *
+   * @param name product name
+   * @param description product description
+   * @param active product status
+   * @return whether the snapshot is fresh and holds the filtered products
+   */
+  public boolean covers(String name, String description, Boolean active) {
+    return Boolean.TRUE.equals(active)
+        && ProductReads.isPlain(name)
+        && ProductReads.isPlain(description)
+        && this.serves();
+  }
+
+  /**
+   * Finds an active product.
+   *
+   * @param id product id
+   * @return the product, or empty when it is not active or the snapshot cannot answer
+   */
+  public Optional<ProductView> find(Long id) {
+    if (!this.serves()) {
+      return Optional.empty();
+    }
+    Columns snapshot = this.columns;
+    int index = Arrays.binarySearch(snapshot.ids, id);
+    return index < 0 ? Optional.empty() : Optional.of(snapshot.view(index));
+  }
+
+  /**
+   * Finds the active products among the given ids.
+   *
+   * @param ids product ids
+   * @return the products found, by id, none when the snapshot cannot answer
+   */
+  public Map<Long, ProductView> findAll(Collection<Long> ids) {
+    if (!this.serves()) {
+      return Map.of();
+    }
+    Columns snapshot = this.columns;
+    Map<Long, ProductView> views = new HashMap<>();
+    for (Long id : ids) {
+      int index = Arrays.binarySearch(snapshot.ids, id);
+      if (index >= 0) {
+        views.put(id, snapshot.view(index));
+      }
+    }
+    return views;
+  }
+
+  /**
+   * Finds a page of the active products after an id whose name and description contain the given
+   * texts, counting all of them. Only called when the snapshot {@link #covers} the filter.
+   *
+   * @param name text of the name, or null for any name
+   * @param description text of the description, or null for any description
+   * @param after id of the last product already read, zero for all of them
+   * @param pageable page for the answer
+   * @return the products in id order, with the number of products after the id
+   */
+  public Page<ProductView> findPage(
+      String name, String description, long after, Pageable pageable) {
+    Columns snapshot = this.columns;
+    boolean[] names = snapshot.matching(this.indexed(name), this.folded);
+    boolean[] descriptions = snapshot.matching(this.indexed(description), this.folded);
+    int from = Arrays.binarySearch(snapshot.ids, after + 1);
+    List<ProductView> content = new ArrayList<>();
+    long total = 0;
+    for (int i = from < 0 ? -from - 1 : from; i < snapshot.ids.length; i++) {
+      if (matches(names, snapshot.names[i]) && matches(descriptions, snapshot.descriptions[i])) {
+        if (total >= pageable.getOffset() && content.size() < pageable.getPageSize()) {
+          content.add(snapshot.view(i));
+        }
+        total++;
+      }
+    }
+    return new PageImpl<>(content, pageable, total);
+  }
+
+  /**
+   * Returns the estimated heap taken by the columns and the dictionary.
+   *
+   * @return the size in bytes
+   */
+  public long memory() {
+    return this.columns.bytes;
+  }
+
+  int size() {
+    return this.columns.ids.length;
+  }
+
+  private boolean serves() {
+    return this.ready
+        && this.age() <= this.maxStalenessNanos
+        && !ProductReads.isReadWriteTransaction();
+  }
+
+  private long age() {
+    return this.ready ? System.nanoTime() - this.refreshedAt : 0;
+  }
+
+  private Columns readAll() {
+    Builder builder = new Builder(null, this.folded);
+    this.lastId = 0;
+    this.readActiveAfter(0, builder::add);
+    return builder.build();
+  }
+
+  /**
+   * Copies the columns with the changed products replaced by their fresh rows, leaving out the ones
+   * no longer active or removed.
+   */
+  private Columns merge(Columns old, Collection<Long> changed, Map<Long, ProductView> fresh) {
+    TreeMap<Long, ProductView> added = new TreeMap<>();
+    fresh.values().stream().filter(ProductView::active).forEach(v -> added.put(v.id(), v));
+    Set<Long> replaced = new HashSet<>(changed);
+    replaced.addAll(fresh.keySet());
+    Builder builder = new Builder(old, this.folded);
+    ProductView next = added.isEmpty() ? null : added.pollFirstEntry().getValue();
+    for (int i = 0; i < old.ids.length; i++) {
+      while (next != null && next.id() < old.ids[i]) {
+        builder.add(next);
+        next = added.isEmpty() ? null : added.pollFirstEntry().getValue();
+      }
+      if (!replaced.contains(old.ids[i])) {
+        builder.copy(i);
+      }
+    }
+    while (next != null) {
+      builder.add(next);
+      next = added.isEmpty() ? null : added.pollFirstEntry().getValue();
+    }
+    return builder.build();
+  }
+
+  private void readActiveAfter(long after, Consumer<ProductView> consumer) {
+    this.tableReader.readAfter(
+        SELECT_ACTIVE_AFTER,
+        after,
+        row -> {
+          ProductView view = view(row);
+          consumer.accept(view);
+          this.lastId = Math.max(this.lastId, view.id());
+        });
+  }
+
+  private String indexed(String text) {
+    return this.folded ? ProductTextIndex.fold(text) : text;
+  }
+
+  private static ProductView view(ResultSet row) throws SQLException {
+    int amount = row.getInt("amount");
+    Integer nullableAmount = row.wasNull() ? null : amount;
+    long version = row.getLong("version");
+    return new ProductView(
+        row.getLong("id"),
+        row.getString("name"),
+        row.getString("description"),
+        row.getBigDecimal("price"),
+        nullableAmount,
+        true,
+        row.wasNull() ? null : version);
+  }
+
+  private static boolean matches(boolean[] codes, int code) {
+    return codes == null || (code != NO_TEXT && codes[code]);
+  }
+
+  /** Columns of one version of the snapshot, never changed once built. */
+  private static final class Columns {
+
+    static final Columns EMPTY =
+        new Columns(
+            new long[0],
+            new int[0],
+            new long[0],
+            new long[0],
+            new int[0],
+            new int[0],
+            new String[0],
+            new String[0]);
+
+    // estimated sizes, with compressed references
+    private static final int ARRAY = 16;
+    private static final int REFERENCE = 4;
+    private static final int STRING = 24;
+
+    private final long[] ids;
+    private final int[] amounts;
+    private final long[] prices;
+    private final long[] versions;
+    private final int[] names;
+    private final int[] descriptions;
+    private final String[] dictionary;
+    // the dictionary folded as the database search does, sharing the texts that do not change
+    private final String[] searchable;
+    private final long bytes;
+
+    Columns(
+        long[] ids,
+        int[] amounts,
+        long[] prices,
+        long[] versions,
+        int[] names,
+        int[] descriptions,
+        String[] dictionary,
+        String[] searchable) {
+      this.ids = ids;
+      this.amounts = amounts;
+      this.prices = prices;
+      this.versions = versions;
+      this.names = names;
+      this.descriptions = descriptions;
+      this.dictionary = dictionary;
+      this.searchable = searchable;
+      long size = 8L * ARRAY + (long) ids.length * (8 + 4 + 8 + 8 + 4 + 4);
+      size += 2L * REFERENCE * dictionary.length;
+      for (int i = 0; i < dictionary.length; i++) {
+        size += text(dictionary[i]);
+        if (searchable[i] != dictionary[i]) {
+          size += text(searchable[i]);
+        }
+      }
+      this.bytes = size;
+    }
+
+    ProductView view(int index) {
+      return new ProductView(
+          this.ids[index],
+          this.text(this.names[index]),
+          this.text(this.descriptions[index]),
+          this.prices[index] == NULL ? null : BigDecimal.valueOf(this.prices[index], PRICE_SCALE),
+          this.amounts[index] == NULL_AMOUNT ? null : this.amounts[index],
+          true,
+          this.versions[index] == NULL ? null : this.versions[index]);
+    }
+
+    /**
+     * Tells which texts of the dictionary contain the given one, so the rows only compare codes.
+     *
+     * @return whether each code matches, or null when there is no filter
+     */
+    boolean[] matching(String text, boolean folded) {
+      if (text == null) {
+        return null;
+      }
+      String[] texts = folded ? this.searchable : this.dictionary;
+      boolean[] matching = new boolean[texts.length];
+      for (int i = 0; i < texts.length; i++) {
+        matching[i] = texts[i].contains(text);
+      }
+      return matching;
+    }
+
+    private String text(int code) {
+      return code == NO_TEXT ? null : this.dictionary[code];
+    }
+
+    private static long text(String text) {
+      boolean latin = text.chars().allMatch(c -> c < 256);
+      return STRING + ARRAY + (long) text.length() * (latin ? 1 : 2);
+    }
+  }
+
+  /** Builds new columns, copying rows of the old ones and keeping only the texts still used. */
+  private static final class Builder {
+
+    private final Columns old;
+    private final boolean folded;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private final List<String> searchable = new ArrayList<>();
+    private final int[] remapped;
+    private long[] ids = new long[16];
+    private int[] amounts = new int[16];
+    private long[] prices = new long[16];
+    private long[] versions = new long[16];
+    private int[] names = new int[16];
+    private int[] descriptions = new int[16];
+    private int size;
+
+    Builder(Columns old, boolean folded) {
+      this.old = old;
+      this.folded = folded;
+      // new code plus one of each old code, zero while not copied
+      this.remapped = old == null ? null : new int[old.dictionary.length];
+    }
+
+    void add(ProductView view) {
+      this.grow();
+      this.ids[this.size] = view.id();
+      this.amounts[this.size] = view.amount() == null ? NULL_AMOUNT : view.amount();
+      this.prices[this.size] = view.price() == null ? NULL : cents(view.price());
+      this.versions[this.size] = view.version() == null ? NULL : view.version();
+      this.names[this.size] = this.code(view.name());
+      this.descriptions[this.size] = this.code(view.description());
+      this.size++;
+    }
+
+    void copy(int index) {
+      this.grow();
+      this.ids[this.size] = this.old.ids[index];
+      this.amounts[this.size] = this.old.amounts[index];
+      this.prices[this.size] = this.old.prices[index];
+      this.versions[this.size] = this.old.versions[index];
+      this.names[this.size] = this.remap(this.old.names[index]);
+      this.descriptions[this.size] = this.remap(this.old.descriptions[index]);
+      this.size++;
+    }
+
+    Columns build() {
+      return new Columns(
+          Arrays.copyOf(this.ids, this.size),
+          Arrays.copyOf(this.amounts, this.size),
+          Arrays.copyOf(this.prices, this.size),
+          Arrays.copyOf(this.versions, this.size),
+          Arrays.copyOf(this.names, this.size),
+          Arrays.copyOf(this.descriptions, this.size),
+          this.dictionary.toArray(String[]::new),
+          this.searchable.toArray(String[]::new));
+    }
+
+    private int remap(int code) {
+      if (code == NO_TEXT) {
+        return NO_TEXT;
+      }
+      if (this.remapped[code] == 0) {
+        this.remapped[code] = this.code(this.old.dictionary[code]) + 1;
+      }
+      return this.remapped[code] - 1;
+    }
+
+    private int code(String text) {
+      if (text == null) {
+        return NO_TEXT;
+      }
+      return this.codes.computeIfAbsent(
+          text,
+          t -> {
+            String search = this.folded ? ProductTextIndex.fold(t) : t;
+            this.dictionary.add(t);
+            this.searchable.add(search.equals(t) ? t : search);
+            return this.dictionary.size() - 1;
+          });
+    }
+
+    private void grow() {
+      if (this.size < this.ids.length) {
+        return;
+      }
+      int capacity = this.ids.length * 2;
+      this.ids = Arrays.copyOf(this.ids, capacity);
+      this.amounts = Arrays.copyOf(this.amounts, capacity);
+      this.prices = Arrays.copyOf(this.prices, capacity);
+      this.versions = Arrays.copyOf(this.versions, capacity);
+      this.names = Arrays.copyOf(this.names, capacity);
+      this.descriptions = Arrays.copyOf(this.descriptions, capacity);
+    }
+
+    /** Keeps the price in cents, failing when it has more decimals than the column. */
+    private static long cents(BigDecimal price) {
+      return price.setScale(PRICE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+  }
+}
@@ -2,11 +2,13 @@ package br.com.powerprogramers.product.domain.consumer;
 
 import static br.com.powerprogramers.product.domain.utils.JsonUtil.toJson;
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import br.com.powerprogramers.product.domain.model.ProductRequested;
 import io.restassured.RestAssured;
 import jakarta.transaction.Transactional;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -82,4 +84,133 @@ class ProductConsumerIT {
 
     assertEquals(erroMessage, msg);
   }
+
+  @Test
+  void mustReserveOrderSuccessfully() {
+    int amount = currentAmount(1L);
+    List<ProductRequested> order =
+        List.of(new ProductRequested(1L, 3), new ProductRequested(1L, 2));
+
+    given()
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(toJson(order))
+        .when()
+        .post("/api/reserveOrder")
+        .then()
+        .statusCode(HttpStatus.OK.value())
+        .body("size()", equalTo(2))
+        .body("[0].amount", equalTo(3))
+        .body("[1].remaining", equalTo(amount - 5));
+  }
+
+  @Test
+  void mustNotReserveAnyProduct_WhenOneLineHasNoStock() {
+    int amount = currentAmount(1L);
+    List<ProductRequested> order =
+        List.of(new ProductRequested(1L, 1), new ProductRequested(2L, 50));
+
+    var msg =
+        given()
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .body(toJson(order))
+            .when()
+            .post("/api/reserveOrder")
+            .then()
+            .statusCode(HttpStatus.BAD_REQUEST.value())
+            .extract()
+            .jsonPath()
+            .get("message");
+
+    assertEquals("The total purchase cannot be more than the stock total. Product: 2", msg);
+    assertEquals(amount, currentAmount(1L));
+  }
+
+  private int currentAmount(Long id) {
+    return given().when().get("/products/{id}", id).then().extract().jsonPath().getInt("amount");
+  }
+
+  @Test
+  void mustConsumeProductsInBatchSuccessfully() {
+    List<ProductRequested> batch =
+        List.of(
+            new ProductRequested(1L, 1), new ProductRequested(1L, 1), new ProductRequested(2L, 99));
+
+    given()
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(toJson(batch))
+        .when()
+        .post("/api/removeStockBatch")
+        .then()
+        .statusCode(HttpStatus.OK.value())
+        .body("size()", equalTo(3))
+        .body("[0].removed", equalTo(true))
+        .body("[1].removed", equalTo(true))
+        .body("[2].removed", equalTo(false));
+  }
+
+  @Test
+  void mustReserveAndReleaseStockSuccessfully() {
+    int amount = currentAmount(1L);
+
+    String reservationId =
+        given()
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .body(toJson(new ProductRequested(1L, 4)))
+            .when()
+            .post("/api/reserveStock")
+            .then()
+            .statusCode(HttpStatus.OK.value())
+            .body("status", equalTo("RESERVED"))
+            .extract()
+            .jsonPath()
+            .get("id");
+    assertEquals(amount - 4, currentAmount(1L));
+
+    given()
+        .contentType(MediaType.TEXT_PLAIN_VALUE)
+        .body(reservationId)
+        .when()
+        .post("/api/releaseReservation")
+        .then()
+        .statusCode(HttpStatus.OK.value())
+        .body("status", equalTo("RELEASED"));
+    assertEquals(amount, currentAmount(1L));
+  }
+
+  @Test
+  void mustThrowException_WhenReleasingConfirmedReservation() {
+    String reservationId =
+        given()
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .body(toJson(new ProductRequested(1L, 1)))
+            .when()
+            .post("/api/reserveStock")
+            .then()
+            .extract()
+            .jsonPath()
+            .get("id");
+
+    given()
+        .contentType(MediaType.TEXT_PLAIN_VALUE)
+        .body(reservationId)
+        .when()
+        .post("/api/confirmReservation")
+        .then()
+        .statusCode(HttpStatus.OK.value())
+        .body("status", equalTo("CONFIRMED"));
+
+    var msg =
+        given()
+            .contentType(MediaType.TEXT_PLAIN_VALUE)
+            .body(reservationId)
+            .when()
+            .post("/api/releaseReservation")
+            .then()
+            .statusCode(HttpStatus.NOT_FOUND.value())
+            .extract()
+            .jsonPath()
+            .get("message");
+
+    assertEquals("reservation not found or expired", msg);
+  }
 }
@@ -1,35 +1,59 @@
 package br.com.powerprogramers.product.domain.consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.dto.ProductLookupDto;
 import br.com.powerprogramers.product.domain.model.ProductRequested;
+import br.com.powerprogramers.product.domain.model.StockRemoval;
+import br.com.powerprogramers.product.domain.service.ProductService;
+import br.com.powerprogramers.product.domain.service.StockReservationService;
 import br.com.powerprogramers.product.domain.service.StockService;
+import br.com.powerprogramers.product.domain.service.idempotency.IdempotencyStore;
+import java.time.Duration;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
 
 @SpringBootTest
 class ProductConsumerTest {
 
   private AutoCloseable openMocks;
   @Mock private StockService stockService;
+  @Mock private StockReservationService stockReservationService;
+  @Mock private IdempotencyStore idempotencyStore;
+  @Mock private ProductService productService;
   private ProductConsumer productConsumer;
 
   @BeforeEach
   void setUp() {
     openMocks = MockitoAnnotations.openMocks(this);
-    productConsumer = new ProductConsumer(stockService);
+    when(idempotencyStore.execute(any(), anyLong(), anyInt(), any()))
+        .thenAnswer(i -> i.<Supplier<ProductDto>>getArgument(3).get());
+    productConsumer =
+        new ProductConsumer(
+            stockService, stockReservationService, idempotencyStore, productService);
+    ReflectionTestUtils.setField(productConsumer, "batchSize", 2);
+    ReflectionTestUtils.setField(productConsumer, "batchWindow", Duration.ofMillis(50));
+    ReflectionTestUtils.setField(productConsumer, "maxPending", 10);
   }
 
   @AfterEach
@@ -49,6 +73,25 @@ class ProductConsumerTest {
     verify(stockService, times(1)).updateStock(1L, -10);
   }
 
+  @Test
+  void mustPassIdempotencyKey_WhenConsumingProduct() {
+    ProductRequested productRequested = new ProductRequested(1L, 10, "key-1");
+
+    Consumer<ProductRequested> consumer = productConsumer.consumer();
+    consumer.accept(productRequested);
+
+    verify(idempotencyStore, times(1)).execute(eq("key-1"), eq(1L), eq(-10), any());
+  }
+
+  @Test
+  void mustLookupProducts() {
+    ProductLookupDto lookup = new ProductLookupDto().missing(List.of(9L));
+
+    when(productService.findAllById(List.of(9L))).thenReturn(lookup);
+
+    assertThat(productConsumer.lookupProducts().apply(List.of(9L))).isSameAs(lookup);
+  }
+
   @Test
   void mustThrowException_WhenInvalidAmount() {
     ProductRequested productRequested = new ProductRequested(1L, 0);
@@ -77,4 +120,44 @@ class ProductConsumerTest {
 
     verify(stockService, times(1)).updateStock(anyLong(), anyInt());
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void mustConsumeProductsInBatches() {
+    when(stockService.removeStock(any()))
+        .thenAnswer(
+            t ->
+                ((List<ProductRequested>) t.getArgument(0))
+                    .stream().map(StockRemoval::removed).toList());
+
+    Function<Flux<ProductRequested>, Flux<StockRemoval>> consumer = productConsumer.batchConsumer();
+    List<StockRemoval> result =
+        consumer
+            .apply(
+                Flux.just(
+                    new ProductRequested(1L, 1),
+                    new ProductRequested(1L, 2),
+                    new ProductRequested(2L, 3)))
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+    assertThat(result).extracting(StockRemoval::getAmount).containsExactly(1, 2, 3);
+    verify(stockService, times(2)).removeStock(any());
+  }
+
+  @Test
+  void mustRejectBatch_WhenStockServiceFails() {
+    when(stockService.removeStock(any())).thenThrow(new IllegalStateException("database down"));
+
+    Function<Flux<ProductRequested>, Flux<StockRemoval>> consumer = productConsumer.batchConsumer();
+    List<StockRemoval> result =
+        consumer
+            .apply(Flux.just(new ProductRequested(1L, 1)))
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+    assertThat(result).hasSize(1);
+    assertThat(result.get(0).isRemoved()).isFalse();
+    assertThat(result.get(0).getMessage()).isEqualTo("database down");
+  }
 }
@@ -0,0 +1,136 @@
+package br.com.powerprogramers.product.domain.controller;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.outbox.ProductChangeFeed;
+import br.com.powerprogramers.product.domain.service.outbox.ProductOutbox;
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+
+// not transactional: the feed only reads changes that were committed and published
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureTestDatabase
+class ProductChangeControllerIT {
+
+  @LocalServerPort protected int port;
+
+  @Autowired private ProductRepository productRepository;
+  @Autowired private ProductOutbox productOutbox;
+  @Autowired private ProductChangeFeed productChangeFeed;
+
+  private Long productId;
+  private long since;
+
+  @BeforeEach
+  void setup() {
+    RestAssured.port = port;
+    RestAssured.enableLoggingOfRequestAndResponseIfValidationFails();
+    productId =
+        productRepository
+            .save(
+                ProductEntity.builder()
+                    .name("Feed")
+                    .description("Product of the changes feed")
+                    .amount(10)
+                    .price(BigDecimal.TEN)
+                    .active(true)
+                    .build())
+            .getId();
+    drain();
+    since = productChangeFeed.lastPosition();
+  }
+
+  @AfterEach
+  void tearDown() {
+    productRepository.deleteById(productId);
+  }
+
+  @Test
+  void mustStreamChangesAfterCursor() {
+    updateStock();
+    updateStock();
+    drain();
+
+    String body =
+        given()
+            .param("since", since)
+            .when()
+            .get("/products/changes")
+            .then()
+            .statusCode(HttpStatus.OK.value())
+            .contentType("application/x-ndjson")
+            .extract()
+            .asString();
+
+    List<String> lines = body.lines().toList();
+    assertThat(lines)
+        .hasSize(2)
+        .allMatch(l -> l.contains("\"productId\":" + productId))
+        .allMatch(l -> l.contains("\"type\":\"STOCK_CHANGED\""));
+  }
+
+  @Test
+  void mustAnswerNoContent_WhenNoChangeArrives() {
+    given()
+        .param("since", since)
+        .param("wait", 1)
+        .when()
+        .get("/products/changes")
+        .then()
+        .statusCode(HttpStatus.NO_CONTENT.value());
+  }
+
+  @Test
+  void mustAnswerWaitingReader_WhenChangeIsPublished() throws Exception {
+    CompletableFuture<Response> waiting =
+        CompletableFuture.supplyAsync(
+            () -> given().param("since", since).param("wait", 10).get("/products/changes"));
+
+    updateStock();
+    drain();
+
+    Response response = waiting.get(15, TimeUnit.SECONDS);
+    assertThat(response.statusCode()).isEqualTo(HttpStatus.OK.value());
+    assertThat(response.asString()).contains("\"productId\":" + productId);
+  }
+
+  @Test
+  void mustGenerateException_WhenCursorIsNegative() {
+    given()
+        .param("since", -1)
+        .when()
+        .get("/products/changes")
+        .then()
+        .statusCode(HttpStatus.BAD_REQUEST.value());
+  }
+
+  private void updateStock() {
+    given()
+        .param("amount", 1)
+        .when()
+        .patch("/stock/{id}", productId)
+        .then()
+        .statusCode(HttpStatus.OK.value());
+  }
+
+  private void drain() {
+    while (productOutbox.publishNext(100) > 0) {
+      // also publishes the changes left by other tests
+    }
+  }
+}
@@ -4,6 +4,7 @@ import static br.com.powerprogramers.product.domain.utils.JsonUtil.toJson;
 import static io.restassured.RestAssured.given;
 import static io.restassured.module.jsv.JsonSchemaValidator.matchesJsonSchemaInClasspath;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 import br.com.powerprogramers.product.domain.dto.CreateProductDto;
 import br.com.powerprogramers.product.domain.dto.UpdateProductDto;
@@ -12,6 +13,7 @@ import io.restassured.RestAssured;
 import jakarta.transaction.Transactional;
 import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
@@ -162,6 +164,59 @@ class ProductControllerIT {
           .body(matchesJsonSchemaInClasspath("schemas/product.schema.json"));
     }
 
+    @Test
+    void mustUpdateProductSuccessfully_WithCurrentIfMatch() {
+      UpdateProductDto updateProductDto = ProductHelper.generateUpdateProductDto();
+      long id = registerProduct();
+      String etag = given().when().get("/products/{id}", id).then().extract().header("ETag");
+
+      String newEtag =
+          given()
+              .contentType(MediaType.APPLICATION_JSON_VALUE)
+              .header("If-Match", etag)
+              .body(toJson(updateProductDto))
+              .when()
+              .patch("/products/{id}", id)
+              .then()
+              .statusCode(HttpStatus.OK.value())
+              .extract()
+              .header("ETag");
+
+      assertNotEquals(etag, newEtag);
+    }
+
+    @Test
+    void mustGenerateException_WhenUpdateProduct_WithStaleIfMatch() {
+      UpdateProductDto updateProductDto = ProductHelper.generateUpdateProductDto();
+      long id = registerProduct();
+      String etag = given().when().get("/products/{id}", id).then().extract().header("ETag");
+
+      given()
+          .contentType(MediaType.APPLICATION_JSON_VALUE)
+          .param("amount", 1)
+          .when()
+          .patch("/stock/{id}", id)
+          .then()
+          .statusCode(HttpStatus.OK.value());
+
+      var erro =
+          given()
+              .contentType(MediaType.APPLICATION_JSON_VALUE)
+              .header("If-Match", etag)
+              .body(toJson(updateProductDto))
+              .when()
+              .patch("/products/{id}", id)
+              .then()
+              .statusCode(HttpStatus.PRECONDITION_FAILED.value())
+              .body(matchesJsonSchemaInClasspath("schemas/domain.exception.schema.json"))
+              .extract()
+              .response()
+              .jsonPath()
+              .get("message");
+
+      assertEquals("product was modified by another request", erro);
+    }
+
     @Test
     void mustGenerateException_WhenUpdateProduct_WithHttpMessageNotReadable() {
       var erroMessage = "Failed to read request";
@@ -253,6 +308,53 @@ class ProductControllerIT {
       assertEquals(erroMessage, erro);
     }
 
+    @Test
+    void mustAnswerNotModified_WhenProductDidNotChange() {
+      String etag = given().when().get("/products/{id}", 1L).then().extract().header("ETag");
+
+      given()
+          .header("If-None-Match", etag)
+          .when()
+          .get("/products/{id}", 1L)
+          .then()
+          .statusCode(HttpStatus.NOT_MODIFIED.value())
+          .header("ETag", etag);
+    }
+
+    @Test
+    void mustRevalidateOnlyChangedProducts() {
+      String etag = given().when().get("/products/{id}", 1L).then().extract().header("ETag");
+      var revalidated =
+          given()
+              .contentType(MediaType.APPLICATION_JSON_VALUE)
+              .body(List.of(Map.of("id", 1, "etag", etag), Map.of("id", 2, "etag", "\"-1\"")))
+              .when()
+              .post("/products/revalidate")
+              .then()
+              .statusCode(HttpStatus.OK.value())
+              .extract()
+              .jsonPath();
+
+      assertEquals(List.of(2), revalidated.getList("items.id"));
+    }
+
+    @Test
+    void mustLookupProductsInRequestOrder() {
+      var lookup =
+          given()
+              .contentType(MediaType.APPLICATION_JSON_VALUE)
+              .body("[2, 99, 1, 2]")
+              .when()
+              .post("/products/lookup")
+              .then()
+              .statusCode(HttpStatus.OK.value())
+              .extract()
+              .jsonPath();
+
+      assertEquals(List.of(2, 1), lookup.getList("items.id"));
+      assertEquals(List.of(99), lookup.getList("missing"));
+    }
+
     @Test
     void mustFindAllProductsSuccessfully() {
       Map<String, String> params = new HashMap<>();
@@ -312,4 +414,17 @@ class ProductControllerIT {
         .statusCode(HttpStatus.OK.value())
         .body(matchesJsonSchemaInClasspath("schemas/product.schema.json"));
   }
+
+  private long registerProduct() {
+    return given()
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(toJson(ProductHelper.generateCreateProductDto()))
+        .when()
+        .post("/products")
+        .then()
+        .statusCode(HttpStatus.CREATED.value())
+        .extract()
+        .jsonPath()
+        .getLong("id");
+  }
 }
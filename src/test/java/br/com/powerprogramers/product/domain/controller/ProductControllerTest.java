@@ -2,10 +2,8 @@ package br.com.powerprogramers.product.domain.controller;
 
 import static br.com.powerprogramers.product.domain.utils.JsonUtil.toJson;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.anyBoolean;
-import static org.mockito.Mockito.anyInt;
-import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -13,15 +11,25 @@ import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import br.com.powerprogramers.product.domain.dto.CreateProductDto;
 import br.com.powerprogramers.product.domain.dto.PagedProductDto;
 import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.dto.ProductLookupDto;
 import br.com.powerprogramers.product.domain.dto.UpdateProductDto;
 import br.com.powerprogramers.product.domain.exceptions.CreateProductUseCaseException;
+import br.com.powerprogramers.product.domain.exceptions.ProductPreconditionFailedException;
+import br.com.powerprogramers.product.domain.model.ProductCount;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductQuery;
+import br.com.powerprogramers.product.domain.model.ProductSort;
 import br.com.powerprogramers.product.domain.service.ProductService;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.etag.ProductETag;
 import br.com.powerprogramers.product.domain.utils.ProductHelper;
 import com.callibrity.logging.test.LogTracker;
 import com.callibrity.logging.test.LogTrackerStub;
@@ -34,6 +42,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -53,11 +63,13 @@ class ProductControllerTest {
   private AutoCloseable openMocks;
 
   @Mock private ProductService productService;
+  @Mock private StockCounters stockCounters;
 
   @BeforeEach
   void setUp() {
     this.openMocks = MockitoAnnotations.openMocks(this);
-    ProductController productController = new ProductController(productService);
+    ProductController productController =
+        new ProductController(productService, new ProductETag(stockCounters));
     mockMvc =
         MockMvcBuilders.standaloneSetup(productController)
             .setControllerAdvice(new ProductExceptionHandler())
@@ -194,7 +206,7 @@ class ProductControllerTest {
       UpdateProductDto updateProductDto = ProductHelper.generateUpdateProductDto();
       ProductDto productDto = ProductHelper.generateProductDtoUpdated();
 
-      when(productService.update(any(Long.class), any(UpdateProductDto.class)))
+      when(productService.update(any(Long.class), any(UpdateProductDto.class), any()))
           .thenReturn(productDto);
 
       mockMvc
@@ -204,7 +216,61 @@ class ProductControllerTest {
                   .content(toJson(updateProductDto)))
           .andExpect(status().isOk());
 
-      verify(productService, times(1)).update(any(Long.class), any(UpdateProductDto.class));
+      verify(productService, times(1))
+          .update(any(Long.class), any(UpdateProductDto.class), eq(null));
+    }
+
+    @Test
+    void mustUpdateProductSuccessfully_WithIfMatch() throws Exception {
+      UpdateProductDto updateProductDto = ProductHelper.generateUpdateProductDto();
+      ProductDto productDto = ProductHelper.generateProductDtoUpdated().version(4L);
+
+      when(productService.update(any(Long.class), any(UpdateProductDto.class), any()))
+          .thenReturn(productDto);
+
+      mockMvc
+          .perform(
+              patch("/products/{id}", ProductHelper.ID)
+                  .header(HttpHeaders.IF_MATCH, "\"3\"")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(toJson(updateProductDto)))
+          .andExpect(status().isOk())
+          .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+
+      verify(productService, times(1)).update(any(Long.class), any(UpdateProductDto.class), eq(3L));
+    }
+
+    @Test
+    void mustGenerateException_WhenUpdateProduct_WithStaleIfMatch() throws Exception {
+      UpdateProductDto updateProductDto = ProductHelper.generateUpdateProductDto();
+
+      when(productService.update(any(Long.class), any(UpdateProductDto.class), any()))
+          .thenThrow(new ProductPreconditionFailedException("/products"));
+
+      mockMvc
+          .perform(
+              patch("/products/{id}", ProductHelper.ID)
+                  .header(HttpHeaders.IF_MATCH, "\"2\"")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(toJson(updateProductDto)))
+          .andExpect(status().isPreconditionFailed())
+          .andExpect(jsonPath("$.message").value("product was modified by another request"));
+    }
+
+    @Test
+    void mustGenerateException_WhenUpdateProduct_WithOptimisticLockingFailure() throws Exception {
+      UpdateProductDto updateProductDto = ProductHelper.generateUpdateProductDto();
+
+      when(productService.update(any(Long.class), any(UpdateProductDto.class), any()))
+          .thenThrow(new OptimisticLockingFailureException("conflict"));
+
+      mockMvc
+          .perform(
+              patch("/products/{id}", ProductHelper.ID)
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(toJson(updateProductDto)))
+          .andExpect(status().isConflict())
+          .andExpect(jsonPath("$.status").value(HttpStatus.CONFLICT.value()));
     }
 
     @Test
@@ -279,14 +345,109 @@ class ProductControllerTest {
       verify(productService, never()).findById(any(Long.class));
     }
 
+    @Test
+    void mustAnswerNotModified_WhenProductETagIsHeld() throws Exception {
+      when(productService.findById(ProductHelper.ID))
+          .thenReturn(ProductHelper.generateProductDto(true).version(4L));
+
+      mockMvc
+          .perform(
+              get("/products/{id}", ProductHelper.ID).header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+          .andExpect(status().isNotModified())
+          .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+          .andExpect(content().string(""));
+      mockMvc
+          .perform(
+              get("/products/{id}", ProductHelper.ID).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+          .andExpect(status().isOk())
+          .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void mustAnswerNotModified_WhenPageETagIsHeld() throws Exception {
+      PagedProductDto pagination =
+          new PagedProductDto()
+              .page(0)
+              .perPage(10)
+              .total(1L)
+              .items(List.of(ProductHelper.generateProductDto(true).version(4L)));
+
+      when(productService.findAll(ProductQuery.builder().page(0).perPage(10).active(true).build()))
+          .thenReturn(pagination);
+
+      String etag =
+          mockMvc
+              .perform(get("/products").param("active", "true"))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getHeader(HttpHeaders.ETAG);
+      mockMvc
+          .perform(get("/products").param("active", "true").header(HttpHeaders.IF_NONE_MATCH, etag))
+          .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void mustRevalidateOnlyChangedProducts() throws Exception {
+      ProductLookupDto lookup =
+          new ProductLookupDto()
+              .items(
+                  List.of(
+                      ProductHelper.generateProductDto(true).id(1L).version(4L),
+                      ProductHelper.generateProductDto(true).id(2L).version(7L)))
+              .missing(List.of(9L));
+
+      when(productService.findAllById(List.of(1L, 2L, 9L))).thenReturn(lookup);
+
+      mockMvc
+          .perform(
+              post("/products/revalidate")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(
+                      "[{\"id\": 1, \"etag\": \"\\\"4\\\"\"},"
+                          + " {\"id\": 2, \"etag\": \"\\\"6\\\"\"}, {\"id\": 9}]"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.items.length()").value(1))
+          .andExpect(jsonPath("$.items[0].id").value(2))
+          .andExpect(jsonPath("$.missing[0]").value(9));
+    }
+
+    @Test
+    void mustLookupProductsSuccessfully() throws Exception {
+      ProductLookupDto lookup =
+          new ProductLookupDto()
+              .items(List.of(ProductHelper.generateProductDto(true)))
+              .missing(List.of(9L));
+
+      when(productService.findAllById(List.of(9L, 1L))).thenReturn(lookup);
+
+      mockMvc
+          .perform(
+              post("/products/lookup").contentType(MediaType.APPLICATION_JSON).content("[9, 1]"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.items[0].id").value(1))
+          .andExpect(jsonPath("$.missing[0]").value(9));
+    }
+
+    @Test
+    void mustGenerateException_WhenLookupHasTooManyIds() throws Exception {
+      when(productService.findAllById(any()))
+          .thenThrow(new IllegalArgumentException("The lookup cannot have more than 100 ids."));
+
+      mockMvc
+          .perform(
+              post("/products/lookup").contentType(MediaType.APPLICATION_JSON).content("[1, 2]"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("The lookup cannot have more than 100 ids."));
+    }
+
     @Test
     void mustFindAllProductsSuccessfully() throws Exception {
       ProductDto productDto = ProductHelper.generateProductDto(true);
       PagedProductDto pagination =
           new PagedProductDto().page(0).perPage(10).total(1L).items(List.of(productDto));
 
-      when(productService.findAll(anyInt(), anyInt(), anyString(), anyString(), anyBoolean()))
-          .thenReturn(pagination);
+      when(productService.findAll(any(ProductQuery.class))).thenReturn(pagination);
 
       MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
       params.add("page", "0");
@@ -308,8 +469,88 @@ class ProductControllerTest {
           .andExpect(jsonPath("$.items[0].price").value(productDto.getPrice()))
           .andExpect(jsonPath("$.items[0].active").value(productDto.isActive()));
 
-      verify(productService, times(1))
-          .findAll(anyInt(), anyInt(), anyString(), anyString(), anyBoolean());
+      verify(productService, times(1)).findAll(any(ProductQuery.class));
+    }
+
+    @Test
+    void mustFindProductsAfterCursor() throws Exception {
+      ProductDto productDto = ProductHelper.generateProductDto(true);
+      PagedProductDto pagination =
+          new PagedProductDto().perPage(10).items(List.of(productDto)).next("aWQ6MTA");
+
+      when(productService.findAll(
+              ProductQuery.builder().after("aWQ6NQ").perPage(10).active(true).build()))
+          .thenReturn(pagination);
+
+      mockMvc
+          .perform(get("/products").param("after", "aWQ6NQ").param("page", "3"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.next").value("aWQ6MTA"))
+          .andExpect(jsonPath("$.items[0].id").value(productDto.getId()));
+    }
+
+    @Test
+    void mustFindProductsWithoutCount() throws Exception {
+      PagedProductDto pagination = new PagedProductDto().page(0).perPage(10).items(List.of());
+
+      when(productService.findAll(
+              ProductQuery.builder()
+                  .page(0)
+                  .perPage(10)
+                  .active(true)
+                  .count(ProductCount.NONE)
+                  .build()))
+          .thenReturn(pagination);
+
+      mockMvc
+          .perform(get("/products").param("count", "none"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.total").doesNotExist());
+    }
+
+    @Test
+    void mustGenerateException_WhenFindAllProducts_WithInvalidCount() throws Exception {
+      mockMvc
+          .perform(get("/products").param("count", "all"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("The count must be exact, estimate or none."));
+    }
+
+    @Test
+    void mustFindProductsWithFacets() throws Exception {
+      ProductFacets facets =
+          new ProductFacets(new BigDecimal("5"), new BigDecimal("20"), true, ProductSort.PRICE_DESC);
+      PagedProductDto pagination = new PagedProductDto().page(0).perPage(10).items(List.of());
+
+      when(productService.findAll(
+              ProductQuery.builder().page(0).perPage(10).active(true).facets(facets).build()))
+          .thenReturn(pagination);
+
+      mockMvc
+          .perform(
+              get("/products")
+                  .param("minPrice", "5")
+                  .param("maxPrice", "20")
+                  .param("inStock", "true")
+                  .param("sort", "-price"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.page").value(0));
+    }
+
+    @Test
+    void mustGenerateException_WhenFindAllProducts_WithInvalidFacets() throws Exception {
+      mockMvc
+          .perform(get("/products").param("sort", "description"))
+          .andExpect(status().isBadRequest())
+          .andExpect(
+              jsonPath("$.message")
+                  .value("The sort must be id, price, -price, name, -name, amount or -amount."));
+      mockMvc
+          .perform(get("/products").param("minPrice", "20").param("maxPrice", "5"))
+          .andExpect(status().isBadRequest())
+          .andExpect(
+              jsonPath("$.message")
+                  .value("The minimum price cannot be more than the maximum price."));
     }
 
     @Test
@@ -318,8 +559,7 @@ class ProductControllerTest {
       PagedProductDto pagination =
           new PagedProductDto().page(0).perPage(10).total(1L).items(List.of(productDto));
 
-      when(productService.findAll(anyInt(), anyInt(), anyString(), anyString(), anyBoolean()))
-          .thenReturn(pagination);
+      when(productService.findAll(any(ProductQuery.class))).thenReturn(pagination);
 
       MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
       params.add("page", "a");
@@ -331,8 +571,7 @@ class ProductControllerTest {
           .andExpect(jsonPath("$.message").value("Error converting page with value of type a"))
           .andExpect(jsonPath("$.path").value("/products"));
 
-      verify(productService, never())
-          .findAll(anyInt(), anyInt(), anyString(), anyString(), anyBoolean());
+      verify(productService, never()).findAll(any(ProductQuery.class));
     }
   }
 
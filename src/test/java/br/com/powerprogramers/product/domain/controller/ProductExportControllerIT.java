@@ -0,0 +1,157 @@
+package br.com.powerprogramers.product.domain.controller;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import br.com.powerprogramers.product.domain.batch.job.ProductLoadMapper;
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.model.ProductLoad;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import io.restassured.RestAssured;
+import io.restassured.config.DecoderConfig;
+import io.restassured.response.Response;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+
+// not transactional: the export reads the committed catalog on its own connection
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureTestDatabase
+class ProductExportControllerIT {
+
+  @LocalServerPort protected int port;
+
+  @Autowired private ProductRepository productRepository;
+
+  private Long productId;
+
+  @BeforeEach
+  void setup() {
+    RestAssured.port = port;
+    RestAssured.enableLoggingOfRequestAndResponseIfValidationFails();
+    productId =
+        productRepository
+            .save(
+                ProductEntity.builder()
+                    .name("Export")
+                    .description("Product of the export")
+                    .amount(10)
+                    .price(new BigDecimal("2.50"))
+                    .active(true)
+                    .build())
+            .getId();
+  }
+
+  @AfterEach
+  void tearDown() {
+    productRepository.deleteById(productId);
+  }
+
+  @Test
+  void mustExportProductsAsNdjson() {
+    String body =
+        given()
+            .when()
+            .get("/products/export")
+            .then()
+            .statusCode(HttpStatus.OK.value())
+            .contentType("application/x-ndjson")
+            .header("Content-Disposition", "attachment; filename=\"products.ndjson\"")
+            .extract()
+            .asString();
+
+    List<String> lines = body.lines().toList();
+    assertThat(lines.get(lines.size() - 1))
+        .contains("\"id\":" + productId)
+        .contains("\"name\":\"Export\"");
+  }
+
+  @Test
+  void mustExportProductsAsCsvReadByProductLoad() {
+    String body =
+        given()
+            .param("format", "csv")
+            .param("after", productId - 1)
+            .when()
+            .get("/products/export")
+            .then()
+            .statusCode(HttpStatus.OK.value())
+            .contentType("text/csv")
+            .extract()
+            .asString();
+
+    List<String> lines = body.lines().toList();
+    assertThat(lines.get(0)).isEqualTo("-- name;description;amount;price;active");
+    assertThat(lines).hasSize(3).last().isEqualTo("-- after " + productId);
+    ProductLoad load = read(lines.get(1));
+    assertThat(load.getName()).isEqualTo("Export");
+    assertThat(load.getDescription()).isEqualTo("Product of the export");
+    assertThat(load.getAmount()).isEqualTo(10);
+    assertThat(load.getPrice()).isEqualByComparingTo("2.50");
+    assertThat(load.isActive()).isTrue();
+  }
+
+  @Test
+  void mustResumeExportAfterLastId() {
+    List<String> lines =
+        given()
+            .param("after", productId - 1)
+            .when()
+            .get("/products/export")
+            .asString()
+            .lines()
+            .toList();
+
+    assertThat(lines).singleElement().asString().contains("\"id\":" + productId);
+  }
+
+  @Test
+  void mustCompressExport_WhenClientAcceptsGzip() throws IOException {
+    Response response =
+        given()
+            .config(
+                RestAssured.config()
+                    .decoderConfig(DecoderConfig.decoderConfig().noContentDecoders()))
+            .header("Accept-Encoding", "gzip")
+            .param("after", productId - 1)
+            .when()
+            .get("/products/export");
+
+    response.then().statusCode(HttpStatus.OK.value()).header("Content-Encoding", equalTo("gzip"));
+    try (GZIPInputStream in =
+        new GZIPInputStream(new ByteArrayInputStream(response.asByteArray()))) {
+      assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+          .contains("\"name\":\"Export\"");
+    }
+  }
+
+  @Test
+  void mustGenerateException_WhenFormatIsUnknown() {
+    given()
+        .param("format", "xml")
+        .when()
+        .get("/products/export")
+        .then()
+        .statusCode(HttpStatus.BAD_REQUEST.value())
+        .body("message", equalTo("The format must be ndjson or csv."));
+  }
+
+  private static ProductLoad read(String line) {
+    DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer(";");
+    tokenizer.setNames("name", "description", "amount", "price", "active");
+    return new ProductLoadMapper().mapFieldSet(tokenizer.tokenize(line));
+  }
+}
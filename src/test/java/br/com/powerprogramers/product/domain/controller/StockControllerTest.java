@@ -1,8 +1,10 @@
 package br.com.powerprogramers.product.domain.controller;
 
+import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -13,9 +15,11 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import br.com.powerprogramers.product.domain.dto.ProductDto;
 import br.com.powerprogramers.product.domain.service.StockService;
+import br.com.powerprogramers.product.domain.service.idempotency.IdempotencyStore;
 import br.com.powerprogramers.product.domain.utils.ProductHelper;
 import com.callibrity.logging.test.LogTracker;
 import com.callibrity.logging.test.LogTrackerStub;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,11 +41,14 @@ class StockControllerTest {
   private AutoCloseable openMocks;
 
   @Mock private StockService stockService;
+  @Mock private IdempotencyStore idempotencyStore;
 
   @BeforeEach
   void setUp() {
     this.openMocks = MockitoAnnotations.openMocks(this);
-    StockController stockController = new StockController(stockService);
+    when(idempotencyStore.execute(any(), anyLong(), anyInt(), any()))
+        .thenAnswer(i -> i.<Supplier<ProductDto>>getArgument(3).get());
+    StockController stockController = new StockController(stockService, idempotencyStore);
     mockMvc =
         MockMvcBuilders.standaloneSetup(stockController)
             .setControllerAdvice(new ProductExceptionHandler())
@@ -73,6 +80,22 @@ class StockControllerTest {
     verify(stockService, times(1)).updateStock(anyLong(), anyInt());
   }
 
+  @Test
+  void mustPassIdempotencyKey_WhenHeaderIsSent() throws Exception {
+    ProductDto productDto = ProductHelper.generateProductDto(true);
+
+    when(stockService.updateStock(anyLong(), anyInt())).thenReturn(productDto);
+
+    mockMvc
+        .perform(
+            patch("/stock/{id}", ProductHelper.ID)
+                .param("amount", "50")
+                .header("Idempotency-Key", "key-1"))
+        .andExpect(status().isOk());
+
+    verify(idempotencyStore, times(1)).execute(eq("key-1"), eq(ProductHelper.ID), eq(50), any());
+  }
+
   @Test
   void mustGenerateException_WhenUpdateStockFails() throws Exception {
 
@@ -0,0 +1,135 @@
+package br.com.powerprogramers.product.domain.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.com.powerprogramers.product.domain.model.ProductCursor;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// runs only against a Postgres given in the environment, the plans of H2 tell nothing
+@EnabledIfEnvironmentVariable(named = "PRODUCT_PLAN_DATABASE_URL", matches = ".+")
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=${PRODUCT_PLAN_DATABASE_URL}",
+      "spring.datasource.username=${PRODUCT_PLAN_DATABASE_USERNAME:postgres}",
+      "spring.datasource.password=${PRODUCT_PLAN_DATABASE_PASSWORD:postgres}",
+      "spring.sql.init.mode=never"
+    })
+@Transactional
+class ProductListingPlanIT {
+
+  @Autowired private ProductSearchRepositoryImpl productSearchRepository;
+  @Autowired private EntityManager entityManager;
+
+  @BeforeEach
+  void setup() {
+    // the tables of a test database are too small for the planner to prefer an index on its own
+    this.entityManager.createNativeQuery("SET LOCAL enable_seqscan = off").executeUpdate();
+    this.entityManager.createNativeQuery("SET LOCAL enable_sort = off").executeUpdate();
+  }
+
+  @Test
+  void mustSortByPriceOnActivePriceIndex() {
+    String plan =
+        this.explain(new ProductFacets(BigDecimal.ONE, BigDecimal.TEN, null, ProductSort.PRICE));
+
+    assertThat(plan).contains("product_active_price_id").doesNotContain("Sort Key");
+  }
+
+  @Test
+  void mustSortProductsInStockOnPartialIndex() {
+    String plan = this.explain(new ProductFacets(null, null, true, ProductSort.PRICE_DESC));
+
+    assertThat(plan)
+        .containsAnyOf("product_in_stock_price_id", "product_active_price_id")
+        .doesNotContain("Sort Key");
+  }
+
+  @Test
+  void mustContinueSortByNameOnActiveNameIndex() {
+    String plan =
+        this.explain(
+            new ProductFacets(null, null, null, ProductSort.NAME_DESC),
+            new ProductCursor.Position(10L, "Orange"));
+
+    assertThat(plan).contains("product_active_name_id").doesNotContain("Sort Key");
+  }
+
+  @Test
+  void mustSortByAmountOnActiveAmountIndex() {
+    String plan =
+        this.explain(
+            new ProductFacets(null, null, null, ProductSort.AMOUNT),
+            new ProductCursor.Position(10L, 5));
+
+    assertThat(plan).contains("product_active_amount_id").doesNotContain("Sort Key");
+  }
+
+  @Test
+  void mustContinueProductsWithoutPriceOnActivePriceIndex() {
+    String plan =
+        this.explain(
+            new ProductFacets(null, null, null, ProductSort.PRICE_DESC),
+            new ProductCursor.Position(10L, null));
+
+    assertThat(plan).contains("product_active_price_id").doesNotContain("Sort Key");
+  }
+
+  @Test
+  void mustPlanEveryFilterShapeOnIndex() {
+    for (String name : Arrays.asList(null, "ange")) {
+      for (String description : Arrays.asList(null, "sweet")) {
+        for (boolean active : List.of(true, false)) {
+          for (BigDecimal minPrice : Arrays.asList(null, BigDecimal.ONE)) {
+            for (Boolean inStock : Arrays.asList(null, true)) {
+              ProductFacets facets = new ProductFacets(minPrice, null, inStock, ProductSort.ID);
+              String plan = this.explain(name, description, active, facets, null);
+
+              assertThat(plan)
+                  .as("%s / %s / %s / %s / %s", name, description, active, minPrice, inStock)
+                  .doesNotContain("Seq Scan");
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private String explain(ProductFacets facets) {
+    return this.explain(facets, null);
+  }
+
+  private String explain(ProductFacets facets, ProductCursor.Position after) {
+    return this.explain(null, null, true, facets, after);
+  }
+
+  @SuppressWarnings("unchecked")
+  private String explain(
+      String name,
+      String description,
+      boolean active,
+      ProductFacets facets,
+      ProductCursor.Position after) {
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    String select =
+        this.productSearchRepository.select(name, description, active, facets, after, parameters);
+    Query query = this.entityManager.createNativeQuery("EXPLAIN " + select + " LIMIT 11");
+    parameters.forEach(query::setParameter);
+    return ((List<Object>) query.getResultList())
+        .stream().map(String::valueOf).collect(Collectors.joining("\n"));
+  }
+}
@@ -0,0 +1,179 @@
+package br.com.powerprogramers.product.domain.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.model.ProductCursor;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductSort;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ProductSearchRepositoryImplTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private EntityManager entityManager;
+  @Mock private Query query;
+  @Mock private PostgresProductSearchSchema searchSchema;
+
+  private ProductSearchRepositoryImpl productSearchRepository;
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    when(searchSchema.folds()).thenReturn(true);
+    productSearchRepository = newRepository(false);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    openMocks.close();
+  }
+
+  @Test
+  void mustWriteOnlyGivenFilters() {
+    Map<String, Object> parameters = new HashMap<>();
+
+    String select =
+        productSearchRepository.select(null, "sweet", true, ProductFacets.NONE, null, parameters);
+
+    assertThat(select)
+        .contains("WHERE p.active = TRUE AND p.description LIKE :description ORDER BY p.id")
+        .doesNotContain("p.name LIKE", "IS NULL", ":active");
+    assertThat(parameters).containsExactly(Map.entry("description", "%sweet%"));
+  }
+
+  @Test
+  void mustReuseQueryOfSameShape() {
+    String first =
+        productSearchRepository.select("a", null, true, ProductFacets.NONE, null, new HashMap<>());
+    Map<String, Object> parameters = new HashMap<>();
+    String second =
+        productSearchRepository.select("b", null, true, ProductFacets.NONE, null, parameters);
+
+    assertThat(second).isSameAs(first);
+    assertThat(parameters).containsEntry("name", "%b%");
+    assertThat(productSearchRepository.shapes()).isEqualTo(1);
+
+    productSearchRepository.select("a", null, false, ProductFacets.NONE, null, new HashMap<>());
+    when(entityManager.createQuery(anyString())).thenReturn(query);
+    when(query.getSingleResult()).thenReturn(3L);
+    ProductFacets facets = new ProductFacets(null, null, true, ProductSort.PRICE);
+    assertThat(productSearchRepository.countSearchProducts("a", null, true, facets)).isEqualTo(3L);
+    productSearchRepository.countSearchProducts(
+        "a", null, true, new ProductFacets(null, null, true, ProductSort.NAME));
+
+    // the count ignores the order, so both orders share one count
+    assertThat(productSearchRepository.shapes()).isEqualTo(3);
+  }
+
+  @Test
+  void mustSearchPlainColumns_WhenPostgresCannotFoldText() {
+    when(searchSchema.folds()).thenReturn(false);
+    ProductSearchRepositoryImpl postgres = newRepository(true);
+    Map<String, Object> parameters = new HashMap<>();
+
+    String select = postgres.select("Tênis", null, true, ProductFacets.NONE, null, parameters);
+
+    assertThat(postgres.foldsText()).isFalse();
+    assertThat(select).contains("p.name LIKE :name").doesNotContain("product_fold");
+    assertThat(parameters).containsEntry("name", "%Tênis%");
+  }
+
+  @Test
+  void mustContinueOrderOnPostgresWithRowComparison() {
+    ProductSearchRepositoryImpl postgres = newRepository(true);
+    Map<String, Object> parameters = new HashMap<>();
+    ProductFacets facets = new ProductFacets(BigDecimal.ONE, null, true, ProductSort.PRICE_DESC);
+
+    String select =
+        postgres.select(
+            "Tênis",
+            null,
+            true,
+            facets,
+            new ProductCursor.Position(7L, new BigDecimal("2.50")),
+            parameters);
+
+    assertThat(select)
+        .startsWith("SELECT p.id, p.name")
+        .contains("product_fold(p.name) LIKE '%' || product_fold(:name) || '%'")
+        .contains("p.price >= :minPrice AND p.amount > 0 AND p.price IS NOT NULL")
+        .contains("(p.price, p.id) < (:afterValue, :after)")
+        .endsWith("ORDER BY p.price DESC, p.id DESC");
+    assertThat(parameters)
+        .containsOnly(
+            Map.entry("name", "Tênis"),
+            Map.entry("minPrice", BigDecimal.ONE),
+            Map.entry("after", 7L),
+            Map.entry("afterValue", new BigDecimal("2.50")));
+  }
+
+  @Test
+  void mustContinueAmongProductsWithoutValue_WhenCursorHasNone() {
+    ProductSearchRepositoryImpl postgres = newRepository(true);
+    Map<String, Object> parameters = new HashMap<>();
+    ProductFacets facets = new ProductFacets(null, null, null, ProductSort.PRICE_DESC);
+
+    String select =
+        postgres.select(null, null, true, facets, new ProductCursor.Position(7L, null), parameters);
+
+    assertThat(select)
+        .contains("WHERE p.active = TRUE AND p.price IS NULL AND p.id < :after")
+        .endsWith("ORDER BY p.id DESC");
+    assertThat(parameters).containsOnly(Map.entry("after", 7L));
+    assertThat(
+            ProductCursor.decode(
+                ProductCursor.encode(ProductSort.PRICE_DESC, view()), ProductSort.PRICE_DESC))
+        .isEqualTo(new ProductCursor.Position(7L, null));
+  }
+
+  @Test
+  void mustReadSlotStock_WhenProductsAreSplit() {
+    ProductSearchRepositoryImpl postgres = newRepository(true, Set.of(7L));
+    ProductFacets facets = new ProductFacets(null, null, true, ProductSort.AMOUNT_DESC);
+
+    String select =
+        postgres.select(
+            null, null, true, facets, new ProductCursor.Position(7L, 5), new HashMap<>());
+
+    String stock =
+        "(p.amount + COALESCE((SELECT SUM(s.amount) FROM product_stock_slot s"
+            + " WHERE s.product_id = p.id), 0))";
+    assertThat(select)
+        .startsWith("SELECT p.id, p.name, p.description, p.price, " + stock)
+        .contains(
+            " AND (p.amount > 0 OR p.id IN"
+                + " (SELECT s.product_id FROM product_stock_slot s WHERE s.amount > 0))")
+        .contains("(" + stock + ", p.id) < (:afterValue, :after)")
+        .endsWith("ORDER BY " + stock + " DESC, p.id DESC");
+  }
+
+  private static ProductView view() {
+    return new ProductView(7L, "Orange", null, null, null, true, 0L);
+  }
+
+  private ProductSearchRepositoryImpl newRepository(boolean postgres) {
+    return newRepository(postgres, Set.of());
+  }
+
+  private ProductSearchRepositoryImpl newRepository(boolean postgres, Set<Long> splitProductIds) {
+    ProductSearchRepositoryImpl repository =
+        new ProductSearchRepositoryImpl(entityManager, searchSchema, splitProductIds);
+    ReflectionTestUtils.setField(repository, "postgres", postgres);
+    return repository;
+  }
+}
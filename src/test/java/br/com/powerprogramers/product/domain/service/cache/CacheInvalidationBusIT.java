@@ -0,0 +1,87 @@
+package br.com.powerprogramers.product.domain.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.com.powerprogramers.product.ProductApplication;
+import br.com.powerprogramers.product.domain.service.ProductService;
+import br.com.powerprogramers.product.domain.service.StockService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/** Runs two instances of the catalog against one database. */
+class CacheInvalidationBusIT {
+
+  private static final String DATABASE = "jdbc:h2:mem:cache-invalidation-it;DB_CLOSE_DELAY=-1";
+
+  private static ConfigurableApplicationContext writer;
+  private static ConfigurableApplicationContext reader;
+
+  @BeforeAll
+  static void setUp() {
+    // the first instance creates and seeds the schema and relays the outbox
+    writer =
+        start(
+            "--product.outbox.relay.enabled=true",
+            "--product.outbox.relay.interval-ms=50",
+            "--product.cache.invalidation.poll-interval-ms=50");
+    reader =
+        start(
+            "--spring.jpa.hibernate.ddl-auto=none",
+            "--spring.sql.init.mode=never",
+            "--spring.batch.jdbc.initialize-schema=never",
+            "--product.cache.invalidation.poll-interval-ms=50");
+  }
+
+  @AfterAll
+  static void tearDown() {
+    reader.close();
+    writer.close();
+  }
+
+  @Test
+  void mustEvictOtherInstance_WhenProductChanges() throws InterruptedException {
+    ProductService readerProducts = reader.getBean(ProductService.class);
+    int amount = readerProducts.findById(1L).getAmount();
+    // the reader starts following the outbox from its last published change
+    reader.getBean(PollingCacheInvalidationBus.class).poll();
+
+    writer.getBean(StockService.class).updateStock(1L, 5);
+    try {
+      assertThat(awaitAmount(readerProducts, amount + 5)).isEqualTo(amount + 5);
+    } finally {
+      writer.getBean(StockService.class).updateStock(1L, -5);
+    }
+  }
+
+  private static int awaitAmount(ProductService productService, int expected)
+      throws InterruptedException {
+    int amount = productService.findById(1L).getAmount();
+    for (int i = 0; i < 100 && amount != expected; i++) {
+      Thread.sleep(50);
+      amount = productService.findById(1L).getAmount();
+    }
+    return amount;
+  }
+
+  private static ConfigurableApplicationContext start(String... args) {
+    return new SpringApplicationBuilder(ProductApplication.class)
+        .web(WebApplicationType.NONE)
+        .run(
+            concat(
+                args,
+                "--spring.datasource.url=" + DATABASE,
+                "--eureka.client.enabled=false",
+                "--spring.cloud.discovery.enabled=false"));
+  }
+
+  private static String[] concat(String[] args, String... more) {
+    String[] all = new String[args.length + more.length];
+    System.arraycopy(args, 0, all, 0, args.length);
+    System.arraycopy(more, 0, all, args.length, more.length);
+    return all;
+  }
+}
@@ -0,0 +1,95 @@
+package br.com.powerprogramers.product.domain.service.cache;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.entity.ProductChangeEntity;
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import br.com.powerprogramers.product.domain.repository.ProductChangeRepository;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+
+class PollingCacheInvalidationBusTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private ProductChangeRepository productChangeRepository;
+  @Mock private CacheInvalidationBus.Listener listener;
+
+  private PollingCacheInvalidationBus bus;
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    bus = new PollingCacheInvalidationBus(productChangeRepository, 3);
+    when(productChangeRepository.findLastPosition()).thenReturn(Optional.of(10L));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    openMocks.close();
+  }
+
+  @Test
+  void mustNotRead_WhenNobodySubscribed() {
+    bus.poll();
+
+    verifyNoInteractions(productChangeRepository);
+  }
+
+  @Test
+  void mustStartAtLastPosition() {
+    bus.subscribe(listener);
+
+    bus.poll();
+    bus.poll();
+
+    verify(productChangeRepository).findPublishedAfter(10L, PageRequest.of(0, 3));
+    verify(listener, never()).invalidate(any());
+  }
+
+  @Test
+  void mustInvalidateEachProductOncePerBatch() {
+    bus.subscribe(listener);
+    bus.poll();
+    when(productChangeRepository.findPublishedAfter(10L, PageRequest.of(0, 3)))
+        .thenReturn(List.of(change(11L, 1L), change(12L, 2L), change(13L, 1L)));
+    when(productChangeRepository.findPublishedAfter(13L, PageRequest.of(0, 3)))
+        .thenReturn(List.of(change(15L, 3L)));
+
+    bus.poll();
+    bus.poll();
+
+    verify(listener).invalidate(Set.of(1L, 2L));
+    verify(listener).invalidate(Set.of(3L));
+    verify(productChangeRepository).findPublishedAfter(eq(15L), any());
+  }
+
+  @Test
+  void mustNotPublish_AsOutboxHoldsChanges() {
+    bus.publish(List.of(1L));
+
+    verify(productChangeRepository, never()).findPublishedAfter(anyLong(), any());
+  }
+
+  private static ProductChangeEntity change(Long position, Long productId) {
+    return ProductChangeEntity.builder()
+        .id(position)
+        .position(position)
+        .productId(productId)
+        .type(ProductChange.Type.STOCK_CHANGED)
+        .build();
+  }
+}
@@ -0,0 +1,115 @@
+package br.com.powerprogramers.product.domain.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class PostgresCacheInvalidationBusTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private CacheInvalidationBus.Listener listener;
+
+  private PostgresCacheInvalidationBus bus;
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    bus =
+        new PostgresCacheInvalidationBus(
+            jdbcTemplate, "jdbc:postgresql://db/product", "", "", "product_cache");
+    bus.subscribe(listener);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    openMocks.close();
+  }
+
+  @Test
+  void mustSendRepeatedProductsOnce() {
+    bus.publish(List.of(1L, 2L));
+    bus.publish(List.of(2L));
+
+    bus.flush();
+    bus.flush();
+
+    ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+    verify(jdbcTemplate)
+        .queryForList(eq("SELECT pg_notify(?, ?)"), eq("product_cache"), payload.capture());
+    assertThat(payload.getValue()).endsWith(":1,2");
+  }
+
+  @Test
+  void mustSendAgain_WhenNotifyFails() {
+    bus.publish(List.of(1L));
+    when(jdbcTemplate.queryForList(anyString(), any(Object[].class)))
+        .thenThrow(new DataAccessResourceFailureException("database down"))
+        .thenReturn(List.of());
+
+    bus.flush();
+    bus.flush();
+
+    verify(jdbcTemplate, times(2)).queryForList(anyString(), any(Object[].class));
+  }
+
+  @Test
+  void mustSplitPayloads_WhenTooLarge() {
+    List<Long> ids = LongStream.range(1_000_000L, 1_002_000L).boxed().toList();
+
+    List<String> payloads = PostgresCacheInvalidationBus.payloads("node", ids);
+
+    assertThat(payloads).hasSizeGreaterThan(1);
+    assertThat(payloads).allMatch(p -> p.length() <= PostgresCacheInvalidationBus.MAX_PAYLOAD);
+    assertThat(payloads)
+        .flatMap(p -> List.of(p.substring("node:".length()).split(",")))
+        .hasSize(ids.size());
+  }
+
+  @Test
+  void mustInvalidateProducts_FromOtherInstance() {
+    bus.receive("other:3,4");
+
+    verify(listener).invalidate(List.of(3L, 4L));
+  }
+
+  @Test
+  void mustSkipOwnNotifications() {
+    bus.publish(List.of(5L));
+    bus.flush();
+    ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+    verify(jdbcTemplate).queryForList(anyString(), eq("product_cache"), payload.capture());
+
+    bus.receive(payload.getValue());
+
+    verify(listener, never()).invalidate(any());
+  }
+
+  @Test
+  void mustGenerateException_WhenChannelIsNotIdentifier() {
+    assertThatThrownBy(
+            () ->
+                new PostgresCacheInvalidationBus(
+                    jdbcTemplate, "", "", "", "cache; DROP TABLE product"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The invalidation channel must be a plain identifier.");
+  }
+}
@@ -0,0 +1,226 @@
+package br.com.powerprogramers.product.domain.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ProductCacheTest {
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CacheInvalidationBus cacheInvalidationBus = mock(CacheInvalidationBus.class);
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @AfterEach
+  void tearDown() {
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void mustLoadOnce_WhenProductIsReadTwice() {
+    ProductCache productCache = newCache(true);
+
+    productCache.get(1L, this::load);
+    ProductView result = productCache.get(1L, this::load);
+
+    assertThat(result.id()).isEqualTo(1L);
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(gets("hit")).isEqualTo(1);
+    assertThat(gets("miss")).isEqualTo(1);
+    assertThat(meterRegistry.find("cache.evictions").tag("cache", "product").meter()).isNotNull();
+  }
+
+  @Test
+  void mustShareLoad_WhenMissesAreConcurrent() throws Exception {
+    ProductCache productCache = newCache(true);
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<ProductView>> readers = new ArrayList<>();
+
+    for (int i = 0; i < 8; i++) {
+      readers.add(
+          executor.submit(
+              () -> {
+                start.await();
+                return productCache.get(
+                    1L,
+                    id -> {
+                      sleep();
+                      return load(id);
+                    });
+              }));
+    }
+    start.countDown();
+    for (Future<ProductView> reader : readers) {
+      assertThat(reader.get().id()).isEqualTo(1L);
+    }
+    executor.shutdown();
+
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  void mustLoadAgain_WhenProductIsEvicted() {
+    ProductCache productCache = newCache(true);
+    productCache.get(1L, this::load);
+
+    productCache.evict(1L);
+    productCache.get(1L, this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+    verify(cacheInvalidationBus).publish(List.of(1L));
+  }
+
+  @Test
+  void mustNotCache_WhenProductDoesNotExist() {
+    ProductCache productCache = newCache(true);
+
+    for (int i = 0; i < 2; i++) {
+      assertThatThrownBy(
+              () ->
+                  productCache.get(
+                      9L,
+                      id -> {
+                        loads.incrementAndGet();
+                        throw new ProductNotFoundException("/products");
+                      }))
+          .isInstanceOf(ProductNotFoundException.class);
+    }
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void mustBypassCache_InsideReadWriteTransaction() {
+    ProductCache productCache = newCache(true);
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+
+    productCache.get(1L, this::load);
+    productCache.get(1L, this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void mustEvictAgain_WhenTransactionEnds() {
+    ProductCache productCache = newCache(true);
+    TransactionSynchronizationManager.initSynchronization();
+    productCache.evict(1L);
+    // a concurrent reader loads the row before the write commits
+    productCache.get(1L, this::load);
+
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    productCache.get(1L, this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+    verify(cacheInvalidationBus).publish(List.of(1L));
+  }
+
+  @Test
+  void mustNotPublish_WhenTransactionRollsBack() {
+    ProductCache productCache = newCache(true);
+    TransactionSynchronizationManager.initSynchronization();
+    productCache.evictAll(List.of(1L, 2L));
+
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+    verify(cacheInvalidationBus, never()).publish(any());
+  }
+
+  @Test
+  void mustLoadAgain_WhenOtherInstanceChangesProduct() {
+    ProductCache productCache = newCache(true);
+    verify(cacheInvalidationBus).subscribe(productCache);
+    productCache.get(1L, this::load);
+    productCache.get(2L, this::load);
+
+    productCache.invalidate(List.of(1L));
+    productCache.get(1L, this::load);
+    productCache.get(2L, this::load);
+
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  void mustNotCache_WhenDisabled() {
+    ProductCache productCache = newCache(false);
+
+    productCache.get(1L, this::load);
+    productCache.get(1L, this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  private ProductCache newCache(boolean enabled) {
+    return new ProductCache(
+        enabled, 100, Duration.ofMinutes(1), meterRegistry, cacheInvalidationBus);
+  }
+
+  @Test
+  void mustLoadOnlyMissingProducts_WhenReadTogether() {
+    ProductCache productCache = newCache(true);
+    List<Set<? extends Long>> loaded = new ArrayList<>();
+    productCache.get(1L, this::load);
+
+    Map<Long, ProductView> result =
+        productCache.getAll(
+            Set.of(1L, 2L, 9L),
+            ids -> {
+              loaded.add(Set.copyOf(ids));
+              return Map.of(2L, load(2L));
+            });
+
+    assertThat(result).containsOnlyKeys(1L, 2L);
+    assertThat(loaded).containsExactly(Set.of(2L, 9L));
+    productCache.getAll(Set.of(1L, 2L), ids -> Map.of());
+    assertThat(loaded).hasSize(1);
+  }
+
+  private ProductView load(Long id) {
+    loads.incrementAndGet();
+    return new ProductView(id, null, null, null, 10, true, 0L);
+  }
+
+  private double gets(String result) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", "product")
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(100);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package br.com.powerprogramers.product.domain.service.coalesce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
+import br.com.powerprogramers.product.domain.service.cache.LocalCacheInvalidationBus;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProductReadCoalescerTest {
+
+  private final AtomicInteger reads = new AtomicInteger();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private MeterRegistry meterRegistry;
+  private ProductCache productCache;
+  private ProductReadCoalescer productReadCoalescer;
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    productCache =
+        new ProductCache(
+            true, 100, Duration.ofMinutes(1), meterRegistry, new LocalCacheInvalidationBus());
+    productReadCoalescer = new ProductReadCoalescer(productCache, meterRegistry, true);
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void mustShareRead_WhenIdenticalCallsOverlap() throws Exception {
+    Future<String> leader = read("findById", 1L, this::blockedRead);
+    await(() -> calls("findById", false) == 1);
+    Future<String> follower = read("findById", 1L, this::countedRead);
+    await(() -> calls("findById", true) == 1);
+    Future<String> other = read("findById", 2L, () -> "other");
+
+    assertThat(other.get()).isEqualTo("other");
+    release.countDown();
+
+    assertThat(leader.get()).isEqualTo("read");
+    assertThat(follower.get()).isEqualTo("read");
+    assertThat(reads.get()).isEqualTo(1);
+    assertThat(calls("findById", false)).isEqualTo(2);
+    assertThat(meterRegistry.get(ProductReadCoalescer.IN_FLIGHT).gauge().value()).isZero();
+  }
+
+  @Test
+  void mustReadAgain_WhenSharedReadEnded() {
+    productReadCoalescer.read("findById", List.of(1L), this::countedRead);
+    productReadCoalescer.read("findById", List.of(1L), this::countedRead);
+
+    assertThat(reads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void mustNotShareRead_WhenItStartedBeforeWriteCommitted() throws Exception {
+    Future<String> leader = read("findById", 1L, this::blockedRead);
+    await(() -> calls("findById", false) == 1);
+
+    productCache.evict(1L);
+    Future<String> writer = read("findById", 1L, () -> "written");
+
+    assertThat(writer.get()).isEqualTo("written");
+    release.countDown();
+    assertThat(leader.get()).isEqualTo("read");
+    assertThat(calls("findById", true)).isZero();
+  }
+
+  @Test
+  void mustPassException_ToEveryWaitingCall() throws Exception {
+    Future<String> leader =
+        read(
+            "findById",
+            1L,
+            () -> {
+              blockedRead();
+              throw new ProductNotFoundException("/products");
+            });
+    await(() -> calls("findById", false) == 1);
+    Future<String> follower = read("findById", 1L, this::countedRead);
+    await(() -> calls("findById", true) == 1);
+    release.countDown();
+
+    for (Future<String> call : List.of(leader, follower)) {
+      assertThatThrownBy(call::get)
+          .isInstanceOf(ExecutionException.class)
+          .cause()
+          .isInstanceOf(ProductNotFoundException.class);
+    }
+    assertThat(reads.get()).isEqualTo(1);
+  }
+
+  @Test
+  void mustLeaveReadRunning_WhenWaitingCallIsInterrupted() throws Exception {
+    Future<String> leader = read("findAll", 1L, this::blockedRead);
+    await(() -> calls("findAll", false) == 1);
+    Future<String> follower = read("findAll", 1L, this::countedRead);
+    await(() -> calls("findAll", true) == 1);
+
+    follower.cancel(true);
+    release.countDown();
+
+    assertThat(leader.get()).isEqualTo("read");
+    assertThat(reads.get()).isEqualTo(1);
+  }
+
+  @Test
+  void mustReadAgain_WhenSharedReadIsInterrupted() throws Exception {
+    Future<String> leader =
+        read(
+            "findAll",
+            1L,
+            () -> {
+              blockedRead();
+              Thread.currentThread().interrupt();
+              throw new CancellationException("interrupted");
+            });
+    await(() -> calls("findAll", false) == 1);
+    Future<String> follower = read("findAll", 1L, this::countedRead);
+    await(() -> calls("findAll", true) == 1);
+    release.countDown();
+
+    assertThatThrownBy(leader::get).cause().isInstanceOf(CancellationException.class);
+    assertThat(follower.get()).isEqualTo("read");
+    assertThat(reads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void mustNotShareReads_WhenDisabled() {
+    ProductReadCoalescer disabled = new ProductReadCoalescer(productCache, meterRegistry, false);
+
+    disabled.read("findById", List.of(1L), this::countedRead);
+
+    assertThat(reads.get()).isEqualTo(1);
+    assertThat(meterRegistry.find(ProductReadCoalescer.CALLS).counter()).isNull();
+  }
+
+  private Future<String> read(String operation, Long id, Supplier<String> read) {
+    return executor.submit(() -> productReadCoalescer.read(operation, List.of(id), read));
+  }
+
+  private String countedRead() {
+    reads.incrementAndGet();
+    return "read";
+  }
+
+  private String blockedRead() {
+    try {
+      release.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return countedRead();
+  }
+
+  // a call is counted before it reads or waits, so the read cannot end before the next one joins
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(condition.getAsBoolean()).isTrue();
+  }
+
+  private double calls(String operation, boolean shared) {
+    return meterRegistry
+        .counter(
+            ProductReadCoalescer.CALLS, "operation", operation, "shared", String.valueOf(shared))
+        .count();
+  }
+}
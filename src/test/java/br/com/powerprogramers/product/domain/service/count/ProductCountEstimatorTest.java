@@ -0,0 +1,111 @@
+package br.com.powerprogramers.product.domain.service.count;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductSort;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class ProductCountEstimatorTest {
+
+  private static final String EXPLAIN =
+      "EXPLAIN (FORMAT JSON) SELECT 1 FROM product WHERE active = true";
+
+  private AutoCloseable openMocks;
+
+  @Mock private ProductRepository productRepository;
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private DataSource dataSource;
+  @Mock private Connection connection;
+  @Mock private DatabaseMetaData databaseMetaData;
+
+  private ProductCountEstimator productCountEstimator;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    openMocks = MockitoAnnotations.openMocks(this);
+    when(jdbcTemplate.getDataSource()).thenReturn(dataSource);
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getMetaData()).thenReturn(databaseMetaData);
+    when(databaseMetaData.getDatabaseProductName()).thenReturn("H2");
+    productCountEstimator =
+        new ProductCountEstimator(
+            productRepository, jdbcTemplate, 100, Duration.ofMinutes(1), Duration.ofMinutes(10));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    openMocks.close();
+  }
+
+  @Test
+  void mustKeepCountPerFilter() {
+    when(productRepository.countSearchProducts("orange", null, true, ProductFacets.NONE)).thenReturn(12L);
+    when(productRepository.countSearchProducts(null, null, true, ProductFacets.NONE)).thenReturn(40L);
+
+    assertThat(productCountEstimator.estimate("orange", null, true, ProductFacets.NONE)).isEqualTo(12L);
+    assertThat(productCountEstimator.estimate("orange", null, true, ProductFacets.NONE)).isEqualTo(12L);
+    assertThat(productCountEstimator.estimate(null, null, true, ProductFacets.NONE)).isEqualTo(40L);
+
+    verify(productRepository, times(1)).countSearchProducts("orange", null, true, ProductFacets.NONE);
+    verify(jdbcTemplate, never()).queryForObject(anyString(), eq(String.class));
+  }
+
+  @Test
+  void mustTakePlannerEstimate_WhenPostgresListingIsOnlyFilteredByStatus() throws SQLException {
+    when(databaseMetaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+    when(jdbcTemplate.queryForObject(EXPLAIN, String.class))
+        .thenReturn("[{\"Plan\": {\"Node Type\": \"Seq Scan\", \"Plan Rows\": 98213}}]");
+
+    assertThat(productCountEstimator.estimate(null, null, true, ProductFacets.NONE)).isEqualTo(98213L);
+
+    verify(productRepository, never()).countSearchProducts(null, null, true, ProductFacets.NONE);
+  }
+
+  @Test
+  void mustShareCountOfFacetsAcrossOrders() throws SQLException {
+    when(databaseMetaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+    ProductFacets inStock = new ProductFacets(null, null, true, ProductSort.ID);
+    when(productRepository.countSearchProducts(null, null, true, inStock)).thenReturn(7L);
+
+    assertThat(
+            productCountEstimator.estimate(
+                null, null, true, new ProductFacets(null, null, true, ProductSort.PRICE)))
+        .isEqualTo(7L);
+    assertThat(
+            productCountEstimator.estimate(
+                null, null, true, new ProductFacets(null, null, true, ProductSort.NAME_DESC)))
+        .isEqualTo(7L);
+
+    verify(productRepository, times(1)).countSearchProducts(null, null, true, inStock);
+    verify(jdbcTemplate, never()).queryForObject(anyString(), eq(String.class));
+  }
+
+  @Test
+  void mustCountFilter_WhenPlannerFails() throws SQLException {
+    when(databaseMetaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+    when(jdbcTemplate.queryForObject(EXPLAIN, String.class))
+        .thenThrow(new DataAccessResourceFailureException("database down"));
+    when(productRepository.countSearchProducts(null, null, true, ProductFacets.NONE)).thenReturn(40L);
+
+    assertThat(productCountEstimator.estimate(null, null, true, ProductFacets.NONE)).isEqualTo(40L);
+  }
+}
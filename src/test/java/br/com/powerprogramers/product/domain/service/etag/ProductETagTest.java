@@ -0,0 +1,94 @@
+package br.com.powerprogramers.product.domain.service.etag;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.dto.PagedProductDto;
+import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.service.counter.StockCounter;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.utils.ProductHelper;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+class ProductETagTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private StockCounters stockCounters;
+  @Mock private StockCounter stockCounter;
+
+  private ProductETag productETag;
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    productETag = new ProductETag(stockCounters);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    openMocks.close();
+  }
+
+  @Test
+  void mustTagProductWithVersion() {
+    assertThat(productETag.of(ProductHelper.generateProductDto(true).version(4L)))
+        .isEqualTo("\"4\"");
+    assertThat(productETag.of(ProductHelper.generateProductDto(true))).isNull();
+  }
+
+  @Test
+  void mustAddStock_WhenStockIsKeptByCounter() {
+    when(stockCounters.find(ProductHelper.ID)).thenReturn(Optional.of(stockCounter));
+
+    String etag = productETag.of(ProductHelper.generateProductDto(true).version(4L).amount(140));
+
+    assertThat(etag).isEqualTo("\"4-140\"");
+    assertThat(ProductETag.version(etag)).isEqualTo(4L);
+  }
+
+  @Test
+  void mustChangePageTag_WhenAnyProductChanges() {
+    PagedProductDto page = page(ProductHelper.generateProductDto(true).version(4L));
+
+    String etag = productETag.of(page);
+
+    assertThat(etag).startsWith("\"").endsWith("\"").hasSize(34);
+    assertThat(productETag.of(page(ProductHelper.generateProductDto(true).version(4L))))
+        .isEqualTo(etag);
+    assertThat(productETag.of(page(ProductHelper.generateProductDto(true).version(5L))))
+        .isNotEqualTo(etag);
+    assertThat(productETag.of(page(ProductHelper.generateProductDto(true).version(4L)).total(2L)))
+        .isNotEqualTo(etag);
+  }
+
+  @Test
+  void mustMatchIfNoneMatchWeakly() {
+    assertThat(ProductETag.matches("\"4\"", "\"4\"")).isTrue();
+    assertThat(ProductETag.matches("W/\"4\"", "\"4\"")).isTrue();
+    assertThat(ProductETag.matches("\"3\", \"4\"", "\"4\"")).isTrue();
+    assertThat(ProductETag.matches("*", "\"4\"")).isTrue();
+    assertThat(ProductETag.matches("\"3\"", "\"4\"")).isFalse();
+    assertThat(ProductETag.matches(null, "\"4\"")).isFalse();
+    assertThat(ProductETag.matches("\"4\"", null)).isFalse();
+  }
+
+  @Test
+  void mustReadVersionFromIfMatch() {
+    assertThat(ProductETag.version("\"4\"")).isEqualTo(4L);
+    assertThat(ProductETag.version("W/\"4\"")).isEqualTo(4L);
+    assertThat(ProductETag.version("*")).isNull();
+    assertThat(ProductETag.version(null)).isNull();
+    assertThat(ProductETag.version("\"abc\"")).isEqualTo(-1L);
+  }
+
+  private static PagedProductDto page(ProductDto product) {
+    return new PagedProductDto().page(0).perPage(10).total(1L).items(List.of(product));
+  }
+}
@@ -0,0 +1,82 @@
+package br.com.powerprogramers.product.domain.service.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.batch.job.ProductLoadMapper;
+import br.com.powerprogramers.product.domain.model.ProductExportFormat;
+import br.com.powerprogramers.product.domain.model.ProductLoad;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import br.com.powerprogramers.product.domain.service.counter.StockCounter;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class ProductExporterTest {
+
+  @Test
+  void mustWriteCsvReadByProductLoad() {
+    ProductView product =
+        new ProductView(
+            7L, "Lime; \"Tahiti\"", "-- sour\r\nand green", new BigDecimal("1E+1"), 3, false, 2L);
+
+    String line = ProductExporter.csv(product);
+
+    assertThat(line).endsWith("\n").doesNotStartWith("--");
+    ProductLoad load = read(line.substring(0, line.length() - 1));
+    assertThat(load.getName()).isEqualTo("Lime; \"Tahiti\"");
+    assertThat(load.getDescription()).isEqualTo("-- sour and green");
+    assertThat(load.getAmount()).isEqualTo(3);
+    assertThat(load.getPrice()).isEqualByComparingTo("10");
+    assertThat(load.isActive()).isFalse();
+  }
+
+  @Test
+  void mustWriteEmptyFields_WhenPriceOrAmountIsMissing() {
+    ProductView product = new ProductView(7L, "Lime", "Sour", null, null, true, null);
+
+    assertThat(ProductExporter.csv(product)).isEqualTo("\"Lime\";\"Sour\";;;true\n");
+  }
+
+  @Test
+  void mustWriteStockOfCounter_WhenProductStockIsKeptOutsideRow() {
+    StockCounter stockCounter = mock(StockCounter.class);
+    StockCounters stockCounters = mock(StockCounters.class);
+    when(stockCounters.find(7L)).thenReturn(Optional.of(stockCounter));
+    when(stockCounter.available(7L)).thenReturn(42L);
+    ProductExporter productExporter =
+        new ProductExporter(
+            mock(JdbcTemplate.class),
+            mock(PlatformTransactionManager.class),
+            new ObjectMapper(),
+            stockCounters,
+            10);
+    ProductView product = new ProductView(7L, "Lime", "Sour", BigDecimal.ONE, 0, true, 1L);
+    ProductView other = new ProductView(8L, "Lemon", "Sour", BigDecimal.ONE, 5, true, 1L);
+
+    assertThat(productExporter.withStock(product).amount()).isEqualTo(42);
+    assertThat(productExporter.withStock(other)).isSameAs(other);
+  }
+
+  @Test
+  void mustFindFormatByName() {
+    assertThat(ProductExportFormat.of(null)).isEqualTo(ProductExportFormat.NDJSON);
+    assertThat(ProductExportFormat.of("csv")).isEqualTo(ProductExportFormat.CSV);
+    assertThatThrownBy(() -> ProductExportFormat.of("xml"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The format must be ndjson or csv.");
+  }
+
+  private static ProductLoad read(String line) {
+    DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer(";");
+    tokenizer.setNames("name", "description", "amount", "price", "active");
+    return new ProductLoadMapper().mapFieldSet(tokenizer.tokenize(line));
+  }
+}
@@ -0,0 +1,62 @@
+package br.com.powerprogramers.product.domain.service.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.repository.IdempotencyKeyRepository;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.StockService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Transactional
+class IdempotencyStoreIT {
+
+  @Autowired private IdempotencyStore idempotencyStore;
+  @Autowired private IdempotencyKeyRepository idempotencyKeyRepository;
+  @Autowired private IdempotencyWriter idempotencyWriter;
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private ProductRepository productRepository;
+  @Autowired private StockService stockService;
+
+  @Test
+  void mustRemoveStockOnce_WhenRequestIsRetried() {
+    ProductDto first =
+        idempotencyStore.execute("order-1", 1L, -10, () -> stockService.updateStock(1L, -10));
+    ProductDto retry =
+        idempotencyStore.execute("order-1", 1L, -10, () -> stockService.updateStock(1L, -10));
+
+    assertThat(first.getAmount()).isEqualTo(140);
+    assertThat(retry.getAmount()).isEqualTo(140);
+    assertThat(productRepository.findById(1L).orElseThrow().getAmount()).isEqualTo(140);
+    assertThat(idempotencyKeyRepository.findById("order-1")).isPresent();
+  }
+
+  // runs outside the test transaction, as a retry after a restart would, and undoes its writes
+  @Test
+  @Transactional(Transactional.TxType.NOT_SUPPORTED)
+  void mustReturnStoredResult_WhenKeyIsNotInMemory() {
+    try {
+      idempotencyStore.execute("order-2", 1L, -10, () -> stockService.updateStock(1L, -10));
+      IdempotencyStore restarted =
+          new IdempotencyStore(
+              idempotencyKeyRepository, idempotencyWriter, objectMapper, Duration.ofHours(1), 10);
+
+      ProductDto retry =
+          restarted.execute("order-2", 1L, -10, () -> stockService.updateStock(1L, -10));
+
+      assertThat(retry.getAmount()).isEqualTo(140);
+      assertThat(productRepository.findById(1L).orElseThrow().getAmount()).isEqualTo(140);
+    } finally {
+      idempotencyKeyRepository.deleteById("order-2");
+      productRepository.addAmount(1L, 10);
+    }
+  }
+}
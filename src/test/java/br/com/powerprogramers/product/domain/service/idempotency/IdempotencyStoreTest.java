@@ -0,0 +1,159 @@
+package br.com.powerprogramers.product.domain.service.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.entity.IdempotencyKeyEntity;
+import br.com.powerprogramers.product.domain.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class IdempotencyStoreTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private IdempotencyKeyRepository idempotencyKeyRepository;
+  @Mock private IdempotencyWriter idempotencyWriter;
+
+  private final AtomicInteger updates = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    when(idempotencyWriter.write(anyString(), anyLong(), anyInt(), any()))
+        .thenAnswer(i -> i.<Supplier<ProductDto>>getArgument(3).get());
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    openMocks.close();
+  }
+
+  @Test
+  void mustAlwaysUpdate_WhenKeyIsAbsent() {
+    IdempotencyStore idempotencyStore = newStore(10);
+
+    idempotencyStore.execute(null, 1L, -1, this::update);
+    idempotencyStore.execute(null, 1L, -1, this::update);
+
+    assertThat(updates.get()).isEqualTo(2);
+    verify(idempotencyWriter, never()).write(any(), any(), any(), any());
+  }
+
+  @Test
+  void mustReturnFirstResult_WhenKeyIsRepeated() {
+    IdempotencyStore idempotencyStore = newStore(10);
+
+    ProductDto first = idempotencyStore.execute("key-1", 1L, -1, this::update);
+    ProductDto second = idempotencyStore.execute("key-1", 1L, -1, this::update);
+
+    assertThat(second).isSameAs(first);
+    assertThat(updates.get()).isEqualTo(1);
+  }
+
+  @Test
+  void mustGenerateException_WhenKeyIsUsedForAnotherRequest() {
+    IdempotencyStore idempotencyStore = newStore(10);
+    idempotencyStore.execute("key-1", 1L, -1, this::update);
+
+    assertThatThrownBy(() -> idempotencyStore.execute("key-1", 1L, -2, this::update))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The idempotency key was already used for another request.");
+    assertThat(updates.get()).isEqualTo(1);
+  }
+
+  @Test
+  void mustReturnStoredResult_WhenKeyIsOnlyInDatabase() {
+    IdempotencyStore idempotencyStore = newStore(10);
+    when(idempotencyWriter.write(eq("key-1"), anyLong(), anyInt(), any()))
+        .thenThrow(new DataIntegrityViolationException("duplicate key"));
+    when(idempotencyKeyRepository.findById("key-1"))
+        .thenReturn(
+            Optional.of(
+                IdempotencyKeyEntity.builder()
+                    .id("key-1")
+                    .productId(1L)
+                    .amount(-1)
+                    .result("{\"id\":1,\"amount\":149}")
+                    .createdAt(Instant.now())
+                    .build()));
+
+    ProductDto result = idempotencyStore.execute("key-1", 1L, -1, this::update);
+    idempotencyStore.execute("key-1", 1L, -1, this::update);
+
+    assertThat(result.getAmount()).isEqualTo(149);
+    assertThat(updates.get()).isZero();
+    verify(idempotencyKeyRepository, times(1)).findById("key-1");
+  }
+
+  @Test
+  void mustUpdateAgain_WhenKeyInDatabaseIsExpired() {
+    IdempotencyStore idempotencyStore = newStore(10);
+    when(idempotencyWriter.write(eq("key-1"), anyLong(), anyInt(), any()))
+        .thenThrow(new DataIntegrityViolationException("duplicate key"))
+        .thenAnswer(i -> i.<Supplier<ProductDto>>getArgument(3).get());
+    when(idempotencyKeyRepository.findById("key-1"))
+        .thenReturn(
+            Optional.of(
+                IdempotencyKeyEntity.builder()
+                    .id("key-1")
+                    .productId(1L)
+                    .amount(-1)
+                    .result("{\"id\":1,\"amount\":149}")
+                    .createdAt(Instant.now().minus(Duration.ofHours(2)))
+                    .build()));
+
+    ProductDto result = idempotencyStore.execute("key-1", 1L, -1, this::update);
+
+    assertThat(result.getAmount()).isEqualTo(149);
+    assertThat(updates.get()).isEqualTo(1);
+    verify(idempotencyKeyRepository).deleteCreatedBefore(eq("key-1"), any(Instant.class));
+    verify(idempotencyWriter, times(2)).write(eq("key-1"), anyLong(), anyInt(), any());
+  }
+
+  @Test
+  void mustForgetOldestKey_WhenStoreIsFull() {
+    IdempotencyStore idempotencyStore = newStore(1);
+
+    idempotencyStore.execute("key-1", 1L, -1, this::update);
+    idempotencyStore.execute("key-2", 1L, -1, this::update);
+    idempotencyStore.execute("key-2", 1L, -1, this::update);
+    idempotencyStore.execute("key-1", 1L, -1, this::update);
+
+    verify(idempotencyWriter, times(1)).write(eq("key-2"), anyLong(), anyInt(), any());
+    verify(idempotencyWriter, times(2)).write(eq("key-1"), anyLong(), anyInt(), any());
+  }
+
+  private IdempotencyStore newStore(int maxEntries) {
+    return new IdempotencyStore(
+        idempotencyKeyRepository,
+        idempotencyWriter,
+        new ObjectMapper(),
+        Duration.ofHours(1),
+        maxEntries);
+  }
+
+  private ProductDto update() {
+    return new ProductDto().id(1L).amount(150 - updates.incrementAndGet());
+  }
+}
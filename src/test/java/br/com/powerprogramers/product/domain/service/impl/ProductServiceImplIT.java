@@ -7,13 +7,31 @@ import br.com.powerprogramers.product.domain.dto.CreateProductDto;
 import br.com.powerprogramers.product.domain.dto.PagedProductDto;
 import br.com.powerprogramers.product.domain.dto.ProductDto;
 import br.com.powerprogramers.product.domain.dto.UpdateProductDto;
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
 import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
+import br.com.powerprogramers.product.domain.model.ProductCount;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductQuery;
+import br.com.powerprogramers.product.domain.model.ProductSort;
 import br.com.powerprogramers.product.domain.repository.ProductRepository;
 import br.com.powerprogramers.product.domain.service.ProductService;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import br.com.powerprogramers.product.domain.service.coalesce.ProductReadCoalescer;
+import br.com.powerprogramers.product.domain.service.count.ProductCountEstimator;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.outbox.ProductOutbox;
+import br.com.powerprogramers.product.domain.service.search.ProductTextIndex;
+import br.com.powerprogramers.product.domain.service.snapshot.ProductSnapshot;
 import br.com.powerprogramers.product.domain.service.usecase.create.CreateProductUseCase;
 import br.com.powerprogramers.product.domain.utils.ProductHelper;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
@@ -25,11 +43,34 @@ import org.springframework.boot.test.context.SpringBootTest;
 class ProductServiceImplIT {
 
   private final ProductService productService;
+  private final ProductRepository productRepository;
+  private final EntityManager entityManager;
 
   @Autowired
   public ProductServiceImplIT(
-      ProductRepository productRepository, CreateProductUseCase createProductUseCase) {
-    this.productService = new ProductServiceImpl(productRepository, createProductUseCase);
+      EntityManager entityManager,
+      ProductRepository productRepository,
+      CreateProductUseCase createProductUseCase,
+      StockCounters stockCounters,
+      ProductOutbox productOutbox,
+      ProductCache productCache,
+      ProductCountEstimator productCountEstimator,
+      ProductTextIndex productTextIndex,
+      ProductSnapshot productSnapshot,
+      ProductReadCoalescer productReadCoalescer) {
+    this.productService =
+        new ProductServiceImpl(
+            productRepository,
+            createProductUseCase,
+            stockCounters,
+            productOutbox,
+            productCache,
+            productCountEstimator,
+            productTextIndex,
+            productSnapshot,
+            productReadCoalescer);
+    this.productRepository = productRepository;
+    this.entityManager = entityManager;
   }
 
   @Test
@@ -59,7 +100,9 @@ class ProductServiceImplIT {
   @Test
   void mustFindAllProductsSuccessfully() {
 
-    PagedProductDto result = productService.findAll(0, 10, "Orange", null, true);
+    PagedProductDto result =
+        productService.findAll(
+            ProductQuery.builder().page(0).perPage(10).name("Orange").active(true).build());
 
     assertThat(result).isNotNull();
     assertThat(result.getItems()).hasSizeGreaterThanOrEqualTo(1);
@@ -74,6 +117,236 @@ class ProductServiceImplIT {
     assertThat(result.getItems().get(0).isActive()).isTrue();
   }
 
+  @Test
+  void mustFindSameProducts_WhenFollowingCursor() {
+    for (int i = 0; i < 4; i++) {
+      productService.save(ProductHelper.generateCreateProductDto());
+    }
+    List<Long> expected =
+        productService
+            .findAll(ProductQuery.builder().page(0).perPage(100).active(true).build())
+            .getItems()
+            .stream()
+            .map(ProductDto::getId)
+            .toList();
+
+    PagedProductDto page =
+        productService.findAll(ProductQuery.builder().page(0).perPage(2).active(true).build());
+    List<Long> ids = new ArrayList<>(page.getItems().stream().map(ProductDto::getId).toList());
+    while (page.getNext() != null) {
+      page =
+          productService.findAll(
+              ProductQuery.builder().after(page.getNext()).perPage(2).active(true).build());
+      assertThat(page.getItems()).hasSizeBetween(1, 2);
+      page.getItems().forEach(p -> ids.add(p.getId()));
+    }
+
+    assertThat(ids).hasSizeGreaterThanOrEqualTo(5).isEqualTo(expected);
+  }
+
+  @Test
+  void mustReadProductsWithoutManagingEntities() {
+    productService.save(ProductHelper.generateCreateProductDto());
+    entityManager.flush();
+    entityManager.clear();
+
+    productService.findById(1L);
+    productService.findAll(ProductQuery.builder().page(0).perPage(10).active(true).build());
+    productService.findAll(
+        ProductQuery.builder()
+            .page(0)
+            .perPage(10)
+            .name("Orange")
+            .active(true)
+            .count(ProductCount.NONE)
+            .build());
+
+    assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+  }
+
+  @Test
+  void mustSearchSameProductsByText_WhenFollowingCursor() {
+    for (int i = 0; i < 3; i++) {
+      productService.save(ProductHelper.generateCreateProductDto().name("Orange " + i));
+    }
+
+    PagedProductDto first =
+        productService.findAll(
+            ProductQuery.builder().page(0).perPage(2).name("Orange").active(true).build());
+    PagedProductDto second =
+        productService.findAll(
+            ProductQuery.builder()
+                .after(first.getNext())
+                .perPage(2)
+                .name("Orange")
+                .active(true)
+                .build());
+
+    assertThat(first.getTotal()).isEqualTo(4L);
+    assertThat(first.getItems()).hasSize(2);
+    assertThat(second.getItems()).hasSize(2);
+    assertThat(second.getNext()).isNull();
+    assertThat(second.getItems().get(0).getId()).isGreaterThan(first.getItems().get(1).getId());
+    assertThat(
+            productService
+                .findAll(
+                    ProductQuery.builder().page(0).perPage(2).name("orange").active(true).build())
+                .getTotal())
+        .isZero();
+  }
+
+  @Test
+  void mustFindSameProductsByPrice_WhenFollowingCursor() {
+    String[] prices = {"3.00", "1.00", "3.00", "2.00", "3.00", "0.50"};
+    List<ProductDto> saved = new ArrayList<>();
+    for (String price : prices) {
+      saved.add(
+          productService.save(
+              ProductHelper.generateCreateProductDto().name("Facet").price(new BigDecimal(price))));
+    }
+    ProductFacets facets = new ProductFacets(BigDecimal.ONE, null, true, ProductSort.PRICE_DESC);
+    List<Long> expected =
+        saved.stream()
+            .filter(p -> p.getPrice().compareTo(BigDecimal.ONE) >= 0)
+            .sorted(
+                Comparator.comparing(ProductDto::getPrice)
+                    .thenComparing(ProductDto::getId)
+                    .reversed())
+            .map(ProductDto::getId)
+            .toList();
+
+    PagedProductDto page =
+        productService.findAll(
+            ProductQuery.builder()
+                .page(0)
+                .perPage(2)
+                .name("Facet")
+                .active(true)
+                .facets(facets)
+                .build());
+    List<Long> ids = new ArrayList<>(page.getItems().stream().map(ProductDto::getId).toList());
+    while (page.getNext() != null) {
+      page =
+          productService.findAll(
+              ProductQuery.builder()
+                  .after(page.getNext())
+                  .perPage(2)
+                  .name("Facet")
+                  .active(true)
+                  .facets(facets)
+                  .build());
+      page.getItems().forEach(p -> ids.add(p.getId()));
+    }
+
+    assertThat(ids).isEqualTo(expected);
+    assertThat(
+            productService
+                .findAll(
+                    ProductQuery.builder()
+                        .page(0)
+                        .perPage(2)
+                        .name("Facet")
+                        .active(true)
+                        .facets(facets)
+                        .build())
+                .getTotal())
+        .isEqualTo(5L);
+  }
+
+  @Test
+  void mustListProductsWithoutAmount_LastInAmountOrder() {
+    List<Long> ids = new ArrayList<>();
+    for (Integer amount : Arrays.asList(2, null, 1, null, 3)) {
+      ids.add(
+          productRepository
+              .saveAndFlush(
+                  ProductEntity.builder()
+                      .name("Unknown stock")
+                      .description("Loaded without stock")
+                      .amount(amount)
+                      .price(BigDecimal.ONE)
+                      .active(true)
+                      .build())
+              .getId());
+    }
+    ProductFacets facets = new ProductFacets(null, null, null, ProductSort.AMOUNT_DESC);
+    List<Long> expected = List.of(ids.get(4), ids.get(0), ids.get(2), ids.get(3), ids.get(1));
+
+    PagedProductDto page =
+        productService.findAll(
+            ProductQuery.builder()
+                .page(0)
+                .perPage(2)
+                .name("Unknown stock")
+                .active(true)
+                .facets(facets)
+                .build());
+    List<Long> found = new ArrayList<>(page.getItems().stream().map(ProductDto::getId).toList());
+    while (page.getNext() != null) {
+      page =
+          productService.findAll(
+              ProductQuery.builder()
+                  .after(page.getNext())
+                  .perPage(2)
+                  .name("Unknown stock")
+                  .active(true)
+                  .facets(facets)
+                  .build());
+      page.getItems().forEach(p -> found.add(p.getId()));
+    }
+
+    assertThat(found).isEqualTo(expected);
+    assertThat(page.getTotal()).isNull();
+    PagedProductDto last =
+        productService.findAll(
+            ProductQuery.builder()
+                .page(2)
+                .perPage(2)
+                .name("Unknown stock")
+                .active(true)
+                .facets(facets)
+                .build());
+    assertThat(last.getItems()).extracting(ProductDto::getId).containsExactly(ids.get(1));
+    assertThat(last.getTotal()).isEqualTo(5L);
+  }
+
+  @Test
+  void mustKeepEstimatedCount_UntilRefreshed() {
+    productService.save(ProductHelper.generateCreateProductDto());
+    productService.save(ProductHelper.generateCreateProductDto());
+    PagedProductDto exact =
+        productService.findAll(ProductQuery.builder().page(0).perPage(1).active(true).build());
+
+    PagedProductDto estimated =
+        productService.findAll(
+            ProductQuery.builder()
+                .page(0)
+                .perPage(1)
+                .active(true)
+                .count(ProductCount.ESTIMATE)
+                .build());
+    productService.save(ProductHelper.generateCreateProductDto());
+
+    assertThat(estimated.getTotal()).isEqualTo(exact.getTotal());
+    assertThat(estimated.isEstimated()).isTrue();
+    assertThat(
+            productService
+                .findAll(
+                    ProductQuery.builder()
+                        .page(0)
+                        .perPage(1)
+                        .active(true)
+                        .count(ProductCount.ESTIMATE)
+                        .build())
+                .getTotal())
+        .isEqualTo(exact.getTotal());
+    assertThat(
+            productService
+                .findAll(ProductQuery.builder().page(0).perPage(1).active(true).build())
+                .getTotal())
+        .isEqualTo(exact.getTotal() + 1);
+  }
+
   @Test
   void mustSaveProductSuccessfully() {
     CreateProductDto createProductDto = ProductHelper.generateCreateProductDto();
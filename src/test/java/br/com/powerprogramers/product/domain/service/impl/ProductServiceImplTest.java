@@ -3,31 +3,58 @@ package br.com.powerprogramers.product.domain.service.impl;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import br.com.powerprogramers.product.domain.dto.CreateProductDto;
 import br.com.powerprogramers.product.domain.dto.PagedProductDto;
 import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.dto.ProductLookupDto;
 import br.com.powerprogramers.product.domain.dto.UpdateProductDto;
 import br.com.powerprogramers.product.domain.entity.ProductEntity;
 import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
+import br.com.powerprogramers.product.domain.exceptions.ProductPreconditionFailedException;
 import br.com.powerprogramers.product.domain.mappers.ProductMapper;
 import br.com.powerprogramers.product.domain.model.Product;
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import br.com.powerprogramers.product.domain.model.ProductCount;
+import br.com.powerprogramers.product.domain.model.ProductCursor;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductQuery;
+import br.com.powerprogramers.product.domain.model.ProductSort;
+import br.com.powerprogramers.product.domain.model.ProductView;
 import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import br.com.powerprogramers.product.domain.service.coalesce.ProductReadCoalescer;
+import br.com.powerprogramers.product.domain.service.count.ProductCountEstimator;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.outbox.ProductOutbox;
+import br.com.powerprogramers.product.domain.service.search.ProductTextIndex;
+import br.com.powerprogramers.product.domain.service.snapshot.ProductSnapshot;
 import br.com.powerprogramers.product.domain.service.usecase.create.CreateProductUseCase;
 import br.com.powerprogramers.product.domain.utils.ProductHelper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Page;
+import org.mockito.Spy;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
 
 class ProductServiceImplTest {
 
@@ -35,12 +62,30 @@ class ProductServiceImplTest {
 
   @Mock private ProductRepository productRepository;
   @Mock private CreateProductUseCase createProductUseCase;
+  @Mock private StockCounters stockCounters;
+  @Mock private ProductOutbox productOutbox;
+  @Mock private ProductCache productCache;
+  @Mock private ProductCountEstimator productCountEstimator;
+  @Mock private ProductTextIndex productTextIndex;
+  @Mock private ProductSnapshot productSnapshot;
+
+  @Spy
+  private ProductReadCoalescer productReadCoalescer =
+      new ProductReadCoalescer(mock(ProductCache.class), new SimpleMeterRegistry(), true);
 
   @InjectMocks private ProductServiceImpl productServiceImpl;
 
   @BeforeEach
   void setUp() {
     openMocks = MockitoAnnotations.openMocks(this);
+    when(productCache.get(anyLong(), any()))
+        .thenAnswer(i -> i.<Function<Long, ProductView>>getArgument(1).apply(i.getArgument(0)));
+    when(productCache.getAll(any(), any()))
+        .thenAnswer(
+            i ->
+                i.<Function<Set<Long>, Map<Long, ProductView>>>getArgument(1)
+                    .apply(i.getArgument(0)));
+    ReflectionTestUtils.setField(productServiceImpl, "maxLookupIds", 3);
   }
 
   @AfterEach
@@ -50,9 +95,9 @@ class ProductServiceImplTest {
 
   @Test
   void mustFindProductByIdSuccessfully() {
-    ProductEntity productEntity = ProductHelper.generateProductEntity(true);
+    ProductView productView = ProductHelper.generateProductView(true);
 
-    when(productRepository.findById(anyLong())).thenReturn(Optional.of(productEntity));
+    when(productRepository.findViewById(anyLong())).thenReturn(Optional.of(productView));
 
     ProductDto result = productServiceImpl.findById(ProductHelper.ID);
 
@@ -62,43 +107,407 @@ class ProductServiceImplTest {
     assertThat(result.getDescription()).isEqualTo(ProductHelper.DESCRIPTION);
   }
 
+  @Test
+  void mustFindProductByIdInSnapshot() {
+    when(productSnapshot.find(ProductHelper.ID))
+        .thenReturn(Optional.of(ProductHelper.generateProductView(true)));
+
+    ProductDto result = productServiceImpl.findById(ProductHelper.ID);
+
+    assertThat(result.getId()).isEqualTo(ProductHelper.ID);
+    verify(productRepository, never()).findViewById(anyLong());
+  }
+
   @Test
   void mustGenerateException_WhenFindProductById_WithInvalidProduct() {
-    when(productRepository.findById(anyLong())).thenReturn(Optional.empty());
+    when(productRepository.findViewById(anyLong())).thenReturn(Optional.empty());
 
     assertThatThrownBy(() -> productServiceImpl.findById(ProductHelper.ID))
         .isInstanceOf(ProductNotFoundException.class)
         .hasMessage("product not found");
   }
 
+  @Test
+  void mustLookupProductsInRequestOrder() {
+    when(productRepository.findViewsById(List.of(3L, 9L, 1L)))
+        .thenReturn(
+            List.of(ProductHelper.generateProductView(1L), ProductHelper.generateProductView(3L)));
+
+    ProductLookupDto result = productServiceImpl.findAllById(List.of(3L, 9L, 1L, 3L));
+
+    assertThat(result.getItems()).extracting(ProductDto::getId).containsExactly(3L, 1L);
+    assertThat(result.getMissing()).containsExactly(9L);
+  }
+
+  @Test
+  void mustLookupOnlyProductsMissingFromSnapshot() {
+    when(productSnapshot.findAll(Set.of(3L, 9L, 1L)))
+        .thenReturn(Map.of(3L, ProductHelper.generateProductView(3L)));
+    when(productRepository.findViewsById(List.of(9L, 1L)))
+        .thenReturn(List.of(ProductHelper.generateProductView(1L)));
+
+    ProductLookupDto result = productServiceImpl.findAllById(List.of(3L, 9L, 1L));
+
+    assertThat(result.getItems()).extracting(ProductDto::getId).containsExactly(3L, 1L);
+    assertThat(result.getMissing()).containsExactly(9L);
+  }
+
+  @Test
+  void mustGenerateException_WhenLookupHasTooManyIds() {
+    assertThatThrownBy(() -> productServiceImpl.findAllById(List.of(1L, 2L, 3L, 4L)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The lookup cannot have more than 3 ids.");
+    assertThatThrownBy(() -> productServiceImpl.findAllById(List.of()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The lookup must have at least one id and no null ids.");
+
+    verify(productRepository, never()).findViewsById(any());
+  }
+
   @Test
   void mustFindAllProductsSuccessfully() {
     PageRequest pageRequest = PageRequest.of(0, 10);
-    ProductEntity productEntity = ProductHelper.generateProductEntity(true);
-    Page<ProductEntity> page = new PageImpl<>(List.of(productEntity), pageRequest, 1);
+    ProductView productView = ProductHelper.generateProductView(true);
 
-    when(productRepository.findAllProducts(pageRequest, null, null, null)).thenReturn(page);
+    when(productRepository.searchProducts(null, null, null, ProductFacets.NONE, null, pageRequest))
+        .thenReturn(new SliceImpl<>(List.of(productView), pageRequest, false));
 
-    PagedProductDto result = productServiceImpl.findAll(0, 10, null, null, null);
+    PagedProductDto result =
+        productServiceImpl.findAll(ProductQuery.builder().page(0).perPage(10).build());
 
     assertThat(result).isNotNull();
     assertThat(result.getItems()).hasSize(1);
     assertThat(result.getItems().get(0).getName()).isEqualTo(ProductHelper.NAME);
   }
 
+  @Test
+  void mustFindProductsWithoutCount() {
+    PageRequest pageRequest = PageRequest.of(0, 1);
+    List<ProductView> views = List.of(ProductHelper.generateProductView(true));
+
+    when(productRepository.searchProducts(null, null, true, ProductFacets.NONE, null, pageRequest))
+        .thenReturn(new SliceImpl<>(views, pageRequest, true));
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder()
+                .page(0)
+                .perPage(1)
+                .active(true)
+                .count(ProductCount.NONE)
+                .build());
+
+    assertThat(result.getItems()).hasSize(1);
+    assertThat(result.getTotal()).isNull();
+    assertThat(result.getNext()).isNotNull();
+    verify(productRepository, never()).countSearchProducts(any(), any(), any(), any());
+    verify(productCountEstimator, never()).estimate(any(), any(), any(), any());
+  }
+
+  @Test
+  void mustFindProductsWithEstimatedCount() {
+    PageRequest pageRequest = PageRequest.of(2, 1);
+    List<ProductView> views = List.of(ProductHelper.generateProductView(true));
+
+    when(productRepository.searchProducts(
+            "Orange", null, true, ProductFacets.NONE, null, pageRequest))
+        .thenReturn(new SliceImpl<>(views, pageRequest, true));
+    when(productCountEstimator.estimate("Orange", null, true, ProductFacets.NONE)).thenReturn(40L);
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder()
+                .page(2)
+                .perPage(1)
+                .name("Orange")
+                .active(true)
+                .count(ProductCount.ESTIMATE)
+                .build());
+
+    assertThat(result.getTotal()).isEqualTo(40L);
+    assertThat(result.isEstimated()).isTrue();
+  }
+
+  @Test
+  void mustFindProductsWithExactCount_WhenEstimatedPageIsLast() {
+    PageRequest pageRequest = PageRequest.of(2, 10);
+    List<ProductView> views = List.of(ProductHelper.generateProductView(true));
+
+    when(productRepository.searchProducts(null, null, true, ProductFacets.NONE, null, pageRequest))
+        .thenReturn(new SliceImpl<>(views, pageRequest, false));
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder()
+                .page(2)
+                .perPage(10)
+                .active(true)
+                .count(ProductCount.ESTIMATE)
+                .build());
+
+    assertThat(result.getTotal()).isEqualTo(21L);
+    assertThat(result.isEstimated()).isFalse();
+    verify(productCountEstimator, never()).estimate(any(), any(), any(), any());
+  }
+
+  @Test
+  void mustSearchProductsInDatabase_WhenTextIndexDoesNotCoverFilter() {
+    PageRequest pageRequest = PageRequest.of(0, 1);
+    List<ProductView> views = List.of(ProductHelper.generateProductView(true));
+
+    when(productRepository.searchProducts(
+            "tenis", null, true, ProductFacets.NONE, null, pageRequest))
+        .thenReturn(new SliceImpl<>(views, pageRequest, true));
+    when(productRepository.countSearchProducts("tenis", null, true, ProductFacets.NONE))
+        .thenReturn(3L);
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder().page(0).perPage(1).name("tenis").active(true).build());
+
+    assertThat(result.getItems()).hasSize(1);
+    assertThat(result.getTotal()).isEqualTo(3L);
+  }
+
+  @Test
+  void mustSearchProductsAfterCursorInDatabase_WhenTextIndexDoesNotCoverFilter() {
+    PageRequest pageRequest = PageRequest.of(0, 2);
+
+    when(productRepository.searchProducts(
+            null,
+            "protecao",
+            true,
+            ProductFacets.NONE,
+            new ProductCursor.Position(4L, null),
+            pageRequest))
+        .thenReturn(
+            new SliceImpl<>(
+                List.of(
+                    ProductHelper.generateProductView(5L), ProductHelper.generateProductView(7L)),
+                pageRequest,
+                true));
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder()
+                .after(ProductCursor.encode(4L))
+                .perPage(2)
+                .description("protecao")
+                .active(true)
+                .build());
+
+    assertThat(result.getItems()).extracting(ProductDto::getId).containsExactly(5L, 7L);
+    assertThat(ProductCursor.decode(result.getNext())).isEqualTo(7L);
+  }
+
+  @Test
+  void mustSearchProductsInDatabase_WhenFilteredByFacets() {
+    PageRequest pageRequest = PageRequest.of(0, 1);
+    ProductFacets facets = new ProductFacets(BigDecimal.ONE, null, true, ProductSort.PRICE_DESC);
+    ProductView view = ProductHelper.generateProductView(5L);
+
+    when(productSnapshot.covers(null, null, true)).thenReturn(true);
+    when(productRepository.searchProducts(null, null, true, facets, null, pageRequest))
+        .thenReturn(new SliceImpl<>(List.of(view), pageRequest, true));
+    when(productRepository.countSearchProducts(null, null, true, facets)).thenReturn(3L);
+
+    ProductQuery query =
+        ProductQuery.builder().page(0).perPage(1).active(true).facets(facets).build();
+    PagedProductDto result = productServiceImpl.findAll(query);
+
+    assertThat(result.getTotal()).isEqualTo(3L);
+    assertThat(ProductCursor.decode(result.getNext(), ProductSort.PRICE_DESC))
+        .isEqualTo(new ProductCursor.Position(5L, view.price()));
+    verify(productSnapshot, never()).findPage(any(), any(), anyLong(), any());
+    // the facets tell identical listings apart
+    verify(productReadCoalescer).read(eq("findAll"), eq(List.of(query)), any());
+  }
+
+  @Test
+  void mustSearchProductsAfterCursorOfSameOrder() {
+    PageRequest pageRequest = PageRequest.of(0, 2);
+    ProductFacets facets = new ProductFacets(null, null, null, ProductSort.PRICE);
+    ProductCursor.Position after = new ProductCursor.Position(4L, new BigDecimal("2.50"));
+
+    when(productRepository.searchProducts(null, null, true, facets, after, pageRequest))
+        .thenReturn(
+            new SliceImpl<>(List.of(ProductHelper.generateProductView(2L)), pageRequest, false));
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder()
+                .after(
+                    ProductCursor.encode(
+                        ProductSort.PRICE,
+                        new ProductView(4L, null, null, new BigDecimal("2.50"), null, true, 0L)))
+                .perPage(2)
+                .active(true)
+                .facets(facets)
+                .build());
+
+    assertThat(result.getItems()).extracting(ProductDto::getId).containsExactly(2L);
+    assertThat(result.getNext()).isNull();
+    assertThatThrownBy(
+            () ->
+                productServiceImpl.findAll(
+                    ProductQuery.builder()
+                        .after(ProductCursor.encode(4L))
+                        .perPage(2)
+                        .active(true)
+                        .facets(facets)
+                        .build()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The cursor is invalid.");
+  }
+
+  @Test
+  void mustFindProductsInTextIndex_WhenFilteredByText() {
+    when(productTextIndex.covers("ange", null)).thenReturn(true);
+    when(productTextIndex.search("ange", null, true)).thenReturn(new long[] {1L, 4L, 6L, 9L});
+    when(productRepository.findViewsById(List.of(6L, 9L)))
+        .thenReturn(
+            List.of(ProductHelper.generateProductView(9L), ProductHelper.generateProductView(6L)));
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder().page(1).perPage(2).name("ange").active(true).build());
+
+    assertThat(result.getItems()).extracting(ProductDto::getId).containsExactly(6L, 9L);
+    assertThat(result.getTotal()).isEqualTo(4L);
+    assertThat(result.getNext()).isNull();
+    verify(productRepository, never()).searchProducts(any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void mustFindProductsInSnapshot_WhenItCoversFilter() {
+    PageRequest pageable = PageRequest.of(1, 2);
+    when(productSnapshot.covers("ange", null, true)).thenReturn(true);
+    when(productSnapshot.findPage("ange", null, 0, pageable))
+        .thenReturn(
+            new PageImpl<>(
+                List.of(
+                    ProductHelper.generateProductView(6L), ProductHelper.generateProductView(9L)),
+                pageable,
+                5));
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder().page(1).perPage(2).name("ange").active(true).build());
+
+    assertThat(result.getItems()).extracting(ProductDto::getId).containsExactly(6L, 9L);
+    assertThat(result.getTotal()).isEqualTo(5L);
+    assertThat(ProductCursor.decode(result.getNext())).isEqualTo(9L);
+    verify(productTextIndex, never()).search(any(), any(), any());
+    verify(productRepository, never()).searchProducts(any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void mustFindProductsAfterCursorInSnapshot() {
+    PageRequest pageable = PageRequest.of(0, 1);
+    when(productSnapshot.covers(null, null, true)).thenReturn(true);
+    when(productSnapshot.findPage(null, null, 5L, pageable))
+        .thenReturn(new PageImpl<>(List.of(ProductHelper.generateProductView(6L)), pageable, 1));
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder().after(ProductCursor.encode(5L)).perPage(1).active(true).build());
+
+    assertThat(result.getItems()).extracting(ProductDto::getId).containsExactly(6L);
+    assertThat(result.getNext()).isNull();
+    verify(productRepository, never()).searchProducts(any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void mustFindProductsAfterCursorInTextIndex() {
+    when(productTextIndex.covers("ange", null)).thenReturn(true);
+    when(productTextIndex.search("ange", null, true)).thenReturn(new long[] {1L, 4L, 6L, 9L});
+    when(productRepository.findViewsById(List.of(6L)))
+        .thenReturn(List.of(ProductHelper.generateProductView(6L)));
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder()
+                .after(ProductCursor.encode(5L))
+                .perPage(1)
+                .name("ange")
+                .active(true)
+                .build());
+
+    assertThat(result.getItems()).extracting(ProductDto::getId).containsExactly(6L);
+    assertThat(ProductCursor.decode(result.getNext())).isEqualTo(6L);
+  }
+
+  @Test
+  void mustFindProductsAfterCursor() {
+    PageRequest pageRequest = PageRequest.of(0, 2);
+    when(productRepository.searchProducts(
+            null,
+            null,
+            true,
+            ProductFacets.NONE,
+            new ProductCursor.Position(4L, null),
+            pageRequest))
+        .thenReturn(
+            new SliceImpl<>(
+                List.of(
+                    ProductHelper.generateProductView(5L), ProductHelper.generateProductView(7L)),
+                pageRequest,
+                true));
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder().after(ProductCursor.encode(4L)).perPage(2).active(true).build());
+
+    assertThat(result.getItems()).extracting(ProductDto::getId).containsExactly(5L, 7L);
+    assertThat(ProductCursor.decode(result.getNext())).isEqualTo(7L);
+    assertThat(result.getTotal()).isNull();
+  }
+
+  @Test
+  void mustNotReturnNextCursor_OnLastPage() {
+    PageRequest pageRequest = PageRequest.of(0, 2);
+    when(productRepository.searchProducts(
+            null,
+            null,
+            true,
+            ProductFacets.NONE,
+            new ProductCursor.Position(7L, null),
+            pageRequest))
+        .thenReturn(
+            new SliceImpl<>(List.of(ProductHelper.generateProductView(8L)), pageRequest, false));
+
+    PagedProductDto result =
+        productServiceImpl.findAll(
+            ProductQuery.builder().after(ProductCursor.encode(7L)).perPage(2).active(true).build());
+
+    assertThat(result.getItems()).hasSize(1);
+    assertThat(result.getNext()).isNull();
+  }
+
+  @Test
+  void mustGenerateException_WhenCursorIsInvalid() {
+    assertThatThrownBy(
+            () ->
+                productServiceImpl.findAll(
+                    ProductQuery.builder().after("not-a-cursor").perPage(2).active(true).build()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The cursor is invalid.");
+  }
+
   @Test
   void mustSaveProductSuccessfully() {
     CreateProductDto createProductDto = ProductHelper.generateCreateProductDto();
     Product product = ProductHelper.generateProduct();
 
     when(createProductUseCase.execute(any(Product.class))).thenReturn(product);
-    when(productRepository.save(any(ProductEntity.class)))
+    when(productRepository.saveAndFlush(any(ProductEntity.class)))
         .thenReturn(ProductMapper.INSTANCE.toEntity(product));
 
     ProductDto result = productServiceImpl.save(createProductDto);
 
     assertThat(result).isNotNull();
     assertThat(result.getName()).isEqualTo(ProductHelper.NAME);
+    verify(productOutbox).append(product.getId(), ProductChange.Type.CREATED);
   }
 
   @Test
@@ -109,7 +518,7 @@ class ProductServiceImplTest {
 
     when(productRepository.findById(anyLong()))
         .thenReturn(Optional.of(ProductMapper.INSTANCE.toEntity(product)));
-    when(productRepository.save(any())).thenAnswer(p -> p.getArgument(0));
+    when(productRepository.saveAndFlush(any())).thenAnswer(p -> p.getArgument(0));
 
     ProductDto result = productServiceImpl.update(ProductHelper.ID, updateProductDto);
 
@@ -117,6 +526,24 @@ class ProductServiceImplTest {
     assertThat(result.getName()).isEqualTo(updateProductDto.getName());
     assertThat(result.getAmount()).isEqualTo(product.getAmount());
     assertThat(result.getPrice()).isEqualTo(updateProductDto.getPrice());
+    verify(productOutbox).append(ProductHelper.ID, ProductChange.Type.UPDATED);
+    verify(productCache).evict(ProductHelper.ID);
+  }
+
+  @Test
+  void mustGenerateException_WhenUpdateProduct_WithStaleVersion() {
+    UpdateProductDto updateProductDto = ProductHelper.generateUpdateProductDto();
+    Product product = ProductHelper.generateProductBuilder().version(3L).build();
+
+    when(productRepository.findById(anyLong()))
+        .thenReturn(Optional.of(ProductMapper.INSTANCE.toEntity(product)));
+
+    assertThatThrownBy(() -> productServiceImpl.update(ProductHelper.ID, updateProductDto, 2L))
+        .isInstanceOf(ProductPreconditionFailedException.class)
+        .hasMessage("product was modified by another request");
+
+    verify(productRepository, never()).saveAndFlush(any());
+    verify(productOutbox, never()).append(anyLong(), any());
   }
 
   @Test
@@ -125,12 +552,13 @@ class ProductServiceImplTest {
 
     when(productRepository.findById(anyLong()))
         .thenReturn(Optional.of(ProductMapper.INSTANCE.toEntity(product)));
-    when(productRepository.save(any())).thenAnswer(p -> p.getArgument(0));
+    when(productRepository.saveAndFlush(any())).thenAnswer(p -> p.getArgument(0));
 
     ProductDto result = productServiceImpl.activate(ProductHelper.ID);
 
     assertThat(result).isNotNull();
     assertThat(result.isActive()).isTrue();
+    verify(productOutbox).append(ProductHelper.ID, ProductChange.Type.ACTIVATED);
   }
 
   @Test
@@ -139,11 +567,12 @@ class ProductServiceImplTest {
 
     when(productRepository.findById(anyLong()))
         .thenReturn(Optional.of(ProductMapper.INSTANCE.toEntity(product)));
-    when(productRepository.save(any())).thenAnswer(p -> p.getArgument(0));
+    when(productRepository.saveAndFlush(any())).thenAnswer(p -> p.getArgument(0));
 
     ProductDto result = productServiceImpl.deactivate(ProductHelper.ID);
 
     assertThat(result).isNotNull();
     assertThat(result.isActive()).isFalse();
+    verify(productOutbox).append(ProductHelper.ID, ProductChange.Type.DEACTIVATED);
   }
 }
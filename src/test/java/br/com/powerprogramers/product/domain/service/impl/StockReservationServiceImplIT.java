@@ -0,0 +1,92 @@
+package br.com.powerprogramers.product.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.com.powerprogramers.product.domain.entity.StockReservationEntity;
+import br.com.powerprogramers.product.domain.model.ProductRequested;
+import br.com.powerprogramers.product.domain.model.StockReservation;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.repository.StockReservationRepository;
+import jakarta.transaction.Transactional;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Transactional
+class StockReservationServiceImplIT {
+
+  @Autowired private ProductRepository productRepository;
+  @Autowired private StockReservationRepository stockReservationRepository;
+  @Autowired private StockReservationServiceImpl stockReservationService;
+
+  @Test
+  void mustGiveStockBack_WhenReservationsExpire() {
+    int amount = productRepository.findById(1L).orElseThrow().getAmount();
+
+    StockReservation first = stockReservationService.reserve(new ProductRequested(1L, 5));
+    StockReservation second = stockReservationService.reserve(new ProductRequested(1L, 2));
+    assertThat(productRepository.findById(1L).orElseThrow().getAmount()).isEqualTo(amount - 7);
+
+    List<StockReservation> result =
+        stockReservationService.expire(second.getExpiresAt().plusSeconds(1));
+
+    assertThat(result).extracting(StockReservation::getId).contains(first.getId(), second.getId());
+    assertThat(productRepository.findById(1L).orElseThrow().getAmount()).isEqualTo(amount);
+    assertThat(stockReservationRepository.existsById(first.getId())).isFalse();
+  }
+
+  @Test
+  void mustReadPendingReservationsAfterLastId() {
+    StockReservation first = stockReservationService.reserve(new ProductRequested(1L, 1));
+    StockReservation second = stockReservationService.reserve(new ProductRequested(1L, 1));
+    List<String> ids = Stream.of(first, second).map(StockReservation::getId).sorted().toList();
+
+    List<StockReservationEntity> page =
+        stockReservationRepository.findPendingAfter("", PageRequest.of(0, 1));
+    List<StockReservationEntity> next =
+        stockReservationRepository.findPendingAfter(page.get(0).getId(), PageRequest.of(0, 1));
+
+    assertThat(page).extracting(StockReservationEntity::getId).containsExactly(ids.get(0));
+    assertThat(next).extracting(StockReservationEntity::getId).containsExactly(ids.get(1));
+    assertThat(next.get(0).getAmount()).isEqualTo(1);
+  }
+
+  @Test
+  void mustKeepStockOut_WhenReservationIsConfirmedBeforeExpiring() {
+    int amount = productRepository.findById(1L).orElseThrow().getAmount();
+
+    StockReservation reservation = stockReservationService.reserve(new ProductRequested(1L, 3));
+    stockReservationService.confirm(reservation.getId());
+
+    List<StockReservation> result =
+        stockReservationService.expire(reservation.getExpiresAt().plusSeconds(1));
+
+    assertThat(result).extracting(StockReservation::getId).doesNotContain(reservation.getId());
+    assertThat(productRepository.findById(1L).orElseThrow().getAmount()).isEqualTo(amount - 3);
+  }
+
+  @Test
+  void mustOnlyGiveStockBackOfPendingReservations_WhenExpiringTogether() {
+    int amount = productRepository.findById(1L).orElseThrow().getAmount();
+
+    StockReservation confirmed = stockReservationService.reserve(new ProductRequested(1L, 4));
+    StockReservation pending = stockReservationService.reserve(new ProductRequested(1L, 2));
+    stockReservationService.confirm(confirmed.getId());
+
+    List<StockReservation> result =
+        stockReservationService.expire(pending.getExpiresAt().plusSeconds(1));
+
+    assertThat(result)
+        .extracting(StockReservation::getId)
+        .contains(pending.getId())
+        .doesNotContain(confirmed.getId());
+    assertThat(productRepository.findById(1L).orElseThrow().getAmount()).isEqualTo(amount - 4);
+    assertThat(stockReservationRepository.existsById(pending.getId())).isFalse();
+  }
+}
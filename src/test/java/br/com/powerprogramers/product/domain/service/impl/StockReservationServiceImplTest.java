@@ -0,0 +1,182 @@
+package br.com.powerprogramers.product.domain.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.entity.StockReservationEntity;
+import br.com.powerprogramers.product.domain.exceptions.ReservationNotFoundException;
+import br.com.powerprogramers.product.domain.model.ProductRequested;
+import br.com.powerprogramers.product.domain.model.StockReservation;
+import br.com.powerprogramers.product.domain.repository.StockReservationRepository;
+import br.com.powerprogramers.product.domain.service.StockService;
+import br.com.powerprogramers.product.domain.service.counter.StockCounter;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.reservation.StockReservationWriter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+class StockReservationServiceImplTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private StockService stockService;
+  @Mock private StockCounters stockCounters;
+  @Mock private StockCounter stockCounter;
+  @Mock private StockReservationRepository stockReservationRepository;
+  @Mock private StockReservationWriter stockReservationWriter;
+
+  private StockReservationServiceImpl stockReservationService;
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    stockReservationService =
+        new StockReservationServiceImpl(
+            stockService,
+            stockCounters,
+            stockReservationRepository,
+            stockReservationWriter,
+            Duration.ofMinutes(5),
+            100,
+            64,
+            4);
+    when(stockReservationWriter.release(anyList())).thenAnswer(i -> i.getArgument(0));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    openMocks.close();
+  }
+
+  @Test
+  void mustReserveStockSuccessfully() {
+    StockReservation result = stockReservationService.reserve(new ProductRequested(1L, 3));
+
+    assertThat(result.getId()).isNotBlank();
+    assertThat(result.getProductId()).isEqualTo(1L);
+    assertThat(result.getAmount()).isEqualTo(3);
+    assertThat(result.getStatus()).isEqualTo(StockReservation.Status.RESERVED);
+    assertThat(result.getExpiresAt()).isAfter(Instant.now().plus(Duration.ofMinutes(4)));
+    verify(stockService).updateStock(1L, -3);
+    verify(stockReservationRepository).saveAndFlush(any(StockReservationEntity.class));
+  }
+
+  @Test
+  void mustGenerateException_WhenReserveStock_WithInvalidAmount() {
+    assertThatThrownBy(() -> stockReservationService.reserve(new ProductRequested(1L, 0)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The amount cannot be negative or zero.");
+    verify(stockService, never()).updateStock(any(), any());
+  }
+
+  @Test
+  void mustConfirmReservationSuccessfully() {
+    StockReservationEntity entity = entity(Instant.now().plusSeconds(60));
+    when(stockReservationRepository.findById("r1")).thenReturn(Optional.of(entity));
+    when(stockReservationRepository.deleteReservation("r1")).thenReturn(1);
+
+    StockReservation result = stockReservationService.confirm("r1");
+
+    assertThat(result.getStatus()).isEqualTo(StockReservation.Status.CONFIRMED);
+    verify(stockReservationWriter, never()).release(anyList());
+  }
+
+  @Test
+  void mustGenerateException_WhenConfirmExpiredReservation() {
+    StockReservationEntity entity = entity(Instant.now().minusSeconds(1));
+    when(stockReservationRepository.findById("r1")).thenReturn(Optional.of(entity));
+
+    assertThatThrownBy(() -> stockReservationService.confirm("r1"))
+        .isInstanceOf(ReservationNotFoundException.class);
+    verify(stockReservationRepository, never()).deleteReservation("r1");
+  }
+
+  @Test
+  void mustReleaseReservationSuccessfully() {
+    StockReservationEntity entity = entity(Instant.now().plusSeconds(60));
+    when(stockReservationRepository.findById("r1")).thenReturn(Optional.of(entity));
+
+    StockReservation result = stockReservationService.release("r1");
+
+    assertThat(result.getStatus()).isEqualTo(StockReservation.Status.RELEASED);
+  }
+
+  @Test
+  void mustGenerateException_WhenReleaseReservationAlreadyConfirmed() {
+    StockReservationEntity entity = entity(Instant.now().plusSeconds(60));
+    when(stockReservationRepository.findById("r1")).thenReturn(Optional.of(entity));
+    when(stockReservationWriter.release(anyList())).thenReturn(List.of());
+
+    assertThatThrownBy(() -> stockReservationService.release("r1"))
+        .isInstanceOf(ReservationNotFoundException.class);
+  }
+
+  @Test
+  void mustReleaseExpiredReservationsInOneBatch() {
+    StockReservation first = stockReservationService.reserve(new ProductRequested(1L, 3));
+    StockReservation second = stockReservationService.reserve(new ProductRequested(2L, 1));
+
+    assertThat(stockReservationService.expire(Instant.now())).isEmpty();
+    List<StockReservation> result =
+        stockReservationService.expire(first.getExpiresAt().plusSeconds(1));
+
+    assertThat(result).extracting(StockReservation::getId).contains(first.getId(), second.getId());
+    assertThat(result)
+        .extracting(StockReservation::getStatus)
+        .containsOnly(StockReservation.Status.RELEASED);
+    verify(stockReservationWriter).release(anyList());
+  }
+
+  @Test
+  void mustGiveStockBackToCounter_WhenProductIsManagedByCounter() {
+    StockReservationEntity entity = entity(Instant.now().plusSeconds(60));
+    when(stockReservationRepository.findById("r1")).thenReturn(Optional.of(entity));
+    when(stockCounters.find(1L)).thenReturn(Optional.of(stockCounter));
+
+    stockReservationService.release("r1");
+
+    verify(stockCounter).add(1L, 3);
+  }
+
+  @Test
+  void mustLoadPendingReservationsByPages() {
+    Instant expiresAt = Instant.now().plusSeconds(60);
+    List<StockReservationEntity> first =
+        IntStream.range(0, 1000).mapToObj(i -> entity("r%04d".formatted(i), expiresAt)).toList();
+    when(stockReservationRepository.findPendingAfter(eq(""), any())).thenReturn(first);
+    when(stockReservationRepository.findPendingAfter(eq("r0999"), any()))
+        .thenReturn(List.of(entity("r1000", expiresAt)));
+
+    stockReservationService.load();
+
+    assertThat(stockReservationService.expire(expiresAt.plusSeconds(1))).hasSize(1001);
+    verify(stockReservationRepository, never()).findAll();
+  }
+
+  private static StockReservationEntity entity(Instant expiresAt) {
+    return entity("r1", expiresAt);
+  }
+
+  private static StockReservationEntity entity(String id, Instant expiresAt) {
+    return StockReservationEntity.builder()
+        .id(id)
+        .productId(1L)
+        .amount(3)
+        .expiresAt(expiresAt)
+        .build();
+  }
+}
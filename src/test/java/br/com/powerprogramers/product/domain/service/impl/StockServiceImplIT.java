@@ -4,12 +4,19 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
 import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
 import br.com.powerprogramers.product.domain.repository.ProductRepository;
 import br.com.powerprogramers.product.domain.service.StockService;
-import br.com.powerprogramers.product.domain.service.usecase.update.UpdateStockUseCase;
 import jakarta.transaction.Transactional;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
@@ -20,12 +27,13 @@ import org.springframework.boot.test.context.SpringBootTest;
 @Transactional
 class StockServiceImplIT {
 
+  private final ProductRepository productRepository;
   private final StockService stockService;
 
   @Autowired
-  public StockServiceImplIT(
-      ProductRepository productRepository, UpdateStockUseCase updateStockUseCase) {
-    this.stockService = new StockServiceImpl(productRepository, updateStockUseCase);
+  public StockServiceImplIT(ProductRepository productRepository, StockService stockService) {
+    this.productRepository = productRepository;
+    this.stockService = stockService;
   }
 
   @Test
@@ -53,4 +61,54 @@ class StockServiceImplIT {
         .isInstanceOf(ProductNotFoundException.class)
         .hasMessage("product not found");
   }
+
+  @Test
+  @Transactional(Transactional.TxType.NOT_SUPPORTED)
+  void mustNotOversell_WhenStockIsRemovedConcurrently() throws Exception {
+    int stock = 20;
+    int buyers = 60;
+    ProductEntity product =
+        productRepository.save(
+            ProductEntity.builder()
+                .name("Concurrent")
+                .description("Concurrent stock removal")
+                .amount(stock)
+                .price(BigDecimal.TEN)
+                .active(true)
+                .build());
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      AtomicInteger sold = new AtomicInteger();
+      AtomicInteger refused = new AtomicInteger();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < buyers; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  try {
+                    stockService.updateStock(product.getId(), -1);
+                    sold.incrementAndGet();
+                  } catch (IllegalArgumentException e) {
+                    refused.incrementAndGet();
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+
+      assertThat(sold.get()).isEqualTo(stock);
+      assertThat(refused.get()).isEqualTo(buyers - stock);
+      assertThat(productRepository.findById(product.getId()))
+          .hasValueSatisfying(p -> assertThat(p.getAmount()).isZero());
+    } finally {
+      executor.shutdownNow();
+      productRepository.deleteById(product.getId());
+    }
+  }
 }
@@ -2,19 +2,37 @@ package br.com.powerprogramers.product.domain.service.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.Mockito.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import br.com.powerprogramers.product.domain.dto.ProductDto;
 import br.com.powerprogramers.product.domain.entity.ProductEntity;
 import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import br.com.powerprogramers.product.domain.model.ProductRequested;
+import br.com.powerprogramers.product.domain.model.ProductReserved;
+import br.com.powerprogramers.product.domain.model.StockRemoval;
 import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import br.com.powerprogramers.product.domain.service.counter.StockCounter;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.outbox.ProductOutbox;
 import br.com.powerprogramers.product.domain.service.usecase.update.UpdateStockUseCase;
 import br.com.powerprogramers.product.domain.utils.ProductHelper;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -25,6 +43,10 @@ class StockServiceImplTest {
 
   @Mock private ProductRepository productRepository;
   @Mock private UpdateStockUseCase updateStockUseCase;
+  @Mock private StockCounters stockCounters;
+  @Mock private StockCounter stockCounter;
+  @Mock private ProductOutbox productOutbox;
+  @Mock private ProductCache productCache;
 
   @InjectMocks private StockServiceImpl stockServiceImpl;
 
@@ -42,16 +64,35 @@ class StockServiceImplTest {
   void mustUpdateStockSuccessfully() {
     Long productId = 1L;
     Integer amount = 50;
-    ProductDto productDto = ProductHelper.generateProductDto(true);
+    ProductDto productDto = ProductHelper.generateProductDto(true).amount(200);
 
+    when(productRepository.updateAmount(productId, amount)).thenReturn(1);
     when(updateStockUseCase.execute(anyLong())).thenReturn(productDto);
-    when(productRepository.save(any(ProductEntity.class))).thenAnswer(p -> p.getArgument(0));
 
     ProductDto result = stockServiceImpl.updateStock(productId, amount);
 
     assertThat(result).isNotNull();
     assertThat(result.getId()).isEqualTo(productId);
     assertThat(result.getAmount()).isEqualTo(200);
+    verify(productRepository, never()).save(any());
+    verify(productOutbox).append(productId, ProductChange.Type.STOCK_CHANGED);
+    verify(productCache).evict(productId);
+  }
+
+  @Test
+  void mustGenerateException_WhenUpdateStock_WithInsufficientStock() {
+    Long productId = 1L;
+    Integer amount = -155;
+
+    when(productRepository.updateAmount(productId, amount)).thenReturn(0);
+    when(updateStockUseCase.execute(productId)).thenReturn(ProductHelper.generateProductDto(true));
+
+    assertThatThrownBy(() -> stockServiceImpl.updateStock(productId, amount))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The total purchase cannot be more than the stock total.");
+
+    verify(updateStockUseCase, times(1)).execute(productId);
+    verify(productOutbox, never()).append(anyLong(), any());
   }
 
   @Test
@@ -59,6 +100,7 @@ class StockServiceImplTest {
     Long productId = 1L;
     Integer amount = 50;
 
+    when(productRepository.updateAmount(anyLong(), anyInt())).thenReturn(0);
     when(updateStockUseCase.execute(productId))
         .thenThrow(new ProductNotFoundException("/products"));
 
@@ -66,4 +108,132 @@ class StockServiceImplTest {
         .isInstanceOf(ProductNotFoundException.class)
         .hasMessage("product not found");
   }
+
+  @Test
+  void mustReserveOrderSuccessfully_InSortedIdOrder() {
+    List<ProductRequested> order =
+        List.of(
+            new ProductRequested(3L, 1), new ProductRequested(1L, 2), new ProductRequested(3L, 4));
+
+    when(productRepository.updateAmount(anyLong(), anyInt())).thenReturn(1);
+    when(productRepository.findAllById(any()))
+        .thenReturn(
+            List.of(
+                ProductEntity.builder().id(1L).amount(8).build(),
+                ProductEntity.builder().id(3L).amount(5).build()));
+
+    List<ProductReserved> result = stockServiceImpl.reserveOrder(order);
+
+    InOrder lockOrder = inOrder(productRepository);
+    lockOrder.verify(productRepository).updateAmount(1L, -2);
+    lockOrder.verify(productRepository).updateAmount(3L, -5);
+    assertThat(result).hasSize(3);
+    assertThat(result.get(0).getId()).isEqualTo(3L);
+    assertThat(result.get(0).getAmount()).isEqualTo(1);
+    assertThat(result.get(0).getRemaining()).isEqualTo(5);
+    assertThat(result.get(1).getRemaining()).isEqualTo(8);
+    verify(productOutbox).appendAll(Set.of(1L, 3L), ProductChange.Type.STOCK_CHANGED);
+  }
+
+  @Test
+  void mustGenerateException_WhenReserveOrder_WithInsufficientStock() {
+    List<ProductRequested> order =
+        List.of(new ProductRequested(1L, 2), new ProductRequested(2L, 9));
+
+    when(productRepository.updateAmount(1L, -2)).thenReturn(1);
+    when(productRepository.updateAmount(2L, -9)).thenReturn(0);
+    when(updateStockUseCase.execute(2L)).thenReturn(ProductHelper.generateProductDto(true));
+
+    assertThatThrownBy(() -> stockServiceImpl.reserveOrder(order))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The total purchase cannot be more than the stock total. Product: 2");
+
+    verify(productRepository, never()).findAllById(any());
+  }
+
+  @Test
+  void mustGenerateException_WhenReserveOrder_WithInvalidAmount() {
+    List<ProductRequested> order =
+        List.of(new ProductRequested(1L, 2), new ProductRequested(2L, 0));
+
+    assertThatThrownBy(() -> stockServiceImpl.reserveOrder(order))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The amount cannot be negative or zero.");
+
+    verify(productRepository, never()).updateAmount(anyLong(), anyInt());
+  }
+
+  @Test
+  void mustRemoveStockWithOneUpdatePerProduct() {
+    List<ProductRequested> batch =
+        List.of(
+            new ProductRequested(1L, 2),
+            new ProductRequested(2L, 2),
+            new ProductRequested(1L, 3),
+            new ProductRequested(2L, 2),
+            new ProductRequested(2L, 1),
+            new ProductRequested(3L, 0));
+
+    when(productRepository.updateAmount(1L, -5)).thenReturn(1);
+    when(productRepository.updateAmount(2L, -5)).thenReturn(0);
+    when(productRepository.findByIdForUpdate(2L))
+        .thenReturn(Optional.of(ProductEntity.builder().id(2L).amount(3).build()));
+
+    List<StockRemoval> result = stockServiceImpl.removeStock(batch);
+
+    assertThat(result)
+        .extracting(StockRemoval::isRemoved)
+        .containsExactly(true, true, true, false, true, false);
+    assertThat(result.get(3).getMessage())
+        .isEqualTo("The total purchase cannot be more than the stock total.");
+    assertThat(result.get(5).getMessage()).isEqualTo("The amount cannot be negative or zero.");
+    verify(productRepository, times(1)).updateAmount(1L, -5);
+    verify(productRepository, times(1)).updateAmount(2L, -3);
+    verify(productRepository, never()).updateAmount(eq(3L), anyInt());
+    verify(productOutbox).appendAll(Set.of(1L, 2L), ProductChange.Type.STOCK_CHANGED);
+  }
+
+  @Test
+  void mustRejectStockRemoval_WhenProductDoesNotExist() {
+    List<ProductRequested> batch = List.of(new ProductRequested(9L, 1));
+
+    when(productRepository.updateAmount(9L, -1)).thenReturn(0);
+    when(productRepository.findByIdForUpdate(9L)).thenReturn(Optional.empty());
+
+    List<StockRemoval> result = stockServiceImpl.removeStock(batch);
+
+    assertThat(result).hasSize(1);
+    assertThat(result.get(0).isRemoved()).isFalse();
+    assertThat(result.get(0).getMessage()).isEqualTo("product not found");
+  }
+
+  @Test
+  void mustUpdateStockThroughCounter_WhenProductIsManagedByCounter() {
+    ProductDto productDto = ProductHelper.generateProductDto(true).amount(140);
+
+    when(stockCounters.find(1L)).thenReturn(Optional.of(stockCounter));
+    when(updateStockUseCase.execute(1L)).thenReturn(productDto);
+
+    ProductDto result = stockServiceImpl.updateStock(1L, -10);
+
+    assertThat(result.getAmount()).isEqualTo(140);
+    verify(stockCounter).add(1L, -10);
+    verify(productRepository, never()).updateAmount(anyLong(), anyInt());
+  }
+
+  @Test
+  void mustUndoCounterRemovals_WhenReserveOrderFails() {
+    List<ProductRequested> order =
+        List.of(new ProductRequested(1L, 2), new ProductRequested(2L, 5));
+
+    when(stockCounters.find(1L)).thenReturn(Optional.of(stockCounter));
+    when(productRepository.updateAmount(2L, -5)).thenReturn(0);
+
+    assertThatThrownBy(() -> stockServiceImpl.reserveOrder(order))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    InOrder counter = inOrder(stockCounter);
+    counter.verify(stockCounter).add(1L, -2);
+    counter.verify(stockCounter).add(1L, 2);
+  }
 }
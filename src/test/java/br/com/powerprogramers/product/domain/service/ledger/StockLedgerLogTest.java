@@ -0,0 +1,35 @@
+package br.com.powerprogramers.product.domain.service.ledger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StockLedgerLogTest {
+
+  @TempDir private Path directory;
+
+  @Test
+  void mustKeepSequenceAndReplayOnlyWrittenGroups_WhenGroupCannotBeWritten() throws IOException {
+    StockLedgerLog ledgerLog = new StockLedgerLog(directory);
+    ledgerLog.open(0, (sequence, productId, delta) -> {});
+    ledgerLog.append(List.of(new StockLedgerLog.Entry(1L, -5), new StockLedgerLog.Entry(2L, -1)));
+    ledgerLog.close();
+
+    assertThatThrownBy(() -> ledgerLog.append(List.of(new StockLedgerLog.Entry(1L, -3))))
+        .isInstanceOf(IOException.class);
+    assertThat(ledgerLog.lastSequence()).isEqualTo(2);
+
+    List<Long> replayed = new ArrayList<>();
+    StockLedgerLog reopened = new StockLedgerLog(directory);
+    reopened.open(0, (sequence, productId, delta) -> replayed.add(delta));
+    reopened.close();
+    assertThat(replayed).containsExactly(-5L, -1L);
+    assertThat(reopened.lastSequence()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,305 @@
+package br.com.powerprogramers.product.domain.service.ledger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.exceptions.ProductNotFoundException;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+class StockLedgerTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private ProductRepository productRepository;
+  @Mock private StockLedgerWriter stockLedgerWriter;
+
+  @TempDir private Path directory;
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    when(productRepository.findById(1L))
+        .thenReturn(Optional.of(ProductEntity.builder().id(1L).amount(100).build()));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    openMocks.close();
+  }
+
+  @Test
+  void mustOnlyManageConfiguredProducts() {
+    assertThat(newLedger(true, Set.of(1L)).manages(1L)).isTrue();
+    assertThat(newLedger(true, Set.of(1L)).manages(2L)).isFalse();
+    assertThat(newLedger(true, Set.of()).manages(2L)).isTrue();
+    assertThat(newLedger(false, Set.of()).manages(1L)).isFalse();
+  }
+
+  @Test
+  void mustNotOversell_WhenStockIsRemovedConcurrently() throws Exception {
+    StockLedger stockLedger = startLedger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger accepted = new AtomicInteger();
+    List<Future<?>> buyers = new ArrayList<>();
+
+    for (int i = 0; i < 300; i++) {
+      buyers.add(
+          executor.submit(
+              () -> {
+                start.await();
+                try {
+                  stockLedger.add(1L, -1);
+                  accepted.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                  // sold out
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> buyer : buyers) {
+      buyer.get();
+    }
+    executor.shutdown();
+
+    assertThat(accepted.get()).isEqualTo(100);
+    assertThat(stockLedger.available(1L)).isZero();
+  }
+
+  @Test
+  void mustReplayEveryGroupedChange_WhenRestarted() throws Exception {
+    StockLedger crashed = startLedger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> buyers = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      buyers.add(executor.submit(() -> crashed.add(1L, -1)));
+    }
+    for (Future<?> buyer : buyers) {
+      buyer.get();
+    }
+    executor.shutdown();
+
+    StockLedger stockLedger = startLedger();
+
+    assertThat(stockLedger.available(1L)).isZero();
+    stockLedger.flush();
+    verify(stockLedgerWriter).write(Map.of(1L, -100L), 100);
+  }
+
+  @Test
+  void mustGenerateException_WhenStopped() throws Exception {
+    StockLedger stockLedger = startLedger();
+    stockLedger.add(1L, -5);
+    stockLedger.shutdown();
+
+    assertThatThrownBy(() -> stockLedger.add(1L, -1))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("The stock ledger is not running.");
+    assertThat(stockLedger.available(1L)).isEqualTo(95);
+    verify(stockLedgerWriter).write(Map.of(1L, -5L), 1);
+  }
+
+  @Test
+  void mustRejectChanges_WhenWriterIsInterrupted() throws Exception {
+    Set<Thread> others = writers();
+    StockLedger stockLedger = startLedger();
+    Thread writer = writers().stream().filter(t -> !others.contains(t)).findFirst().orElseThrow();
+
+    writer.interrupt();
+    writer.join(5000);
+
+    assertThat(writer.isAlive()).isFalse();
+    assertThatThrownBy(() -> stockLedger.add(1L, -1))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("The stock ledger is not running.");
+    assertThat(stockLedger.available(1L)).isEqualTo(100);
+  }
+
+  @Test
+  void mustGenerateException_WhenSplitProductIsAlsoManaged() {
+    String path = directory.toString();
+
+    assertThatThrownBy(
+            () ->
+                new StockLedger(
+                    productRepository, stockLedgerWriter, true, Set.of(), Set.of(3L), path, 4))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("The stock ledger cannot manage the products whose stock is split.");
+    assertThatThrownBy(
+            () ->
+                new StockLedger(
+                    productRepository, stockLedgerWriter, true, Set.of(3L), Set.of(3L), path, 4))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(
+            new StockLedger(
+                    productRepository, stockLedgerWriter, true, Set.of(1L), Set.of(3L), path, 4)
+                .manages(1L))
+        .isTrue();
+  }
+
+  @Test
+  void mustGenerateException_WhenEnabledWithoutDirectory() {
+    assertThatThrownBy(
+            () ->
+                new StockLedger(
+                    productRepository, stockLedgerWriter, true, Set.of(), Set.of(), " ", 4))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("The stock ledger directory must be set when the ledger is enabled.");
+  }
+
+  @Test
+  void mustGenerateException_WhenStockIsInsufficient() throws IOException {
+    StockLedger stockLedger = startLedger();
+
+    assertThatThrownBy(() -> stockLedger.add(1L, -101))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The total purchase cannot be more than the stock total.");
+    assertThat(stockLedger.available(1L)).isEqualTo(100);
+  }
+
+  @Test
+  void mustGenerateException_WhenProductDoesNotExist() throws IOException {
+    StockLedger stockLedger = startLedger();
+
+    assertThatThrownBy(() -> stockLedger.add(9L, 1)).isInstanceOf(ProductNotFoundException.class);
+  }
+
+  @Test
+  void mustFlushNetDeltaWithLastSequence() throws IOException {
+    StockLedger stockLedger = startLedger();
+    stockLedger.add(1L, -5);
+    stockLedger.add(1L, 2);
+    stockLedger.add(1L, -7);
+
+    stockLedger.flush();
+    stockLedger.flush();
+
+    verify(stockLedgerWriter).write(Map.of(1L, -10L), 3);
+    assertThat(segments()).hasSize(1);
+  }
+
+  @Test
+  void mustKeepDeltas_WhenFlushFails() throws IOException {
+    StockLedger stockLedger = startLedger();
+    stockLedger.add(1L, -5);
+    doThrow(new IllegalStateException("database down"))
+        .when(stockLedgerWriter)
+        .write(Map.of(1L, -5L), 1);
+
+    stockLedger.flush();
+    stockLedger.add(1L, -1);
+    stockLedger.flush();
+
+    verify(stockLedgerWriter).write(Map.of(1L, -6L), 2);
+  }
+
+  @Test
+  void mustReplayLogNotFlushed_WhenRestarted() throws IOException {
+    StockLedger crashed = startLedger();
+    crashed.add(1L, -5);
+    crashed.add(1L, -3);
+
+    StockLedger stockLedger = startLedger();
+
+    assertThat(stockLedger.available(1L)).isEqualTo(92);
+    stockLedger.flush();
+    verify(stockLedgerWriter).write(Map.of(1L, -8L), 2);
+  }
+
+  @Test
+  void mustNotReplayFlushedRecords_WhenRestarted() throws IOException {
+    StockLedger flushed = startLedger();
+    flushed.add(1L, -5);
+    flushed.flush();
+    flushed.add(1L, -3);
+
+    when(stockLedgerWriter.findCheckpoint()).thenReturn(1L);
+    when(productRepository.findById(1L))
+        .thenReturn(Optional.of(ProductEntity.builder().id(1L).amount(95).build()));
+    StockLedger stockLedger = startLedger();
+
+    assertThat(stockLedger.available(1L)).isEqualTo(92);
+  }
+
+  @Test
+  void mustIgnoreTornRecord_WhenRestarted() throws IOException {
+    StockLedger crashed = startLedger();
+    crashed.add(1L, -5);
+    Files.write(segments().get(0), new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+    StockLedger stockLedger = startLedger();
+
+    assertThat(stockLedger.available(1L)).isEqualTo(95);
+    stockLedger.add(1L, -1);
+    assertThat(stockLedger.available(1L)).isEqualTo(94);
+  }
+
+  @Test
+  void mustNotTouchDisk_WhenDisabled() throws IOException {
+    StockLedger stockLedger = newLedger(false, Set.of());
+    stockLedger.replay();
+    stockLedger.flush();
+
+    assertThat(segments()).isEmpty();
+    verify(stockLedgerWriter, never()).write(anyMap(), anyLong());
+  }
+
+  private StockLedger startLedger() throws IOException {
+    StockLedger stockLedger = newLedger(true, Set.of());
+    stockLedger.replay();
+    return stockLedger;
+  }
+
+  private StockLedger newLedger(boolean enabled, Set<Long> productIds) {
+    return new StockLedger(
+        productRepository,
+        stockLedgerWriter,
+        enabled,
+        productIds,
+        Set.of(),
+        directory.toString(),
+        4);
+  }
+
+  private static Set<Thread> writers() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(t -> t.getName().equals("product-stock-ledger"))
+        .collect(Collectors.toSet());
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.sorted().toList();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package br.com.powerprogramers.product.domain.service.outbox;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+class HttpProductChangePublisherTest {
+
+  private static final String URL = "http://followers/product-changes";
+
+  private MockRestServiceServer server;
+  private HttpProductChangePublisher publisher;
+
+  @BeforeEach
+  void setUp() {
+    RestClient.Builder restClientBuilder = RestClient.builder();
+    server = MockRestServiceServer.bindTo(restClientBuilder).build();
+    publisher = new HttpProductChangePublisher(restClientBuilder, URL);
+  }
+
+  @Test
+  void mustPostChangesAsJsonArray() {
+    server
+        .expect(requestTo(URL))
+        .andExpect(method(HttpMethod.POST))
+        .andExpect(jsonPath("$[0].id").value(7))
+        .andExpect(jsonPath("$[0].position").value(1))
+        .andExpect(jsonPath("$[0].productId").value(1))
+        .andExpect(jsonPath("$[0].type").value("STOCK_CHANGED"))
+        .andExpect(jsonPath("$[1].type").value("DEACTIVATED"))
+        .andRespond(withSuccess());
+
+    publisher.publish(
+        List.of(
+            new ProductChange(7L, 1L, 1L, ProductChange.Type.STOCK_CHANGED, Instant.now()),
+            new ProductChange(8L, 2L, 2L, ProductChange.Type.DEACTIVATED, Instant.now())));
+
+    server.verify();
+  }
+
+  @Test
+  void mustGenerateException_WhenEndpointFails() {
+    server.expect(requestTo(URL)).andRespond(withServerError());
+
+    List<ProductChange> changes =
+        List.of(new ProductChange(7L, 1L, 1L, ProductChange.Type.STOCK_CHANGED, Instant.now()));
+
+    assertThatThrownBy(() -> publisher.publish(changes)).isInstanceOf(RestClientException.class);
+  }
+}
@@ -0,0 +1,119 @@
+package br.com.powerprogramers.product.domain.service.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.entity.ProductChangeEntity;
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import br.com.powerprogramers.product.domain.repository.ProductChangeRepository;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+
+class ProductChangeFeedTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private ProductChangeRepository productChangeRepository;
+
+  private ProductChangeFeed productChangeFeed;
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    productChangeFeed =
+        new ProductChangeFeed(productChangeRepository, 2, 10, Duration.ofSeconds(30));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    openMocks.close();
+  }
+
+  @Test
+  void mustNotWait_WhenThereAreChangesAfterCursor() {
+    when(productChangeRepository.findLastPosition()).thenReturn(Optional.of(5L));
+
+    CompletableFuture<Boolean> found = productChangeFeed.await(3, Duration.ofSeconds(10));
+
+    assertThat(found).isCompletedWithValue(true);
+  }
+
+  @Test
+  void mustAnswerFalse_WhenWaitEnds() throws Exception {
+    when(productChangeRepository.findLastPosition()).thenReturn(Optional.of(3L));
+
+    CompletableFuture<Boolean> found = productChangeFeed.await(3, Duration.ofMillis(50));
+
+    assertThat(found.get(5, TimeUnit.SECONDS)).isFalse();
+  }
+
+  @Test
+  void mustWakeReader_WhenChangeIsPublished() {
+    when(productChangeRepository.findLastPosition()).thenReturn(Optional.of(3L));
+    CompletableFuture<Boolean> found = productChangeFeed.await(3, Duration.ofSeconds(10));
+    productChangeFeed.poll();
+    assertThat(found).isNotDone();
+
+    when(productChangeRepository.findLastPosition()).thenReturn(Optional.of(4L));
+    productChangeFeed.poll();
+
+    assertThat(found).isCompletedWithValue(true);
+  }
+
+  @Test
+  void mustNotQueryLastPosition_WhenNobodyWaits() {
+    productChangeFeed.poll();
+
+    verify(productChangeRepository, never()).findLastPosition();
+  }
+
+  @Test
+  void mustReadPagesAfterCursor_UpToLimit() {
+    when(productChangeRepository.findPublishedAfter(0L, PageRequest.of(0, 2)))
+        .thenReturn(List.of(change(1L), change(2L)));
+    when(productChangeRepository.findPublishedAfter(2L, PageRequest.of(0, 1)))
+        .thenReturn(List.of(change(3L)));
+    List<Long> positions = new ArrayList<>();
+
+    productChangeFeed.read(0, 3, c -> positions.add(c.getPosition()));
+
+    assertThat(positions).containsExactly(1L, 2L, 3L);
+  }
+
+  @Test
+  void mustStopReading_WhenPageIsNotFull() {
+    when(productChangeRepository.findPublishedAfter(eq(0L), any())).thenReturn(List.of(change(1L)));
+    List<Long> positions = new ArrayList<>();
+
+    productChangeFeed.read(0, 100, c -> positions.add(c.getPosition()));
+
+    assertThat(positions).containsExactly(1L);
+    verify(productChangeRepository, never()).findPublishedAfter(eq(1L), any());
+    verify(productChangeRepository, never())
+        .findPublishedAfter(anyLong(), eq(PageRequest.of(0, 100)));
+  }
+
+  private static ProductChangeEntity change(Long position) {
+    return ProductChangeEntity.builder()
+        .id(position)
+        .productId(1L)
+        .type(ProductChange.Type.STOCK_CHANGED)
+        .position(position)
+        .build();
+  }
+}
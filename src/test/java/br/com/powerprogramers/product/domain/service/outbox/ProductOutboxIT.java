@@ -0,0 +1,106 @@
+package br.com.powerprogramers.product.domain.service.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import br.com.powerprogramers.product.domain.entity.ProductChangeEntity;
+import br.com.powerprogramers.product.domain.model.ProductChange;
+import br.com.powerprogramers.product.domain.repository.ProductChangeRepository;
+import br.com.powerprogramers.product.domain.service.ProductService;
+import br.com.powerprogramers.product.domain.service.StockService;
+import jakarta.transaction.Transactional;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Transactional
+@RecordApplicationEvents
+class ProductOutboxIT {
+
+  @Autowired private ProductOutbox productOutbox;
+  @Autowired private ProductChangeRepository productChangeRepository;
+  @Autowired private ProductService productService;
+  @Autowired private StockService stockService;
+  @Autowired private ApplicationEvents applicationEvents;
+
+  // changes left by the tests that commit are ignored
+  private long lastChangeId;
+
+  @BeforeEach
+  void setUp() {
+    lastChangeId =
+        productChangeRepository.findAll().stream()
+            .mapToLong(ProductChangeEntity::getId)
+            .max()
+            .orElse(0);
+  }
+
+  @Test
+  void mustAppendChange_WhenStockIsUpdated() {
+    stockService.updateStock(1L, 5);
+
+    assertThat(newChanges())
+        .extracting(ProductChangeEntity::getProductId, ProductChangeEntity::getType)
+        .containsExactly(tuple(1L, ProductChange.Type.STOCK_CHANGED));
+    assertThat(newChanges()).allMatch(c -> c.getPosition() == null);
+  }
+
+  @Test
+  void mustPublishChangesInOrder() {
+    productService.deactivate(1L);
+    stockService.updateStock(1L, 5);
+
+    drain();
+
+    assertThat(applicationEvents.stream(ProductChange.class))
+        .filteredOn(c -> c.getId() > lastChangeId)
+        .extracting(ProductChange::getType)
+        .containsExactly(ProductChange.Type.DEACTIVATED, ProductChange.Type.STOCK_CHANGED);
+    assertThat(newChanges()).allMatch(c -> c.getPosition() != null);
+  }
+
+  @Test
+  void mustKeepLatestChangeOfEachProduct_WhenCompacted() {
+    productService.deactivate(1L);
+    productService.activate(1L);
+    stockService.updateStock(2L, 5);
+
+    drain();
+    productOutbox.compact();
+
+    assertThat(newChanges())
+        .extracting(ProductChangeEntity::getType)
+        .containsExactly(ProductChange.Type.ACTIVATED, ProductChange.Type.STOCK_CHANGED);
+  }
+
+  @Test
+  void mustNotCompactUnpublishedChanges() {
+    productService.deactivate(1L);
+    productService.activate(1L);
+
+    productOutbox.compact();
+
+    assertThat(newChanges()).hasSize(2);
+  }
+
+  private void drain() {
+    while (productOutbox.publishNext(10) > 0) {
+      // publishes the changes left by other tests too
+    }
+  }
+
+  private List<ProductChangeEntity> newChanges() {
+    return productChangeRepository.findAll().stream()
+        .filter(c -> c.getId() > lastChangeId)
+        .sorted(Comparator.comparing(ProductChangeEntity::getId))
+        .toList();
+  }
+}
@@ -0,0 +1,90 @@
+package br.com.powerprogramers.product.domain.service.replica;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ReplicaReadFilterTest {
+
+  private final List<Boolean> routed = new ArrayList<>();
+  private ReplicaReadFilter replicaReadFilter;
+
+  @BeforeEach
+  void setUp() {
+    replicaReadFilter = new ReplicaReadFilter("X-Client-Id", Duration.ofMinutes(1));
+  }
+
+  @Test
+  void mustReadReplicas_OnlyForReads() throws Exception {
+    perform("GET", "/products", "a");
+    perform("POST", "/products/lookup", "a");
+    perform("HEAD", "/products/1", "a");
+    perform("PUT", "/products/1", "b");
+
+    assertThat(routed).containsExactly(true, true, true, false);
+    assertThat(ReplicaRouting.allowed()).isFalse();
+  }
+
+  @Test
+  void mustReadReplicas_ForReadOnlyPosts() throws Exception {
+    perform("POST", "/products/revalidate", "a");
+    perform("POST", "/api/lookupProducts", "a");
+    perform("POST", "/api/reserveStock", "b");
+    perform("GET", "/products/1", "a");
+
+    assertThat(routed).containsExactly(true, true, false, true);
+  }
+
+  @Test
+  void mustReadPrimary_AfterOwnWrite() throws Exception {
+    perform("POST", "/products", "a");
+    perform("GET", "/products/1", "a");
+    perform("GET", "/products/1", "b");
+    perform("GET", "/products/1", null);
+
+    assertThat(routed).containsExactly(false, false, true, true);
+  }
+
+  @Test
+  void mustReadReplicas_WhenPinWindowIsOver() throws Exception {
+    replicaReadFilter = new ReplicaReadFilter("X-Client-Id", Duration.ofMillis(1));
+
+    perform("PATCH", "/api/stock/1", "a");
+    Thread.sleep(5);
+    perform("GET", "/products/1", "a");
+
+    assertThat(routed).containsExactly(false, true);
+  }
+
+  @Test
+  void mustReadPrimary_InsideReadOfKeptRows() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products/1");
+    replicaReadFilter.doFilter(
+        request,
+        new MockHttpServletResponse(),
+        (req, res) -> {
+          routed.add(ReplicaRouting.onPrimary(ReplicaRouting::allowed));
+          routed.add(ReplicaRouting.allowed());
+        });
+
+    assertThat(routed).containsExactly(false, true);
+  }
+
+  private void perform(String method, String uri, String client)
+      throws ServletException, IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+    if (client != null) {
+      request.addHeader("X-Client-Id", client);
+    }
+    replicaReadFilter.doFilter(
+        request, new MockHttpServletResponse(), (req, res) -> routed.add(ReplicaRouting.allowed()));
+  }
+}
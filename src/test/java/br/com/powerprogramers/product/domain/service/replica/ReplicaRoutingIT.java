@@ -0,0 +1,156 @@
+package br.com.powerprogramers.product.domain.service.replica;
+
+import static br.com.powerprogramers.product.domain.utils.JsonUtil.toJson;
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.utils.ProductHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.restassured.RestAssured;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+// two in-memory databases stand for the primary and its replica, the test copies the heartbeat
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+      "product.replica.enabled=true",
+      "product.replica.urls=" + ReplicaRoutingIT.REPLICA_URL,
+      "product.replica.lag-check-interval-ms=3600000",
+      "product.cache.enabled=false"
+    })
+class ReplicaRoutingIT {
+
+  static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+  @LocalServerPort protected int port;
+
+  @Autowired private ReplicaRoutingDataSource replicaRoutingDataSource;
+  @Autowired private ProductRepository productRepository;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private final JdbcTemplate replica =
+      new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", "password"));
+  private final List<Long> created = new ArrayList<>();
+
+  @BeforeEach
+  void setup() {
+    RestAssured.port = port;
+    RestAssured.enableLoggingOfRequestAndResponseIfValidationFails();
+    replica.execute(
+        """
+        CREATE TABLE IF NOT EXISTS product (id BIGINT PRIMARY KEY, name VARCHAR(255),
+          description VARCHAR(255), amount INT, price DECIMAL(38, 2), active BOOLEAN NOT NULL,
+          version BIGINT)
+        """);
+    replica.execute(
+        "CREATE TABLE IF NOT EXISTS product_replica_heartbeat"
+            + " (id INT PRIMARY KEY, beat BIGINT NOT NULL)");
+    replica.update("DELETE FROM product");
+    replica.update(
+        "INSERT INTO product VALUES (1, 'Replica orange', 'Orange of the replica', 150, 10.5, TRUE,"
+            + " 0)");
+    replicate(System.currentTimeMillis());
+  }
+
+  @AfterEach
+  void tearDown() {
+    productRepository.deleteAllById(created);
+  }
+
+  @Test
+  void mustReadReplica_ForReadOnlyRequests() {
+    double reads =
+        meterRegistry.counter(ReplicaRoutingDataSource.READS, "target", "replica").count();
+
+    given()
+        .when()
+        .get("/products/1")
+        .then()
+        .statusCode(HttpStatus.OK.value())
+        .body("name", equalTo("Replica orange"));
+    given()
+        .param("perPage", 1)
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(HttpStatus.OK.value())
+        .body("items[0].name", equalTo("Replica orange"));
+    given()
+        .param("after", 0)
+        .when()
+        .get("/products/export")
+        .then()
+        .statusCode(HttpStatus.OK.value())
+        .body(containsString("\"name\":\"Replica orange\""));
+
+    assertThat(meterRegistry.counter(ReplicaRoutingDataSource.READS, "target", "replica").count())
+        .isGreaterThan(reads);
+  }
+
+  @Test
+  void mustReadPrimary_AfterOwnWrite() {
+    Integer id =
+        given()
+            .header("X-Client-Id", "writer")
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .body(toJson(ProductHelper.generateCreateProductDto()))
+            .when()
+            .post("/products")
+            .then()
+            .statusCode(HttpStatus.CREATED.value())
+            .extract()
+            .path("id");
+    created.add(id.longValue());
+
+    given()
+        .header("X-Client-Id", "writer")
+        .when()
+        .get("/products/" + id)
+        .then()
+        .statusCode(HttpStatus.OK.value());
+    given()
+        .header("X-Client-Id", "writer")
+        .when()
+        .get("/products/1")
+        .then()
+        .body("name", equalTo("Orange"));
+    given()
+        .header("X-Client-Id", "reader")
+        .when()
+        .get("/products/1")
+        .then()
+        .body("name", equalTo("Replica orange"));
+  }
+
+  @Test
+  void mustReadPrimary_WhenReplicaLags() {
+    replicate(System.currentTimeMillis() - 60_000);
+
+    given().when().get("/products/1").then().body("name", equalTo("Orange"));
+
+    replicate(System.currentTimeMillis());
+
+    given().when().get("/products/1").then().body("name", equalTo("Replica orange"));
+  }
+
+  private void replicate(long beat) {
+    replica.update("DELETE FROM product_replica_heartbeat");
+    replica.update("INSERT INTO product_replica_heartbeat (id, beat) VALUES (1, ?)", beat);
+    replicaRoutingDataSource.checkLag();
+  }
+}
@@ -0,0 +1,71 @@
+package br.com.powerprogramers.product.domain.service.reservation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+  @Test
+  void mustExpireItemOnItsTick() {
+    TimingWheel<String> timingWheel = new TimingWheel<>(10, 8, 3, 0);
+    timingWheel.add("a", 30);
+    timingWheel.add("b", 45);
+
+    assertThat(timingWheel.advance(29)).isEmpty();
+    assertThat(timingWheel.advance(30)).containsExactly("a");
+    assertThat(timingWheel.advance(49)).isEmpty();
+    assertThat(timingWheel.advance(50)).containsExactly("b");
+    assertThat(timingWheel.size()).isZero();
+  }
+
+  @Test
+  void mustCascadeItemsFromCoarseLevels() {
+    TimingWheel<Long> timingWheel = new TimingWheel<>(1, 4, 3, 0);
+    List<Long> deadlines = List.of(5L, 17L, 20L, 33L, 63L);
+    deadlines.forEach(deadline -> timingWheel.add(deadline, deadline));
+
+    List<Long> expired = new ArrayList<>();
+    for (long now = 1; now <= 63; now++) {
+      List<Long> due = timingWheel.advance(now);
+      for (Long deadline : due) {
+        assertThat(deadline).isEqualTo(now);
+      }
+      expired.addAll(due);
+    }
+
+    assertThat(expired).containsExactlyElementsOf(deadlines);
+  }
+
+  @Test
+  void mustExpireItemsBeyondTheLastLevel() {
+    TimingWheel<String> timingWheel = new TimingWheel<>(1, 4, 2, 0);
+    timingWheel.add("far", 100);
+
+    assertThat(timingWheel.advance(99)).isEmpty();
+    assertThat(timingWheel.advance(100)).containsExactly("far");
+  }
+
+  @Test
+  void mustExpireOnNextTick_WhenDeadlineAlreadyPassed() {
+    TimingWheel<String> timingWheel = new TimingWheel<>(10, 8, 2, 1000);
+    timingWheel.add("late", 500);
+
+    assertThat(timingWheel.advance(1000)).isEmpty();
+    assertThat(timingWheel.advance(1010)).containsExactly("late");
+  }
+
+  @Test
+  void mustExpireEveryItem_WhenAdvancingManyTicksAtOnce() {
+    TimingWheel<Integer> timingWheel = new TimingWheel<>(1, 16, 4, 0);
+    for (int i = 1; i <= 100_000; i++) {
+      timingWheel.add(i, i % 5_000 + 1);
+    }
+
+    assertThat(timingWheel.advance(2_500)).hasSize(50_000);
+    assertThat(timingWheel.advance(5_000)).hasSize(50_000);
+    assertThat(timingWheel.size()).isZero();
+  }
+}
@@ -0,0 +1,143 @@
+package br.com.powerprogramers.product.domain.service.retry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.ProductService;
+import br.com.powerprogramers.product.domain.service.cache.LocalCacheInvalidationBus;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import br.com.powerprogramers.product.domain.service.coalesce.ProductReadCoalescer;
+import br.com.powerprogramers.product.domain.service.count.ProductCountEstimator;
+import br.com.powerprogramers.product.domain.service.counter.StockCounters;
+import br.com.powerprogramers.product.domain.service.impl.ProductServiceImpl;
+import br.com.powerprogramers.product.domain.service.outbox.ProductOutbox;
+import br.com.powerprogramers.product.domain.service.search.ProductTextIndex;
+import br.com.powerprogramers.product.domain.service.snapshot.ProductSnapshot;
+import br.com.powerprogramers.product.domain.service.usecase.create.CreateProductUseCase;
+import br.com.powerprogramers.product.domain.utils.ProductHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+@SpringJUnitConfig
+@TestPropertySource(properties = {"product.retry.max-attempts=3", "product.retry.delay=1"})
+class OptimisticRetryTest {
+
+  @Autowired private ProductService productService;
+  @Autowired private ProductRepository productRepository;
+  @Autowired private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    reset(productRepository);
+    meterRegistry.clear();
+    when(productRepository.findById(anyLong()))
+        .thenReturn(Optional.of(ProductHelper.generateProductEntity(true)));
+  }
+
+  @Test
+  void mustRetryUpdate_WhenVersionConflicts() {
+    when(productRepository.saveAndFlush(any(ProductEntity.class)))
+        .thenThrow(new ObjectOptimisticLockingFailureException(ProductEntity.class, 1L))
+        .thenAnswer(p -> p.getArgument(0));
+
+    ProductDto result = productService.deactivate(ProductHelper.ID);
+
+    assertThat(result.isActive()).isFalse();
+    verify(productRepository, times(2)).saveAndFlush(any(ProductEntity.class));
+    assertThat(count(OptimisticRetryListener.CONFLICTS, "product.deactivate")).isEqualTo(1);
+    assertThat(count(OptimisticRetryListener.RETRIES, "product.deactivate")).isEqualTo(1);
+  }
+
+  @Test
+  void mustGiveUp_WhenVersionKeepsConflicting() {
+    when(productRepository.saveAndFlush(any(ProductEntity.class)))
+        .thenThrow(new ObjectOptimisticLockingFailureException(ProductEntity.class, 1L));
+
+    assertThatThrownBy(() -> productService.activate(ProductHelper.ID))
+        .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+    verify(productRepository, times(3)).saveAndFlush(any(ProductEntity.class));
+    assertThat(count(OptimisticRetryListener.CONFLICTS, "product.activate")).isEqualTo(3);
+    assertThat(count(OptimisticRetryListener.RETRIES, "product.activate")).isEqualTo(2);
+    assertThat(count(OptimisticRetryListener.EXHAUSTED, "product.activate")).isEqualTo(1);
+  }
+
+  private double count(String name, String operation) {
+    return meterRegistry.get(name).tag("operation", operation).counter().count();
+  }
+
+  @Configuration
+  @EnableRetry
+  @Import({ProductServiceImpl.class, ProductReadCoalescer.class, OptimisticRetryListener.class})
+  static class Config {
+
+    @Bean
+    ProductRepository productRepository() {
+      return Mockito.mock(ProductRepository.class);
+    }
+
+    @Bean
+    CreateProductUseCase createProductUseCase() {
+      return new CreateProductUseCase();
+    }
+
+    @Bean
+    StockCounters stockCounters() {
+      return new StockCounters(List.of());
+    }
+
+    @Bean
+    ProductOutbox productOutbox() {
+      return Mockito.mock(ProductOutbox.class);
+    }
+
+    @Bean
+    ProductCache productCache(MeterRegistry meterRegistry) {
+      return new ProductCache(
+          true, 100, Duration.ofMinutes(1), meterRegistry, new LocalCacheInvalidationBus());
+    }
+
+    @Bean
+    ProductCountEstimator productCountEstimator() {
+      return Mockito.mock(ProductCountEstimator.class);
+    }
+
+    @Bean
+    ProductTextIndex productTextIndex() {
+      return Mockito.mock(ProductTextIndex.class);
+    }
+
+    @Bean
+    ProductSnapshot productSnapshot() {
+      return Mockito.mock(ProductSnapshot.class);
+    }
+
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+}
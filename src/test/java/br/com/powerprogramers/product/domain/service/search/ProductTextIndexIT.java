@@ -0,0 +1,110 @@
+package br.com.powerprogramers.product.domain.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.com.powerprogramers.product.domain.dto.CreateProductDto;
+import br.com.powerprogramers.product.domain.dto.ProductDto;
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductQuery;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.ProductService;
+import jakarta.transaction.Transactional;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Transactional(Transactional.TxType.NOT_SUPPORTED)
+class ProductTextIndexIT {
+
+  @Autowired private ProductTextIndex productTextIndex;
+  @Autowired private ProductService productService;
+  @Autowired private ProductRepository productRepository;
+
+  private final List<Long> created = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    productRepository.deleteAllById(created);
+    created.forEach(productTextIndex::remove);
+  }
+
+  @Test
+  void mustFindSameProductsAsQuery() {
+    create("Tangerine", "Japanese sweet tangerine", true);
+    create("Mandarin orange", "Small sweet citrus", true);
+    create("Pomelo", "Largest citrus fruit", false);
+
+    assertSameProducts("Tangerine", null, true);
+    assertSameProducts("tangerine", null, true);
+    assertSameProducts("ange", null, true);
+    assertSameProducts("an", null, true);
+    assertSameProducts(null, "sweet", true);
+    assertSameProducts("Tang", "Japanese", true);
+    assertSameProducts("e", "e", true);
+    assertSameProducts("Pomelo", null, false);
+  }
+
+  @Test
+  void mustIndexProductsAddedToTable() {
+    productRepository.saveAndFlush(
+        ProductEntity.builder()
+            .name("Kumquat")
+            .description("Loaded citrus")
+            .amount(1)
+            .price(BigDecimal.ONE)
+            .active(true)
+            .build());
+    created.add(
+        productRepository.findAll().stream().mapToLong(ProductEntity::getId).max().orElseThrow());
+    assertThat(productTextIndex.search("Kumquat", null, true)).isEmpty();
+
+    productTextIndex.catchUp();
+
+    assertThat(productTextIndex.search("Kumquat", null, true)).containsExactly(created.get(0));
+    assertThat(
+            productService
+                .findAll(
+                    ProductQuery.builder().page(0).perPage(10).name("Kumquat").active(true).build())
+                .getTotal())
+        .isEqualTo(1L);
+  }
+
+  private void assertSameProducts(String name, String description, boolean active) {
+    long[] expected =
+        productRepository
+            .searchProducts(
+                name, description, active, ProductFacets.NONE, null, PageRequest.of(0, 1000))
+            .stream()
+            .mapToLong(ProductView::id)
+            .toArray();
+
+    assertThat(productTextIndex.covers(name, description)).isTrue();
+    assertThat(productTextIndex.search(name, description, active))
+        .as("%s / %s", name, description)
+        .containsExactly(expected);
+  }
+
+  private void create(String name, String description, boolean active) {
+    ProductDto product =
+        productService.save(
+            new CreateProductDto()
+                .name(name)
+                .description(description)
+                .amount(1)
+                .price(BigDecimal.ONE));
+    created.add(product.getId());
+    if (!active) {
+      productService.deactivate(product.getId());
+    }
+  }
+}
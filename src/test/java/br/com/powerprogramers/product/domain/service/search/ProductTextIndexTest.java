@@ -0,0 +1,226 @@
+package br.com.powerprogramers.product.domain.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.cache.CacheInvalidationBus;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ProductTextIndexTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private ProductRepository productRepository;
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private PlatformTransactionManager transactionManager;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
+
+  private ProductTextIndex productTextIndex;
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    productTextIndex =
+        new ProductTextIndex(
+            productRepository, jdbcTemplate, transactionManager, cacheInvalidationBus, true, 100);
+    productTextIndex.build();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    openMocks.close();
+  }
+
+  @Test
+  void mustFindProductsContainingText() {
+    put(1L, "Orange", "Argentine sweet orange", true, 0);
+    put(2L, "Blood orange", "Sicilian orange", true, 0);
+    put(3L, "Strawberry", "Beautiful red strawberries", true, 0);
+
+    assertThat(productTextIndex.search("range", null, true)).containsExactly(1L, 2L);
+    assertThat(productTextIndex.search("Orange", null, true)).containsExactly(1L);
+    assertThat(productTextIndex.search(null, "orange", true)).containsExactly(1L, 2L);
+    assertThat(productTextIndex.search("ange", "sweet", true)).containsExactly(1L);
+    assertThat(productTextIndex.search("ra", null, true)).containsExactly(1L, 2L, 3L);
+    assertThat(productTextIndex.search("", null, true)).containsExactly(1L, 2L, 3L);
+    assertThat(productTextIndex.search("kiwi", null, true)).isEmpty();
+    assertThat(productTextIndex.search("range", null, false)).isEmpty();
+    assertThat(productTextIndex.search("range", null, null)).isEmpty();
+  }
+
+  @Test
+  void mustReindexChangedProduct() {
+    put(1L, "Orange", "Argentine sweet orange", true, 0);
+
+    put(1L, "Lemon", "Sicilian lemon", false, 1);
+
+    assertThat(productTextIndex.search("Orange", null, true)).isEmpty();
+    assertThat(productTextIndex.search("Lemon", null, false)).containsExactly(1L);
+  }
+
+  @Test
+  void mustKeepNewerProduct_WhenOlderVersionArrives() {
+    put(1L, "Lemon", "Sicilian lemon", true, 2);
+
+    put(1L, "Orange", "Argentine sweet orange", true, 1);
+
+    assertThat(productTextIndex.search("Lemon", null, true)).containsExactly(1L);
+  }
+
+  @Test
+  void mustIndexWrite_OnlyWhenTransactionCommits() {
+    TransactionSynchronizationManager.initSynchronization();
+    put(1L, "Orange", "Argentine sweet orange", true, 0);
+    assertThat(productTextIndex.search("Orange", null, true)).isEmpty();
+
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(TransactionSynchronization::afterCommit);
+
+    assertThat(productTextIndex.search("Orange", null, true)).containsExactly(1L);
+  }
+
+  @Test
+  void mustReadProductsAgain_WhenChangedOnOtherInstance() {
+    put(1L, "Orange", "Argentine sweet orange", true, 0);
+    put(2L, "Lemon", "Sicilian lemon", true, 0);
+    when(productRepository.findViewsById(any()))
+        .thenReturn(
+            List.of(
+                new ProductView(1L, "Tangerine", "Japanese", BigDecimal.ONE, 1, false, 1L),
+                new ProductView(3L, "Kumquat", "Loaded citrus", BigDecimal.ONE, 1, true, 0L)));
+
+    productTextIndex.invalidate(List.of(1L, 2L, 3L));
+
+    verify(cacheInvalidationBus).subscribe(productTextIndex);
+    assertThat(productTextIndex.search("Orange", null, true)).isEmpty();
+    assertThat(productTextIndex.search("Tangerine", null, false)).containsExactly(1L);
+    assertThat(productTextIndex.search("Lemon", null, true)).isEmpty();
+    assertThat(productTextIndex.search("Kumquat", null, true)).containsExactly(3L);
+    assertThat(productTextIndex.covers("Orange", null)).isTrue();
+  }
+
+  @Test
+  void mustLeaveToDatabase_WhenChangedProductsCannotBeRead() {
+    put(1L, "Orange", "Argentine sweet orange", true, 0);
+    when(productRepository.findViewsById(any())).thenThrow(new IllegalStateException("down"));
+
+    productTextIndex.invalidate(List.of(1L));
+
+    assertThat(productTextIndex.covers("Orange", null)).isFalse();
+
+    reset(productRepository);
+    productTextIndex.refresh();
+
+    assertThat(productTextIndex.covers("Orange", null)).isTrue();
+    assertThat(productTextIndex.search("Orange", null, true)).isEmpty();
+  }
+
+  @Test
+  void mustMatchContains_ForRandomTexts() {
+    Random random = new Random(42);
+    List<String> names = new ArrayList<>();
+    for (long id = 1; id <= 500; id++) {
+      String name = randomText(random, 4 + random.nextInt(12));
+      names.add(name);
+      put(id, name, null, true, 0);
+    }
+
+    for (int i = 0; i < 200; i++) {
+      String text = randomText(random, 1 + random.nextInt(4));
+      long[] expected =
+          LongStream.rangeClosed(1, 500)
+              .filter(id -> names.get((int) id - 1).contains(text))
+              .toArray();
+
+      assertThat(productTextIndex.search(text, null, true)).as(text).containsExactly(expected);
+    }
+  }
+
+  @Test
+  void mustLeaveToDatabase_WhenIndexCannotAnswer() {
+    assertThat(productTextIndex.covers("orange", null)).isTrue();
+    assertThat(productTextIndex.covers(null, null)).isFalse();
+    assertThat(productTextIndex.covers("ora%ge", null)).isFalse();
+    assertThat(productTextIndex.covers(null, "or_nge")).isFalse();
+    assertThat(
+            new ProductTextIndex(
+                    productRepository,
+                    jdbcTemplate,
+                    transactionManager,
+                    cacheInvalidationBus,
+                    true,
+                    100)
+                .covers("a", null))
+        .isFalse();
+
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    assertThat(productTextIndex.covers("orange", null)).isFalse();
+  }
+
+  @Test
+  void mustIgnoreAccentsAndCase_WhenDatabaseFoldsText() {
+    when(productRepository.foldsText()).thenReturn(true);
+    productTextIndex =
+        new ProductTextIndex(
+            productRepository, jdbcTemplate, transactionManager, cacheInvalidationBus, true, 100);
+    productTextIndex.build();
+    put(1L, "Tênis de corrida", "Calçado leve", true, 0);
+    put(2L, "Protetor solar", "Proteção FPS 50", true, 0);
+
+    assertThat(productTextIndex.search("tenis", null, true)).containsExactly(1L);
+    assertThat(productTextIndex.search("TÊNIS", null, true)).containsExactly(1L);
+    assertThat(productTextIndex.search(null, "calcado", true)).containsExactly(1L);
+    assertThat(productTextIndex.search(null, "protecao fps", true)).containsExactly(2L);
+    assertThat(ProductTextIndex.fold("Ação Çé")).isEqualTo("acao ce");
+  }
+
+  @Test
+  void mustPackDistinctTrigrams() {
+    assertThat(ProductTextIndex.grams("aaaa")).hasSize(1);
+    assertThat(ProductTextIndex.grams("abcd")).hasSize(2);
+    assertThat(ProductTextIndex.grams("ab")).isEmpty();
+    assertThat(ProductTextIndex.grams(null)).isEmpty();
+  }
+
+  private void put(Long id, String name, String description, boolean active, long version) {
+    productTextIndex.put(
+        ProductEntity.builder()
+            .id(id)
+            .name(name)
+            .description(description)
+            .active(active)
+            .version(version)
+            .build());
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      text.append("abcAB".charAt(random.nextInt(5)));
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,173 @@
+package br.com.powerprogramers.product.domain.service.slot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.entity.ProductStockSlotEntity;
+import br.com.powerprogramers.product.domain.model.ProductCursor;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductSort;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import br.com.powerprogramers.product.domain.repository.PostgresProductSearchSchema;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.repository.ProductSearchRepositoryImpl;
+import br.com.powerprogramers.product.domain.repository.ProductStockSlotRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Transactional
+class StockSlotsIT {
+
+  @Autowired private ProductRepository productRepository;
+  @Autowired private ProductStockSlotRepository productStockSlotRepository;
+  @Autowired private EntityManager entityManager;
+  @Autowired private PostgresProductSearchSchema searchSchema;
+
+  private Long productId;
+  private StockSlots stockSlots;
+
+  @BeforeEach
+  void setUp() {
+    productId =
+        productRepository
+            .save(
+                ProductEntity.builder()
+                    .name("Watermelon")
+                    .description("Flash sale watermelon")
+                    .amount(20)
+                    .price(BigDecimal.TEN)
+                    .active(true)
+                    .build())
+            .getId();
+    stockSlots =
+        new StockSlots(productRepository, productStockSlotRepository, Set.of(productId), 4);
+    stockSlots.init();
+  }
+
+  @Test
+  void mustSpreadProductStockAcrossSlots() {
+    assertThat(productRepository.findById(productId).orElseThrow().getAmount()).isZero();
+    assertThat(productStockSlotRepository.findAllByProductIdForUpdate(productId))
+        .extracting(ProductStockSlotEntity::getAmount)
+        .containsExactly(5, 5, 5, 5);
+    assertThat(stockSlots.available(productId)).isEqualTo(20);
+  }
+
+  @Test
+  void mustRemoveStockFromSeveralSlots_WhenNoSlotHasEnough() {
+    stockSlots.add(productId, -7);
+    stockSlots.add(productId, -3);
+    stockSlots.add(productId, 2);
+
+    assertThat(stockSlots.available(productId)).isEqualTo(12);
+  }
+
+  @Test
+  void mustGenerateException_WhenSlotsDoNotHaveEnoughStock() {
+    assertThatThrownBy(() -> stockSlots.add(productId, -21))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The total purchase cannot be more than the stock total.");
+    assertThat(stockSlots.available(productId)).isEqualTo(20);
+  }
+
+  @Test
+  void mustSellStockAddedToProductRow() {
+    productRepository.updateAmount(productId, 3);
+
+    stockSlots.add(productId, -23);
+
+    assertThat(stockSlots.available(productId)).isZero();
+  }
+
+  @Test
+  void mustEvenSlotsOut_WhenRebalancing() {
+    stockSlots.add(productId, -5);
+    stockSlots.add(productId, -5);
+    productRepository.updateAmount(productId, 2);
+
+    stockSlots.rebalance();
+
+    assertThat(productRepository.findById(productId).orElseThrow().getAmount()).isZero();
+    assertThat(productStockSlotRepository.findAllByProductIdForUpdate(productId))
+        .extracting(ProductStockSlotEntity::getAmount)
+        .containsExactly(3, 3, 3, 3);
+  }
+
+  @Test
+  void mustListSplitProductByStockOfItsSlots() {
+    Long juiceId =
+        productRepository
+            .save(
+                ProductEntity.builder()
+                    .name("Watermelon juice")
+                    .description("Juice of the flash sale watermelon")
+                    .amount(10)
+                    .price(BigDecimal.ONE)
+                    .active(true)
+                    .build())
+            .getId();
+    ProductSearchRepositoryImpl search =
+        new ProductSearchRepositoryImpl(entityManager, searchSchema, Set.of(productId));
+
+    assertThat(search("Watermelon", true, ProductSort.ID, null, search))
+        .extracting(ProductView::id)
+        .containsExactly(productId, juiceId);
+    assertThat(search("Watermelon", false, ProductSort.ID, null, search)).isEmpty();
+    assertThat(search("Watermelon", null, ProductSort.AMOUNT_DESC, null, search))
+        .extracting(ProductView::id, ProductView::amount)
+        .containsExactly(tuple(productId, 20), tuple(juiceId, 10));
+    assertThat(
+            search(
+                "Watermelon",
+                null,
+                ProductSort.AMOUNT_DESC,
+                new ProductCursor.Position(productId, 20),
+                search))
+        .extracting(ProductView::id)
+        .containsExactly(juiceId);
+    assertThat(
+            search.countSearchProducts(
+                "Watermelon", null, true, new ProductFacets(null, null, true, ProductSort.ID)))
+        .isEqualTo(2L);
+  }
+
+  @Test
+  void mustMergeSlotsBack_WhenProductIsNoLongerSplit() {
+    stockSlots.add(productId, -4);
+
+    new StockSlots(productRepository, productStockSlotRepository, Set.of(), 4).init();
+
+    assertThat(productRepository.findById(productId).orElseThrow().getAmount()).isEqualTo(16);
+    assertThat(productStockSlotRepository.findAllByProductIdForUpdate(productId)).isEmpty();
+  }
+
+  private static List<ProductView> search(
+      String name,
+      Boolean inStock,
+      ProductSort sort,
+      ProductCursor.Position after,
+      ProductSearchRepositoryImpl search) {
+    return search
+        .searchProducts(
+            name,
+            null,
+            true,
+            new ProductFacets(null, null, inStock, sort),
+            after,
+            PageRequest.of(0, 10))
+        .getContent();
+  }
+}
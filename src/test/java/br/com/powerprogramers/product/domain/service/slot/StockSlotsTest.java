@@ -0,0 +1,87 @@
+package br.com.powerprogramers.product.domain.service.slot;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.entity.ProductStockSlotEntity;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.repository.ProductStockSlotRepository;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+class StockSlotsTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private ProductRepository productRepository;
+  @Mock private ProductStockSlotRepository productStockSlotRepository;
+
+  private StockSlots stockSlots;
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    stockSlots = new StockSlots(productRepository, productStockSlotRepository, Set.of(1L), 4);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    openMocks.close();
+  }
+
+  @Test
+  void mustNotLockSlots_WhenNothingNeedsToMove() {
+    product(0);
+    when(productStockSlotRepository.findAmounts(1L)).thenReturn(List.of(5, 4, 5, 6));
+
+    stockSlots.rebalance();
+
+    verify(productStockSlotRepository, never()).findAllByProductIdForUpdate(anyLong());
+    verify(productStockSlotRepository, never()).setAmount(anyLong(), anyInt(), anyInt());
+  }
+
+  @Test
+  void mustNotRewriteSlots_WhenBalancedOnceLocked() {
+    product(0);
+    when(productStockSlotRepository.findAmounts(1L)).thenReturn(List.of(9, 1, 5, 5));
+    when(productStockSlotRepository.findAllByProductIdForUpdate(1L))
+        .thenReturn(List.of(slot(0, 5), slot(1, 5), slot(2, 5), slot(3, 5)));
+
+    stockSlots.rebalance();
+
+    verify(productStockSlotRepository, never()).setAmount(anyLong(), anyInt(), anyInt());
+  }
+
+  @Test
+  void mustLockAndMoveRowStock_WhenProductRowHasStock() {
+    product(4);
+    when(productStockSlotRepository.findAmounts(1L)).thenReturn(List.of(5, 5, 5, 5));
+    when(productStockSlotRepository.findAllByProductIdForUpdate(1L))
+        .thenReturn(List.of(slot(0, 5), slot(1, 5), slot(2, 5), slot(3, 5)));
+    when(productRepository.updateAmount(1L, -4)).thenReturn(1);
+
+    stockSlots.rebalance();
+
+    verify(productStockSlotRepository).setAmount(1L, 0, 6);
+    verify(productStockSlotRepository).setAmount(1L, 3, 6);
+  }
+
+  private void product(int amount) {
+    when(productRepository.findById(1L))
+        .thenReturn(Optional.of(ProductEntity.builder().id(1L).amount(amount).build()));
+  }
+
+  private static ProductStockSlotEntity slot(int slot, int amount) {
+    return new ProductStockSlotEntity(1L, slot, amount);
+  }
+}
@@ -0,0 +1,110 @@
+package br.com.powerprogramers.product.domain.service.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.com.powerprogramers.product.domain.dto.CreateProductDto;
+import br.com.powerprogramers.product.domain.entity.ProductEntity;
+import br.com.powerprogramers.product.domain.model.ProductFacets;
+import br.com.powerprogramers.product.domain.model.ProductView;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.ProductService;
+import jakarta.transaction.Transactional;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+@SpringBootTest(properties = "product.snapshot.enabled=true")
+@AutoConfigureTestDatabase
+@Transactional(Transactional.TxType.NOT_SUPPORTED)
+class ProductSnapshotIT {
+
+  @Autowired private ProductSnapshot productSnapshot;
+  @Autowired private ProductService productService;
+  @Autowired private ProductRepository productRepository;
+
+  private final List<Long> created = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    productRepository.deleteAllById(created);
+    productSnapshot.invalidate(created);
+    productSnapshot.refresh();
+  }
+
+  @Test
+  void mustFindSameProductsAsQuery() {
+    create("Tangerine", "Japanese sweet tangerine");
+    create("Mandarin orange", "Small sweet citrus");
+    productSnapshot.refresh();
+
+    assertSameProducts(null, null);
+    assertSameProducts("Tangerine", null);
+    assertSameProducts("ange", null);
+    assertSameProducts(null, "sweet");
+    assertSameProducts("e", "e");
+  }
+
+  @Test
+  void mustLeaveOutDeactivatedProduct() {
+    Long id = create("Pomelo", "Largest citrus fruit");
+    productSnapshot.refresh();
+    assertThat(productSnapshot.find(id)).isPresent();
+
+    productService.deactivate(id);
+    productSnapshot.refresh();
+
+    assertThat(productSnapshot.find(id)).isEmpty();
+    assertThat(productService.findById(id).isActive()).isFalse();
+  }
+
+  @Test
+  void mustReadProductsAddedToTable() {
+    Long id =
+        productRepository
+            .saveAndFlush(
+                ProductEntity.builder()
+                    .name("Kumquat")
+                    .description("Loaded citrus")
+                    .amount(5)
+                    .price(BigDecimal.ONE)
+                    .active(true)
+                    .build())
+            .getId();
+    created.add(id);
+
+    productSnapshot.catchUp();
+    productSnapshot.refresh();
+
+    assertThat(productSnapshot.find(id).map(ProductView::name)).contains("Kumquat");
+  }
+
+  private void assertSameProducts(String name, String description) {
+    assertThat(productSnapshot.covers(name, description, true)).isTrue();
+    assertThat(productSnapshot.findPage(name, description, 0, PageRequest.of(0, 1000)).getContent())
+        .isEqualTo(
+            productRepository
+                .searchProducts(
+                    name, description, true, ProductFacets.NONE, null, PageRequest.of(0, 1000))
+                .getContent());
+  }
+
+  private Long create(String name, String description) {
+    Long id =
+        productService
+            .save(
+                new CreateProductDto()
+                    .name(name)
+                    .description(description)
+                    .amount(10)
+                    .price(new BigDecimal("3.50")))
+            .getId();
+    created.add(id);
+    return id;
+  }
+}
@@ -0,0 +1,198 @@
+package br.com.powerprogramers.product.domain.service.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+import br.com.powerprogramers.product.domain.model.ProductView;
+import br.com.powerprogramers.product.domain.repository.ProductRepository;
+import br.com.powerprogramers.product.domain.service.cache.CacheInvalidationBus;
+import br.com.powerprogramers.product.domain.service.cache.ProductCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ProductSnapshotTest {
+
+  private AutoCloseable openMocks;
+
+  @Mock private ProductRepository productRepository;
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private PlatformTransactionManager transactionManager;
+  @Mock private ProductCache productCache;
+  @Mock private CacheInvalidationBus cacheInvalidationBus;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private ProductSnapshot productSnapshot;
+
+  @BeforeEach
+  void setUp() {
+    openMocks = MockitoAnnotations.openMocks(this);
+    productSnapshot = newSnapshot(Duration.ofMinutes(1));
+    productSnapshot.build();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+    openMocks.close();
+  }
+
+  @Test
+  void mustFollowWritesOfEveryInstance() {
+    verify(productCache).follow(productSnapshot);
+    verify(cacheInvalidationBus).subscribe(productSnapshot);
+  }
+
+  @Test
+  void mustHoldOnlyActiveProducts() {
+    change(
+        view(1L, "Orange", "Argentine sweet orange", true),
+        view(2L, "Strawberry", "Beautiful red strawberries", false),
+        view(3L, "Lemon", "Sicilian lemon", true));
+
+    assertThat(productSnapshot.size()).isEqualTo(2);
+    assertThat(productSnapshot.find(1L))
+        .contains(view(1L, "Orange", "Argentine sweet orange", true));
+    assertThat(productSnapshot.find(2L)).isEmpty();
+    assertThat(productSnapshot.findAll(List.of(1L, 2L, 9L))).containsOnlyKeys(1L);
+  }
+
+  @Test
+  void mustReplaceAndRemoveChangedProducts() {
+    change(
+        view(1L, "Orange", "Argentine sweet orange", true),
+        view(3L, "Lemon", "Sicilian lemon", true));
+
+    change(view(1L, "Orange", "Argentine sweet orange", false), view(2L, "Lime", "Green", true));
+    change();
+    productSnapshot.invalidate(List.of(3L));
+    productSnapshot.refresh();
+
+    assertThat(productSnapshot.find(1L)).isEmpty();
+    assertThat(productSnapshot.find(3L)).isEmpty();
+    assertThat(productSnapshot.find(2L).map(ProductView::name)).contains("Lime");
+  }
+
+  @Test
+  void mustKeepPriceInCentsAndMissingValues() {
+    ProductView view =
+        new ProductView(1L, null, "Loaded", new BigDecimal("12.5"), null, true, null);
+    change(view);
+
+    ProductView found = productSnapshot.find(1L).orElseThrow();
+
+    assertThat(found.price()).isEqualTo(new BigDecimal("12.50"));
+    assertThat(found.name()).isNull();
+    assertThat(found.amount()).isNull();
+    assertThat(found.version()).isNull();
+  }
+
+  @Test
+  void mustFindPageOfProductsContainingText() {
+    change(
+        view(1L, "Orange", "Argentine sweet orange", true),
+        view(2L, "Blood orange", "Sicilian orange", true),
+        view(4L, "Mandarin orange", "Sweet citrus", true),
+        view(5L, null, "Sicilian lemon", true));
+
+    Page<ProductView> page = productSnapshot.findPage("orange", null, 0, PageRequest.of(1, 1));
+    assertThat(page.getContent()).extracting(ProductView::id).containsExactly(4L);
+    assertThat(page.getTotalElements()).isEqualTo(2);
+
+    assertThat(productSnapshot.findPage(null, "Sicilian", 0, PageRequest.of(0, 5)))
+        .extracting(ProductView::id)
+        .containsExactly(2L, 5L);
+    assertThat(productSnapshot.findPage("", null, 0, PageRequest.of(0, 5)))
+        .extracting(ProductView::id)
+        .containsExactly(1L, 2L, 4L);
+    Page<ProductView> after = productSnapshot.findPage(null, null, 2L, PageRequest.of(0, 1));
+    assertThat(after.getContent()).extracting(ProductView::id).containsExactly(4L);
+    assertThat(after.hasNext()).isTrue();
+  }
+
+  @Test
+  void mustNotCoverFiltersLeftToDatabase() {
+    assertThat(productSnapshot.covers("ange", null, true)).isTrue();
+    assertThat(productSnapshot.covers(null, null, false)).isFalse();
+    assertThat(productSnapshot.covers(null, null, null)).isFalse();
+    assertThat(productSnapshot.covers("a%e", null, true)).isFalse();
+
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    assertThat(productSnapshot.covers(null, null, true)).isFalse();
+  }
+
+  @Test
+  void mustFallBackToDatabase_WhenStale() throws InterruptedException {
+    ProductSnapshot stale = newSnapshot(Duration.ofMillis(1));
+    stale.build();
+    Thread.sleep(5);
+
+    assertThat(stale.covers(null, null, true)).isFalse();
+    assertThat(stale.find(1L)).isEmpty();
+  }
+
+  @Test
+  void mustKeepChanges_WhenRefreshFails() {
+    productSnapshot.invalidate(List.of(1L));
+    doThrow(new IllegalStateException("down")).when(productRepository).findViewsById(any());
+    productSnapshot.refresh();
+
+    change(view(1L, "Orange", "Argentine sweet orange", true));
+
+    assertThat(productSnapshot.find(1L)).isPresent();
+  }
+
+  @Test
+  void mustReportMemoryFootprint() {
+    long empty = productSnapshot.memory();
+
+    change(
+        view(1L, "Orange", "Sweet", true),
+        view(2L, "Lemon", "Sweet", true),
+        view(3L, "Lime", "Sweet", true));
+
+    assertThat(productSnapshot.memory()).isGreaterThan(empty);
+    assertThat(meterRegistry.get("product.snapshot.memory").gauge().value())
+        .isEqualTo(productSnapshot.memory());
+    assertThat(meterRegistry.get("product.snapshot.size").gauge().value()).isEqualTo(3);
+  }
+
+  private void change(ProductView... views) {
+    doReturn(List.of(views)).when(productRepository).findViewsById(any());
+    productSnapshot.invalidate(Arrays.stream(views).map(ProductView::id).toList());
+    productSnapshot.refresh();
+  }
+
+  private ProductSnapshot newSnapshot(Duration maxStaleness) {
+    return new ProductSnapshot(
+        productRepository,
+        jdbcTemplate,
+        transactionManager,
+        productCache,
+        cacheInvalidationBus,
+        meterRegistry,
+        true,
+        maxStaleness,
+        100);
+  }
+
+  private static ProductView view(Long id, String name, String description, boolean active) {
+    return new ProductView(id, name, description, new BigDecimal("2.00"), 10, active, 0L);
+  }
+}
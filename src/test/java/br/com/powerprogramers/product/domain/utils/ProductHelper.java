@@ -5,6 +5,7 @@ import br.com.powerprogramers.product.domain.dto.ProductDto;
 import br.com.powerprogramers.product.domain.dto.UpdateProductDto;
 import br.com.powerprogramers.product.domain.entity.ProductEntity;
 import br.com.powerprogramers.product.domain.model.Product;
+import br.com.powerprogramers.product.domain.model.ProductView;
 import java.math.BigDecimal;
 
 public final class ProductHelper {
@@ -75,4 +76,12 @@ public final class ProductHelper {
         .active(active)
         .build();
   }
+
+  public static ProductView generateProductView(boolean active) {
+    return new ProductView(ID, NAME, DESCRIPTION, PRICE, AMOUNT, active, 0L);
+  }
+
+  public static ProductView generateProductView(Long id) {
+    return new ProductView(id, NAME, DESCRIPTION, PRICE, AMOUNT, true, 0L);
+  }
 }
@@ -0,0 +1,75 @@
+package br.com.powerprogramers.product.performance;
+
+import static io.gatling.javaapi.core.CoreDsl.constantUsersPerSec;
+import static io.gatling.javaapi.core.CoreDsl.global;
+import static io.gatling.javaapi.core.CoreDsl.scenario;
+import static io.gatling.javaapi.http.HttpDsl.http;
+import static io.gatling.javaapi.http.HttpDsl.status;
+
+import io.gatling.javaapi.core.ChainBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+import io.gatling.javaapi.http.HttpRequestActionBuilder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures every combination of the filters of the product listing, each with its own request in
+ * the report, so that a combination whose query misses its index stands out. The catalog is filled
+ * by {@code perf/generate-products.sql}, and the application runs with {@code
+ * product.search.index.enabled=false} so that every filter reaches the database. Running it before
+ * and after a change of the queries compares their latency; {@code ProductListingPlanIT} shows the
+ * plans of the same combinations.
+ */
+public class ProductFilterSimulation extends Simulation {
+  private static final int PER_PAGE = Integer.getInteger("perPage", 20);
+  private static final int USERS_PER_SEC = Integer.getInteger("usersPerSec", 20);
+
+  private final HttpProtocolBuilder httpProtocolBuilder =
+      http.baseUrl("http://localhost:8081").header("Content-Type", "application/json");
+
+  ScenarioBuilder filters = scenario("filters").exec(combinations());
+
+  private static List<ChainBuilder> combinations() {
+    List<ChainBuilder> combinations = new ArrayList<>();
+    for (int shape = 0; shape < 16; shape++) {
+      boolean name = (shape & 1) != 0;
+      boolean description = (shape & 2) != 0;
+      boolean inactive = (shape & 4) != 0;
+      boolean price = (shape & 8) != 0;
+      String label =
+          "%s%s%s%s"
+              .formatted(
+                  name ? "name " : "",
+                  description ? "description " : "",
+                  inactive ? "inactive " : "active ",
+                  price ? "price" : "")
+              .trim();
+      HttpRequestActionBuilder request =
+          http(label)
+              .get("/products")
+              .queryParam("perPage", PER_PAGE)
+              .queryParam("count", "none")
+              .queryParam("active", !inactive);
+      if (name) {
+        request = request.queryParam("name", "tenis");
+      }
+      if (description) {
+        request = request.queryParam("description", "algodao");
+      }
+      if (price) {
+        request = request.queryParam("minPrice", 10).queryParam("maxPrice", 50);
+      }
+      combinations.add(request.check(status().is(200)).toChainBuilder());
+    }
+    return combinations;
+  }
+
+  {
+    setUp(filters.injectOpen(constantUsersPerSec(USERS_PER_SEC).during(Duration.ofSeconds(30))))
+        .protocols(httpProtocolBuilder)
+        .assertions(global().failedRequests().count().is(0L));
+  }
+}
@@ -0,0 +1,64 @@
+package br.com.powerprogramers.product.performance;
+
+import static io.gatling.javaapi.core.CoreDsl.constantUsersPerSec;
+import static io.gatling.javaapi.core.CoreDsl.doIf;
+import static io.gatling.javaapi.core.CoreDsl.global;
+import static io.gatling.javaapi.core.CoreDsl.jsonPath;
+import static io.gatling.javaapi.core.CoreDsl.scenario;
+import static io.gatling.javaapi.http.HttpDsl.http;
+import static io.gatling.javaapi.http.HttpDsl.status;
+
+import io.gatling.javaapi.core.ChainBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Compares the response times of the product pages at growing depths, read by page number and by
+ * cursor. Each depth has its own request in the report: the page numbers get slower as the depth
+ * grows, while the cursors stay flat. The catalog must hold at least the deepest page of products.
+ */
+public class ProductPagingSimulation extends Simulation {
+  private static final int PER_PAGE = Integer.getInteger("perPage", 10);
+  private static final List<Integer> DEPTHS = List.of(0, 100, 1000, 5000);
+  private static final int USERS_PER_SEC = Integer.getInteger("usersPerSec", 20);
+
+  private final HttpProtocolBuilder httpProtocolBuilder =
+      http.baseUrl("http://localhost:8081").header("Content-Type", "application/json");
+
+  ScenarioBuilder paging =
+      scenario("paging").exec(DEPTHS.stream().map(ProductPagingSimulation::depth).toList());
+
+  private static ChainBuilder depth(int page) {
+    // the page before the measured one hands out the cursor, so both read the same products
+    return http("page %d before".formatted(page))
+        .get("/products")
+        .queryParam("page", Math.max(0, page - 1))
+        .queryParam("perPage", PER_PAGE)
+        .check(status().is(200), jsonPath("$.next").optional().saveAs("next"))
+        .toChainBuilder()
+        .exec(
+            http("page %d by number".formatted(page))
+                .get("/products")
+                .queryParam("page", page)
+                .queryParam("perPage", PER_PAGE)
+                .check(status().is(200)))
+        .exec(
+            doIf(session -> page > 0 && session.contains("next"))
+                .then(
+                    http("page %d by cursor".formatted(page))
+                        .get("/products")
+                        .queryParam("after", "#{next}")
+                        .queryParam("perPage", PER_PAGE)
+                        .check(status().is(200))))
+        .exec(session -> session.remove("next"));
+  }
+
+  {
+    setUp(paging.injectOpen(constantUsersPerSec(USERS_PER_SEC).during(Duration.ofSeconds(30))))
+        .protocols(httpProtocolBuilder)
+        .assertions(global().failedRequests().count().is(0L));
+  }
+}
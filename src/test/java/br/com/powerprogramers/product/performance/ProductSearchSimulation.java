@@ -0,0 +1,57 @@
+package br.com.powerprogramers.product.performance;
+
+import static io.gatling.javaapi.core.CoreDsl.constantUsersPerSec;
+import static io.gatling.javaapi.core.CoreDsl.global;
+import static io.gatling.javaapi.core.CoreDsl.scenario;
+import static io.gatling.javaapi.http.HttpDsl.http;
+import static io.gatling.javaapi.http.HttpDsl.status;
+
+import io.gatling.javaapi.core.ChainBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Measures the text filters of the product listing on Postgres, written with and without accents
+ * and case. The catalog is filled by {@code perf/generate-products.sql}, and the application runs
+ * with {@code product.search.index.enabled=false} so that every filter reaches the trigram indexes
+ * of the database instead of the in-memory index.
+ */
+public class ProductSearchSimulation extends Simulation {
+  private static final int PER_PAGE = Integer.getInteger("perPage", 20);
+  private static final List<String> NAMES = List.of("tenis", "Tênis", "PROTETOR", "cafe", "xicara");
+  private static final List<String> DESCRIPTIONS = List.of("algodao", "proteção", "inox");
+  private static final int USERS_PER_SEC = Integer.getInteger("usersPerSec", 20);
+
+  private final HttpProtocolBuilder httpProtocolBuilder =
+      http.baseUrl("http://localhost:8081").header("Content-Type", "application/json");
+
+  ScenarioBuilder search =
+      scenario("search")
+          .exec(NAMES.stream().map(name -> filter("name", name)).toList())
+          .exec(DESCRIPTIONS.stream().map(text -> filter("description", text)).toList());
+
+  private static ChainBuilder filter(String parameter, String text) {
+    return http("%s %s".formatted(parameter, text))
+        .get("/products")
+        .queryParam(parameter, text)
+        .queryParam("perPage", PER_PAGE)
+        .queryParam("count", "none")
+        .check(status().is(200))
+        .toChainBuilder()
+        .exec(
+            http("%s %s counted".formatted(parameter, text))
+                .get("/products")
+                .queryParam(parameter, text)
+                .queryParam("perPage", PER_PAGE)
+                .check(status().is(200)));
+  }
+
+  {
+    setUp(search.injectOpen(constantUsersPerSec(USERS_PER_SEC).during(Duration.ofSeconds(30))))
+        .protocols(httpProtocolBuilder)
+        .assertions(global().failedRequests().count().is(0L));
+  }
+}
@@ -0,0 +1,53 @@
+package br.com.powerprogramers.product.performance;
+
+import static io.gatling.javaapi.core.CoreDsl.StringBody;
+import static io.gatling.javaapi.core.CoreDsl.constantUsersPerSec;
+import static io.gatling.javaapi.core.CoreDsl.global;
+import static io.gatling.javaapi.core.CoreDsl.scenario;
+import static io.gatling.javaapi.http.HttpDsl.http;
+import static io.gatling.javaapi.http.HttpDsl.status;
+
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+import java.time.Duration;
+
+/**
+ * Compares stock updates on a product kept in its own row with a product split in slots, both under
+ * the same load, through the response times of each request in the report. The application must run
+ * with product.stock.split.product-ids set to the split product.
+ */
+public class StockSplitSimulation extends Simulation {
+  private static final long SINGLE_ROW_PRODUCT = Long.getLong("singleRowProductId", 1L);
+  private static final long SPLIT_PRODUCT = Long.getLong("splitProductId", 3L);
+  private static final int USERS_PER_SEC = Integer.getInteger("usersPerSec", 200);
+
+  private final HttpProtocolBuilder httpProtocolBuilder =
+      http.baseUrl("http://localhost:8081").header("Content-Type", "application/json");
+
+  ScenarioBuilder singleRow = stockScenario("single row", SINGLE_ROW_PRODUCT);
+  ScenarioBuilder split = stockScenario("split", SPLIT_PRODUCT);
+
+  private static ScenarioBuilder stockScenario(String name, long productId) {
+    // every user removes and gives back one unit, so the stock is the same at the end of the run
+    return scenario(name)
+        .exec(
+            http(name + " remove stock")
+                .post("/api/consumer-remove-stock")
+                .body(StringBody("{\"id\": %d, \"amount\": 1}".formatted(productId)))
+                .check(status().is(202)))
+        .exec(
+            http(name + " add stock")
+                .patch("/stock/%d".formatted(productId))
+                .queryParam("amount", 1)
+                .check(status().is(200)));
+  }
+
+  {
+    setUp(
+            singleRow.injectOpen(constantUsersPerSec(USERS_PER_SEC).during(Duration.ofSeconds(30))),
+            split.injectOpen(constantUsersPerSec(USERS_PER_SEC).during(Duration.ofSeconds(30))))
+        .protocols(httpProtocolBuilder)
+        .assertions(global().failedRequests().count().is(0L));
+  }
+}
@@ -0,0 +1,21 @@
+-- Fills the product table of a Postgres database with the catalog of ProductSearchSimulation.
+-- Run it after the application has started once, so the table and its search indexes exist:
+--   psql -v rows=5000000 -f generate-products.sql ms-product
+\if :{?rows}
+\else
+\set rows 5000000
+\endif
+
+INSERT INTO product (name, description, price, amount, active, version)
+SELECT (ARRAY ['Tênis', 'Camiseta', 'Protetor solar', 'Café', 'Xícara', 'Calça', 'Sabão', 'Pão'])[1 + i % 8]
+           || ' ' || (ARRAY ['básico', 'esportivo', 'orgânico', 'térmico', 'clássico'])[1 + i % 5]
+           || ' ' || i,
+       (ARRAY ['Feito de algodão', 'Proteção FPS 50', 'Aço inox', 'Torra média', 'Coleção verão'])[1 + (i / 8) % 5]
+           || ' lote ' || (i % 1000),
+       round((1 + random() * 500)::numeric, 2),
+       (random() * 1000)::int,
+       i % 10 <> 0,
+       0
+FROM generate_series(1, :rows) AS i;
+
+ANALYZE product;